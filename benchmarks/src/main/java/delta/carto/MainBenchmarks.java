@@ -0,0 +1,39 @@
+package delta.carto;
+
+import java.io.File;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main class used to run the benchmarks.
+ * Accepts the usual JMH command line options. Unless specified otherwise
+ * (options <code>-rf</code> and <code>-rff</code>), results are written in the JSON
+ * format to <code>jmh-result.json</code>, so that they can be compared between releases.
+ * @author DAM
+ */
+public class MainBenchmarks
+{
+  private static final String DEFAULT_RESULT_FILE="jmh-result.json";
+
+  /**
+   * Main method for benchmarks.
+   * @param args JMH command line options.
+   * @throws Exception if benchmarks could not be run.
+   */
+  public static void main(String[] args) throws Exception
+  {
+    CommandLineOptions commandLine=new CommandLineOptions(args);
+    ResultFormatType format=commandLine.getResultFormat().orElse(ResultFormatType.JSON);
+    String resultFile=commandLine.getResult().orElse(DEFAULT_RESULT_FILE);
+    Options options=new OptionsBuilder()
+        .parent(commandLine)
+        .resultFormat(format)
+        .result(new File(resultFile).getAbsolutePath())
+        .build();
+    new Runner(options).run();
+  }
+}
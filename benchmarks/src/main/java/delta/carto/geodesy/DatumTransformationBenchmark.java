@@ -0,0 +1,85 @@
+package delta.carto.geodesy;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for NAD27 to WGS84 batch transformations.
+ * @author DAM
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class DatumTransformationBenchmark
+{
+  @Param({"1024","65536","1048576"})
+  private int _size;
+
+  @Param({"MOLODENSKY","HELMERT"})
+  private DatumTransformation.Method _method;
+
+  private DatumTransformation _transformation;
+  private double[] _latitudes;
+  private double[] _longitudes;
+  private double[] _outLatitudes;
+  private double[] _outLongitudes;
+
+  /**
+   * Build benchmark data.
+   */
+  @Setup
+  public void setup()
+  {
+    GeodeticDatumRegister register=GeodeticDatumRegister.getInstance();
+    GeodeticDatum nad27=register.getGeodeticDatumByName("NAD27");
+    _transformation=DatumTransformation.getTransformation(nad27,register.getDefaultGeodeticDatum(),_method);
+    Random random=new Random(12345);
+    _latitudes=new double[_size];
+    _longitudes=new double[_size];
+    for(int i=0;i<_size;i++)
+    {
+      _latitudes[i]=25+random.nextDouble()*25;
+      _longitudes[i]=-125+random.nextDouble()*55;
+    }
+    _outLatitudes=new double[_size];
+    _outLongitudes=new double[_size];
+  }
+
+  /**
+   * Sequential batch transformation.
+   * @return the transformed latitudes.
+   */
+  @Benchmark
+  public double[] sequential()
+  {
+    _transformation.transform(_latitudes,_longitudes,null,0,_size,_outLatitudes,_outLongitudes,null);
+    return _outLatitudes;
+  }
+
+  /**
+   * Parallel batch transformation on the common pool.
+   * @return the transformed latitudes.
+   */
+  @Benchmark
+  public double[] parallel()
+  {
+    _transformation.transform(_latitudes,_longitudes,null,0,_size,_outLatitudes,_outLongitudes,null,ForkJoinPool.commonPool());
+    return _outLatitudes;
+  }
+}
@@ -0,0 +1,155 @@
+package delta.carto.geometry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the compact polygon encoding, compared to the raw
+ * {@link GeoPolygon#write(DataOutputStream)}/{@link GeoPolygon#read(DataInputStream)} format.
+ * Encoded sizes are reported by the write benchmarks, as an auxiliary counter.
+ * @author DAM
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompactPolygonCodecBenchmark
+{
+  /**
+   * Auxiliary counter for the size of the encoded polygon.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class EncodedSize
+  {
+    /**
+     * Number of bytes of the last encoding.
+     */
+    public long encodedBytes;
+  }
+
+  @Param({"1000","100000"})
+  private int _nbPoints;
+
+  private GeoPolygon _polygon;
+  private GeoPolygon _readPolygon;
+  private ByteArrayOutputStream _bos;
+  private byte[] _raw;
+  private byte[] _compact;
+
+  /**
+   * Build benchmark data: a random walk similar to a coastline.
+   * @throws IOException if an I/O error occurs.
+   */
+  @Setup
+  public void setup() throws IOException
+  {
+    Random random=new Random(12345);
+    _polygon=new GeoPolygon(_nbPoints);
+    double lat=45;
+    double lon=2;
+    for(int i=0;i<_nbPoints;i++)
+    {
+      lat+=random.nextGaussian()*0.005;
+      lon+=random.nextGaussian()*0.005;
+      _polygon.addPoint(lat, lon);
+    }
+    _readPolygon=new GeoPolygon(_nbPoints);
+    _bos=new ByteArrayOutputStream(_nbPoints*16+64);
+    encodeRaw();
+    _raw=_bos.toByteArray();
+    encodeCompact();
+    _compact=_bos.toByteArray();
+  }
+
+  private int encodeRaw() throws IOException
+  {
+    _bos.reset();
+    DataOutputStream dos=new DataOutputStream(_bos);
+    _polygon.write(dos);
+    dos.flush();
+    return _bos.size();
+  }
+
+  private int encodeCompact() throws IOException
+  {
+    _bos.reset();
+    CompactPolygonWriter writer=new CompactPolygonWriter(_bos, 1e-7);
+    writer.write(_polygon);
+    writer.flush();
+    return _bos.size();
+  }
+
+  /**
+   * Raw write.
+   * @param size Counter for the encoded size.
+   * @return the number of written bytes.
+   * @throws IOException if an I/O error occurs.
+   */
+  @Benchmark
+  public int writeRaw(EncodedSize size) throws IOException
+  {
+    int ret=encodeRaw();
+    size.encodedBytes=ret;
+    return ret;
+  }
+
+  /**
+   * Raw read.
+   * @return the read polygon.
+   * @throws IOException if an I/O error occurs.
+   */
+  @Benchmark
+  public GeoPolygon readRaw() throws IOException
+  {
+    _readPolygon.read(new DataInputStream(new ByteArrayInputStream(_raw)));
+    return _readPolygon;
+  }
+
+  /**
+   * Compact write (1e-7 degrees precision).
+   * @param size Counter for the encoded size.
+   * @return the number of written bytes.
+   * @throws IOException if an I/O error occurs.
+   */
+  @Benchmark
+  public int writeCompact(EncodedSize size) throws IOException
+  {
+    int ret=encodeCompact();
+    size.encodedBytes=ret;
+    return ret;
+  }
+
+  /**
+   * Compact read.
+   * @return the read polygon.
+   * @throws IOException if an I/O error occurs.
+   */
+  @Benchmark
+  public GeoPolygon readCompact() throws IOException
+  {
+    CompactPolygonReader reader=new CompactPolygonReader(new ByteArrayInputStream(_compact));
+    reader.read(_readPolygon);
+    return _readPolygon;
+  }
+}
@@ -0,0 +1,101 @@
+package delta.carto.geometry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the polygon I/O.
+ * @author DAM
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeoPolygonIOBenchmark
+{
+  @Param({"100","10000","1000000"})
+  private int _nbPoints;
+
+  private GeoPolygon _polygon;
+  private byte[] _data;
+  private ByteArrayOutputStream _bos;
+
+  /**
+   * Build benchmark data.
+   * @throws IOException if an I/O error occurs.
+   */
+  @Setup
+  public void setup() throws IOException
+  {
+    Random random=new Random(12345);
+    _polygon=new GeoPolygon(_nbPoints);
+    for(int i=0;i<_nbPoints;i++)
+    {
+      _polygon.addPoint(random.nextDouble()*180-90, random.nextDouble()*360-180);
+    }
+    _bos=new ByteArrayOutputStream(_nbPoints*16+64);
+    _polygon.write(new DataOutputStream(_bos));
+    _data=_bos.toByteArray();
+  }
+
+  /**
+   * Write a polygon.
+   * @return the number of written bytes.
+   * @throws IOException if an I/O error occurs.
+   */
+  @Benchmark
+  public int write() throws IOException
+  {
+    _bos.reset();
+    DataOutputStream dos=new DataOutputStream(_bos);
+    _polygon.write(dos);
+    dos.flush();
+    return _bos.size();
+  }
+
+  /**
+   * Read a polygon.
+   * @return the read polygon.
+   * @throws IOException if an I/O error occurs.
+   */
+  @Benchmark
+  public GeoPolygon read() throws IOException
+  {
+    GeoPolygon polygon=new GeoPolygon();
+    polygon.read(new DataInputStream(new ByteArrayInputStream(_data)));
+    return polygon;
+  }
+
+  /**
+   * Write then read a polygon.
+   * @return the read polygon.
+   * @throws IOException if an I/O error occurs.
+   */
+  @Benchmark
+  public GeoPolygon roundTrip() throws IOException
+  {
+    write();
+    GeoPolygon polygon=new GeoPolygon();
+    polygon.read(new DataInputStream(new ByteArrayInputStream(_bos.toByteArray())));
+    return polygon;
+  }
+}
@@ -0,0 +1,133 @@
+package delta.carto.geometry;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the geographic computation tools.
+ * @author DAM
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class ToolsBenchmark
+{
+  private static final int NB_POINTS=1024;
+
+  @Param({"36","360"})
+  private int _nbSegments;
+
+  private Geo2DPoint[] _points;
+  private double[] _lengths;
+  private double[] _headings;
+  private GeoPolygon _polygon;
+  private SegmentationTemplateCache _templates;
+  private int _index;
+
+  /**
+   * Build benchmark data.
+   */
+  @Setup
+  public void setup()
+  {
+    Random random=new Random(12345);
+    _points=new Geo2DPoint[NB_POINTS];
+    _lengths=new double[NB_POINTS];
+    _headings=new double[NB_POINTS];
+    for(int i=0;i<NB_POINTS;i++)
+    {
+      _points[i]=new Geo2DPoint(random.nextDouble()*160-80, random.nextDouble()*360-180);
+      _lengths[i]=random.nextDouble()*500000;
+      _headings[i]=random.nextDouble()*360;
+    }
+    _polygon=new GeoPolygon(_nbSegments+1);
+    _templates=new SegmentationTemplateCache(16);
+  }
+
+  private int next()
+  {
+    _index=(_index+1)&(NB_POINTS-1);
+    return _index;
+  }
+
+  /**
+   * Single point orthodromic extension.
+   * @return the computed point.
+   */
+  @Benchmark
+  public Geo2DPoint orthodromicExtension()
+  {
+    int i=next();
+    return Tools.orthodromicExtension(_points[i], _lengths[i], _headings[i]);
+  }
+
+  /**
+   * Heading/distance between two points.
+   * @return the computed heading and distance.
+   */
+  @Benchmark
+  public HeadingDistance orthodromicHeadingDistance()
+  {
+    int i=next();
+    return Tools.orthodromicHeadingDistance(_points[i], _points[(i+1)&(NB_POINTS-1)]);
+  }
+
+  /**
+   * Ellipse segmentation into a new polygon.
+   * @return the computed polygon.
+   */
+  @Benchmark
+  public GeoPolygon ellipseSegmentation()
+  {
+    int i=next();
+    return Tools.orthodromicEllipseSegmentation(_points[i], 100000, 30000, 45, _nbSegments);
+  }
+
+  /**
+   * Ellipse segmentation into a reused polygon.
+   * @return the computed polygon.
+   */
+  @Benchmark
+  public GeoPolygon ellipseSegmentationReuse()
+  {
+    int i=next();
+    return Tools.orthodromicEllipseSegmentation(_points[i], 100000, 30000, 45, _nbSegments, _polygon);
+  }
+
+  /**
+   * Ellipse segmentation into a reused polygon, using cached templates.
+   * @return the computed polygon.
+   */
+  @Benchmark
+  public GeoPolygon ellipseSegmentationTemplates()
+  {
+    int i=next();
+    return Tools.orthodromicEllipseSegmentation(_points[i], 100000, 30000, 45, _nbSegments, _polygon, _templates);
+  }
+
+  /**
+   * Arc segmentation into a new polygon.
+   * @return the computed polygon.
+   */
+  @Benchmark
+  public GeoPolygon arcSegmentation()
+  {
+    int i=next();
+    return Tools.orthodromicArcSegmentation(_points[i], 100000, 30, 90, _nbSegments);
+  }
+}
@@ -0,0 +1,131 @@
+package delta.carto.projection;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import delta.carto.geometry.GeoPolygon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the Mercator projection.
+ * Since the projection works in place, each invocation first copies source
+ * coordinates into work arrays.
+ * @author DAM
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class MercatorProjectionBenchmark
+{
+  @Param({"16","1024","65536","1048576"})
+  private int _size;
+
+  private MercatorProjection _projection;
+  private double[] _longitudes;
+  private double[] _latitudes;
+  private double[] _x;
+  private double[] _y;
+  private GeoPolygon _polygon;
+  private ProjectedGeometryCache _cache;
+
+  /**
+   * Build benchmark data.
+   */
+  @Setup
+  public void setup()
+  {
+    Random random=new Random(12345);
+    _projection=new MercatorProjection(1000);
+    _longitudes=new double[_size];
+    _latitudes=new double[_size];
+    for(int i=0;i<_size;i++)
+    {
+      _longitudes[i]=random.nextDouble()*360-180;
+      _latitudes[i]=random.nextDouble()*170-85;
+    }
+    _x=new double[_size];
+    _y=new double[_size];
+    _polygon=new GeoPolygon(_size);
+    _polygon.addPoints(_latitudes,_longitudes,0,_size);
+    _cache=new ProjectedGeometryCache(Long.MAX_VALUE);
+    _cache.project(_polygon,1,0,0,_x,_y,0);
+  }
+
+  /**
+   * Copy of the source coordinates only (baseline of the transform benchmark).
+   * @return the work array.
+   */
+  @Benchmark
+  public double[] copy()
+  {
+    System.arraycopy(_longitudes,0,_x,0,_size);
+    System.arraycopy(_latitudes,0,_y,0,_size);
+    return _y;
+  }
+
+  /**
+   * Copy and transform of the source coordinates.
+   * @return the transformed array.
+   */
+  @Benchmark
+  public double[] transform()
+  {
+    System.arraycopy(_longitudes,0,_x,0,_size);
+    System.arraycopy(_latitudes,0,_y,0,_size);
+    _projection.transform(_x,_y);
+    return _y;
+  }
+
+  /**
+   * Copy and high-throughput transform of the source coordinates, on the
+   * calling thread.
+   * @return the transformed array.
+   */
+  @Benchmark
+  public double[] fastTransform()
+  {
+    System.arraycopy(_longitudes,0,_x,0,_size);
+    System.arraycopy(_latitudes,0,_y,0,_size);
+    _projection.transform(_x,_y,0,_size,null);
+    return _y;
+  }
+
+  /**
+   * Copy and high-throughput transform of the source coordinates, on the
+   * common pool.
+   * @return the transformed array.
+   */
+  @Benchmark
+  public double[] parallelTransform()
+  {
+    System.arraycopy(_longitudes,0,_x,0,_size);
+    System.arraycopy(_latitudes,0,_y,0,_size);
+    _projection.transform(_x,_y,0,_size,ForkJoinPool.commonPool());
+    return _y;
+  }
+
+  /**
+   * Projection at another zoom and pan, from cached normalized coordinates.
+   * @return the projected array.
+   */
+  @Benchmark
+  public double[] cachedRescale()
+  {
+    _cache.project(_polygon,1000,12,-34,_x,_y,0);
+    return _y;
+  }
+}
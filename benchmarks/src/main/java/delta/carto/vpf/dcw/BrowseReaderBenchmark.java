@@ -0,0 +1,102 @@
+package delta.carto.vpf.dcw;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the VPF header parsing, on sets of synthetic headers.
+ * Compares the stream reader (one byte per call), the buffer reader
+ * (bulk delimiter scanning) and raw tokenization (no strings at all).
+ * @author DAM
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class BrowseReaderBenchmark
+{
+  private static final int NB_HEADERS=100;
+
+  @Param({"4","32","256","2048"})
+  private int _nbFields;
+
+  private byte[] _headers;
+  private BrowseReader _reader;
+  private VpfHeaderTokenizer _tokenizer;
+
+  /**
+   * Build benchmark data.
+   */
+  @Setup
+  public void setup()
+  {
+    _headers=SyntheticVpfTables.buildHeaders(NB_HEADERS,_nbFields);
+    _reader=new BrowseReader();
+    _tokenizer=new VpfHeaderTokenizer();
+  }
+
+  /**
+   * Parse headers from a stream.
+   * @return the last table schema.
+   */
+  @Benchmark
+  public VpfTableSchema readHeadersFromStream()
+  {
+    DataInputStream dis=new DataInputStream(new ByteArrayInputStream(_headers));
+    VpfTableSchema schema=null;
+    for(int i=0;i<NB_HEADERS;i++)
+    {
+      schema=_reader.readHeader(dis);
+    }
+    return schema;
+  }
+
+  /**
+   * Parse headers from a buffer.
+   * @return the last table schema.
+   */
+  @Benchmark
+  public VpfTableSchema readHeadersFromBuffer()
+  {
+    ByteBuffer buffer=ByteBuffer.wrap(_headers);
+    VpfTableSchema schema=null;
+    for(int i=0;i<NB_HEADERS;i++)
+    {
+      schema=_reader.readHeader(buffer);
+    }
+    return schema;
+  }
+
+  /**
+   * Tokenize headers text, without building strings.
+   * @return the total length of tokens.
+   */
+  @Benchmark
+  public long tokenizeHeaders()
+  {
+    VpfHeaderTokenizer tokenizer=_tokenizer;
+    tokenizer.reset(ByteBuffer.wrap(_headers));
+    long length=0;
+    while (tokenizer.nextToken((byte)',',(byte)':'))
+    {
+      length+=tokenizer.getTokenLength();
+    }
+    return length;
+  }
+}
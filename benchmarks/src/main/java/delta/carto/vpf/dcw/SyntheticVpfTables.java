@@ -0,0 +1,114 @@
+package delta.carto.vpf.dcw;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds synthetic VPF tables for benchmarks.
+ * @author DAM
+ */
+public class SyntheticVpfTables
+{
+  /**
+   * Build a synthetic table header.
+   * @param nbFields Number of column definitions.
+   * @return the header bytes (little endian, without byte order flag).
+   */
+  public static byte[] buildHeader(int nbFields)
+  {
+    StringBuilder sb=new StringBuilder();
+    sb.append(";Synthetic table for benchmarks;-;");
+    for(int i=0;i<nbFields;i++)
+    {
+      sb.append("FIELD_").append(i).append('=');
+      switch (i%4)
+      {
+        case 0: sb.append("I,1,P,"); break;
+        case 1: sb.append("T,12,N,"); break;
+        case 2: sb.append("F,1,N,"); break;
+        default: sb.append("C,*,N,"); break;
+      }
+      sb.append("Description of field ").append(i).append(",-,-,:");
+    }
+    sb.append(';');
+    byte[] text=sb.toString().getBytes(StandardCharsets.US_ASCII);
+    ByteBuffer buffer=ByteBuffer.allocate(4+text.length).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(text.length);
+    buffer.put(text);
+    return buffer.array();
+  }
+
+  /**
+   * Build a set of synthetic table headers, stored one after the other.
+   * @param nbHeaders Number of headers.
+   * @param nbFields Number of column definitions in each header.
+   * @return the headers bytes.
+   */
+  public static byte[] buildHeaders(int nbHeaders, int nbFields)
+  {
+    byte[] header=buildHeader(nbFields);
+    byte[] headers=new byte[nbHeaders*header.length];
+    for(int i=0;i<nbHeaders;i++)
+    {
+      System.arraycopy(header,0,headers,i*header.length,header.length);
+    }
+    return headers;
+  }
+
+  /**
+   * Build a synthetic edge table: identifier, start and end nodes, then
+   * a variable number of 2D float coordinates.
+   * @param nbRecords Number of records.
+   * @param nbPoints Number of points of each edge.
+   * @return the table bytes (little endian).
+   */
+  public static byte[] buildEdgeTable(int nbRecords, int nbPoints)
+  {
+    byte[] header=(";Synthetic edge table;-;"
+        +"ID=I,1,P,Row Identifier,-,-,:"
+        +"START_NODE=I,1,N,Start Node,-,-,:"
+        +"END_NODE=I,1,N,End Node,-,-,:"
+        +"COORDINATES=C,*,N,Coordinates,-,-,:;").getBytes(StandardCharsets.US_ASCII);
+    int recordSize=16+8*nbPoints;
+    ByteBuffer buffer=ByteBuffer.allocate(4+header.length+nbRecords*recordSize).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(header.length);
+    buffer.put(header);
+    for(int i=0;i<nbRecords;i++)
+    {
+      buffer.putInt(i+1);
+      buffer.putInt(2*i+1);
+      buffer.putInt(2*i+2);
+      buffer.putInt(nbPoints);
+      for(int j=0;j<nbPoints;j++)
+      {
+        buffer.putFloat(-180+(i%360)+j*0.001f);
+        buffer.putFloat(-90+(i%180)+j*0.001f);
+      }
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Build a synthetic node table (fixed length records): identifier, then
+   * 2D float coordinates.
+   * @param nbRecords Number of records.
+   * @return the table bytes (little endian).
+   */
+  public static byte[] buildNodeTable(int nbRecords)
+  {
+    byte[] header=(";Synthetic node table;-;"
+        +"ID=I,1,P,Row Identifier,-,-,:"
+        +"COORDINATE=C,1,N,Coordinate,-,-,:;").getBytes(StandardCharsets.US_ASCII);
+    ByteBuffer buffer=ByteBuffer.allocate(4+header.length+nbRecords*12).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(header.length);
+    buffer.put(header);
+    for(int i=0;i<nbRecords;i++)
+    {
+      buffer.putInt(i+1);
+      buffer.putFloat(-180+(i%360)*0.999f);
+      buffer.putFloat(-90+(i%180)*0.999f);
+    }
+    return buffer.array();
+  }
+}
@@ -0,0 +1,97 @@
+package delta.carto.vpf.dcw;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the VPF table reader, on synthetic edge tables (variable
+ * length records) and node tables (fixed length records). Node tables are
+ * also decoded one value per call with a data input stream, for comparison.
+ * @author DAM
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class VpfTableReaderBenchmark
+{
+  @Param({"10000","100000"})
+  private int _nbRecords;
+
+  @Param({"2","50"})
+  private int _nbPoints;
+
+  private byte[] _table;
+  private byte[] _nodeTable;
+
+  /**
+   * Build benchmark data.
+   */
+  @Setup
+  public void setup()
+  {
+    _table=SyntheticVpfTables.buildEdgeTable(_nbRecords,_nbPoints);
+    _nodeTable=SyntheticVpfTables.buildNodeTable(_nbRecords*_nbPoints);
+  }
+
+  /**
+   * Read a whole table.
+   * @return the read table.
+   * @throws IOException if an I/O error occurs.
+   */
+  @Benchmark
+  public VpfTable readTable() throws IOException
+  {
+    return new VpfTableReader().read(new ByteArrayInputStream(_table));
+  }
+
+  /**
+   * Read a whole node table.
+   * @return the read table.
+   * @throws IOException if an I/O error occurs.
+   */
+  @Benchmark
+  public VpfTable readNodeTable() throws IOException
+  {
+    return new VpfTableReader().read(new ByteArrayInputStream(_nodeTable));
+  }
+
+  /**
+   * Decode a node table with a data input stream, one value per call.
+   * @return the decoded coordinates.
+   * @throws IOException if an I/O error occurs.
+   */
+  @Benchmark
+  public float[] readNodeTableWithDataInputStream() throws IOException
+  {
+    DataInputStream dis=new DataInputStream(new ByteArrayInputStream(_nodeTable));
+    int headerLength=Integer.reverseBytes(dis.readInt());
+    dis.skipBytes(headerLength);
+    int nbRecords=(_nodeTable.length-4-headerLength)/12;
+    int[] ids=new int[nbRecords];
+    float[] coordinates=new float[2*nbRecords];
+    for(int i=0;i<nbRecords;i++)
+    {
+      ids[i]=Integer.reverseBytes(dis.readInt());
+      coordinates[2*i]=Float.intBitsToFloat(Integer.reverseBytes(dis.readInt()));
+      coordinates[2*i+1]=Float.intBitsToFloat(Integer.reverseBytes(dis.readInt()));
+    }
+    return coordinates;
+  }
+}
@@ -0,0 +1,497 @@
+package delta.carto.geodesy;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Transformation of geodetic coordinates from a datum to another.
+ * <p>
+ * The constants of a transformation are computed once per datum pair and
+ * method, then shared. Batch methods work on arrays of latitudes, longitudes
+ * and heights, with simple loops that the JIT compiler can optimize, and may
+ * split large sets on a fork/join pool. Instances are immutable and
+ * thread-safe.
+ * @author DAM
+ */
+public final class DatumTransformation
+{
+  /**
+   * Transformation methods.
+   */
+  public enum Method
+  {
+    /**
+     * Standard Molodensky formulas: geodetic coordinates are shifted directly.
+     * Only translations are supported. Accuracy is about 1 meter.
+     */
+    MOLODENSKY,
+    /**
+     * Seven-parameter Helmert transformation of geocentric coordinates.
+     */
+    HELMERT
+  }
+
+  private static final int PARALLEL_THRESHOLD=8192;
+  private static final double DEGREES_TO_RADIANS=Math.PI/180;
+  private static final double RADIANS_TO_DEGREES=180/Math.PI;
+
+  /**
+   * Cache of transformations. Replaced by a larger one when new datums are
+   * registered.
+   */
+  private static volatile Cache _cache=new Cache(0);
+
+  private final GeodeticDatum _source;
+  private final GeodeticDatum _target;
+  private final Method _method;
+  private final boolean _identity;
+  // Source and target ellipsoids
+  private final double _sourceA;
+  private final double _sourceE2;
+  private final double _targetA;
+  private final double _targetB;
+  private final double _targetE2;
+  private final double _targetEp2;
+  // Molodensky constants
+  private final double _dx;
+  private final double _dy;
+  private final double _dz;
+  private final double _da;
+  private final double _df;
+  private final double _sourceBOverA;
+  private final double _sourceAOverB;
+  // Helmert constants: affine transformation from source to target geocentric coordinates
+  private final double[] _affine;
+
+  private DatumTransformation(GeodeticDatum source, GeodeticDatum target, Method method)
+  {
+    Ellipsoid sourceEllipsoid=source.getEllipsoid();
+    Ellipsoid targetEllipsoid=target.getEllipsoid();
+    HelmertParameters sourceToWGS84=source.getToWGS84();
+    HelmertParameters targetToWGS84=target.getToWGS84();
+    if ((sourceEllipsoid==null)||(sourceToWGS84==null))
+    {
+      throw new IllegalArgumentException("Unknown parameters for datum: "+source);
+    }
+    if ((targetEllipsoid==null)||(targetToWGS84==null))
+    {
+      throw new IllegalArgumentException("Unknown parameters for datum: "+target);
+    }
+    if ((method==Method.MOLODENSKY)&&((!isTranslation(sourceToWGS84))||(!isTranslation(targetToWGS84))))
+    {
+      throw new IllegalArgumentException("Molodensky method needs translation-only parameters: "+source+" -> "+target);
+    }
+    _source=source;
+    _target=target;
+    _method=method;
+    _identity=(source==target);
+    _sourceA=sourceEllipsoid.getSemiMajorAxis();
+    _sourceE2=sourceEllipsoid.getEccentricitySquared();
+    _targetA=targetEllipsoid.getSemiMajorAxis();
+    _targetB=targetEllipsoid.getSemiMinorAxis();
+    _targetE2=targetEllipsoid.getEccentricitySquared();
+    _targetEp2=(_targetA*_targetA-_targetB*_targetB)/(_targetB*_targetB);
+    _dx=sourceToWGS84.getTranslationX()-targetToWGS84.getTranslationX();
+    _dy=sourceToWGS84.getTranslationY()-targetToWGS84.getTranslationY();
+    _dz=sourceToWGS84.getTranslationZ()-targetToWGS84.getTranslationZ();
+    _da=targetEllipsoid.getSemiMajorAxis()-sourceEllipsoid.getSemiMajorAxis();
+    _df=targetEllipsoid.getFlattening()-sourceEllipsoid.getFlattening();
+    _sourceBOverA=sourceEllipsoid.getSemiMinorAxis()/_sourceA;
+    _sourceAOverB=1/_sourceBOverA;
+    _affine=compose(targetToWGS84.toInverseAffine(),sourceToWGS84.toAffine());
+  }
+
+  private static boolean isTranslation(HelmertParameters parameters)
+  {
+    return (parameters.getRotationX()==0)&&(parameters.getRotationY()==0)&&(parameters.getRotationZ()==0)&&(parameters.getScale()==0);
+  }
+
+  /**
+   * Compose two affine transformations.
+   * @param second Transformation to apply last.
+   * @param first Transformation to apply first.
+   * @return the composed transformation.
+   */
+  private static double[] compose(double[] second, double[] first)
+  {
+    double[] ret=new double[12];
+    for(int i=0;i<3;i++)
+    {
+      for(int j=0;j<3;j++)
+      {
+        ret[3*i+j]=second[3*i]*first[j]+second[3*i+1]*first[3+j]+second[3*i+2]*first[6+j];
+      }
+      ret[9+i]=second[3*i]*first[9]+second[3*i+1]*first[10]+second[3*i+2]*first[11]+second[9+i];
+    }
+    return ret;
+  }
+
+  /**
+   * Get the transformation between two datums.
+   * @param source Source datum.
+   * @param target Target datum.
+   * @param method Method to use.
+   * @return a transformation.
+   * @throws IllegalArgumentException if the parameters of a datum are unknown,
+   * or if they are not supported by the given method.
+   */
+  public static DatumTransformation getTransformation(GeodeticDatum source, GeodeticDatum target, Method method)
+  {
+    Cache cache=_cache;
+    if (Math.max(source.getOrdinal(),target.getOrdinal())>=cache._nbDatums)
+    {
+      // Racing threads may drop each other's entries: they are recomputed
+      cache=new Cache(GeodeticDatumRegister.getInstance().getNumberOfGeodeticDatums());
+      _cache=cache;
+    }
+    int index=((source.getOrdinal()*cache._nbDatums)+target.getOrdinal())*2+method.ordinal();
+    DatumTransformation ret=cache._transformations[index];
+    if (ret==null)
+    {
+      ret=new DatumTransformation(source,target,method);
+      cache._transformations[index]=ret;
+    }
+    return ret;
+  }
+
+  /**
+   * Get the source datum.
+   * @return the source datum.
+   */
+  public GeodeticDatum getSource()
+  {
+    return _source;
+  }
+
+  /**
+   * Get the target datum.
+   * @return the target datum.
+   */
+  public GeodeticDatum getTarget()
+  {
+    return _target;
+  }
+
+  /**
+   * Get the transformation method.
+   * @return a method.
+   */
+  public Method getMethod()
+  {
+    return _method;
+  }
+
+  /**
+   * Transform a single position.
+   * @param latitude Latitude (degrees).
+   * @param longitude Longitude (degrees).
+   * @param height Ellipsoidal height (meters).
+   * @param result Storage for the transformed latitude, longitude and height.
+   */
+  public void transform(double latitude, double longitude, double height, double[] result)
+  {
+    if (_identity)
+    {
+      result[0]=latitude;
+      result[1]=longitude;
+      result[2]=height;
+    }
+    else if (_method==Method.MOLODENSKY)
+    {
+      molodensky(latitude,longitude,height,result);
+    }
+    else
+    {
+      helmert(latitude,longitude,height,result);
+    }
+  }
+
+  /**
+   * Transform a set of positions. Output arrays may be the input arrays.
+   * @param latitudes Latitudes (degrees).
+   * @param longitudes Longitudes (degrees).
+   * @param heights Ellipsoidal heights (meters), or <code>null</code> for
+   * zero heights.
+   * @param offset Index of the first position to transform.
+   * @param length Number of positions to transform.
+   * @param outLatitudes Storage for transformed latitudes (same indexes).
+   * @param outLongitudes Storage for transformed longitudes (same indexes).
+   * @param outHeights Storage for transformed heights (same indexes), or
+   * <code>null</code>.
+   */
+  public void transform(double[] latitudes, double[] longitudes, double[] heights, int offset, int length,
+      double[] outLatitudes, double[] outLongitudes, double[] outHeights)
+  {
+    if ((offset<0)||(length<0)||(offset+length<0)||(offset+length>latitudes.length)||(offset+length>longitudes.length))
+    {
+      throw new IllegalArgumentException("Bad range: offset="+offset+", length="+length);
+    }
+    int end=offset+length;
+    if (_identity)
+    {
+      copy(latitudes,outLatitudes,offset,length);
+      copy(longitudes,outLongitudes,offset,length);
+      if (outHeights!=null)
+      {
+        if (heights!=null) copy(heights,outHeights,offset,length);
+        else Arrays.fill(outHeights,offset,end,0);
+      }
+    }
+    else if (_method==Method.MOLODENSKY)
+    {
+      molodensky(latitudes,longitudes,heights,offset,end,outLatitudes,outLongitudes,outHeights);
+    }
+    else
+    {
+      helmert(latitudes,longitudes,heights,offset,end,outLatitudes,outLongitudes,outHeights);
+    }
+  }
+
+  /**
+   * Transform a set of positions, using a fork/join pool for large sets.
+   * Output arrays may be the input arrays.
+   * @param latitudes Latitudes (degrees).
+   * @param longitudes Longitudes (degrees).
+   * @param heights Ellipsoidal heights (meters), or <code>null</code> for
+   * zero heights.
+   * @param offset Index of the first position to transform.
+   * @param length Number of positions to transform.
+   * @param outLatitudes Storage for transformed latitudes (same indexes).
+   * @param outLongitudes Storage for transformed longitudes (same indexes).
+   * @param outHeights Storage for transformed heights (same indexes), or
+   * <code>null</code>.
+   * @param pool Pool to use.
+   */
+  public void transform(double[] latitudes, double[] longitudes, double[] heights, int offset, int length,
+      double[] outLatitudes, double[] outLongitudes, double[] outHeights, ForkJoinPool pool)
+  {
+    if ((offset<0)||(length<0)||(offset+length<0)||(offset+length>latitudes.length)||(offset+length>longitudes.length))
+    {
+      throw new IllegalArgumentException("Bad range: offset="+offset+", length="+length);
+    }
+    if (length<=PARALLEL_THRESHOLD)
+    {
+      transform(latitudes,longitudes,heights,offset,length,outLatitudes,outLongitudes,outHeights);
+      return;
+    }
+    pool.invoke(new TransformTask(latitudes,longitudes,heights,offset,offset+length,outLatitudes,outLongitudes,outHeights));
+  }
+
+  private static void copy(double[] from, double[] to, int offset, int length)
+  {
+    if (from!=to)
+    {
+      System.arraycopy(from,offset,to,offset,length);
+    }
+  }
+
+  private void molodensky(double[] latitudes, double[] longitudes, double[] heights, int from, int to,
+      double[] outLatitudes, double[] outLongitudes, double[] outHeights)
+  {
+    double a=_sourceA;
+    double e2=_sourceE2;
+    double dx=_dx;
+    double dy=_dy;
+    double dz=_dz;
+    double da=_da;
+    double df=_df;
+    double bOverA=_sourceBOverA;
+    double aOverB=_sourceAOverB;
+    for(int i=from;i<to;i++)
+    {
+      double lat=latitudes[i]*DEGREES_TO_RADIANS;
+      double lon=longitudes[i]*DEGREES_TO_RADIANS;
+      double h=(heights!=null)?heights[i]:0;
+      double sinLat=Math.sin(lat);
+      double cosLat=Math.cos(lat);
+      double sinLon=Math.sin(lon);
+      double cosLon=Math.cos(lon);
+      double w2=1-e2*sinLat*sinLat;
+      double w=Math.sqrt(w2);
+      // Radii of curvature in the prime vertical and in the meridian
+      double rn=a/w;
+      double rm=a*(1-e2)/(w2*w);
+      double dLat=(-dx*sinLat*cosLon-dy*sinLat*sinLon+dz*cosLat
+          +da*(rn*e2*sinLat*cosLat)/a
+          +df*(rm*aOverB+rn*bOverA)*sinLat*cosLat)/(rm+h);
+      double dLon=(-dx*sinLon+dy*cosLon)/((rn+h)*cosLat);
+      outLatitudes[i]=(lat+dLat)*RADIANS_TO_DEGREES;
+      outLongitudes[i]=(lon+dLon)*RADIANS_TO_DEGREES;
+      if (outHeights!=null)
+      {
+        double dh=dx*cosLat*cosLon+dy*cosLat*sinLon+dz*sinLat-da*a/rn+df*bOverA*rn*sinLat*sinLat;
+        outHeights[i]=h+dh;
+      }
+    }
+  }
+
+  /**
+   * Molodensky transformation of a single position (same formulas as the
+   * batch loop, without temporary arrays).
+   */
+  private void molodensky(double latitude, double longitude, double h, double[] result)
+  {
+    double a=_sourceA;
+    double e2=_sourceE2;
+    double lat=latitude*DEGREES_TO_RADIANS;
+    double lon=longitude*DEGREES_TO_RADIANS;
+    double sinLat=Math.sin(lat);
+    double cosLat=Math.cos(lat);
+    double sinLon=Math.sin(lon);
+    double cosLon=Math.cos(lon);
+    double w2=1-e2*sinLat*sinLat;
+    double w=Math.sqrt(w2);
+    double rn=a/w;
+    double rm=a*(1-e2)/(w2*w);
+    double dLat=(-_dx*sinLat*cosLon-_dy*sinLat*sinLon+_dz*cosLat
+        +_da*(rn*e2*sinLat*cosLat)/a
+        +_df*(rm*_sourceAOverB+rn*_sourceBOverA)*sinLat*cosLat)/(rm+h);
+    double dLon=(-_dx*sinLon+_dy*cosLon)/((rn+h)*cosLat);
+    double dh=_dx*cosLat*cosLon+_dy*cosLat*sinLon+_dz*sinLat-_da*a/rn+_df*_sourceBOverA*rn*sinLat*sinLat;
+    result[0]=(lat+dLat)*RADIANS_TO_DEGREES;
+    result[1]=(lon+dLon)*RADIANS_TO_DEGREES;
+    result[2]=h+dh;
+  }
+
+  private void helmert(double[] latitudes, double[] longitudes, double[] heights, int from, int to,
+      double[] outLatitudes, double[] outLongitudes, double[] outHeights)
+  {
+    double a=_sourceA;
+    double e2=_sourceE2;
+    double ta=_targetA;
+    double tb=_targetB;
+    double te2=_targetE2;
+    double tep2=_targetEp2;
+    double[] m=_affine;
+    double m00=m[0], m01=m[1], m02=m[2];
+    double m10=m[3], m11=m[4], m12=m[5];
+    double m20=m[6], m21=m[7], m22=m[8];
+    double tx=m[9], ty=m[10], tz=m[11];
+    for(int i=from;i<to;i++)
+    {
+      double lat=latitudes[i]*DEGREES_TO_RADIANS;
+      double lon=longitudes[i]*DEGREES_TO_RADIANS;
+      double h=(heights!=null)?heights[i]:0;
+      // Source geocentric coordinates
+      double sinLat=Math.sin(lat);
+      double cosLat=Math.cos(lat);
+      double n=a/Math.sqrt(1-e2*sinLat*sinLat);
+      double x=(n+h)*cosLat*Math.cos(lon);
+      double y=(n+h)*cosLat*Math.sin(lon);
+      double z=(n*(1-e2)+h)*sinLat;
+      // Target geocentric coordinates
+      double x2=m00*x+m01*y+m02*z+tx;
+      double y2=m10*x+m11*y+m12*z+ty;
+      double z2=m20*x+m21*y+m22*z+tz;
+      // Target geodetic coordinates (Bowring)
+      double p=Math.sqrt(x2*x2+y2*y2);
+      double theta=Math.atan2(z2*ta,p*tb);
+      double sinTheta=Math.sin(theta);
+      double cosTheta=Math.cos(theta);
+      double lat2=Math.atan2(z2+tep2*tb*sinTheta*sinTheta*sinTheta,p-te2*ta*cosTheta*cosTheta*cosTheta);
+      outLatitudes[i]=lat2*RADIANS_TO_DEGREES;
+      outLongitudes[i]=Math.atan2(y2,x2)*RADIANS_TO_DEGREES;
+      if (outHeights!=null)
+      {
+        double sinLat2=Math.sin(lat2);
+        double cosLat2=Math.cos(lat2);
+        double n2=ta/Math.sqrt(1-te2*sinLat2*sinLat2);
+        outHeights[i]=(Math.abs(cosLat2)>1e-3)?p/cosLat2-n2:z2/sinLat2-n2*(1-te2);
+      }
+    }
+  }
+
+  /**
+   * Helmert transformation of a single position (same formulas as the batch
+   * loop, without temporary arrays).
+   */
+  private void helmert(double latitude, double longitude, double h, double[] result)
+  {
+    double a=_sourceA;
+    double e2=_sourceE2;
+    double ta=_targetA;
+    double tb=_targetB;
+    double te2=_targetE2;
+    double[] m=_affine;
+    double lat=latitude*DEGREES_TO_RADIANS;
+    double lon=longitude*DEGREES_TO_RADIANS;
+    double sinLat=Math.sin(lat);
+    double cosLat=Math.cos(lat);
+    double n=a/Math.sqrt(1-e2*sinLat*sinLat);
+    double x=(n+h)*cosLat*Math.cos(lon);
+    double y=(n+h)*cosLat*Math.sin(lon);
+    double z=(n*(1-e2)+h)*sinLat;
+    double x2=m[0]*x+m[1]*y+m[2]*z+m[9];
+    double y2=m[3]*x+m[4]*y+m[5]*z+m[10];
+    double z2=m[6]*x+m[7]*y+m[8]*z+m[11];
+    double p=Math.sqrt(x2*x2+y2*y2);
+    double theta=Math.atan2(z2*ta,p*tb);
+    double sinTheta=Math.sin(theta);
+    double cosTheta=Math.cos(theta);
+    double lat2=Math.atan2(z2+_targetEp2*tb*sinTheta*sinTheta*sinTheta,p-te2*ta*cosTheta*cosTheta*cosTheta);
+    double sinLat2=Math.sin(lat2);
+    double cosLat2=Math.cos(lat2);
+    double n2=ta/Math.sqrt(1-te2*sinLat2*sinLat2);
+    result[0]=lat2*RADIANS_TO_DEGREES;
+    result[1]=Math.atan2(y2,x2)*RADIANS_TO_DEGREES;
+    result[2]=(Math.abs(cosLat2)>1e-3)?p/cosLat2-n2:z2/sinLat2-n2*(1-te2);
+  }
+
+  /**
+   * Transformations, indexed by source ordinal, target ordinal and method.
+   */
+  private static class Cache
+  {
+    private final int _nbDatums;
+    private final DatumTransformation[] _transformations;
+
+    Cache(int nbDatums)
+    {
+      _nbDatums=nbDatums;
+      _transformations=new DatumTransformation[nbDatums*nbDatums*2];
+    }
+  }
+
+  private class TransformTask extends RecursiveAction
+  {
+    private static final long serialVersionUID=1L;
+
+    private final double[] _latitudes;
+    private final double[] _longitudes;
+    private final double[] _heights;
+    private final int _from;
+    private final int _to;
+    private final double[] _outLatitudes;
+    private final double[] _outLongitudes;
+    private final double[] _outHeights;
+
+    TransformTask(double[] latitudes, double[] longitudes, double[] heights, int from, int to,
+        double[] outLatitudes, double[] outLongitudes, double[] outHeights)
+    {
+      _latitudes=latitudes;
+      _longitudes=longitudes;
+      _heights=heights;
+      _from=from;
+      _to=to;
+      _outLatitudes=outLatitudes;
+      _outLongitudes=outLongitudes;
+      _outHeights=outHeights;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (_to-_from>PARALLEL_THRESHOLD)
+      {
+        int middle=(_from+_to)>>>1;
+        invokeAll(new TransformTask(_latitudes,_longitudes,_heights,_from,middle,_outLatitudes,_outLongitudes,_outHeights),
+            new TransformTask(_latitudes,_longitudes,_heights,middle,_to,_outLatitudes,_outLongitudes,_outHeights));
+      }
+      else
+      {
+        transform(_latitudes,_longitudes,_heights,_from,_to-_from,_outLatitudes,_outLongitudes,_outHeights);
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package delta.carto.geodesy;
+
+/**
+ * Represents a reference ellipsoid.
+ * @author DAM
+ */
+public final class Ellipsoid
+{
+  /**
+   * WGS 84 ellipsoid.
+   */
+  public static final Ellipsoid WGS84=new Ellipsoid("WGS84",6378137.0,298.257223563);
+  /**
+   * Clarke 1866 ellipsoid (used by NAD27).
+   */
+  public static final Ellipsoid CLARKE_1866=new Ellipsoid("Clarke 1866",6378206.4,294.9786982);
+
+  private final String _name;
+  private final double _semiMajorAxis;
+  private final double _inverseFlattening;
+  private final double _flattening;
+  private final double _semiMinorAxis;
+  private final double _eccentricitySquared;
+
+  /**
+   * Constructor.
+   * @param name Name of this ellipsoid.
+   * @param semiMajorAxis Semi-major axis (meters).
+   * @param inverseFlattening Inverse flattening.
+   */
+  public Ellipsoid(String name, double semiMajorAxis, double inverseFlattening)
+  {
+    if (!(semiMajorAxis>0)||!(inverseFlattening>1))
+    {
+      throw new IllegalArgumentException("Bad ellipsoid parameters: a="+semiMajorAxis+", 1/f="+inverseFlattening);
+    }
+    _name=name;
+    _semiMajorAxis=semiMajorAxis;
+    _inverseFlattening=inverseFlattening;
+    _flattening=1/inverseFlattening;
+    _semiMinorAxis=semiMajorAxis*(1-_flattening);
+    _eccentricitySquared=_flattening*(2-_flattening);
+  }
+
+  /**
+   * Get the name of this ellipsoid.
+   * @return a name.
+   */
+  public String getName()
+  {
+    return _name;
+  }
+
+  /**
+   * Get the semi-major axis.
+   * @return a length in meters.
+   */
+  public double getSemiMajorAxis()
+  {
+    return _semiMajorAxis;
+  }
+
+  /**
+   * Get the semi-minor axis.
+   * @return a length in meters.
+   */
+  public double getSemiMinorAxis()
+  {
+    return _semiMinorAxis;
+  }
+
+  /**
+   * Get the inverse flattening.
+   * @return the inverse flattening.
+   */
+  public double getInverseFlattening()
+  {
+    return _inverseFlattening;
+  }
+
+  /**
+   * Get the flattening.
+   * @return the flattening.
+   */
+  public double getFlattening()
+  {
+    return _flattening;
+  }
+
+  /**
+   * Get the square of the first eccentricity.
+   * @return the square of the first eccentricity.
+   */
+  public double getEccentricitySquared()
+  {
+    return _eccentricitySquared;
+  }
+
+  @Override
+  public String toString()
+  {
+    return _name+" (a="+_semiMajorAxis+", 1/f="+_inverseFlattening+")";
+  }
+}
@@ -2,19 +2,33 @@ package delta.carto.geodesy;
 
 /**
  * Represents a geodetic datum. 
+ * <p>
+ * Datums are unique: there is a single instance per identifier, so they can be
+ * compared by identity. Each datum has a small dense ordinal, that can be used
+ * to index per-datum tables.
  * @author DAM
  */
 public class GeodeticDatum
 {
   private final String _id;
+  private final int _ordinal;
+  private final Ellipsoid _ellipsoid;
+  private final HelmertParameters _toWGS84;
 
   /**
    * Package private constructor.
    * @param id Identifier for this geodetic datum.
+   * @param ordinal Ordinal of this geodetic datum.
+   * @param ellipsoid Reference ellipsoid (may be <code>null</code> if unknown).
+   * @param toWGS84 Transformation to WGS84 geocentric coordinates (may be
+   * <code>null</code> if unknown).
    */
-  GeodeticDatum(String id)
+  GeodeticDatum(String id, int ordinal, Ellipsoid ellipsoid, HelmertParameters toWGS84)
   {
     _id=id;
+    _ordinal=ordinal;
+    _ellipsoid=ellipsoid;
+    _toWGS84=toWGS84;
   }
 
   /**
@@ -25,4 +39,39 @@ public class GeodeticDatum
   {
     return _id;
   }
+
+  /**
+   * Get the ordinal of this geodetic datum.
+   * Ordinals are given in registration order, starting at 0.
+   * @return the ordinal of this geodetic datum.
+   */
+  public int getOrdinal()
+  {
+    return _ordinal;
+  }
+
+  /**
+   * Get the reference ellipsoid of this geodetic datum.
+   * @return an ellipsoid or <code>null</code> if unknown.
+   */
+  public Ellipsoid getEllipsoid()
+  {
+    return _ellipsoid;
+  }
+
+  /**
+   * Get the parameters of the transformation from this geodetic datum to
+   * WGS84, in geocentric coordinates.
+   * @return some parameters or <code>null</code> if unknown.
+   */
+  public HelmertParameters getToWGS84()
+  {
+    return _toWGS84;
+  }
+
+  @Override
+  public String toString()
+  {
+    return _id;
+  }
 }
@@ -1,27 +1,42 @@
 package delta.carto.geodesy;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Registry for geodetic datums.
+ * <p>
+ * This class is thread-safe: lookups do not lock, and registration is
+ * serialized so that a single datum instance exists for each identifier.
  * @author DAM
  */
 public class GeodeticDatumRegister
 {
+  /**
+   * Identifier of the default geodetic datum.
+   */
+  public static final String DEFAULT_DATUM_ID="WGS84";
+
   /**
    * The unique instance of this class.
    */
-  private static GeodeticDatumRegister _instance;
+  private static final GeodeticDatumRegister _instance=new GeodeticDatumRegister();
 
   /**
    * Storage map for known geodetic datums.
    */
-  private HashMap<String, GeodeticDatum> _knownDatums;
+  private final ConcurrentHashMap<String, GeodeticDatum> _knownDatums;
+
+  /**
+   * Known geodetic datums, indexed by ordinal.
+   * Replaced by a larger copy when a datum is registered.
+   */
+  private volatile GeodeticDatum[] _datumsByOrdinal;
 
   /**
    * Default geodetic datum.
    */
-  private GeodeticDatum _defaultDatum;
+  private final GeodeticDatum _defaultDatum;
 
   /**
    * Get the sole instance of this class.
@@ -29,10 +44,6 @@ public class GeodeticDatumRegister
    */
   public static GeodeticDatumRegister getInstance()
   {
-    if(_instance==null)
-    {
-      _instance=new GeodeticDatumRegister();
-    }
     return _instance;
   }
 
@@ -43,7 +54,9 @@ public class GeodeticDatumRegister
    */
   private GeodeticDatumRegister()
   {
-    _knownDatums=new HashMap<String, GeodeticDatum>();
+    _knownDatums=new ConcurrentHashMap<String, GeodeticDatum>();
+    _datumsByOrdinal=new GeodeticDatum[0];
+    _defaultDatum=registerGeodeticDatum(DEFAULT_DATUM_ID,Ellipsoid.WGS84,HelmertParameters.IDENTITY);
     initKnownDatums();
   }
 
@@ -57,13 +70,60 @@ public class GeodeticDatumRegister
     return _knownDatums.get(id);
   }
 
+  /**
+   * Get a geodetic datum by its ordinal.
+   * @param ordinal Ordinal of the geodetic datum to get.
+   * @return A geodetic datum or <code>null</code>.
+   */
+  public GeodeticDatum getGeodeticDatum(int ordinal)
+  {
+    GeodeticDatum[] datums=_datumsByOrdinal;
+    return ((ordinal>=0)&&(ordinal<datums.length))?datums[ordinal]:null;
+  }
+
+  /**
+   * Get the number of registered geodetic datums.
+   * Ordinals of registered datums are in the range [0,count).
+   * @return a number of geodetic datums.
+   */
+  public int getNumberOfGeodeticDatums()
+  {
+    return _datumsByOrdinal.length;
+  }
+
+  /**
+   * Register a new geodetic datum, with unknown parameters.
+   * @param id Identifier of the geodetic datum to register.
+   * @return the registered geodetic datum, or the previously registered one
+   * that has the same identifier.
+   */
+  GeodeticDatum registerGeodeticDatum(String id)
+  {
+    return registerGeodeticDatum(id,null,null);
+  }
+
   /**
    * Register a new geodetic datum.
-   * @param datum Geodetic datum to register.
+   * @param id Identifier of the geodetic datum to register.
+   * @param ellipsoid Reference ellipsoid (may be <code>null</code> if unknown).
+   * @param toWGS84 Transformation to WGS84 geocentric coordinates (may be
+   * <code>null</code> if unknown).
+   * @return the registered geodetic datum, or the previously registered one
+   * that has the same identifier.
    */
-  void registerGeodeticDatum(GeodeticDatum datum)
+  synchronized GeodeticDatum registerGeodeticDatum(String id, Ellipsoid ellipsoid, HelmertParameters toWGS84)
   {
-    _knownDatums.put(datum.getId(), datum);
+    GeodeticDatum datum=_knownDatums.get(id);
+    if (datum==null)
+    {
+      GeodeticDatum[] datums=_datumsByOrdinal;
+      datum=new GeodeticDatum(id,datums.length,ellipsoid,toWGS84);
+      GeodeticDatum[] newDatums=Arrays.copyOf(datums,datums.length+1);
+      newDatums[datums.length]=datum;
+      _datumsByOrdinal=newDatums;
+      _knownDatums.put(id,datum);
+    }
+    return datum;
   }
 
   /**
@@ -72,11 +132,6 @@ public class GeodeticDatumRegister
    */
   public GeodeticDatum getDefaultGeodeticDatum()
   {
-    if(_defaultDatum==null)
-    {
-      _defaultDatum=new GeodeticDatum("WGS84");
-      registerGeodeticDatum(_defaultDatum);
-    }
     return _defaultDatum;
   }
   
@@ -85,7 +140,7 @@ public class GeodeticDatumRegister
    */
   private void initKnownDatums()
   {
-  	GeodeticDatum datum=new GeodeticDatum("NAD27");
-  	registerGeodeticDatum(datum);
+    // NAD27, mean of the conterminous United States
+    registerGeodeticDatum("NAD27",Ellipsoid.CLARKE_1866,new HelmertParameters(-8,160,176));
   }
 }
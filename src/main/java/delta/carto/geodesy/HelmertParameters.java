@@ -0,0 +1,164 @@
+package delta.carto.geodesy;
+
+/**
+ * Parameters of a seven-parameter Helmert transformation between geocentric
+ * coordinates, using the position vector convention:
+ * <code>X'=T+(1+s)*R*X</code>.
+ * @author DAM
+ */
+public final class HelmertParameters
+{
+  /**
+   * Identity transformation.
+   */
+  public static final HelmertParameters IDENTITY=new HelmertParameters(0,0,0);
+
+  private static final double ARC_SECONDS_TO_RADIANS=Math.PI/(180*3600);
+
+  private final double _translationX;
+  private final double _translationY;
+  private final double _translationZ;
+  private final double _rotationX;
+  private final double _rotationY;
+  private final double _rotationZ;
+  private final double _scale;
+
+  /**
+   * Constructor for translation-only parameters.
+   * @param translationX Translation along X (meters).
+   * @param translationY Translation along Y (meters).
+   * @param translationZ Translation along Z (meters).
+   */
+  public HelmertParameters(double translationX, double translationY, double translationZ)
+  {
+    this(translationX,translationY,translationZ,0,0,0,0);
+  }
+
+  /**
+   * Full constructor.
+   * @param translationX Translation along X (meters).
+   * @param translationY Translation along Y (meters).
+   * @param translationZ Translation along Z (meters).
+   * @param rotationX Rotation around X (arc-seconds).
+   * @param rotationY Rotation around Y (arc-seconds).
+   * @param rotationZ Rotation around Z (arc-seconds).
+   * @param scale Scale difference (parts per million).
+   */
+  public HelmertParameters(double translationX, double translationY, double translationZ,
+      double rotationX, double rotationY, double rotationZ, double scale)
+  {
+    _translationX=translationX;
+    _translationY=translationY;
+    _translationZ=translationZ;
+    _rotationX=rotationX;
+    _rotationY=rotationY;
+    _rotationZ=rotationZ;
+    _scale=scale;
+  }
+
+  /**
+   * Get the translation along X.
+   * @return a translation in meters.
+   */
+  public double getTranslationX()
+  {
+    return _translationX;
+  }
+
+  /**
+   * Get the translation along Y.
+   * @return a translation in meters.
+   */
+  public double getTranslationY()
+  {
+    return _translationY;
+  }
+
+  /**
+   * Get the translation along Z.
+   * @return a translation in meters.
+   */
+  public double getTranslationZ()
+  {
+    return _translationZ;
+  }
+
+  /**
+   * Get the rotation around X.
+   * @return a rotation in arc-seconds.
+   */
+  public double getRotationX()
+  {
+    return _rotationX;
+  }
+
+  /**
+   * Get the rotation around Y.
+   * @return a rotation in arc-seconds.
+   */
+  public double getRotationY()
+  {
+    return _rotationY;
+  }
+
+  /**
+   * Get the rotation around Z.
+   * @return a rotation in arc-seconds.
+   */
+  public double getRotationZ()
+  {
+    return _rotationZ;
+  }
+
+  /**
+   * Get the scale difference.
+   * @return a scale difference in parts per million.
+   */
+  public double getScale()
+  {
+    return _scale;
+  }
+
+  /**
+   * Get the affine form of this transformation.
+   * @return 12 values: the 3x3 matrix (row-major) then the translation.
+   */
+  double[] toAffine()
+  {
+    double s=1+_scale*1e-6;
+    double rx=_rotationX*ARC_SECONDS_TO_RADIANS;
+    double ry=_rotationY*ARC_SECONDS_TO_RADIANS;
+    double rz=_rotationZ*ARC_SECONDS_TO_RADIANS;
+    return new double[] {
+      s, -s*rz, s*ry,
+      s*rz, s, -s*rx,
+      -s*ry, s*rx, s,
+      _translationX, _translationY, _translationZ
+    };
+  }
+
+  /**
+   * Get the affine form of the inverse of this transformation (first order
+   * in rotations, as usual for Helmert transformations).
+   * @return 12 values: the 3x3 matrix (row-major) then the translation.
+   */
+  double[] toInverseAffine()
+  {
+    double s=1/(1+_scale*1e-6);
+    double rx=_rotationX*ARC_SECONDS_TO_RADIANS;
+    double ry=_rotationY*ARC_SECONDS_TO_RADIANS;
+    double rz=_rotationZ*ARC_SECONDS_TO_RADIANS;
+    double[] ret=new double[] {
+      s, s*rz, -s*ry,
+      -s*rz, s, s*rx,
+      s*ry, -s*rx, s,
+      0, 0, 0
+    };
+    // Translation: -M*T
+    for(int i=0;i<3;i++)
+    {
+      ret[9+i]=-(ret[3*i]*_translationX+ret[3*i+1]*_translationY+ret[3*i+2]*_translationZ);
+    }
+    return ret;
+  }
+}
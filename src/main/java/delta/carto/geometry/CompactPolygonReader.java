@@ -0,0 +1,223 @@
+package delta.carto.geometry;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import delta.carto.geodesy.GeodeticDatum;
+import delta.carto.geodesy.GeodeticDatumRegister;
+
+/**
+ * Streaming decoder for the compact polygon encoding.
+ * @see CompactPolygonWriter
+ * @author DAM
+ */
+public class CompactPolygonReader implements Closeable
+{
+  private static final int BUFFER_SIZE=1<<16;
+
+  private InputStream _in;
+  private byte[] _buffer;
+  private int _position;
+  private int _limit;
+  private List<GeodeticDatum> _datums;
+  private double[] _latitudes;
+  private double[] _longitudes;
+
+  /**
+   * Constructor.
+   * @param in Stream to read from.
+   */
+  public CompactPolygonReader(InputStream in)
+  {
+    _in=in;
+    _buffer=new byte[BUFFER_SIZE];
+    _position=0;
+    _limit=0;
+    _datums=new ArrayList<GeodeticDatum>();
+    _latitudes=new double[0];
+    _longitudes=new double[0];
+  }
+
+  /**
+   * Read a polygon.
+   * @return a new polygon, or <code>null</code> if the end of stream is reached.
+   * @throws IOException if an I/O error occurs.
+   */
+  public GeoPolygon read() throws IOException
+  {
+    GeoPolygon polygon=new GeoPolygon(0);
+    return read(polygon)?polygon:null;
+  }
+
+  /**
+   * Read a polygon into a reusable polygon.
+   * @param polygon Polygon to fill. Its previous points are removed and its
+   * datum is set to the one of the read polygon.
+   * @return <code>true</code> if a polygon was read, <code>false</code> if the
+   * end of stream is reached.
+   * @throws IOException if an I/O error occurs.
+   */
+  public boolean read(GeoPolygon polygon) throws IOException
+  {
+    if (!fill(1))
+    {
+      return false;
+    }
+    long nbPoints=readVarLong();
+    long scale=readVarLong();
+    if ((nbPoints<0)||(nbPoints>Integer.MAX_VALUE)||(scale<1))
+    {
+      throw new IOException("Bad polygon header: nbPoints="+nbPoints+", scale="+scale);
+    }
+    GeodeticDatum datum=readDatum();
+    int n=(int)nbPoints;
+    if (_latitudes.length<n)
+    {
+      _latitudes=new double[n];
+      _longitudes=new double[n];
+    }
+    double[] latitudes=_latitudes;
+    double[] longitudes=_longitudes;
+    double dScale=scale;
+    long latitude=0;
+    long longitude=0;
+    for(int i=0;i<n;i++)
+    {
+      latitude+=unZigZag(readVarLong());
+      longitude+=unZigZag(readVarLong());
+      latitudes[i]=latitude/dScale;
+      longitudes[i]=longitude/dScale;
+    }
+    polygon.clear(datum);
+    polygon.addPoints(latitudes,longitudes,0,n);
+    return true;
+  }
+
+  private GeodeticDatum readDatum() throws IOException
+  {
+    long index=readVarLong();
+    if ((index>=0)&&(index<_datums.size()))
+    {
+      return _datums.get((int)index);
+    }
+    if (index!=_datums.size())
+    {
+      throw new IOException("Bad datum index: "+index);
+    }
+    int length=(int)readVarLong();
+    if ((length<0)||(length>0xFFFF))
+    {
+      throw new IOException("Bad datum length: "+length);
+    }
+    byte[] id=new byte[length];
+    for(int i=0;i<length;i++)
+    {
+      id[i]=readByte();
+    }
+    String datumId=new String(id,StandardCharsets.UTF_8);
+    GeodeticDatum datum=GeodeticDatumRegister.getInstance().getGeodeticDatumByName(datumId);
+    if (datum==null)
+    {
+      throw new IOException("Unknown datum: "+datumId);
+    }
+    _datums.add(datum);
+    return datum;
+  }
+
+  static long unZigZag(long value)
+  {
+    return (value>>>1)^-(value&1);
+  }
+
+  private long readVarLong() throws IOException
+  {
+    // Fast path: a whole varint is in the buffer
+    if (_limit-_position>=10)
+    {
+      byte[] buffer=_buffer;
+      int position=_position;
+      long ret=0;
+      int shift=0;
+      byte b;
+      do
+      {
+        b=buffer[position++];
+        ret|=((long)(b&0x7F))<<shift;
+        shift+=7;
+      }
+      while ((b<0)&&(shift<70));
+      _position=position;
+      if (b<0)
+      {
+        throw new IOException("Bad variable length integer");
+      }
+      return ret;
+    }
+    long ret=0;
+    int shift=0;
+    byte b;
+    do
+    {
+      b=readByte();
+      ret|=((long)(b&0x7F))<<shift;
+      shift+=7;
+    }
+    while ((b<0)&&(shift<70));
+    if (b<0)
+    {
+      throw new IOException("Bad variable length integer");
+    }
+    return ret;
+  }
+
+  private byte readByte() throws IOException
+  {
+    if (!fill(1))
+    {
+      throw new EOFException();
+    }
+    return _buffer[_position++];
+  }
+
+  /**
+   * Try to have at least <code>size</code> bytes available in the buffer.
+   * @param size Number of bytes.
+   * @return <code>true</code> if they are available.
+   * @throws IOException if an I/O error occurs.
+   */
+  private boolean fill(int size) throws IOException
+  {
+    if (_limit-_position>=size)
+    {
+      return true;
+    }
+    int remaining=_limit-_position;
+    System.arraycopy(_buffer,_position,_buffer,0,remaining);
+    _position=0;
+    _limit=remaining;
+    while (_limit<size)
+    {
+      int read=_in.read(_buffer,_limit,_buffer.length-_limit);
+      if (read<0)
+      {
+        return false;
+      }
+      _limit+=read;
+    }
+    return true;
+  }
+
+  /**
+   * Close the underlying stream.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void close() throws IOException
+  {
+    _in.close();
+  }
+}
@@ -0,0 +1,200 @@
+package delta.carto.geometry;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import delta.carto.geodesy.GeodeticDatum;
+
+/**
+ * Streaming encoder for the compact polygon encoding.
+ * <p>
+ * Coordinates are quantized to a fixed precision (for example 1e-7 degrees),
+ * then each vertex is stored as the difference with the previous one, using
+ * zig-zag variable length integers. Consecutive vertices of real world
+ * outlines are close to each other, so most vertices take 2 to 6 bytes
+ * instead of 16.
+ * <p>
+ * For each polygon: number of points, quantization scale (inverse of the
+ * precision), datum index, then latitude/longitude deltas. Datums are
+ * written in full the first time they are used (index equal to the number
+ * of datums seen so far, followed by the UTF-8 length and bytes of the
+ * identifier). Decoded coordinates are within half the precision of the
+ * original ones.
+ * @see CompactPolygonReader
+ * @author DAM
+ */
+public class CompactPolygonWriter implements Closeable, Flushable
+{
+  private static final int BUFFER_SIZE=1<<16;
+  // Maximum size of a vertex: two 10 bytes varints
+  private static final int MAX_VERTEX_SIZE=20;
+
+  private OutputStream _out;
+  private long _scale;
+  private byte[] _buffer;
+  private int _position;
+  // Datum index plus one, by datum ordinal (0 for datums not written yet)
+  private int[] _datumIndexes;
+  private int _nbDatums;
+
+  /**
+   * Constructor.
+   * @param out Stream to write to.
+   * @param precision Precision of coordinates (degrees). The quantization
+   * scale is the nearest integer of its inverse.
+   */
+  public CompactPolygonWriter(OutputStream out, double precision)
+  {
+    if (!(precision>0)||(Math.round(1/precision)<1))
+    {
+      throw new IllegalArgumentException("Bad precision: "+precision);
+    }
+    _out=out;
+    _scale=Math.round(1/precision);
+    _buffer=new byte[BUFFER_SIZE];
+    _position=0;
+    _datumIndexes=new int[4];
+    _nbDatums=0;
+  }
+
+  /**
+   * Get the precision of written coordinates.
+   * @return a precision (degrees).
+   */
+  public double getPrecision()
+  {
+    return 1.0/_scale;
+  }
+
+  /**
+   * Write a polygon.
+   * @param polygon Polygon to write.
+   * @throws IOException if an I/O error occurs.
+   * @throws IllegalArgumentException if a coordinate is not finite. Nothing is
+   * written in this case.
+   */
+  public void write(GeoPolygon polygon) throws IOException
+  {
+    int nbPoints=polygon.getNumberOfPoints();
+    checkCoordinates(polygon,nbPoints);
+    ensureRemaining(30);
+    writeVarLong(nbPoints);
+    writeVarLong(_scale);
+    writeDatum(polygon.getDatum());
+    double scale=_scale;
+    long previousLatitude=0;
+    long previousLongitude=0;
+    double[] latitudes=polygon.getLatitudesStorage();
+    double[] longitudes=polygon.getLongitudesStorage();
+    for(int i=0;i<nbPoints;i++)
+    {
+      long latitude=Math.round(latitudes[i]*scale);
+      long longitude=Math.round(longitudes[i]*scale);
+      ensureRemaining(MAX_VERTEX_SIZE);
+      writeVarLong(zigZag(latitude-previousLatitude));
+      writeVarLong(zigZag(longitude-previousLongitude));
+      previousLatitude=latitude;
+      previousLongitude=longitude;
+    }
+  }
+
+  private static void checkCoordinates(GeoPolygon polygon, int nbPoints)
+  {
+    double[] latitudes=polygon.getLatitudesStorage();
+    double[] longitudes=polygon.getLongitudesStorage();
+    for(int i=0;i<nbPoints;i++)
+    {
+      // NaN and infinite values would be silently quantized
+      if (!Double.isFinite(latitudes[i])||!Double.isFinite(longitudes[i]))
+      {
+        throw new IllegalArgumentException("Bad coordinates at index "+i+": "+latitudes[i]+"/"+longitudes[i]);
+      }
+    }
+  }
+
+  private void writeDatum(GeodeticDatum datum) throws IOException
+  {
+    int ordinal=datum.getOrdinal();
+    if (ordinal>=_datumIndexes.length)
+    {
+      _datumIndexes=Arrays.copyOf(_datumIndexes,Math.max(ordinal+1,2*_datumIndexes.length));
+    }
+    int index=_datumIndexes[ordinal]-1;
+    if (index>=0)
+    {
+      writeVarLong(index);
+      return;
+    }
+    int newIndex=_nbDatums++;
+    _datumIndexes[ordinal]=newIndex+1;
+    byte[] id=datum.getId().getBytes(StandardCharsets.UTF_8);
+    ensureRemaining(20+id.length);
+    writeVarLong(newIndex);
+    writeVarLong(id.length);
+    System.arraycopy(id,0,_buffer,_position,id.length);
+    _position+=id.length;
+  }
+
+  static long zigZag(long value)
+  {
+    return (value<<1)^(value>>63);
+  }
+
+  private void writeVarLong(long value)
+  {
+    byte[] buffer=_buffer;
+    int position=_position;
+    while ((value&~0x7FL)!=0)
+    {
+      buffer[position++]=(byte)((value&0x7F)|0x80);
+      value>>>=7;
+    }
+    buffer[position++]=(byte)value;
+    _position=position;
+  }
+
+  private void ensureRemaining(int size) throws IOException
+  {
+    if (_buffer.length-_position<size)
+    {
+      flushBuffer();
+      if (_buffer.length<size)
+      {
+        _buffer=new byte[size];
+      }
+    }
+  }
+
+  private void flushBuffer() throws IOException
+  {
+    if (_position>0)
+    {
+      _out.write(_buffer,0,_position);
+      _position=0;
+    }
+  }
+
+  /**
+   * Write buffered data to the underlying stream and flush it.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void flush() throws IOException
+  {
+    flushBuffer();
+    _out.flush();
+  }
+
+  /**
+   * Flush then close the underlying stream.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void close() throws IOException
+  {
+    flushBuffer();
+    _out.close();
+  }
+}
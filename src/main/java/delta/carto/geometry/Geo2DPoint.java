@@ -87,10 +87,23 @@ public class Geo2DPoint
    * @throws IOException may be raised while using the <code>out</code> stream.
    */
   public void write(DataOutputStream out) throws IOException
+  {
+    write(out,null);
+  }
+
+  /**
+   * Writes the contents of this object to the specified stream
+   * <code>out</code>, using a datums dictionary.
+   * @param out stream to write to.
+   * @param context datums dictionary of the stream (<code>null</code> to
+   * write the datum identifier).
+   * @throws IOException may be raised while using the <code>out</code> stream.
+   */
+  public void write(DataOutputStream out, GeoDatumStreamContext context) throws IOException
   {
     out.writeDouble(_latitude);
     out.writeDouble(_longitude);
-    out.writeUTF(_datum.getId());
+    GeoDatumStreamContext.writeDatum(out,context,_datum);
   }
 
   /**
@@ -100,11 +113,24 @@ public class Geo2DPoint
    * @throws IOException may be raised while using the <code>in</code> stream.
    */
   public void read(DataInputStream in) throws IOException
+  {
+    read(in,null);
+  }
+
+  /**
+   * Reads the contents of this object from the specified stream
+   * <code>in</code>, using a datums dictionary, and sets this object's state
+   * to reflect read values.
+   * @param in stream to read from.
+   * @param context datums dictionary of the stream (<code>null</code> to
+   * read the datum identifier).
+   * @throws IOException may be raised while using the <code>in</code> stream.
+   */
+  public void read(DataInputStream in, GeoDatumStreamContext context) throws IOException
   {
     _latitude=in.readDouble();
     _longitude=in.readDouble();
-    String datumID=in.readUTF();
-    _datum=GeodeticDatumRegister.getInstance().getGeodeticDatumByName(datumID);
+    _datum=GeoDatumStreamContext.readDatum(in,context);
   }
 
   /**
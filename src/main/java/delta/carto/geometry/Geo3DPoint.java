@@ -76,12 +76,14 @@ public class Geo3DPoint extends Geo2DPoint
    * Writes the contents of this object to the specified stream
    * <code>out</code>.
    * @param out stream to write to.
+   * @param context datums dictionary of the stream (<code>null</code> to
+   * write the datum identifier).
    * @throws IOException may be raised while using the <code>out</code> stream.
    */
   @Override
-  public void write(DataOutputStream out) throws IOException
+  public void write(DataOutputStream out, GeoDatumStreamContext context) throws IOException
   {
-    super.write(out);
+    super.write(out,context);
     out.writeDouble(_altitude);
   }
 
@@ -89,12 +91,14 @@ public class Geo3DPoint extends Geo2DPoint
    * Reads the contents of this object from the specified stream
    * <code>in</code>, and sets this object's state to reflect read values.
    * @param in stream to read from.
+   * @param context datums dictionary of the stream (<code>null</code> to
+   * read the datum identifier).
    * @throws IOException may be raised while using the <code>in</code> stream.
    */
   @Override
-  public void read(DataInputStream in) throws IOException
+  public void read(DataInputStream in, GeoDatumStreamContext context) throws IOException
   {
-    super.read(in);
+    super.read(in,context);
     _altitude=in.readDouble();
   }
 
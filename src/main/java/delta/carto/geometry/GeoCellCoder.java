@@ -0,0 +1,390 @@
+package delta.carto.geometry;
+
+import java.util.Arrays;
+
+import delta.carto.geodesy.GeodeticDatum;
+import delta.carto.geodesy.GeodeticDatumRegister;
+
+/**
+ * Encodes geographic positions as cell keys.
+ * <p>
+ * The latitude range [-90,90] and the longitude range [-180,180] are each
+ * divided into 2<sup>bits</sup> intervals. A cell key interleaves the bits of
+ * the longitude interval index and of the latitude interval index, longitude
+ * first, like geohashes do. Keys of a cell and of its sub-cells share the same
+ * prefix, and keys of close positions are often close.
+ * <p>
+ * Encoding does not allocate anything, so keys can be used in hash joins.
+ * Instances are immutable and thread-safe.
+ * @author DAM
+ */
+public final class GeoCellCoder
+{
+  /**
+   * Maximum number of bits per axis.
+   */
+  public static final int MAX_BITS=31;
+
+  private final int _bits;
+  private final long _nbIntervals;
+  private final double _cellHeight;
+  private final double _cellWidth;
+
+  /**
+   * Constructor.
+   * @param bits Number of bits per axis (1 to {@link #MAX_BITS}).
+   */
+  public GeoCellCoder(int bits)
+  {
+    if ((bits<1)||(bits>MAX_BITS))
+    {
+      throw new IllegalArgumentException("Bad number of bits: "+bits);
+    }
+    _bits=bits;
+    _nbIntervals=1L<<bits;
+    _cellHeight=180.0/_nbIntervals;
+    _cellWidth=360.0/_nbIntervals;
+  }
+
+  /**
+   * Get the number of bits per axis.
+   * @return the number of bits per axis.
+   */
+  public int getBits()
+  {
+    return _bits;
+  }
+
+  /**
+   * Get the height of cells.
+   * @return a height, in degrees of latitude.
+   */
+  public double getCellHeight()
+  {
+    return _cellHeight;
+  }
+
+  /**
+   * Get the width of cells.
+   * @return a width, in degrees of longitude.
+   */
+  public double getCellWidth()
+  {
+    return _cellWidth;
+  }
+
+  /**
+   * Get the key of the cell that contains a position.
+   * @param latitude Latitude of position.
+   * @param longitude Longitude of position.
+   * @return a cell key.
+   * @throws IllegalArgumentException if a coordinate is NaN.
+   */
+  public long encode(double latitude, double longitude)
+  {
+    if (Double.isNaN(latitude)||Double.isNaN(longitude))
+    {
+      throw new IllegalArgumentException("Bad position: "+latitude+"/"+longitude);
+    }
+    return key(row(latitude),column(longitude));
+  }
+
+  /**
+   * Get the key of the cell that contains a point.
+   * @param point Point to use.
+   * @return a cell key.
+   * @throws IllegalArgumentException if a coordinate is NaN.
+   */
+  public long encode(Geo2DPoint point)
+  {
+    return encode(point.getLatitude(),point.getLongitude());
+  }
+
+  /**
+   * Get the extent of a cell, using the default datum.
+   * @param key Key of the cell.
+   * @return a new rectangle.
+   */
+  public GeoRectangle decode(long key)
+  {
+    return decode(key,GeodeticDatumRegister.getInstance().getDefaultGeodeticDatum());
+  }
+
+  /**
+   * Get the extent of a cell.
+   * @param key Key of the cell.
+   * @param datum Datum of the result.
+   * @return a new rectangle.
+   */
+  public GeoRectangle decode(long key, GeodeticDatum datum)
+  {
+    long row=getRow(key);
+    long column=getColumn(key);
+    double minLat=-90+row*_cellHeight;
+    double minLong=-180+column*_cellWidth;
+    return new GeoRectangle(minLat,minLong,minLat+_cellHeight,minLong+_cellWidth,datum);
+  }
+
+  /**
+   * Get the latitude interval index of a cell.
+   * @param key Key of the cell.
+   * @return an index, starting at 0 for the southmost row.
+   */
+  public long getRow(long key)
+  {
+    return compact(key);
+  }
+
+  /**
+   * Get the longitude interval index of a cell.
+   * @param key Key of the cell.
+   * @return an index, starting at 0 for the westmost column.
+   */
+  public long getColumn(long key)
+  {
+    return compact(key>>>1);
+  }
+
+  /**
+   * Get the key of the parent cell, at the previous precision.
+   * @param key Key of a cell at this precision.
+   * @return the key of the enclosing cell, using one bit less per axis.
+   */
+  public static long getParent(long key)
+  {
+    return key>>>2;
+  }
+
+  /**
+   * Get the neighbors of a cell. Longitudes wrap around the antimeridian,
+   * latitudes do not wrap over the poles.
+   * @param key Key of the cell.
+   * @param neighbors Storage for neighbors keys (at least 8 slots).
+   * @return the number of neighbors.
+   */
+  public int getNeighbors(long key, long[] neighbors)
+  {
+    long row=getRow(key);
+    long column=getColumn(key);
+    int nb=0;
+    for(long dRow=-1;dRow<=1;dRow++)
+    {
+      long neighborRow=row+dRow;
+      if ((neighborRow<0)||(neighborRow>=_nbIntervals))
+      {
+        continue;
+      }
+      for(long dColumn=-1;dColumn<=1;dColumn++)
+      {
+        long neighborColumn=(column+dColumn+_nbIntervals)&(_nbIntervals-1);
+        long neighbor=key(neighborRow,neighborColumn);
+        if ((neighbor==key)||(contains(neighbors,nb,neighbor)))
+        {
+          continue;
+        }
+        neighbors[nb++]=neighbor;
+      }
+    }
+    return nb;
+  }
+
+  private static boolean contains(long[] keys, int nb, long key)
+  {
+    for(int i=0;i<nb;i++)
+    {
+      if (keys[i]==key) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Get the cells that intersect a rectangle (borders included).
+   * @param rectangle Rectangle to cover.
+   * @return sorted cell keys.
+   */
+  public long[] cover(GeoRectangle rectangle)
+  {
+    long minRow=row(rectangle.getMinLatitude());
+    long maxRow=row(rectangle.getMaxLatitude());
+    long minColumn=column(rectangle.getMinLongitude());
+    long maxColumn=column(rectangle.getMaxLongitude());
+    long[] ret=new long[checkedCount((maxRow-minRow+1)*(maxColumn-minColumn+1))];
+    int nb=0;
+    for(long row=minRow;row<=maxRow;row++)
+    {
+      for(long column=minColumn;column<=maxColumn;column++)
+      {
+        ret[nb++]=key(row,column);
+      }
+    }
+    Arrays.sort(ret);
+    return ret;
+  }
+
+  /**
+   * Get the cells that intersect a polygon: cells that contain a point of its
+   * edges (in the sense of {@link #encode(double, double)}), and cells whose
+   * center is inside of it.
+   * @param polygon Polygon to cover.
+   * @return sorted cell keys.
+   */
+  public long[] cover(GeoPolygon polygon)
+  {
+    int n=polygon.getNumberOfPoints();
+    if (n==0)
+    {
+      return new long[0];
+    }
+    KeysBuffer keys=new KeysBuffer(Math.max(16,2*n));
+    // Cells crossed by edges
+    for(int i=0,j=n-1;i<n;j=i++)
+    {
+      addSegmentCells(polygon.getLatitude(j),polygon.getLongitude(j),polygon.getLatitude(i),polygon.getLongitude(i),keys);
+    }
+    // Inner cells
+    GeoRectangle box=polygon.getBoundingBox();
+    long minRow=row(box.getMinLatitude());
+    long maxRow=row(box.getMaxLatitude());
+    long minColumn=column(box.getMinLongitude());
+    long maxColumn=column(box.getMaxLongitude());
+    checkedCount((maxRow-minRow+1)*(maxColumn-minColumn+1));
+    if (n>=3)
+    {
+      PreparedGeoPolygon prepared=new PreparedGeoPolygon(polygon);
+      for(long row=minRow;row<=maxRow;row++)
+      {
+        double latitude=-90+(row+0.5)*_cellHeight;
+        for(long column=minColumn;column<=maxColumn;column++)
+        {
+          if (prepared.contains(latitude,-180+(column+0.5)*_cellWidth))
+          {
+            keys.add(key(row,column));
+          }
+        }
+      }
+    }
+    return keys.toSortedDistinctArray();
+  }
+
+  private void addSegmentCells(double lat1, double long1, double lat2, double long2, KeysBuffer keys)
+  {
+    if (long1>long2)
+    {
+      double tmp=lat1; lat1=lat2; lat2=tmp;
+      tmp=long1; long1=long2; long2=tmp;
+    }
+    long firstColumn=column(long1);
+    long lastColumn=column(long2);
+    double slope=(long2>long1)?(lat2-lat1)/(long2-long1):0;
+    for(long column=firstColumn;column<=lastColumn;column++)
+    {
+      // Part of the segment in this column
+      double startLong=Math.max(long1,-180+column*_cellWidth);
+      double endLong=Math.min(long2,-180+(column+1)*_cellWidth);
+      double startLat=(column==firstColumn)?lat1:lat1+(startLong-long1)*slope;
+      double endLat=(column==lastColumn)?lat2:lat1+(endLong-long1)*slope;
+      long row1=row(startLat);
+      long row2=row(endLat);
+      if ((column<lastColumn)&&(slope>0)&&((endLat+90)/_cellHeight==row2))
+      {
+        // The end belongs to the next column: it only touches this row
+        row2--;
+      }
+      for(long row=Math.min(row1,row2);row<=Math.max(row1,row2);row++)
+      {
+        keys.add(key(row,column));
+      }
+    }
+  }
+
+  private long row(double latitude)
+  {
+    long ret=(long)Math.floor((latitude+90)/_cellHeight);
+    return (ret<0)?0:((ret>=_nbIntervals)?_nbIntervals-1:ret);
+  }
+
+  private long column(double longitude)
+  {
+    long ret=(long)Math.floor((longitude+180)/_cellWidth);
+    return (ret<0)?0:((ret>=_nbIntervals)?_nbIntervals-1:ret);
+  }
+
+  private static long key(long row, long column)
+  {
+    return (spread(column)<<1)|spread(row);
+  }
+
+  private static int checkedCount(long count)
+  {
+    if (count>Integer.MAX_VALUE-8)
+    {
+      throw new IllegalArgumentException("Too many cells: "+count);
+    }
+    return (int)count;
+  }
+
+  /**
+   * Spread the 32 low bits of a value over the even bits of the result.
+   */
+  private static long spread(long value)
+  {
+    long x=value&0xFFFFFFFFL;
+    x=(x|(x<<16))&0x0000FFFF0000FFFFL;
+    x=(x|(x<<8))&0x00FF00FF00FF00FFL;
+    x=(x|(x<<4))&0x0F0F0F0F0F0F0F0FL;
+    x=(x|(x<<2))&0x3333333333333333L;
+    x=(x|(x<<1))&0x5555555555555555L;
+    return x;
+  }
+
+  /**
+   * Gather the even bits of a value into the 32 low bits of the result.
+   */
+  private static long compact(long value)
+  {
+    long x=value&0x5555555555555555L;
+    x=(x|(x>>>1))&0x3333333333333333L;
+    x=(x|(x>>>2))&0x0F0F0F0F0F0F0F0FL;
+    x=(x|(x>>>4))&0x00FF00FF00FF00FFL;
+    x=(x|(x>>>8))&0x0000FFFF0000FFFFL;
+    x=(x|(x>>>16))&0x00000000FFFFFFFFL;
+    return x;
+  }
+
+  /**
+   * Growable buffer of keys.
+   */
+  private static class KeysBuffer
+  {
+    private long[] _keys;
+    private int _size;
+
+    KeysBuffer(int capacity)
+    {
+      _keys=new long[capacity];
+    }
+
+    void add(long key)
+    {
+      if (_size==_keys.length)
+      {
+        _keys=Arrays.copyOf(_keys,checkedCount(_size+(long)Math.max(_size/2,16)));
+      }
+      _keys[_size++]=key;
+    }
+
+    long[] toSortedDistinctArray()
+    {
+      Arrays.sort(_keys,0,_size);
+      int nb=0;
+      for(int i=0;i<_size;i++)
+      {
+        if ((nb==0)||(_keys[nb-1]!=_keys[i]))
+        {
+          _keys[nb++]=_keys[i];
+        }
+      }
+      return Arrays.copyOf(_keys,nb);
+    }
+  }
+}
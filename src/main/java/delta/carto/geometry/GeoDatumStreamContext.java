@@ -0,0 +1,157 @@
+package delta.carto.geometry;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import delta.carto.geodesy.GeodeticDatum;
+import delta.carto.geodesy.GeodeticDatumRegister;
+
+/**
+ * Datums dictionary shared by the shapes written to (or read from) a stream.
+ * <p>
+ * Instead of writing the datum identifier of each shape, a datum is written
+ * as a one-byte index in the dictionary of the stream. The first time a datum
+ * is used, the {@link #NEW_DATUM} marker is written, followed by the datum
+ * identifier: this adds the datum to the dictionary, with the next index.
+ * <p>
+ * A context is used either to write or to read a single stream, and shapes
+ * must be read in the order they were written, using a new context. Shapes
+ * written without a context use the legacy format (datum identifier written
+ * for each shape), and must be read without a context.
+ * @author DAM
+ */
+public class GeoDatumStreamContext
+{
+  /**
+   * Marker for a datum that is not in the dictionary yet.
+   */
+  public static final int NEW_DATUM=0xFF;
+  /**
+   * Maximum number of datums in a dictionary.
+   */
+  public static final int MAX_DATUMS=NEW_DATUM;
+
+  // Writing: dictionary index plus one, by datum ordinal (0 for unknown datums)
+  private int[] _indexes;
+  // Reading: datums by dictionary index
+  private GeodeticDatum[] _datums;
+  private int _nbDatums;
+
+  /**
+   * Constructor.
+   */
+  public GeoDatumStreamContext()
+  {
+    _indexes=new int[4];
+    _datums=new GeodeticDatum[4];
+    _nbDatums=0;
+  }
+
+  /**
+   * Get the number of datums in the dictionary.
+   * @return a number of datums.
+   */
+  public int getNumberOfDatums()
+  {
+    return _nbDatums;
+  }
+
+  /**
+   * Write a datum.
+   * @param out Stream to write to.
+   * @param datum Datum to write.
+   * @throws IOException may be raised while using the <code>out</code> stream,
+   * or if the dictionary is full.
+   */
+  public void writeDatum(DataOutputStream out, GeodeticDatum datum) throws IOException
+  {
+    int ordinal=datum.getOrdinal();
+    if (ordinal>=_indexes.length)
+    {
+      _indexes=Arrays.copyOf(_indexes,Math.max(ordinal+1,2*_indexes.length));
+    }
+    int index=_indexes[ordinal]-1;
+    if (index>=0)
+    {
+      out.writeByte(index);
+      return;
+    }
+    if (_nbDatums>=MAX_DATUMS)
+    {
+      throw new IOException("Too many datums in stream: "+_nbDatums);
+    }
+    _indexes[ordinal]=++_nbDatums;
+    out.writeByte(NEW_DATUM);
+    out.writeUTF(datum.getId());
+  }
+
+  /**
+   * Read a datum.
+   * @param in Stream to read from.
+   * @return the read datum (<code>null</code> if its identifier is not known
+   * by the datums register).
+   * @throws IOException may be raised while using the <code>in</code> stream,
+   * or if the datum index is not valid.
+   */
+  public GeodeticDatum readDatum(DataInputStream in) throws IOException
+  {
+    int index=in.readUnsignedByte();
+    if (index!=NEW_DATUM)
+    {
+      if (index>=_nbDatums)
+      {
+        throw new IOException("Bad datum index: "+index+" (dictionary size: "+_nbDatums+")");
+      }
+      return _datums[index];
+    }
+    if (_nbDatums>=MAX_DATUMS)
+    {
+      throw new IOException("Too many datums in stream: "+_nbDatums);
+    }
+    GeodeticDatum datum=GeodeticDatumRegister.getInstance().getGeodeticDatumByName(in.readUTF());
+    if (_nbDatums==_datums.length)
+    {
+      _datums=Arrays.copyOf(_datums,2*_datums.length);
+    }
+    _datums[_nbDatums++]=datum;
+    return datum;
+  }
+
+  /**
+   * Write a datum, using a context or the legacy format.
+   * @param out Stream to write to.
+   * @param context Context to use, or <code>null</code> for the legacy format.
+   * @param datum Datum to write.
+   * @throws IOException may be raised while using the <code>out</code> stream.
+   */
+  static void writeDatum(DataOutputStream out, GeoDatumStreamContext context, GeodeticDatum datum) throws IOException
+  {
+    if (context!=null)
+    {
+      context.writeDatum(out,datum);
+    }
+    else
+    {
+      out.writeUTF(datum.getId());
+    }
+  }
+
+  /**
+   * Read a datum, using a context or the legacy format.
+   * @param in Stream to read from.
+   * @param context Context to use, or <code>null</code> for the legacy format.
+   * @return the read datum.
+   * @throws IOException may be raised while using the <code>in</code> stream.
+   */
+  static GeodeticDatum readDatum(DataInputStream in, GeoDatumStreamContext context) throws IOException
+  {
+    if (context!=null)
+    {
+      return context.readDatum(in);
+    }
+    String datumID=in.readUTF();
+    return GeodeticDatumRegister.getInstance().getGeodeticDatumByName(datumID);
+  }
+}
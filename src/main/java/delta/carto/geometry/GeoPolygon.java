@@ -3,7 +3,9 @@ package delta.carto.geometry;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
+import delta.carto.geodesy.DatumTransformation;
 import delta.carto.geodesy.GeodeticDatum;
 import delta.carto.geodesy.GeodeticDatumRegister;
 
@@ -13,10 +15,22 @@ import delta.carto.geodesy.GeodeticDatumRegister;
  */
 public class GeoPolygon
 {
+  private static final int MIN_GROWTH=10;
+  private static final int MAX_SIZE=Integer.MAX_VALUE-8;
+
   private GeodeticDatum _datum;
   private double[] _latitudes;
   private double[] _longitudes;
   private int _nbPoints;
+  // Bounding box
+  private double _minLatitude;
+  private double _maxLatitude;
+  private double _minLongitude;
+  private double _maxLongitude;
+  private boolean _boundsValid;
+  private GeoRectangle _boundingBox;
+  // Incremented each time points or datum change
+  private int _modificationCount;
 
   /**
    * Default constructor.
@@ -46,6 +60,7 @@ public class GeoPolygon
     _longitudes=new double[size];
     _nbPoints=0;
     _datum=datum;
+    _boundsValid=true;
   }
 
   /**
@@ -79,6 +94,63 @@ public class GeoPolygon
     return point;
   }
 
+  /**
+   * Visit the points of this polygon.
+   * @param visitor Visitor to call for each point.
+   */
+  public void visitPoints(GeoPolygonVertexVisitor visitor)
+  {
+    visitPoints(visitor,0,_nbPoints);
+  }
+
+  /**
+   * Visit a range of points of this polygon.
+   * @param visitor Visitor to call for each point.
+   * @param from Index of the first point to visit.
+   * @param to Index after the last point to visit.
+   * @throws IllegalArgumentException if the range is not in this polygon.
+   */
+  public void visitPoints(GeoPolygonVertexVisitor visitor, int from, int to)
+  {
+    checkRange(from,to-from);
+    double[] latitudes=_latitudes;
+    double[] longitudes=_longitudes;
+    for(int i=from;i<to;i++)
+    {
+      visitor.accept(i,latitudes[i],longitudes[i]);
+    }
+  }
+
+  /**
+   * Copy a range of points of this polygon into caller arrays.
+   * @param from Index of the first point to copy.
+   * @param latitudes Storage for latitudes (may be <code>null</code>).
+   * @param longitudes Storage for longitudes (may be <code>null</code>).
+   * @param offset Index of the first point in the given arrays.
+   * @param length Number of points to copy.
+   * @throws IllegalArgumentException if the range is not in this polygon.
+   */
+  public void getPoints(int from, double[] latitudes, double[] longitudes, int offset, int length)
+  {
+    checkRange(from,length);
+    if (latitudes!=null)
+    {
+      System.arraycopy(_latitudes,from,latitudes,offset,length);
+    }
+    if (longitudes!=null)
+    {
+      System.arraycopy(_longitudes,from,longitudes,offset,length);
+    }
+  }
+
+  private void checkRange(int from, int length)
+  {
+    if ((from<0)||(length<0)||(from+length<0)||(from+length>_nbPoints))
+    {
+      throw new IllegalArgumentException("Bad range: from="+from+", length="+length);
+    }
+  }
+
   /**
    * Set the point at specified index.
    * @param latitude Latitude to set.
@@ -87,8 +159,10 @@ public class GeoPolygon
    */
   public void setPoint(double latitude, double longitude, int pointIndex)
   {
+    replaceBounds(pointIndex,latitude,longitude);
     _latitudes[pointIndex]=latitude;
     _longitudes[pointIndex]=longitude;
+    _modificationCount++;
   }
 
   /**
@@ -102,8 +176,7 @@ public class GeoPolygon
     {
       throw new IllegalArgumentException("Bad datum: "+point.getDatum()+"!="+_datum);
     }
-    _latitudes[pointIndex]=point.getLatitude();
-    _longitudes[pointIndex]=point.getLongitude();
+    setPoint(point.getLatitude(),point.getLongitude(),pointIndex);
   }
 
   /**
@@ -117,6 +190,8 @@ public class GeoPolygon
     _latitudes[_nbPoints]=latitude;
     _longitudes[_nbPoints]=longitude;
     _nbPoints++;
+    extendBounds(latitude,longitude,_nbPoints==1);
+    _modificationCount++;
   }
 
   /**
@@ -129,10 +204,179 @@ public class GeoPolygon
     {
       throw new IllegalArgumentException("Bad datum: "+point.getDatum()+"!="+_datum);
     }
-    ensureSize(_nbPoints+1,true);
-    _latitudes[_nbPoints]=point.getLatitude();
-    _longitudes[_nbPoints]=point.getLongitude();
-    _nbPoints++;
+    addPoint(point.getLatitude(),point.getLongitude());
+  }
+
+  /**
+   * Add points at the end of this polygon.
+   * @param latitudes Latitudes of new points.
+   * @param longitudes Longitudes of new points.
+   * @param offset Index of the first point to add in the given arrays.
+   * @param length Number of points to add.
+   * @throws IllegalArgumentException if the range is not in the given arrays.
+   */
+  public void addPoints(double[] latitudes, double[] longitudes, int offset, int length)
+  {
+    if ((offset<0)||(length<0)||(offset+length<0)||(offset+length>latitudes.length)||(offset+length>longitudes.length))
+    {
+      throw new IllegalArgumentException("Bad range: offset="+offset+", length="+length);
+    }
+    int nbPoints=_nbPoints;
+    ensureSize(checkedSize(nbPoints,length),true);
+    System.arraycopy(latitudes,offset,_latitudes,nbPoints,length);
+    System.arraycopy(longitudes,offset,_longitudes,nbPoints,length);
+    _nbPoints=nbPoints+length;
+    if (_boundsValid)
+    {
+      for(int i=nbPoints;i<_nbPoints;i++)
+      {
+        extendBounds(_latitudes[i],_longitudes[i],i==0);
+      }
+    }
+    _boundingBox=null;
+    _modificationCount++;
+  }
+
+  /**
+   * Add all the points of a polygon at the end of this polygon.
+   * @param polygon Polygon to get points from (may be this polygon).
+   */
+  public void addPoints(GeoPolygon polygon)
+  {
+    if (polygon.getDatum()!=_datum)
+    {
+      throw new IllegalArgumentException("Bad datum: "+polygon.getDatum()+"!="+_datum);
+    }
+    addPoints(polygon._latitudes,polygon._longitudes,0,polygon._nbPoints);
+  }
+
+  /**
+   * Ensure that this polygon can store at least <code>nbPoints</code> points
+   * without growing its internal storage.
+   * @param nbPoints Number of points.
+   */
+  public void reserve(int nbPoints)
+  {
+    if (nbPoints>MAX_SIZE)
+    {
+      throw new IllegalArgumentException("Too many points: "+nbPoints);
+    }
+    ensureSize(nbPoints,true);
+  }
+
+  /**
+   * Reduce the internal storage to the number of points of this polygon.
+   */
+  public void trimToSize()
+  {
+    if (_latitudes.length>_nbPoints)
+    {
+      _latitudes=Arrays.copyOf(_latitudes,_nbPoints);
+      _longitudes=Arrays.copyOf(_longitudes,_nbPoints);
+    }
+  }
+
+  /**
+   * Transform the points of this polygon to another datum.
+   * @param transformation Transformation to use. Its source datum must be
+   * the datum of this polygon.
+   */
+  public void transformDatum(DatumTransformation transformation)
+  {
+    if (transformation.getSource()!=_datum)
+    {
+      throw new IllegalArgumentException("Bad datum: "+transformation.getSource()+"!="+_datum);
+    }
+    transformation.transform(_latitudes,_longitudes,null,0,_nbPoints,_latitudes,_longitudes,null);
+    _datum=transformation.getTarget();
+    computeBounds();
+    _modificationCount++;
+  }
+
+  /**
+   * Get the number of points that can be stored without growing the
+   * internal storage.
+   * @return a number of points.
+   */
+  public int getCapacity()
+  {
+    return _latitudes.length;
+  }
+
+  /**
+   * Get the internal storage for latitudes.
+   * Only the first <code>getNumberOfPoints()</code> values are meaningful.
+   * @return the internal storage for latitudes.
+   */
+  double[] getLatitudesStorage()
+  {
+    return _latitudes;
+  }
+
+  /**
+   * Get the internal storage for longitudes.
+   * Only the first <code>getNumberOfPoints()</code> values are meaningful.
+   * @return the internal storage for longitudes.
+   */
+  double[] getLongitudesStorage()
+  {
+    return _longitudes;
+  }
+
+  /**
+   * Add points already written in the internal storage, after the current
+   * points. Storage must have been reserved before.
+   * @param length Number of added points.
+   */
+  void addStoredPoints(int length)
+  {
+    int nbPoints=_nbPoints;
+    if ((length<0)||(checkedSize(nbPoints,length)>_latitudes.length))
+    {
+      throw new IllegalArgumentException("Bad number of stored points: "+length);
+    }
+    _nbPoints=nbPoints+length;
+    if (_boundsValid)
+    {
+      for(int i=nbPoints;i<_nbPoints;i++)
+      {
+        extendBounds(_latitudes[i],_longitudes[i],i==0);
+      }
+    }
+    _boundingBox=null;
+    _modificationCount++;
+  }
+
+  private static int checkedSize(int nbPoints, int nbNewPoints)
+  {
+    int ret=nbPoints+nbNewPoints;
+    if ((ret<0)||(ret>MAX_SIZE))
+    {
+      throw new IllegalArgumentException("Too many points: "+nbPoints+"+"+nbNewPoints);
+    }
+    return ret;
+  }
+
+  /**
+   * Remove all the points of this polygon.
+   * Internal storage is kept for reuse.
+   */
+  public void clear()
+  {
+    _nbPoints=0;
+    _boundsValid=true;
+    _boundingBox=null;
+    _modificationCount++;
+  }
+
+  /**
+   * Remove all the points of this polygon and change its datum.
+   * @param datum Datum to use.
+   */
+  void clear(GeodeticDatum datum)
+  {
+    clear();
+    _datum=datum;
   }
 
   /**
@@ -144,6 +388,17 @@ public class GeoPolygon
     return _nbPoints;
   }
 
+  /**
+   * Get the modification count of this polygon.
+   * It changes each time the points or the datum of this polygon change, so
+   * that derived data can be checked for staleness.
+   * @return a modification count.
+   */
+  public int getModificationCount()
+  {
+    return _modificationCount;
+  }
+
   /**
    * Get the geodetic datum used by this polygon.
    * @return the geodetic datum used by this polygon.
@@ -153,6 +408,137 @@ public class GeoPolygon
     return _datum;
   }
 
+  /**
+   * Get the bounding box of this polygon.
+   * The bounding box is maintained as points are added or changed, so that
+   * this method does not scan the points in most cases.
+   * @return a new rectangle, or <code>null</code> if this polygon has no point.
+   */
+  public GeoRectangle getBoundingBox()
+  {
+    GeoRectangle box=getInternalBoundingBox();
+    if (box==null)
+    {
+      return null;
+    }
+    return new GeoRectangle(box.getMinLatitude(),box.getMinLongitude(),box.getMaxLatitude(),box.getMaxLongitude(),_datum);
+  }
+
+  /**
+   * Indicates if the bounding box of this polygon intersects a rectangle.
+   * This is a fast rejection test: if it returns <code>false</code>, no
+   * point of this polygon is in the given rectangle.
+   * @param rectangle Rectangle to test.
+   * @return <code>true</code> if they intersect, <code>false</code> otherwise.
+   */
+  public boolean boundsIntersect(GeoRectangle rectangle)
+  {
+    GeoRectangle box=getInternalBoundingBox();
+    return (box!=null)&&(box.intersects(rectangle));
+  }
+
+  /**
+   * Get the cached bounding box of this polygon.
+   * It must not be exposed, since rectangles can be modified.
+   * @return a rectangle, or <code>null</code> if this polygon has no point.
+   */
+  private GeoRectangle getInternalBoundingBox()
+  {
+    if (_nbPoints==0)
+    {
+      return null;
+    }
+    if (_boundingBox==null)
+    {
+      if (!_boundsValid)
+      {
+        computeBounds();
+      }
+      _boundingBox=new GeoRectangle(_minLatitude,_minLongitude,_maxLatitude,_maxLongitude,_datum);
+    }
+    return _boundingBox;
+  }
+
+  /**
+   * Update bounds for a new point.
+   * @param latitude Latitude of new point.
+   * @param longitude Longitude of new point.
+   * @param first Indicates if it is the first point of this polygon.
+   */
+  private void extendBounds(double latitude, double longitude, boolean first)
+  {
+    _boundingBox=null;
+    if (!_boundsValid)
+    {
+      return;
+    }
+    if (first)
+    {
+      _minLatitude=latitude;
+      _maxLatitude=latitude;
+      _minLongitude=longitude;
+      _maxLongitude=longitude;
+      return;
+    }
+    if (latitude<_minLatitude) _minLatitude=latitude;
+    if (latitude>_maxLatitude) _maxLatitude=latitude;
+    if (longitude<_minLongitude) _minLongitude=longitude;
+    if (longitude>_maxLongitude) _maxLongitude=longitude;
+  }
+
+  /**
+   * Update bounds before a point is replaced.
+   * If the replaced point was on the bounding box border, bounds are
+   * computed again when needed.
+   * @param pointIndex Index of the replaced point.
+   * @param latitude Latitude of new point.
+   * @param longitude Longitude of new point.
+   */
+  private void replaceBounds(int pointIndex, double latitude, double longitude)
+  {
+    if ((_boundsValid)&&(pointIndex<_nbPoints))
+    {
+      double oldLatitude=_latitudes[pointIndex];
+      double oldLongitude=_longitudes[pointIndex];
+      if ((oldLatitude==_minLatitude)||(oldLatitude==_maxLatitude)
+          ||(oldLongitude==_minLongitude)||(oldLongitude==_maxLongitude))
+      {
+        _boundsValid=false;
+      }
+      else
+      {
+        extendBounds(latitude,longitude,false);
+      }
+    }
+    _boundingBox=null;
+  }
+
+  /**
+   * Compute bounds from all points.
+   */
+  private void computeBounds()
+  {
+    double minLatitude=Double.POSITIVE_INFINITY;
+    double maxLatitude=Double.NEGATIVE_INFINITY;
+    double minLongitude=Double.POSITIVE_INFINITY;
+    double maxLongitude=Double.NEGATIVE_INFINITY;
+    for(int i=0;i<_nbPoints;i++)
+    {
+      double latitude=_latitudes[i];
+      double longitude=_longitudes[i];
+      if (latitude<minLatitude) minLatitude=latitude;
+      if (latitude>maxLatitude) maxLatitude=latitude;
+      if (longitude<minLongitude) minLongitude=longitude;
+      if (longitude>maxLongitude) maxLongitude=longitude;
+    }
+    _minLatitude=minLatitude;
+    _maxLatitude=maxLatitude;
+    _minLongitude=minLongitude;
+    _maxLongitude=maxLongitude;
+    _boundsValid=true;
+    _boundingBox=null;
+  }
+
   /**
    * Ensure that the internal storage size is big enough to store
    * <code>nbPoints</code> points.
@@ -162,22 +548,21 @@ public class GeoPolygon
    */
   private void ensureSize(int nbPoints, boolean keepOldValues)
   {
-    if (_latitudes.length<nbPoints)
+    int size=_latitudes.length;
+    if (size<nbPoints)
     {
-      int newSize=_latitudes.length;
-      while (newSize<nbPoints)
+      // Grow by half the current size at least, without overflow
+      long newSize=Math.max(size+(long)Math.max(size>>1,MIN_GROWTH),nbPoints);
+      if (newSize>MAX_SIZE)
       {
-        newSize*=2;
+        newSize=Math.max(nbPoints,MAX_SIZE);
       }
-      double[] newLatitudes=new double[newSize];
-      double[] newLongitudes=new double[newSize];
+      double[] newLatitudes=new double[(int)newSize];
+      double[] newLongitudes=new double[(int)newSize];
       if (keepOldValues)
       {
-        for(int i=0;i<nbPoints;i++)
-        {
-          newLatitudes[i]=_latitudes[i];
-          newLongitudes[i]=_longitudes[i];
-        }
+        System.arraycopy(_latitudes,0,newLatitudes,0,_nbPoints);
+        System.arraycopy(_longitudes,0,newLongitudes,0,_nbPoints);
       }
       _latitudes=newLatitudes;
       _longitudes=newLongitudes;
@@ -191,6 +576,19 @@ public class GeoPolygon
    * stream.
    */
   public void write(DataOutputStream out) throws IOException
+  {
+    write(out,null);
+  }
+
+  /**
+   * Writes the contents of this object to the specified stream
+   * <code>out</code>, using a datums dictionary.
+   * @param out stream to write to.
+   * @param context datums dictionary of the stream (<code>null</code> to
+   * write the datum identifier).
+   * @throws IOException may be raised while using the <code>out</code> stream.
+   */
+  public void write(DataOutputStream out, GeoDatumStreamContext context) throws IOException
   {
     out.writeInt(_nbPoints);
     for(int i=0;i<_nbPoints;i++)
@@ -198,7 +596,7 @@ public class GeoPolygon
       out.writeDouble(_latitudes[i]);
       out.writeDouble(_longitudes[i]);
     }
-    out.writeUTF(_datum.getId());
+    GeoDatumStreamContext.writeDatum(out,context,_datum);
   }
 
   /**
@@ -208,6 +606,20 @@ public class GeoPolygon
    * @throws IOException may be raised while using the <code>in</code> stream.
    */
   public void read(DataInputStream in) throws IOException
+  {
+    read(in,null);
+  }
+
+  /**
+   * Reads the contents of this object from the specified stream
+   * <code>in</code>, using a datums dictionary, and sets this object's state
+   * to reflect read values.
+   * @param in stream to read from.
+   * @param context datums dictionary of the stream (<code>null</code> to
+   * read the datum identifier).
+   * @throws IOException may be raised while using the <code>in</code> stream.
+   */
+  public void read(DataInputStream in, GeoDatumStreamContext context) throws IOException
   {
     int n=in.readInt();
     ensureSize(n,false);
@@ -217,8 +629,9 @@ public class GeoPolygon
       _longitudes[i]=in.readDouble();
     }
     _nbPoints=n;
-    String datumID=in.readUTF();
-    _datum=GeodeticDatumRegister.getInstance().getGeodeticDatumByName(datumID);
+    computeBounds();
+    _datum=GeoDatumStreamContext.readDatum(in,context);
+    _modificationCount++;
   }
 
   /**
@@ -0,0 +1,102 @@
+package delta.carto.geometry;
+
+import delta.carto.geodesy.GeodeticDatum;
+
+/**
+ * Reusable cursor over the points of a polygon.
+ * <p>
+ * A cursor may be reset on another polygon, so that walking many polygons
+ * does not allocate anything. The polygon must not be modified while it is
+ * walked.
+ * @author DAM
+ */
+public class GeoPolygonCursor
+{
+  private GeoPolygon _polygon;
+  private int _nbPoints;
+  private int _index;
+  private double _latitude;
+  private double _longitude;
+
+  /**
+   * Constructor.
+   */
+  public GeoPolygonCursor()
+  {
+    _index=-1;
+  }
+
+  /**
+   * Constructor.
+   * @param polygon Polygon to walk.
+   */
+  public GeoPolygonCursor(GeoPolygon polygon)
+  {
+    reset(polygon);
+  }
+
+  /**
+   * Start walking a polygon. The cursor is positioned before its first point.
+   * @param polygon Polygon to walk.
+   */
+  public void reset(GeoPolygon polygon)
+  {
+    _polygon=polygon;
+    _nbPoints=(polygon!=null)?polygon.getNumberOfPoints():0;
+    _index=-1;
+  }
+
+  /**
+   * Move to the next point.
+   * @return <code>true</code> if the cursor is on a point,
+   * <code>false</code> if there are no more points.
+   */
+  public boolean next()
+  {
+    if (_index+1>=_nbPoints)
+    {
+      _index=_nbPoints;
+      return false;
+    }
+    _index++;
+    _latitude=_polygon.getLatitude(_index);
+    _longitude=_polygon.getLongitude(_index);
+    return true;
+  }
+
+  /**
+   * Get the index of the current point.
+   * @return an index.
+   */
+  public int getIndex()
+  {
+    return _index;
+  }
+
+  /**
+   * Get the latitude of the current point.
+   * @return a latitude.
+   */
+  public double getLatitude()
+  {
+    return _latitude;
+  }
+
+  /**
+   * Get the longitude of the current point.
+   * @return a longitude.
+   */
+  public double getLongitude()
+  {
+    return _longitude;
+  }
+
+  /**
+   * Get the datum of the walked polygon.
+   * @return a datum or <code>null</code> if no polygon is walked.
+   */
+  public GeodeticDatum getDatum()
+  {
+    return (_polygon!=null)?_polygon.getDatum():null;
+  }
+}
@@ -0,0 +1,591 @@
+package delta.carto.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import delta.carto.projection.MercatorProjection;
+import delta.common.utils.math.geometry.Conversions;
+
+/**
+ * Simplifies polygons, using the Douglas-Peucker or Visvalingam-Whyatt algorithm.
+ * <p>
+ * The tolerance is given either in meters (distances and areas are then
+ * computed in a local equirectangular approximation around each tested
+ * point, so that rings spanning many latitudes are handled) or in the units
+ * of a Mercator projection. For Douglas-Peucker, it is the maximum distance between
+ * a removed point and the simplified outline. For Visvalingam-Whyatt, points
+ * whose effective triangle area is lower than the square of the tolerance are
+ * removed.
+ * <p>
+ * Polygons are closed rings: the first and last points are always kept, as
+ * well as the point which is the farthest from the first one, so that a ring
+ * keeps at least 3 points. Implementations are iterative, so huge rings can
+ * be simplified.
+ * <p>
+ * Instances are immutable and may be shared between threads.
+ * @author DAM
+ */
+public class GeoPolygonSimplifier
+{
+  private static final double METERS_PER_DEGREE=1852.0*60.0;
+
+  /**
+   * Simplification algorithms.
+   */
+  public enum Algorithm
+  {
+    /**
+     * Douglas-Peucker: recursive splitting on the farthest point.
+     */
+    DOUGLAS_PEUCKER,
+    /**
+     * Visvalingam-Whyatt: iterative removal of the least significant point.
+     */
+    VISVALINGAM
+  }
+
+  private final Algorithm _algorithm;
+  private final double _tolerance;
+  private final MercatorProjection _projection;
+  private final ThreadLocal<Workspace> _workspaces;
+
+  /**
+   * Constructor for a tolerance in meters.
+   * @param algorithm Algorithm to use.
+   * @param tolerance Tolerance (meters).
+   */
+  public GeoPolygonSimplifier(Algorithm algorithm, double tolerance)
+  {
+    this(algorithm,tolerance,null);
+  }
+
+  /**
+   * Constructor for a tolerance in projected units.
+   * @param algorithm Algorithm to use.
+   * @param tolerance Tolerance (projected units).
+   * @param projection Projection to use, or <code>null</code> for a tolerance in meters.
+   */
+  public GeoPolygonSimplifier(Algorithm algorithm, double tolerance, MercatorProjection projection)
+  {
+    if (!(tolerance>=0))
+    {
+      throw new IllegalArgumentException("Bad tolerance: "+tolerance);
+    }
+    _algorithm=algorithm;
+    _tolerance=tolerance;
+    _projection=projection;
+    _workspaces=new ThreadLocal<Workspace>()
+    {
+      @Override
+      protected Workspace initialValue()
+      {
+        return new Workspace();
+      }
+    };
+  }
+
+  /**
+   * Get the algorithm used by this simplifier.
+   * @return an algorithm.
+   */
+  public Algorithm getAlgorithm()
+  {
+    return _algorithm;
+  }
+
+  /**
+   * Get the tolerance.
+   * @return the tolerance, in meters or projected units.
+   */
+  public double getTolerance()
+  {
+    return _tolerance;
+  }
+
+  /**
+   * Simplify a polygon.
+   * @param polygon Polygon to simplify.
+   * @param result Polygon to write to (its previous points are removed), or
+   * <code>null</code> to build a new one. May be <code>polygon</code>.
+   * @return the simplified polygon.
+   */
+  public GeoPolygon simplify(GeoPolygon polygon, GeoPolygon result)
+  {
+    int n=polygon.getNumberOfPoints();
+    GeoPolygon ret=(result!=null)?result:new GeoPolygon(0,polygon.getDatum());
+    double[] latitudes=polygon.getLatitudesStorage();
+    double[] longitudes=polygon.getLongitudesStorage();
+    if (n<=3)
+    {
+      if (ret!=polygon)
+      {
+        ret.clear(polygon.getDatum());
+        ret.addPoints(latitudes,longitudes,0,n);
+      }
+      return ret;
+    }
+    Workspace workspace=_workspaces.get();
+    workspace.ensureSize(n);
+    toPlane(polygon,workspace);
+    if (_algorithm==Algorithm.DOUGLAS_PEUCKER)
+    {
+      douglasPeucker(n,workspace);
+    }
+    else
+    {
+      visvalingam(n,workspace);
+    }
+    boolean[] keep=workspace._keep;
+    ret.clear(polygon.getDatum());
+    for(int i=0;i<n;i++)
+    {
+      if (keep[i])
+      {
+        ret.addPoint(latitudes[i],longitudes[i]);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Simplify a ring given by planar coordinates (for instance projected
+   * pixels). The tolerance is then in the units of these coordinates.
+   * @param x X values, replaced by the X values of kept points.
+   * @param y Y values, replaced by the Y values of kept points.
+   * @param nbPoints Number of points.
+   * @return the number of kept points.
+   */
+  public int simplify(double[] x, double[] y, int nbPoints)
+  {
+    if (nbPoints<=3)
+    {
+      return nbPoints;
+    }
+    Workspace workspace=_workspaces.get();
+    workspace.ensureSize(nbPoints);
+    System.arraycopy(x,0,workspace._x,0,nbPoints);
+    System.arraycopy(y,0,workspace._y,0,nbPoints);
+    workspace.setPlanar(nbPoints);
+    if (_algorithm==Algorithm.DOUGLAS_PEUCKER)
+    {
+      douglasPeucker(nbPoints,workspace);
+    }
+    else
+    {
+      visvalingam(nbPoints,workspace);
+    }
+    boolean[] keep=workspace._keep;
+    int nbKept=0;
+    for(int i=0;i<nbPoints;i++)
+    {
+      if (keep[i])
+      {
+        x[nbKept]=x[i];
+        y[nbKept]=y[i];
+        nbKept++;
+      }
+    }
+    return nbKept;
+  }
+
+  /**
+   * Simplify many polygons in parallel.
+   * @param polygons Polygons to simplify.
+   * @param pool Pool to use.
+   * @return the simplified polygons, in the same order.
+   */
+  public List<GeoPolygon> simplify(List<GeoPolygon> polygons, ForkJoinPool pool)
+  {
+    GeoPolygon[] results=new GeoPolygon[polygons.size()];
+    pool.invoke(new SimplifyTask(polygons,results,0,results.length));
+    List<GeoPolygon> ret=new ArrayList<GeoPolygon>(results.length);
+    for(GeoPolygon result : results)
+    {
+      ret.add(result);
+    }
+    return ret;
+  }
+
+  private void toPlane(GeoPolygon polygon, Workspace workspace)
+  {
+    int n=polygon.getNumberOfPoints();
+    double[] x=workspace._x;
+    double[] y=workspace._y;
+    System.arraycopy(polygon.getLongitudesStorage(),0,x,0,n);
+    System.arraycopy(polygon.getLatitudesStorage(),0,y,0,n);
+    if (_projection!=null)
+    {
+      _projection.transform(x,y,0,n);
+      workspace.setPlanar(n);
+      return;
+    }
+    // Degrees are kept, differences are scaled to meters around each tested point
+    double[] xFactors=workspace._xFactors;
+    for(int i=0;i<n;i++)
+    {
+      xFactors[i]=METERS_PER_DEGREE*Math.cos(Conversions.degreesToRadians(y[i]));
+    }
+    workspace._yFactor=METERS_PER_DEGREE;
+  }
+
+  /**
+   * Mark the points kept by the first split of a ring: first, last and
+   * farthest from the first.
+   * @param n Number of points.
+   * @param workspace Workspace.
+   * @return the index of the farthest point.
+   */
+  private int initRing(int n, Workspace workspace)
+  {
+    double[] x=workspace._x;
+    double[] y=workspace._y;
+    double[] xFactors=workspace._xFactors;
+    double yFactor=workspace._yFactor;
+    boolean[] keep=workspace._keep;
+    int farthest=1;
+    double max=-1;
+    for(int i=1;i<n-1;i++)
+    {
+      double dx=(x[i]-x[0])*xFactors[i];
+      double dy=(y[i]-y[0])*yFactor;
+      double d=dx*dx+dy*dy;
+      if (d>max)
+      {
+        max=d;
+        farthest=i;
+      }
+      keep[i]=false;
+    }
+    keep[0]=true;
+    keep[farthest]=true;
+    keep[n-1]=true;
+    return farthest;
+  }
+
+  private void douglasPeucker(int n, Workspace workspace)
+  {
+    double[] x=workspace._x;
+    double[] y=workspace._y;
+    boolean[] keep=workspace._keep;
+    int[] stack=workspace._stack;
+    double[] xFactors=workspace._xFactors;
+    double yFactor=workspace._yFactor;
+    double squareTolerance=_tolerance*_tolerance;
+    int farthest=initRing(n,workspace);
+    int top=0;
+    stack[top++]=0;
+    stack[top++]=farthest;
+    stack[top++]=farthest;
+    stack[top++]=n-1;
+    while (top>0)
+    {
+      int end=stack[--top];
+      int start=stack[--top];
+      if (end-start<2)
+      {
+        continue;
+      }
+      double max=-1;
+      int index=-1;
+      double dx=x[end]-x[start];
+      double dy=(y[end]-y[start])*yFactor;
+      for(int i=start+1;i<end;i++)
+      {
+        // Relative to the segment start, scaled around the tested point
+        double xFactor=xFactors[i];
+        double d=squareSegmentDistance((x[i]-x[start])*xFactor,(y[i]-y[start])*yFactor,dx*xFactor,dy);
+        if (d>max)
+        {
+          max=d;
+          index=i;
+        }
+      }
+      if (max>squareTolerance)
+      {
+        keep[index]=true;
+        stack[top++]=start;
+        stack[top++]=index;
+        stack[top++]=index;
+        stack[top++]=end;
+      }
+    }
+  }
+
+  private void visvalingam(int n, Workspace workspace)
+  {
+    double[] x=workspace._x;
+    double[] y=workspace._y;
+    boolean[] keep=workspace._keep;
+    int[] previous=workspace._previous;
+    int[] next=workspace._next;
+    double[] areas=workspace._areas;
+    double[] xFactors=workspace._xFactors;
+    double yFactor=workspace._yFactor;
+    int farthest=initRing(n,workspace);
+    double threshold=_tolerance*_tolerance;
+    // Candidates: all points but first, last and farthest
+    IndexHeap heap=workspace._heap;
+    heap.reset(n,areas);
+    for(int i=0;i<n;i++)
+    {
+      previous[i]=i-1;
+      next[i]=i+1;
+      if ((i!=0)&&(i!=n-1)&&(i!=farthest))
+      {
+        keep[i]=true;
+        areas[i]=triangleArea(x,y,i-1,i,i+1)*xFactors[i]*yFactor;
+        heap.add(i);
+      }
+    }
+    double lastArea=0;
+    while (!heap.isEmpty())
+    {
+      int i=heap.peek();
+      double area=areas[i];
+      if (area>=threshold)
+      {
+        break;
+      }
+      heap.poll();
+      // Effective areas never decrease
+      lastArea=Math.max(lastArea,area);
+      keep[i]=false;
+      int p=previous[i];
+      int q=next[i];
+      next[p]=q;
+      previous[q]=p;
+      if (heap.contains(p))
+      {
+        areas[p]=Math.max(lastArea,triangleArea(x,y,previous[p],p,q)*xFactors[p]*yFactor);
+        heap.update(p);
+      }
+      if (heap.contains(q))
+      {
+        areas[q]=Math.max(lastArea,triangleArea(x,y,p,q,next[q])*xFactors[q]*yFactor);
+        heap.update(q);
+      }
+    }
+  }
+
+  private static double triangleArea(double[] x, double[] y, int a, int b, int c)
+  {
+    return Math.abs((x[b]-x[a])*(y[c]-y[a])-(x[c]-x[a])*(y[b]-y[a]))/2;
+  }
+
+  /**
+   * Square distance between a point and a segment starting at the origin.
+   * @param px Point X.
+   * @param py Point Y.
+   * @param dx Segment end X.
+   * @param dy Segment end Y.
+   * @return a square distance.
+   */
+  private static double squareSegmentDistance(double px, double py, double dx, double dy)
+  {
+    double length2=dx*dx+dy*dy;
+    double t=0;
+    if (length2>0)
+    {
+      t=(px*dx+py*dy)/length2;
+      t=(t<0)?0:((t>1)?1:t);
+    }
+    double ex=px-t*dx;
+    double ey=py-t*dy;
+    return ex*ex+ey*ey;
+  }
+
+  /**
+   * Per-thread work storage.
+   */
+  private static class Workspace
+  {
+    private double[] _x=new double[0];
+    private double[] _y=new double[0];
+    private double[] _xFactors=new double[0];
+    private double _yFactor;
+    private boolean[] _keep=new boolean[0];
+    private int[] _stack=new int[0];
+    private int[] _previous=new int[0];
+    private int[] _next=new int[0];
+    private double[] _areas=new double[0];
+    private IndexHeap _heap=new IndexHeap();
+
+    void ensureSize(int n)
+    {
+      if (_x.length<n)
+      {
+        _x=new double[n];
+        _y=new double[n];
+        _xFactors=new double[n];
+        _keep=new boolean[n];
+        // Each split pushes 4 values, at most one split per point
+        _stack=new int[4*n+4];
+        _previous=new int[n];
+        _next=new int[n];
+        _areas=new double[n];
+      }
+    }
+
+    void setPlanar(int n)
+    {
+      Arrays.fill(_xFactors,0,n,1.0);
+      _yFactor=1.0;
+    }
+  }
+
+  /**
+   * Binary min-heap of point indexes, ordered by area.
+   */
+  private static class IndexHeap
+  {
+    private int[] _heap=new int[0];
+    private int[] _positions=new int[0];
+    private double[] _keys;
+    private int _size;
+
+    void reset(int n, double[] keys)
+    {
+      if (_heap.length<n)
+      {
+        _heap=new int[n];
+        _positions=new int[n];
+      }
+      Arrays.fill(_positions,0,n,-1);
+      _keys=keys;
+      _size=0;
+    }
+
+    boolean isEmpty()
+    {
+      return _size==0;
+    }
+
+    boolean contains(int index)
+    {
+      return _positions[index]>=0;
+    }
+
+    int peek()
+    {
+      return _heap[0];
+    }
+
+    void add(int index)
+    {
+      _heap[_size]=index;
+      _positions[index]=_size;
+      _size++;
+      up(_size-1);
+    }
+
+    int poll()
+    {
+      int ret=_heap[0];
+      _positions[ret]=-1;
+      _size--;
+      if (_size>0)
+      {
+        _heap[0]=_heap[_size];
+        _positions[_heap[0]]=0;
+        down(0);
+      }
+      return ret;
+    }
+
+    void update(int index)
+    {
+      int position=_positions[index];
+      up(position);
+      down(_positions[index]);
+    }
+
+    private void up(int position)
+    {
+      int index=_heap[position];
+      double key=_keys[index];
+      while (position>0)
+      {
+        int parent=(position-1)>>>1;
+        int parentIndex=_heap[parent];
+        if (_keys[parentIndex]<=key)
+        {
+          break;
+        }
+        _heap[position]=parentIndex;
+        _positions[parentIndex]=position;
+        position=parent;
+      }
+      _heap[position]=index;
+      _positions[index]=position;
+    }
+
+    private void down(int position)
+    {
+      int index=_heap[position];
+      double key=_keys[index];
+      while (true)
+      {
+        int child=2*position+1;
+        if (child>=_size)
+        {
+          break;
+        }
+        if ((child+1<_size)&&(_keys[_heap[child+1]]<_keys[_heap[child]]))
+        {
+          child++;
+        }
+        int childIndex=_heap[child];
+        if (_keys[childIndex]>=key)
+        {
+          break;
+        }
+        _heap[position]=childIndex;
+        _positions[childIndex]=position;
+        position=child;
+      }
+      _heap[position]=index;
+      _positions[index]=position;
+    }
+  }
+
+  /**
+   * Fork/join task for a range of polygons.
+   */
+  private class SimplifyTask extends RecursiveAction
+  {
+    private static final long serialVersionUID=1L;
+    private static final int THRESHOLD=16;
+
+    private List<GeoPolygon> _polygons;
+    private GeoPolygon[] _results;
+    private int _from;
+    private int _to;
+
+    SimplifyTask(List<GeoPolygon> polygons, GeoPolygon[] results, int from, int to)
+    {
+      _polygons=polygons;
+      _results=results;
+      _from=from;
+      _to=to;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (_to-_from>THRESHOLD)
+      {
+        int middle=(_from+_to)>>>1;
+        invokeAll(new SimplifyTask(_polygons,_results,_from,middle),
+            new SimplifyTask(_polygons,_results,middle,_to));
+        return;
+      }
+      for(int i=_from;i<_to;i++)
+      {
+        _results[i]=simplify(_polygons.get(i),null);
+      }
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package delta.carto.geometry;
+
+/**
+ * Interface of objects that visit the points of a polygon.
+ * @author DAM
+ */
+public interface GeoPolygonVertexVisitor
+{
+  /**
+   * Visit a point.
+   * @param index Index of the point in its polygon.
+   * @param latitude Latitude of the point.
+   * @param longitude Longitude of the point.
+   */
+  void accept(int index, double latitude, double longitude);
+}
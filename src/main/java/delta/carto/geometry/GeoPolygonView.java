@@ -0,0 +1,104 @@
+package delta.carto.geometry;
+
+import java.nio.DoubleBuffer;
+
+import delta.carto.geodesy.GeodeticDatum;
+
+/**
+ * Read-only view on a polygon stored outside of the Java heap, for instance
+ * in a memory-mapped file. Coordinates are not copied.
+ * Views may be shared between threads.
+ * @author DAM
+ */
+public class GeoPolygonView
+{
+  private GeodeticDatum _datum;
+  private int _nbPoints;
+  private DoubleBuffer _latitudes;
+  private DoubleBuffer _longitudes;
+
+  /**
+   * Constructor.
+   * @param datum Datum of this shape.
+   * @param nbPoints Number of points.
+   * @param latitudes Latitudes (absolute indexes from 0 to <code>nbPoints-1</code>).
+   * @param longitudes Longitudes (absolute indexes from 0 to <code>nbPoints-1</code>).
+   */
+  public GeoPolygonView(GeodeticDatum datum, int nbPoints, DoubleBuffer latitudes, DoubleBuffer longitudes)
+  {
+    _datum=datum;
+    _nbPoints=nbPoints;
+    _latitudes=latitudes;
+    _longitudes=longitudes;
+  }
+
+  /**
+   * Get the geodetic datum used by this polygon.
+   * @return the geodetic datum used by this polygon.
+   */
+  public GeodeticDatum getDatum()
+  {
+    return _datum;
+  }
+
+  /**
+   * Get the number of points in this polygon.
+   * @return the number of points in this polygon.
+   */
+  public int getNumberOfPoints()
+  {
+    return _nbPoints;
+  }
+
+  /**
+   * Get the latitude of a point of this polygon.
+   * @param pointIndex Index of desired point.
+   * @return the latitude of the targeted point;
+   * @throws IllegalArgumentException if the index is out of range.
+   */
+  public double getLatitude(int pointIndex)
+  {
+    checkIndex(pointIndex);
+    return _latitudes.get(pointIndex);
+  }
+
+  /**
+   * Get the longitude of a point of this polygon.
+   * @param pointIndex Index of desired point.
+   * @return the longitude of the targeted point;
+   * @throws IllegalArgumentException if the index is out of range.
+   */
+  public double getLongitude(int pointIndex)
+  {
+    checkIndex(pointIndex);
+    return _longitudes.get(pointIndex);
+  }
+
+  private void checkIndex(int pointIndex)
+  {
+    // Buffers may hold more values than the points of this view
+    if ((pointIndex<0)||(pointIndex>=_nbPoints))
+    {
+      throw new IllegalArgumentException("Bad point index: "+pointIndex);
+    }
+  }
+
+  /**
+   * Copy the points of this view into a new polygon.
+   * @return a new polygon.
+   */
+  public GeoPolygon toGeoPolygon()
+  {
+    GeoPolygon ret=new GeoPolygon(0,_datum);
+    ret.reserve(_nbPoints);
+    // Bulk copies straight into the polygon storage
+    DoubleBuffer latitudes=_latitudes.duplicate();
+    latitudes.position(0);
+    latitudes.get(ret.getLatitudesStorage(),0,_nbPoints);
+    DoubleBuffer longitudes=_longitudes.duplicate();
+    longitudes.position(0);
+    longitudes.get(ret.getLongitudesStorage(),0,_nbPoints);
+    ret.addStoredPoints(_nbPoints);
+    return ret;
+  }
+}
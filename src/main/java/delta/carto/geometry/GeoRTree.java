@@ -0,0 +1,550 @@
+package delta.carto.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import delta.carto.geodesy.GeodeticDatum;
+import delta.common.utils.math.geometry.Conversions;
+
+/**
+ * Read-only R-tree of items keyed by geographic rectangles.
+ * <p>
+ * The tree is bulk-loaded using the Sort-Tile-Recursive algorithm. Nodes are
+ * stored in flat primitive arrays: children of a node are contiguous, so a
+ * node is described by its bounds and a range of children indexes.
+ * <p>
+ * Once built, the tree is never modified, so it may be queried concurrently
+ * without locking.
+ * @param <T> Type of items.
+ * @author DAM
+ */
+public final class GeoRTree<T>
+{
+  /**
+   * Default maximum number of children per node.
+   */
+  public static final int DEFAULT_NODE_CAPACITY=16;
+
+  private final GeodeticDatum _datum;
+  private final int _nodeCapacity;
+  private final int _height;
+  // Items, in tree order
+  private final Object[] _items;
+  private final double[] _itemMinLat;
+  private final double[] _itemMaxLat;
+  private final double[] _itemMinLong;
+  private final double[] _itemMaxLong;
+  // Nodes: root is node 0, nodes from _firstLeaf are leaves (their children are items)
+  private final int _firstLeaf;
+  private final double[] _minLat;
+  private final double[] _maxLat;
+  private final double[] _minLong;
+  private final double[] _maxLong;
+  private final int[] _childStart;
+  private final int[] _childEnd;
+
+  /**
+   * Build a tree.
+   * @param extents Extents of items.
+   * @param items Items.
+   * @param nodeCapacity Maximum number of children per node.
+   */
+  public GeoRTree(List<GeoRectangle> extents, List<T> items, int nodeCapacity)
+  {
+    int n=items.size();
+    if (extents.size()!=n)
+    {
+      throw new IllegalArgumentException("Mismatch of extents and items count: "+extents.size()+"!="+n);
+    }
+    if (nodeCapacity<2)
+    {
+      throw new IllegalArgumentException("Bad node capacity: "+nodeCapacity);
+    }
+    _nodeCapacity=nodeCapacity;
+    _datum=(n>0)?extents.get(0).getDatum():null;
+    // Items level
+    Level level=new Level(n);
+    for(int i=0;i<n;i++)
+    {
+      GeoRectangle extent=extents.get(i);
+      if (extent.getDatum()!=_datum)
+      {
+        throw new IllegalArgumentException("Bad datum: "+extent.getDatum()+"!="+_datum);
+      }
+      level.set(i,extent.getMinLatitude(),extent.getMaxLatitude(),extent.getMinLongitude(),extent.getMaxLongitude(),i,i+1);
+    }
+    int[] order=level.sortTileRecursive(nodeCapacity);
+    _items=new Object[n];
+    for(int i=0;i<n;i++)
+    {
+      _items[i]=items.get(order[i]);
+    }
+    _itemMinLat=level._minLat;
+    _itemMaxLat=level._maxLat;
+    _itemMinLong=level._minLong;
+    _itemMaxLong=level._maxLong;
+
+    // Node levels, bottom-up
+    List<Level> levels=new ArrayList<Level>();
+    do
+    {
+      level=level.pack(nodeCapacity);
+      levels.add(level);
+      if (level._size>1)
+      {
+        level.sortTileRecursive(nodeCapacity);
+      }
+    }
+    while (level._size>1);
+    _height=levels.size();
+
+    // Flatten, root first
+    int nbNodes=0;
+    for(Level l : levels)
+    {
+      nbNodes+=l._size;
+    }
+    _minLat=new double[nbNodes];
+    _maxLat=new double[nbNodes];
+    _minLong=new double[nbNodes];
+    _maxLong=new double[nbNodes];
+    _childStart=new int[nbNodes];
+    _childEnd=new int[nbNodes];
+    int offset=0;
+    int childrenOffset=0;
+    for(int i=levels.size()-1;i>=0;i--)
+    {
+      Level l=levels.get(i);
+      childrenOffset=(i==0)?0:offset+l._size;
+      System.arraycopy(l._minLat,0,_minLat,offset,l._size);
+      System.arraycopy(l._maxLat,0,_maxLat,offset,l._size);
+      System.arraycopy(l._minLong,0,_minLong,offset,l._size);
+      System.arraycopy(l._maxLong,0,_maxLong,offset,l._size);
+      for(int j=0;j<l._size;j++)
+      {
+        _childStart[offset+j]=l._childStart[j]+childrenOffset;
+        _childEnd[offset+j]=l._childEnd[j]+childrenOffset;
+      }
+      offset+=l._size;
+    }
+    _firstLeaf=nbNodes-levels.get(0)._size;
+  }
+
+  /**
+   * Build a tree of polygons, keyed by their bounding boxes.
+   * Empty polygons are ignored.
+   * @param polygons Polygons to index.
+   * @return a new tree.
+   */
+  public static GeoRTree<GeoPolygon> buildFromPolygons(List<GeoPolygon> polygons)
+  {
+    List<GeoRectangle> extents=new ArrayList<GeoRectangle>(polygons.size());
+    List<GeoPolygon> items=new ArrayList<GeoPolygon>(polygons.size());
+    for(GeoPolygon polygon : polygons)
+    {
+      GeoRectangle box=polygon.getBoundingBox();
+      if (box!=null)
+      {
+        extents.add(box);
+        items.add(polygon);
+      }
+    }
+    return new GeoRTree<GeoPolygon>(extents,items,DEFAULT_NODE_CAPACITY);
+  }
+
+  /**
+   * Get the number of items in this tree.
+   * @return the number of items in this tree.
+   */
+  public int size()
+  {
+    return _items.length;
+  }
+
+  /**
+   * Get the height of this tree (number of node levels).
+   * @return the height of this tree.
+   */
+  public int getHeight()
+  {
+    return _height;
+  }
+
+  /**
+   * Find the items whose extent intersects a window (borders included).
+   * @param window Window to use.
+   * @param results Storage for found items.
+   */
+  public void query(GeoRectangle window, List<T> results)
+  {
+    if ((_datum!=null)&&(window.getDatum()!=_datum))
+    {
+      throw new IllegalArgumentException("Bad datum: "+window.getDatum()+"!="+_datum);
+    }
+    query(window.getMinLatitude(),window.getMaxLatitude(),window.getMinLongitude(),window.getMaxLongitude(),results);
+  }
+
+  /**
+   * Find the items whose extent contains a point (borders included).
+   * @param latitude Latitude of point.
+   * @param longitude Longitude of point.
+   * @param results Storage for found items.
+   */
+  public void queryPoint(double latitude, double longitude, List<T> results)
+  {
+    query(latitude,latitude,longitude,longitude,results);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void query(double minLat, double maxLat, double minLong, double maxLong, List<T> results)
+  {
+    if (_items.length==0)
+    {
+      return;
+    }
+    int[] stack=new int[_height*_nodeCapacity+1];
+    int top=0;
+    stack[top++]=0;
+    while (top>0)
+    {
+      int node=stack[--top];
+      if ((_minLat[node]>maxLat)||(_maxLat[node]<minLat)||(_minLong[node]>maxLong)||(_maxLong[node]<minLong))
+      {
+        continue;
+      }
+      int end=_childEnd[node];
+      if (node>=_firstLeaf)
+      {
+        for(int i=_childStart[node];i<end;i++)
+        {
+          if ((_itemMinLat[i]<=maxLat)&&(_itemMaxLat[i]>=minLat)&&(_itemMinLong[i]<=maxLong)&&(_itemMaxLong[i]>=minLong))
+          {
+            results.add((T)_items[i]);
+          }
+        }
+      }
+      else
+      {
+        for(int i=_childStart[node];i<end;i++)
+        {
+          stack[top++]=i;
+        }
+      }
+    }
+  }
+
+  /**
+   * Find the items that are the nearest to a point.
+   * Distances are measured from the point to items extents, in degrees, with
+   * longitude differences scaled by the cosine of the latitude of the point.
+   * @param latitude Latitude of point.
+   * @param longitude Longitude of point.
+   * @param k Maximum number of items to get.
+   * @return the found items, nearest first.
+   */
+  @SuppressWarnings("unchecked")
+  public List<T> nearest(double latitude, double longitude, int k)
+  {
+    List<T> ret=new ArrayList<T>(Math.min(k,_items.length));
+    if ((_items.length==0)||(k<=0))
+    {
+      return ret;
+    }
+    double longitudeFactor=Math.cos(Conversions.degreesToRadians(latitude));
+    // Candidates: nodes are encoded as their index, items as -(index+1)
+    DistanceHeap heap=new DistanceHeap(_height*_nodeCapacity*4+16);
+    heap.add(0,squareDistance(latitude,longitude,longitudeFactor,_minLat[0],_maxLat[0],_minLong[0],_maxLong[0]));
+    while ((!heap.isEmpty())&&(ret.size()<k))
+    {
+      int id=heap.pollId();
+      if (id<0)
+      {
+        ret.add((T)_items[-(id+1)]);
+        continue;
+      }
+      int end=_childEnd[id];
+      if (id>=_firstLeaf)
+      {
+        for(int i=_childStart[id];i<end;i++)
+        {
+          heap.add(-(i+1),squareDistance(latitude,longitude,longitudeFactor,_itemMinLat[i],_itemMaxLat[i],_itemMinLong[i],_itemMaxLong[i]));
+        }
+      }
+      else
+      {
+        for(int i=_childStart[id];i<end;i++)
+        {
+          heap.add(i,squareDistance(latitude,longitude,longitudeFactor,_minLat[i],_maxLat[i],_minLong[i],_maxLong[i]));
+        }
+      }
+    }
+    return ret;
+  }
+
+  private static double squareDistance(double latitude, double longitude, double longitudeFactor,
+      double minLat, double maxLat, double minLong, double maxLong)
+  {
+    double dy=(latitude<minLat)?minLat-latitude:((latitude>maxLat)?latitude-maxLat:0);
+    double dx=(longitude<minLong)?minLong-longitude:((longitude>maxLong)?longitude-maxLong:0);
+    dx*=longitudeFactor;
+    return dx*dx+dy*dy;
+  }
+
+  /**
+   * Entries of a tree level, used while building the tree.
+   */
+  private static class Level
+  {
+    private int _size;
+    private double[] _minLat;
+    private double[] _maxLat;
+    private double[] _minLong;
+    private double[] _maxLong;
+    private int[] _childStart;
+    private int[] _childEnd;
+
+    Level(int size)
+    {
+      _size=size;
+      _minLat=new double[size];
+      _maxLat=new double[size];
+      _minLong=new double[size];
+      _maxLong=new double[size];
+      _childStart=new int[size];
+      _childEnd=new int[size];
+    }
+
+    void set(int index, double minLat, double maxLat, double minLong, double maxLong, int childStart, int childEnd)
+    {
+      _minLat[index]=minLat;
+      _maxLat[index]=maxLat;
+      _minLong[index]=minLong;
+      _maxLong[index]=maxLong;
+      _childStart[index]=childStart;
+      _childEnd[index]=childEnd;
+    }
+
+    /**
+     * Reorder entries using Sort-Tile-Recursive: sort by longitude of
+     * centers, cut into vertical slices, then sort each slice by latitude
+     * of centers.
+     * @param capacity Node capacity.
+     * @return the applied permutation (new index to old index).
+     */
+    int[] sortTileRecursive(int capacity)
+    {
+      int n=_size;
+      int[] order=new int[n];
+      double[] longitudes=new double[n];
+      double[] latitudes=new double[n];
+      for(int i=0;i<n;i++)
+      {
+        order[i]=i;
+        longitudes[i]=_minLong[i]+_maxLong[i];
+        latitudes[i]=_minLat[i]+_maxLat[i];
+      }
+      int nbNodes=(n+capacity-1)/capacity;
+      int nbSlices=(int)Math.ceil(Math.sqrt(nbNodes));
+      int sliceSize=nbSlices*capacity;
+      IndexSorter.sort(order,0,n,longitudes);
+      for(int start=0;start<n;start+=sliceSize)
+      {
+        IndexSorter.sort(order,start,Math.min(n,start+sliceSize),latitudes);
+      }
+      _minLat=permute(_minLat,order);
+      _maxLat=permute(_maxLat,order);
+      _minLong=permute(_minLong,order);
+      _maxLong=permute(_maxLong,order);
+      _childStart=permute(_childStart,order);
+      _childEnd=permute(_childEnd,order);
+      return order;
+    }
+
+    /**
+     * Build the parent level, grouping consecutive entries.
+     * @param capacity Node capacity.
+     * @return the parent level.
+     */
+    Level pack(int capacity)
+    {
+      int nbParents=Math.max(1,(_size+capacity-1)/capacity);
+      Level ret=new Level(nbParents);
+      for(int p=0;p<nbParents;p++)
+      {
+        int start=p*capacity;
+        int end=Math.min(_size,start+capacity);
+        double minLat=Double.POSITIVE_INFINITY;
+        double maxLat=Double.NEGATIVE_INFINITY;
+        double minLong=Double.POSITIVE_INFINITY;
+        double maxLong=Double.NEGATIVE_INFINITY;
+        for(int i=start;i<end;i++)
+        {
+          minLat=Math.min(minLat,_minLat[i]);
+          maxLat=Math.max(maxLat,_maxLat[i]);
+          minLong=Math.min(minLong,_minLong[i]);
+          maxLong=Math.max(maxLong,_maxLong[i]);
+        }
+        ret.set(p,minLat,maxLat,minLong,maxLong,start,end);
+      }
+      return ret;
+    }
+
+    private static double[] permute(double[] values, int[] order)
+    {
+      double[] ret=new double[order.length];
+      for(int i=0;i<order.length;i++)
+      {
+        ret[i]=values[order[i]];
+      }
+      return ret;
+    }
+
+    private static int[] permute(int[] values, int[] order)
+    {
+      int[] ret=new int[order.length];
+      for(int i=0;i<order.length;i++)
+      {
+        ret[i]=values[order[i]];
+      }
+      return ret;
+    }
+  }
+
+  /**
+   * Sorts ranges of indexes by associated keys.
+   */
+  private static class IndexSorter
+  {
+    private static final int INSERTION_SORT_THRESHOLD=16;
+
+    static void sort(int[] indexes, int from, int to, double[] keys)
+    {
+      while (to-from>INSERTION_SORT_THRESHOLD)
+      {
+        // Median of three pivot
+        int middle=(from+to)>>>1;
+        double a=keys[indexes[from]];
+        double b=keys[indexes[middle]];
+        double c=keys[indexes[to-1]];
+        double pivot=Math.max(Math.min(a,b),Math.min(Math.max(a,b),c));
+        int i=from;
+        int j=to-1;
+        while (i<=j)
+        {
+          while (keys[indexes[i]]<pivot) i++;
+          while (keys[indexes[j]]>pivot) j--;
+          if (i<=j)
+          {
+            int tmp=indexes[i];
+            indexes[i]=indexes[j];
+            indexes[j]=tmp;
+            i++;
+            j--;
+          }
+        }
+        // Recurse on the smaller part, loop on the bigger one
+        if (j+1-from<to-i)
+        {
+          sort(indexes,from,j+1,keys);
+          from=i;
+        }
+        else
+        {
+          sort(indexes,i,to,keys);
+          to=j+1;
+        }
+      }
+      for(int i=from+1;i<to;i++)
+      {
+        int index=indexes[i];
+        double key=keys[index];
+        int j=i-1;
+        while ((j>=from)&&(keys[indexes[j]]>key))
+        {
+          indexes[j+1]=indexes[j];
+          j--;
+        }
+        indexes[j+1]=index;
+      }
+    }
+  }
+
+  /**
+   * Binary min-heap of identifiers ordered by distance.
+   */
+  private static class DistanceHeap
+  {
+    private int[] _ids;
+    private double[] _distances;
+    private int _size;
+
+    DistanceHeap(int capacity)
+    {
+      _ids=new int[capacity];
+      _distances=new double[capacity];
+    }
+
+    boolean isEmpty()
+    {
+      return _size==0;
+    }
+
+    void add(int id, double distance)
+    {
+      if (_size==_ids.length)
+      {
+        _ids=Arrays.copyOf(_ids,_size*2);
+        _distances=Arrays.copyOf(_distances,_size*2);
+      }
+      int position=_size++;
+      while (position>0)
+      {
+        int parent=(position-1)>>>1;
+        if (_distances[parent]<=distance)
+        {
+          break;
+        }
+        _ids[position]=_ids[parent];
+        _distances[position]=_distances[parent];
+        position=parent;
+      }
+      _ids[position]=id;
+      _distances[position]=distance;
+    }
+
+    int pollId()
+    {
+      int ret=_ids[0];
+      _size--;
+      if (_size>0)
+      {
+        int id=_ids[_size];
+        double distance=_distances[_size];
+        int position=0;
+        while (true)
+        {
+          int child=2*position+1;
+          if (child>=_size)
+          {
+            break;
+          }
+          if ((child+1<_size)&&(_distances[child+1]<_distances[child]))
+          {
+            child++;
+          }
+          if (_distances[child]>=distance)
+          {
+            break;
+          }
+          _ids[position]=_ids[child];
+          _distances[position]=_distances[child];
+          position=child;
+        }
+        _ids[position]=id;
+        _distances[position]=distance;
+      }
+      return ret;
+    }
+  }
+}
@@ -167,6 +167,62 @@ public class GeoRectangle
     return _datum;
   }
 
+  /**
+   * Indicates if a point is inside this rectangle (borders included).
+   * @param latitude Latitude of point.
+   * @param longitude Longitude of point.
+   * @return <code>true</code> if it is inside, <code>false</code> otherwise.
+   */
+  public boolean containsPoint(double latitude, double longitude)
+  {
+    return (latitude>=_minLatitude)&&(latitude<=_maxLatitude)
+        &&(longitude>=_minLongitude)&&(longitude<=_maxLongitude);
+  }
+
+  /**
+   * Indicates if a point is inside this rectangle (borders included).
+   * @param point Point to test.
+   * @return <code>true</code> if it is inside, <code>false</code> otherwise.
+   */
+  public boolean containsPoint(Geo2DPoint point)
+  {
+    if (point.getDatum()!=_datum)
+    {
+      throw new IllegalArgumentException("Bad datum: "+point.getDatum()+"!="+_datum);
+    }
+    return containsPoint(point.getLatitude(),point.getLongitude());
+  }
+
+  /**
+   * Indicates if a rectangle is fully inside this rectangle (borders included).
+   * @param r Rectangle to test.
+   * @return <code>true</code> if it is inside, <code>false</code> otherwise.
+   */
+  public boolean contains(GeoRectangle r)
+  {
+    if (r._datum!=_datum)
+    {
+      throw new IllegalArgumentException("Bad datum: "+r._datum+"!="+_datum);
+    }
+    return (r._minLatitude>=_minLatitude)&&(r._maxLatitude<=_maxLatitude)
+        &&(r._minLongitude>=_minLongitude)&&(r._maxLongitude<=_maxLongitude);
+  }
+
+  /**
+   * Indicates if a rectangle intersects this rectangle (borders included).
+   * @param r Rectangle to test.
+   * @return <code>true</code> if they intersect, <code>false</code> otherwise.
+   */
+  public boolean intersects(GeoRectangle r)
+  {
+    if (r._datum!=_datum)
+    {
+      throw new IllegalArgumentException("Bad datum: "+r._datum+"!="+_datum);
+    }
+    return (r._minLatitude<=_maxLatitude)&&(r._maxLatitude>=_minLatitude)
+        &&(r._minLongitude<=_maxLongitude)&&(r._maxLongitude>=_minLongitude);
+  }
+
   /**
    * Writes the contents of this object to the specified stream
    * <code>out</code>.
@@ -174,12 +230,25 @@ public class GeoRectangle
    * @throws IOException may be raised while using the <code>out</code> stream.
    */
   public void write(DataOutputStream out) throws IOException
+  {
+    write(out,null);
+  }
+
+  /**
+   * Writes the contents of this object to the specified stream
+   * <code>out</code>, using a datums dictionary.
+   * @param out stream to write to.
+   * @param context datums dictionary of the stream (<code>null</code> to
+   * write the datum identifier).
+   * @throws IOException may be raised while using the <code>out</code> stream.
+   */
+  public void write(DataOutputStream out, GeoDatumStreamContext context) throws IOException
   {
     out.writeDouble(_minLatitude);
     out.writeDouble(_maxLatitude);
     out.writeDouble(_minLongitude);
     out.writeDouble(_maxLongitude);
-    out.writeUTF(_datum.getId());
+    GeoDatumStreamContext.writeDatum(out,context,_datum);
   }
 
   /**
@@ -189,13 +258,26 @@ public class GeoRectangle
    * @throws IOException may be raised while using the <code>in</code> stream.
    */
   public void read(DataInputStream in) throws IOException
+  {
+    read(in,null);
+  }
+
+  /**
+   * Reads the contents of this object from the specified stream
+   * <code>in</code>, using a datums dictionary, and sets this object's state
+   * to reflect read values.
+   * @param in stream to read from.
+   * @param context datums dictionary of the stream (<code>null</code> to
+   * read the datum identifier).
+   * @throws IOException may be raised while using the <code>in</code> stream.
+   */
+  public void read(DataInputStream in, GeoDatumStreamContext context) throws IOException
   {
     _minLatitude=in.readDouble();
     _maxLatitude=in.readDouble();
     _minLongitude=in.readDouble();
     _maxLongitude=in.readDouble();
-    String datumID=in.readUTF();
-    _datum=GeodeticDatumRegister.getInstance().getGeodeticDatumByName(datumID);
+    _datum=GeoDatumStreamContext.readDatum(in,context);
   }
 
   /**
@@ -0,0 +1,63 @@
+package delta.carto.geometry;
+
+import java.nio.ByteOrder;
+
+/**
+ * Constants of the binary geographic shapes file format.
+ * <p>
+ * All values are little-endian.
+ * <ul>
+ * <li>Header (24 bytes): magic number (int), version (int), offset of the
+ * datums table (long), number of shapes (long).</li>
+ * <li>Shapes: number of points, or -1 for a rectangle (int), index of the
+ * datum in the datums table (int), then coordinates. For a polygon, all
+ * latitudes followed by all longitudes. For a rectangle, minimum latitude,
+ * maximum latitude, minimum longitude and maximum longitude.</li>
+ * <li>Datums table: number of datums (int), then for each datum, the UTF-8
+ * length (short) and bytes of its identifier.</li>
+ * </ul>
+ * Coordinates are aligned on 8 bytes boundaries, so that they can be
+ * accessed in place through double buffers.
+ * @author DAM
+ */
+public abstract class GeoShapesFileFormat
+{
+  /**
+   * Magic number.
+   */
+  public static final int MAGIC=0x47454f53;
+  /**
+   * Format version.
+   */
+  public static final int VERSION=1;
+  /**
+   * Byte order.
+   */
+  public static final ByteOrder BYTE_ORDER=ByteOrder.LITTLE_ENDIAN;
+  /**
+   * Size of the file header (bytes).
+   */
+  public static final int HEADER_SIZE=24;
+  /**
+   * Size of a shape header (bytes).
+   */
+  public static final int SHAPE_HEADER_SIZE=8;
+  /**
+   * Value of the points count for a rectangle.
+   */
+  public static final int RECTANGLE_MARKER=-1;
+
+  /**
+   * Get the size of a shape record.
+   * @param nbPoints Number of points, or {@link #RECTANGLE_MARKER}.
+   * @return a size in bytes.
+   */
+  public static long getShapeSize(int nbPoints)
+  {
+    if (nbPoints==RECTANGLE_MARKER)
+    {
+      return SHAPE_HEADER_SIZE+4*8;
+    }
+    return SHAPE_HEADER_SIZE+16L*nbPoints;
+  }
+}
@@ -0,0 +1,181 @@
+package delta.carto.geometry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import delta.carto.geodesy.GeodeticDatum;
+
+/**
+ * Writes geographic shapes to a binary file (see {@link GeoShapesFileFormat}).
+ * Coordinates are transferred in bulk through a direct buffer, and each datum
+ * identifier is written only once.
+ * @author DAM
+ */
+public class GeoShapesFileWriter implements Closeable
+{
+  private static final int BUFFER_SIZE=1<<20;
+
+  private RandomAccessFile _file;
+  private FileChannel _channel;
+  private ByteBuffer _buffer;
+  private long _nbShapes;
+  // Datum index plus one, by datum ordinal (0 for datums not written yet)
+  private int[] _datumIndexes;
+  private List<GeodeticDatum> _datums;
+
+  /**
+   * Constructor.
+   * @param file File to write (replaced if it exists).
+   * @throws IOException if the file cannot be opened.
+   */
+  public GeoShapesFileWriter(File file) throws IOException
+  {
+    _file=new RandomAccessFile(file,"rw");
+    _file.setLength(0);
+    _channel=_file.getChannel();
+    _buffer=ByteBuffer.allocateDirect(BUFFER_SIZE).order(GeoShapesFileFormat.BYTE_ORDER);
+    _datumIndexes=new int[4];
+    _datums=new ArrayList<GeodeticDatum>();
+    // Header is written on close
+    _buffer.put(new byte[GeoShapesFileFormat.HEADER_SIZE]);
+  }
+
+  /**
+   * Get the number of written shapes.
+   * @return the number of written shapes.
+   */
+  public long getNumberOfShapes()
+  {
+    return _nbShapes;
+  }
+
+  /**
+   * Write a polygon.
+   * @param polygon Polygon to write.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void write(GeoPolygon polygon) throws IOException
+  {
+    int nbPoints=polygon.getNumberOfPoints();
+    ensureRemaining(GeoShapesFileFormat.SHAPE_HEADER_SIZE);
+    _buffer.putInt(nbPoints);
+    _buffer.putInt(getDatumIndex(polygon.getDatum()));
+    writeDoubles(polygon.getLatitudesStorage(),nbPoints);
+    writeDoubles(polygon.getLongitudesStorage(),nbPoints);
+    _nbShapes++;
+  }
+
+  /**
+   * Write a rectangle.
+   * @param rectangle Rectangle to write.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void write(GeoRectangle rectangle) throws IOException
+  {
+    ensureRemaining((int)GeoShapesFileFormat.getShapeSize(GeoShapesFileFormat.RECTANGLE_MARKER));
+    _buffer.putInt(GeoShapesFileFormat.RECTANGLE_MARKER);
+    _buffer.putInt(getDatumIndex(rectangle.getDatum()));
+    _buffer.putDouble(rectangle.getMinLatitude());
+    _buffer.putDouble(rectangle.getMaxLatitude());
+    _buffer.putDouble(rectangle.getMinLongitude());
+    _buffer.putDouble(rectangle.getMaxLongitude());
+    _nbShapes++;
+  }
+
+  private void writeDoubles(double[] values, int length) throws IOException
+  {
+    int offset=0;
+    while (offset<length)
+    {
+      ensureRemaining(8);
+      int count=Math.min(length-offset,_buffer.remaining()/8);
+      _buffer.asDoubleBuffer().put(values,offset,count);
+      _buffer.position(_buffer.position()+count*8);
+      offset+=count;
+    }
+  }
+
+  private int getDatumIndex(GeodeticDatum datum)
+  {
+    int ordinal=datum.getOrdinal();
+    if (ordinal>=_datumIndexes.length)
+    {
+      _datumIndexes=Arrays.copyOf(_datumIndexes,Math.max(ordinal+1,2*_datumIndexes.length));
+    }
+    int index=_datumIndexes[ordinal]-1;
+    if (index<0)
+    {
+      index=_datums.size();
+      _datums.add(datum);
+      _datumIndexes[ordinal]=index+1;
+    }
+    return index;
+  }
+
+  private void ensureRemaining(int size) throws IOException
+  {
+    if (_buffer.remaining()<size)
+    {
+      flush();
+    }
+  }
+
+  private void flush() throws IOException
+  {
+    _buffer.flip();
+    while (_buffer.hasRemaining())
+    {
+      _channel.write(_buffer);
+    }
+    _buffer.clear();
+  }
+
+  /**
+   * Write the datums table and the file header, then close the file.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void close() throws IOException
+  {
+    if (_channel==null)
+    {
+      return;
+    }
+    try
+    {
+      flush();
+      long datumsOffset=_channel.position();
+      _buffer.putInt(_datums.size());
+      for(GeodeticDatum datum : _datums)
+      {
+        byte[] id=datum.getId().getBytes(StandardCharsets.UTF_8);
+        ensureRemaining(2+id.length);
+        _buffer.putShort((short)id.length);
+        _buffer.put(id);
+      }
+      flush();
+      _buffer.putInt(GeoShapesFileFormat.MAGIC);
+      _buffer.putInt(GeoShapesFileFormat.VERSION);
+      _buffer.putLong(datumsOffset);
+      _buffer.putLong(_nbShapes);
+      _buffer.flip();
+      long position=0;
+      while (_buffer.hasRemaining())
+      {
+        position+=_channel.write(_buffer,position);
+      }
+    }
+    finally
+    {
+      _channel=null;
+      _file.close();
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package delta.carto.geometry;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import delta.common.utils.math.geometry.Conversions;
+
+/**
+ * Computes all-pairs orthodromic headings and distances between two point sets.
+ * Point sets are given as parallel latitude/longitude arrays (degrees).
+ * Trigonometric values of latitudes are computed once per point, then the
+ * matrix is split into tiles that are computed on a fork/join pool.
+ * Results are the same as the ones of
+ * {@link Tools#orthodromicHeadingDistance(Geo2DPoint, Geo2DPoint)}.
+ * @author DAM
+ */
+public class HeadingDistanceMatrix
+{
+  private static final int DEFAULT_TILE_SIZE=128;
+
+  // Start points
+  private int _nbStartPoints;
+  private double[] _rLat1;
+  private double[] _sinLat1;
+  private double[] _cosLat1;
+  private double[] _long1;
+  // End points
+  private int _nbEndPoints;
+  private double[] _rLat2;
+  private double[] _sinLat2;
+  private double[] _cosLat2;
+  private double[] _tanLat2;
+  private double[] _long2;
+
+  private int _tileSize;
+
+  /**
+   * Constructor.
+   * @param startLatitudes Latitudes of start points (degrees).
+   * @param startLongitudes Longitudes of start points (degrees).
+   * @param endLatitudes Latitudes of end points (degrees).
+   * @param endLongitudes Longitudes of end points (degrees).
+   */
+  public HeadingDistanceMatrix(double[] startLatitudes, double[] startLongitudes, double[] endLatitudes, double[] endLongitudes)
+  {
+    if (startLatitudes.length!=startLongitudes.length)
+    {
+      throw new IllegalArgumentException("Mismatch of start points arrays length: "+startLatitudes.length+"!="+startLongitudes.length);
+    }
+    if (endLatitudes.length!=endLongitudes.length)
+    {
+      throw new IllegalArgumentException("Mismatch of end points arrays length: "+endLatitudes.length+"!="+endLongitudes.length);
+    }
+    _nbStartPoints=startLatitudes.length;
+    _rLat1=new double[_nbStartPoints];
+    _sinLat1=new double[_nbStartPoints];
+    _cosLat1=new double[_nbStartPoints];
+    _long1=startLongitudes.clone();
+    for(int i=0;i<_nbStartPoints;i++)
+    {
+      double rLat=Conversions.degreesToRadians(startLatitudes[i]);
+      _rLat1[i]=rLat;
+      _sinLat1[i]=Math.sin(rLat);
+      _cosLat1[i]=Math.cos(rLat);
+    }
+    _nbEndPoints=endLatitudes.length;
+    _rLat2=new double[_nbEndPoints];
+    _sinLat2=new double[_nbEndPoints];
+    _cosLat2=new double[_nbEndPoints];
+    _tanLat2=new double[_nbEndPoints];
+    _long2=endLongitudes.clone();
+    for(int i=0;i<_nbEndPoints;i++)
+    {
+      double rLat=Conversions.degreesToRadians(endLatitudes[i]);
+      _rLat2[i]=rLat;
+      _sinLat2[i]=Math.sin(rLat);
+      _cosLat2[i]=Math.cos(rLat);
+      _tanLat2[i]=Math.tan(rLat);
+    }
+    _tileSize=DEFAULT_TILE_SIZE;
+  }
+
+  /**
+   * Get the number of start points (matrix rows).
+   * @return the number of start points.
+   */
+  public int getNumberOfStartPoints()
+  {
+    return _nbStartPoints;
+  }
+
+  /**
+   * Get the number of end points (matrix columns).
+   * @return the number of end points.
+   */
+  public int getNumberOfEndPoints()
+  {
+    return _nbEndPoints;
+  }
+
+  /**
+   * Get the tile size (number of rows and columns of a tile).
+   * @return the tile size.
+   */
+  public int getTileSize()
+  {
+    return _tileSize;
+  }
+
+  /**
+   * Set the tile size (number of rows and columns of a tile).
+   * @param tileSize Tile size to set.
+   */
+  public void setTileSize(int tileSize)
+  {
+    if (tileSize<=0)
+    {
+      throw new IllegalArgumentException("Bad tile size: "+tileSize);
+    }
+    _tileSize=tileSize;
+  }
+
+  /**
+   * Compute the whole matrix using the common fork/join pool.
+   * @param headings Storage for headings (degrees).
+   * @param distances Storage for distances (meters).
+   * @see #compute(double[], double[], ForkJoinPool)
+   */
+  public void compute(double[] headings, double[] distances)
+  {
+    compute(headings,distances,ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Compute the whole matrix.
+   * Values are stored row by row: the value for start point <code>i</code>
+   * and end point <code>j</code> is at index
+   * <code>i*getNumberOfEndPoints()+j</code>.
+   * @param headings Storage for headings (degrees).
+   * @param distances Storage for distances (meters).
+   * @param pool Pool to use.
+   */
+  public void compute(double[] headings, double[] distances, ForkJoinPool pool)
+  {
+    long size=((long)_nbStartPoints)*_nbEndPoints;
+    if (size>Integer.MAX_VALUE)
+    {
+      throw new IllegalArgumentException("Matrix too big for arrays ("+size+" values), use streaming");
+    }
+    if ((headings.length<size)||(distances.length<size))
+    {
+      throw new IllegalArgumentException("Storage too small: "+size+" values needed");
+    }
+    pool.invoke(new TilesTask(headings,distances,null,0,getNumberOfTiles()));
+  }
+
+  /**
+   * Compute the whole matrix tile by tile and deliver each tile to a sink.
+   * Only a few tiles are in memory at any time, so this can be used
+   * for matrices that do not fit in memory.
+   * @param sink Sink to use (must support concurrent calls).
+   * @param pool Pool to use.
+   */
+  public void stream(HeadingDistanceTileSink sink, ForkJoinPool pool)
+  {
+    pool.invoke(new TilesTask(null,null,sink,0,getNumberOfTiles()));
+  }
+
+  private int getNbTileColumns()
+  {
+    return (_nbEndPoints+_tileSize-1)/_tileSize;
+  }
+
+  private long getNumberOfTiles()
+  {
+    long nbTileRows=(_nbStartPoints+_tileSize-1)/_tileSize;
+    return nbTileRows*getNbTileColumns();
+  }
+
+  /**
+   * Compute a tile.
+   * @param firstRow Index of the first start point.
+   * @param firstColumn Index of the first end point.
+   * @param nbRows Number of rows.
+   * @param nbColumns Number of columns.
+   * @param headings Storage for headings.
+   * @param distances Storage for distances.
+   * @param rowStride Number of values in a storage row.
+   * @param offset Index of the first value in storage.
+   */
+  private void computeTile(int firstRow, int firstColumn, int nbRows, int nbColumns,
+      double[] headings, double[] distances, int rowStride, int offset)
+  {
+    for(int i=0;i<nbRows;i++)
+    {
+      int row=firstRow+i;
+      double rLat1=_rLat1[row];
+      double sinLat1=_sinLat1[row];
+      double cosLat1=_cosLat1[row];
+      double long1=_long1[row];
+      int index=offset+i*rowStride;
+      for(int j=0;j<nbColumns;j++)
+      {
+        int column=firstColumn+j;
+        double dLong=Conversions.degreesToRadians(_long2[column]-long1);
+        Tools.orthodromicHeadingDistance(rLat1,sinLat1,cosLat1,
+            _rLat2[column],_sinLat2[column],_cosLat2[column],_tanLat2[column],dLong,
+            headings,distances,index+j);
+      }
+    }
+  }
+
+  /**
+   * Fork/join task for a range of tiles.
+   */
+  private class TilesTask extends RecursiveAction
+  {
+    private static final long serialVersionUID=1L;
+
+    private double[] _headings;
+    private double[] _distances;
+    private HeadingDistanceTileSink _sink;
+    private long _from;
+    private long _to;
+
+    TilesTask(double[] headings, double[] distances, HeadingDistanceTileSink sink, long from, long to)
+    {
+      _headings=headings;
+      _distances=distances;
+      _sink=sink;
+      _from=from;
+      _to=to;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (_to-_from>1)
+      {
+        long middle=(_from+_to)>>>1;
+        invokeAll(new TilesTask(_headings,_distances,_sink,_from,middle),
+            new TilesTask(_headings,_distances,_sink,middle,_to));
+        return;
+      }
+      if (_to==_from)
+      {
+        return;
+      }
+      int nbTileColumns=getNbTileColumns();
+      int firstRow=(int)(_from/nbTileColumns)*_tileSize;
+      int firstColumn=(int)(_from%nbTileColumns)*_tileSize;
+      int nbRows=Math.min(_tileSize,_nbStartPoints-firstRow);
+      int nbColumns=Math.min(_tileSize,_nbEndPoints-firstColumn);
+      if (_sink!=null)
+      {
+        double[] headings=new double[nbRows*nbColumns];
+        double[] distances=new double[nbRows*nbColumns];
+        computeTile(firstRow,firstColumn,nbRows,nbColumns,headings,distances,nbColumns,0);
+        _sink.handleTile(firstRow,firstColumn,nbRows,nbColumns,headings,distances);
+      }
+      else
+      {
+        int offset=firstRow*_nbEndPoints+firstColumn;
+        computeTile(firstRow,firstColumn,nbRows,nbColumns,_headings,_distances,_nbEndPoints,offset);
+      }
+    }
+  }
+}
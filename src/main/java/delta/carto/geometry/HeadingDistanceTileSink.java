@@ -0,0 +1,24 @@
+package delta.carto.geometry;
+
+/**
+ * Receives tiles of a heading/distance matrix.
+ * Tiles may be delivered concurrently from several threads, in any order.
+ * @author DAM
+ */
+public interface HeadingDistanceTileSink
+{
+  /**
+   * Handle a computed tile.
+   * Values are stored row by row: the value for start point
+   * <code>firstRow+i</code> and end point <code>firstColumn+j</code>
+   * is at index <code>i*nbColumns+j</code>.
+   * Arrays are only valid during this call.
+   * @param firstRow Index of the first start point of this tile.
+   * @param firstColumn Index of the first end point of this tile.
+   * @param nbRows Number of start points in this tile.
+   * @param nbColumns Number of end points in this tile.
+   * @param headings Headings (degrees).
+   * @param distances Distances (meters).
+   */
+  void handleTile(int firstRow, int firstColumn, int nbRows, int nbColumns, double[] headings, double[] distances);
+}
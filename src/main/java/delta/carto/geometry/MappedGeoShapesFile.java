@@ -0,0 +1,252 @@
+package delta.carto.geometry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import delta.carto.geodesy.GeodeticDatum;
+import delta.carto.geodesy.GeodeticDatumRegister;
+
+/**
+ * Memory-mapped reader for binary geographic shapes files
+ * (see {@link GeoShapesFileFormat}).
+ * Polygons are exposed as views on the mapped file, without copying their
+ * points on the Java heap. Files bigger than 2GB are mapped as several regions.
+ * Once opened, instances may be shared between threads.
+ * @author DAM
+ */
+public class MappedGeoShapesFile implements Closeable
+{
+  private static final long MAX_REGION_SIZE=1L<<30;
+
+  private RandomAccessFile _file;
+  private List<ByteBuffer> _regions;
+  private GeodeticDatum[] _datums;
+  private int _nbShapes;
+  private int[] _shapeRegions;
+  private int[] _shapeOffsets;
+
+  /**
+   * Constructor.
+   * @param file File to read.
+   * @throws IOException if the file cannot be read or is not valid.
+   */
+  public MappedGeoShapesFile(File file) throws IOException
+  {
+    _file=new RandomAccessFile(file,"r");
+    try
+    {
+      FileChannel channel=_file.getChannel();
+      ByteBuffer header=map(channel,0,GeoShapesFileFormat.HEADER_SIZE);
+      if (header.getInt(0)!=GeoShapesFileFormat.MAGIC)
+      {
+        throw new IOException("Bad magic number in file: "+file);
+      }
+      int version=header.getInt(4);
+      if (version!=GeoShapesFileFormat.VERSION)
+      {
+        throw new IOException("Unsupported version: "+version);
+      }
+      long datumsOffset=header.getLong(8);
+      long nbShapes=header.getLong(16);
+      if (nbShapes>Integer.MAX_VALUE)
+      {
+        throw new IOException("Too many shapes: "+nbShapes);
+      }
+      _nbShapes=(int)nbShapes;
+      _datums=readDatums(channel,datumsOffset);
+      indexShapes(channel,datumsOffset);
+    }
+    catch(IOException ioe)
+    {
+      _file.close();
+      throw ioe;
+    }
+  }
+
+  private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException
+  {
+    MappedByteBuffer buffer=channel.map(FileChannel.MapMode.READ_ONLY,position,size);
+    buffer.order(GeoShapesFileFormat.BYTE_ORDER);
+    return buffer;
+  }
+
+  private GeodeticDatum[] readDatums(FileChannel channel, long offset) throws IOException
+  {
+    ByteBuffer buffer=map(channel,offset,channel.size()-offset);
+    int nbDatums=buffer.getInt();
+    GeodeticDatum[] ret=new GeodeticDatum[nbDatums];
+    GeodeticDatumRegister register=GeodeticDatumRegister.getInstance();
+    for(int i=0;i<nbDatums;i++)
+    {
+      byte[] id=new byte[buffer.getShort()&0xFFFF];
+      buffer.get(id);
+      String datumId=new String(id,StandardCharsets.UTF_8);
+      ret[i]=register.getGeodeticDatumByName(datumId);
+      if (ret[i]==null)
+      {
+        throw new IOException("Unknown datum: "+datumId);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Map the shapes area as regions that do not split shapes, and index
+   * the location of each shape.
+   * @param channel Channel to use.
+   * @param end End of shapes area.
+   * @throws IOException if the file is not valid.
+   */
+  private void indexShapes(FileChannel channel, long end) throws IOException
+  {
+    _regions=new ArrayList<ByteBuffer>();
+    _shapeRegions=new int[_nbShapes];
+    _shapeOffsets=new int[_nbShapes];
+    long position=GeoShapesFileFormat.HEADER_SIZE;
+    int shapeIndex=0;
+    while (shapeIndex<_nbShapes)
+    {
+      long regionSize=Math.min(end-position,MAX_REGION_SIZE);
+      ByteBuffer region=map(channel,position,regionSize);
+      int regionIndex=_regions.size();
+      _regions.add(region);
+      long offset=0;
+      while (shapeIndex<_nbShapes)
+      {
+        if (offset+GeoShapesFileFormat.SHAPE_HEADER_SIZE>regionSize)
+        {
+          break;
+        }
+        int nbPoints=region.getInt((int)offset);
+        long shapeSize=GeoShapesFileFormat.getShapeSize(nbPoints);
+        if ((nbPoints<GeoShapesFileFormat.RECTANGLE_MARKER)||(position+offset+shapeSize>end))
+        {
+          throw new IOException("Bad shape #"+shapeIndex+" at "+(position+offset));
+        }
+        if (offset+shapeSize>regionSize)
+        {
+          if (offset==0)
+          {
+            // Shape bigger than the regions size: map it alone
+            if (shapeSize>Integer.MAX_VALUE)
+            {
+              throw new IOException("Shape too big: #"+shapeIndex);
+            }
+            region=map(channel,position,shapeSize);
+            _regions.set(regionIndex,region);
+            regionSize=shapeSize;
+          }
+          else
+          {
+            break;
+          }
+        }
+        _shapeRegions[shapeIndex]=regionIndex;
+        _shapeOffsets[shapeIndex]=(int)offset;
+        shapeIndex++;
+        offset+=shapeSize;
+      }
+      if (offset==0)
+      {
+        throw new IOException("Truncated shape #"+shapeIndex+" at "+position);
+      }
+      position+=offset;
+    }
+  }
+
+  /**
+   * Get the number of shapes in this file.
+   * @return the number of shapes in this file.
+   */
+  public int getNumberOfShapes()
+  {
+    return _nbShapes;
+  }
+
+  /**
+   * Indicates if a shape is a polygon.
+   * @param index Index of shape.
+   * @return <code>true</code> for a polygon, <code>false</code> for a rectangle.
+   */
+  public boolean isPolygon(int index)
+  {
+    return getShapeHeader(index)!=GeoShapesFileFormat.RECTANGLE_MARKER;
+  }
+
+  private int getShapeHeader(int index)
+  {
+    return _regions.get(_shapeRegions[index]).getInt(_shapeOffsets[index]);
+  }
+
+  private GeodeticDatum getShapeDatum(int index)
+  {
+    return _datums[_regions.get(_shapeRegions[index]).getInt(_shapeOffsets[index]+4)];
+  }
+
+  /**
+   * Get a view on a polygon.
+   * @param index Index of shape.
+   * @return a view on the mapped polygon.
+   */
+  public GeoPolygonView getPolygon(int index)
+  {
+    int nbPoints=getShapeHeader(index);
+    if (nbPoints==GeoShapesFileFormat.RECTANGLE_MARKER)
+    {
+      throw new IllegalArgumentException("Shape #"+index+" is not a polygon");
+    }
+    ByteBuffer region=_regions.get(_shapeRegions[index]).duplicate();
+    int offset=_shapeOffsets[index]+GeoShapesFileFormat.SHAPE_HEADER_SIZE;
+    DoubleBuffer latitudes=slice(region,offset,nbPoints);
+    DoubleBuffer longitudes=slice(region,offset+nbPoints*8,nbPoints);
+    return new GeoPolygonView(getShapeDatum(index),nbPoints,latitudes,longitudes);
+  }
+
+  private static DoubleBuffer slice(ByteBuffer region, int offset, int nbValues)
+  {
+    region.limit(offset+nbValues*8);
+    region.position(offset);
+    DoubleBuffer ret=region.slice().order(GeoShapesFileFormat.BYTE_ORDER).asDoubleBuffer();
+    region.limit(region.capacity());
+    return ret;
+  }
+
+  /**
+   * Get a rectangle.
+   * @param index Index of shape.
+   * @return a new rectangle.
+   */
+  public GeoRectangle getRectangle(int index)
+  {
+    if (isPolygon(index))
+    {
+      throw new IllegalArgumentException("Shape #"+index+" is not a rectangle");
+    }
+    ByteBuffer region=_regions.get(_shapeRegions[index]);
+    int offset=_shapeOffsets[index]+GeoShapesFileFormat.SHAPE_HEADER_SIZE;
+    double minLatitude=region.getDouble(offset);
+    double maxLatitude=region.getDouble(offset+8);
+    double minLongitude=region.getDouble(offset+16);
+    double maxLongitude=region.getDouble(offset+24);
+    return new GeoRectangle(minLatitude,minLongitude,maxLatitude,maxLongitude,getShapeDatum(index));
+  }
+
+  /**
+   * Close the underlying file. Mapped memory is released when views are no
+   * longer referenced.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void close() throws IOException
+  {
+    _file.close();
+  }
+}
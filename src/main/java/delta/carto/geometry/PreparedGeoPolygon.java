@@ -0,0 +1,457 @@
+package delta.carto.geometry;
+
+import java.util.Arrays;
+
+import delta.carto.geodesy.GeodeticDatum;
+
+/**
+ * Prepared form of a geographic polygon, for fast point-in-polygon queries.
+ * <p>
+ * The bounding box of the polygon is divided into a uniform grid. Each cell
+ * stores the edges that may cross it and whether its center is inside the
+ * polygon. A query in a cell without edges is answered directly. Otherwise,
+ * only the crossings between the edges of this cell and the segment going
+ * from the queried point to the cell center are counted. When the cell
+ * center, or the queried point, lies on an edge up to rounding errors, the
+ * query falls back to ray casting from the queried point.
+ * <p>
+ * The polygon is a closed ring (the last point is linked to the first one).
+ * Coordinates are handled as planar (longitude, latitude) values, using the
+ * even-odd rule. Rings crossing the 180th meridian must be given with
+ * continuous longitudes.
+ * <p>
+ * Instances are immutable and may be shared between threads.
+ * @author DAM
+ */
+public final class PreparedGeoPolygon
+{
+  private static final int MAX_CELLS=1<<22;
+  // Distance to an edge under which a point is considered on this edge (relative to cells size)
+  private static final double EDGE_TOLERANCE=1e-9;
+  // Cell center states
+  private static final byte OUTSIDE=0;
+  private static final byte INSIDE=1;
+  private static final byte ON_EDGE=2;
+
+  private final GeodeticDatum _datum;
+  private final int _nbPoints;
+  private final double[] _lats;
+  private final double[] _longs;
+  // Bounding box
+  private final double _minLat;
+  private final double _maxLat;
+  private final double _minLong;
+  private final double _maxLong;
+  // Grid
+  private final int _nbColumns;
+  private final int _nbRows;
+  private final double _cellWidth;
+  private final double _cellHeight;
+  private final double _invCellWidth;
+  private final double _invCellHeight;
+  private final double _tolerance;
+  // Edges of cell c are _cellEdges[_cellStarts[c]] to _cellEdges[_cellStarts[c+1]-1]
+  private final int[] _cellStarts;
+  private final int[] _cellEdges;
+  private final byte[] _centerStates;
+
+  /**
+   * Constructor.
+   * @param polygon Polygon to prepare. Later changes to this polygon are not
+   * reflected in this prepared form.
+   */
+  public PreparedGeoPolygon(GeoPolygon polygon)
+  {
+    _datum=polygon.getDatum();
+    int n=polygon.getNumberOfPoints();
+    _nbPoints=n;
+    _lats=new double[n];
+    _longs=new double[n];
+    double minLat=Double.POSITIVE_INFINITY;
+    double maxLat=Double.NEGATIVE_INFINITY;
+    double minLong=Double.POSITIVE_INFINITY;
+    double maxLong=Double.NEGATIVE_INFINITY;
+    for(int i=0;i<n;i++)
+    {
+      double lat=polygon.getLatitude(i);
+      double lon=polygon.getLongitude(i);
+      _lats[i]=lat;
+      _longs[i]=lon;
+      minLat=Math.min(minLat,lat);
+      maxLat=Math.max(maxLat,lat);
+      minLong=Math.min(minLong,lon);
+      maxLong=Math.max(maxLong,lon);
+    }
+    _minLat=minLat;
+    _maxLat=maxLat;
+    _minLong=minLong;
+    _maxLong=maxLong;
+
+    double width=maxLong-minLong;
+    double height=maxLat-minLat;
+    if ((n<3)||(!(width>0))||(!(height>0)))
+    {
+      // No area
+      _nbColumns=0;
+      _nbRows=0;
+      _cellWidth=0;
+      _cellHeight=0;
+      _invCellWidth=0;
+      _invCellHeight=0;
+      _tolerance=0;
+      _cellStarts=null;
+      _cellEdges=null;
+      _centerStates=null;
+      return;
+    }
+    long targetCells=Math.min(2L*n,MAX_CELLS);
+    int nbColumns=(int)Math.max(1,Math.min(targetCells,Math.round(Math.sqrt(targetCells*width/height))));
+    int nbRows=(int)Math.max(1,Math.min(targetCells/nbColumns,Math.round(Math.sqrt(targetCells*height/width))));
+    _nbColumns=nbColumns;
+    _nbRows=nbRows;
+    _cellWidth=width/nbColumns;
+    _cellHeight=height/nbRows;
+    _invCellWidth=nbColumns/width;
+    _invCellHeight=nbRows/height;
+    _tolerance=EDGE_TOLERANCE*(_cellWidth+_cellHeight);
+
+    // Bucket edges by cell, using edges bounding boxes
+    int nbCells=nbColumns*nbRows;
+    int[] starts=new int[nbCells+1];
+    for(int e=0;e<n;e++)
+    {
+      int next=(e+1==n)?0:e+1;
+      int c0=column(Math.min(_longs[e],_longs[next]));
+      int c1=column(Math.max(_longs[e],_longs[next]));
+      int r0=row(Math.min(_lats[e],_lats[next]));
+      int r1=row(Math.max(_lats[e],_lats[next]));
+      for(int r=r0;r<=r1;r++)
+      {
+        for(int c=c0;c<=c1;c++)
+        {
+          starts[r*nbColumns+c+1]++;
+        }
+      }
+    }
+    for(int c=0;c<nbCells;c++)
+    {
+      starts[c+1]+=starts[c];
+    }
+    int[] edges=new int[starts[nbCells]];
+    int[] fill=Arrays.copyOf(starts,nbCells);
+    for(int e=0;e<n;e++)
+    {
+      int next=(e+1==n)?0:e+1;
+      int c0=column(Math.min(_longs[e],_longs[next]));
+      int c1=column(Math.max(_longs[e],_longs[next]));
+      int r0=row(Math.min(_lats[e],_lats[next]));
+      int r1=row(Math.max(_lats[e],_lats[next]));
+      for(int r=r0;r<=r1;r++)
+      {
+        for(int c=c0;c<=c1;c++)
+        {
+          edges[fill[r*nbColumns+c]++]=e;
+        }
+      }
+    }
+    _cellStarts=starts;
+    _cellEdges=edges;
+    _centerStates=computeCenterStates();
+  }
+
+  /**
+   * Compute the inside/outside state of all cell centers, row by row, by
+   * sorting the crossings of the row center line with the polygon edges.
+   * Centers located on an edge of their cell get the {@link #ON_EDGE} state.
+   * @return the computed states.
+   */
+  private byte[] computeCenterStates()
+  {
+    int n=_nbPoints;
+    // Crossings of row r are crossings[rowStarts[r]] to crossings[rowStarts[r+1]-1]
+    int[] rowStarts=new int[_nbRows+1];
+    for(int e=0;e<n;e++)
+    {
+      int next=(e+1==n)?0:e+1;
+      int r0=row(Math.min(_lats[e],_lats[next]));
+      int r1=row(Math.max(_lats[e],_lats[next]));
+      for(int r=r0;r<=r1;r++)
+      {
+        if (crosses(e,next,rowCenter(r)))
+        {
+          rowStarts[r+1]++;
+        }
+      }
+    }
+    for(int r=0;r<_nbRows;r++)
+    {
+      rowStarts[r+1]+=rowStarts[r];
+    }
+    double[] crossings=new double[rowStarts[_nbRows]];
+    int[] fill=Arrays.copyOf(rowStarts,_nbRows);
+    for(int e=0;e<n;e++)
+    {
+      int next=(e+1==n)?0:e+1;
+      int r0=row(Math.min(_lats[e],_lats[next]));
+      int r1=row(Math.max(_lats[e],_lats[next]));
+      for(int r=r0;r<=r1;r++)
+      {
+        double y=rowCenter(r);
+        if (crosses(e,next,y))
+        {
+          crossings[fill[r]++]=crossingLongitude(e,next,y);
+        }
+      }
+    }
+    byte[] ret=new byte[_nbRows*_nbColumns];
+    for(int r=0;r<_nbRows;r++)
+    {
+      int from=rowStarts[r];
+      int to=rowStarts[r+1];
+      Arrays.sort(crossings,from,to);
+      // Count crossings strictly on the right of each cell center
+      int index=from;
+      for(int c=0;c<_nbColumns;c++)
+      {
+        double x=columnCenter(c);
+        while((index<to)&&(crossings[index]<=x))
+        {
+          index++;
+        }
+        int cell=r*_nbColumns+c;
+        if (isCenterOnEdge(cell,x,rowCenter(r)))
+        {
+          ret[cell]=ON_EDGE;
+        }
+        else
+        {
+          ret[cell]=(((to-index)&1)!=0)?INSIDE:OUTSIDE;
+        }
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Indicates if a cell center lies on an edge of its cell, up to the
+   * tolerance. The inside state of such a center is not reliable.
+   * @param cell Cell index.
+   * @param cx Longitude of the cell center.
+   * @param cy Latitude of the cell center.
+   * @return <code>true</code> if it does, <code>false</code> otherwise.
+   */
+  private boolean isCenterOnEdge(int cell, double cx, double cy)
+  {
+    int n=_nbPoints;
+    for(int i=_cellStarts[cell];i<_cellStarts[cell+1];i++)
+    {
+      int e=_cellEdges[i];
+      int next=(e+1==n)?0:e+1;
+      double ax=_longs[e];
+      double ay=_lats[e];
+      double bx=_longs[next];
+      double by=_lats[next];
+      if ((cx<Math.min(ax,bx)-_tolerance)||(cx>Math.max(ax,bx)+_tolerance)
+          ||(cy<Math.min(ay,by)-_tolerance)||(cy>Math.max(ay,by)+_tolerance))
+      {
+        continue;
+      }
+      if (isDegenerate(orientation(ax,ay,bx,by,cx,cy),bx-ax,by-ay))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get the geodetic datum used by this polygon.
+   * @return the geodetic datum used by this polygon.
+   */
+  public GeodeticDatum getDatum()
+  {
+    return _datum;
+  }
+
+  /**
+   * Get the number of points in this polygon.
+   * @return the number of points in this polygon.
+   */
+  public int getNumberOfPoints()
+  {
+    return _nbPoints;
+  }
+
+  /**
+   * Indicates if a point is inside this polygon.
+   * @param point Point to test.
+   * @return <code>true</code> if it is inside, <code>false</code> otherwise.
+   */
+  public boolean contains(Geo2DPoint point)
+  {
+    if (point.getDatum()!=_datum)
+    {
+      throw new IllegalArgumentException("Bad datum: "+point.getDatum()+"!="+_datum);
+    }
+    return contains(point.getLatitude(),point.getLongitude());
+  }
+
+  /**
+   * Indicates if a point is inside this polygon.
+   * @param latitude Latitude of point.
+   * @param longitude Longitude of point.
+   * @return <code>true</code> if it is inside, <code>false</code> otherwise.
+   */
+  public boolean contains(double latitude, double longitude)
+  {
+    if (_centerStates==null)
+    {
+      return false;
+    }
+    if ((latitude<_minLat)||(latitude>_maxLat)||(longitude<_minLong)||(longitude>_maxLong))
+    {
+      return false;
+    }
+    int column=column(longitude);
+    int row=row(latitude);
+    int cell=row*_nbColumns+column;
+    byte state=_centerStates[cell];
+    if (state==ON_EDGE)
+    {
+      return rayCast(latitude,longitude,row,column);
+    }
+    boolean inside=(state==INSIDE);
+    int from=_cellStarts[cell];
+    int to=_cellStarts[cell+1];
+    if (from==to)
+    {
+      return inside;
+    }
+    double cx=columnCenter(column);
+    double cy=rowCenter(row);
+    if ((cx==longitude)&&(cy==latitude))
+    {
+      return inside;
+    }
+    int n=_nbPoints;
+    for(int i=from;i<to;i++)
+    {
+      int e=_cellEdges[i];
+      int next=(e+1==n)?0:e+1;
+      double ax=_longs[e];
+      double ay=_lats[e];
+      double bx=_longs[next];
+      double by=_lats[next];
+      double o3=orientation(longitude,latitude,cx,cy,ax,ay);
+      double o4=orientation(longitude,latitude,cx,cy,bx,by);
+      boolean degenerate3=isDegenerate(o3,cx-longitude,cy-latitude);
+      boolean degenerate4=isDegenerate(o4,cx-longitude,cy-latitude);
+      if ((!degenerate3)&&(!degenerate4)&&((o3>0)==(o4>0)))
+      {
+        continue;
+      }
+      double o1=orientation(ax,ay,bx,by,longitude,latitude);
+      double o2=orientation(ax,ay,bx,by,cx,cy);
+      boolean degenerate1=isDegenerate(o1,bx-ax,by-ay);
+      boolean degenerate2=isDegenerate(o2,bx-ax,by-ay);
+      if ((!degenerate1)&&(!degenerate2)&&((o1>0)==(o2>0)))
+      {
+        continue;
+      }
+      if (degenerate1||degenerate2||degenerate3||degenerate4)
+      {
+        // Degenerate configuration: use ray casting
+        return rayCast(latitude,longitude,row,column);
+      }
+      inside=!inside;
+    }
+    return inside;
+  }
+
+  /**
+   * Even-odd ray casting towards increasing longitudes, using the edges of
+   * the cells located on the right of the point.
+   * @param latitude Latitude of point.
+   * @param longitude Longitude of point.
+   * @param row Row of point.
+   * @param column Column of point.
+   * @return <code>true</code> if it is inside, <code>false</code> otherwise.
+   */
+  private boolean rayCast(double latitude, double longitude, int row, int column)
+  {
+    int n=_nbPoints;
+    boolean inside=false;
+    for(int c=column;c<_nbColumns;c++)
+    {
+      int cell=row*_nbColumns+c;
+      for(int i=_cellStarts[cell];i<_cellStarts[cell+1];i++)
+      {
+        int e=_cellEdges[i];
+        int next=(e+1==n)?0:e+1;
+        if (crosses(e,next,latitude))
+        {
+          double x=crossingLongitude(e,next,latitude);
+          // Count each crossing in a single cell
+          if ((x>longitude)&&(column(x)==c))
+          {
+            inside=!inside;
+          }
+        }
+      }
+    }
+    return inside;
+  }
+
+  private boolean crosses(int e, int next, double latitude)
+  {
+    return ((_lats[e]>latitude)!=(_lats[next]>latitude));
+  }
+
+  private double crossingLongitude(int e, int next, double latitude)
+  {
+    double ax=_longs[e];
+    double ay=_lats[e];
+    return ax+(latitude-ay)*(_longs[next]-ax)/(_lats[next]-ay);
+  }
+
+  /**
+   * Indicates if an orientation value means that a point is on a line, up to
+   * the tolerance.
+   * @param orientation Orientation value.
+   * @param dx Longitude delta of the line direction.
+   * @param dy Latitude delta of the line direction.
+   * @return <code>true</code> if it does, <code>false</code> otherwise.
+   */
+  private boolean isDegenerate(double orientation, double dx, double dy)
+  {
+    // The orientation is the distance to the line times the direction length
+    return Math.abs(orientation)<=_tolerance*(Math.abs(dx)+Math.abs(dy));
+  }
+
+  private static double orientation(double ax, double ay, double bx, double by, double px, double py)
+  {
+    return (bx-ax)*(py-ay)-(by-ay)*(px-ax);
+  }
+
+  private int column(double longitude)
+  {
+    int c=(int)((longitude-_minLong)*_invCellWidth);
+    return (c<0)?0:((c>=_nbColumns)?_nbColumns-1:c);
+  }
+
+  private int row(double latitude)
+  {
+    int r=(int)((latitude-_minLat)*_invCellHeight);
+    return (r<0)?0:((r>=_nbRows)?_nbRows-1:r);
+  }
+
+  private double columnCenter(int column)
+  {
+    return _minLong+(column+0.5)*_cellWidth;
+  }
+
+  private double rowCenter(int row)
+  {
+    return _minLat+(row+0.5)*_cellHeight;
+  }
+}
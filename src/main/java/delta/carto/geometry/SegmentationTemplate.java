@@ -0,0 +1,142 @@
+package delta.carto.geometry;
+
+import delta.common.utils.math.Constants;
+import delta.common.utils.math.geometry.Conversions;
+
+/**
+ * Center, heading and size independent part of an ellipse or arc
+ * orthodromic segmentation.
+ * <p>
+ * Holds the heading of each vertex relative to the ellipse heading (or arc
+ * start heading), with its cosine and sine, and for ellipses the distance of
+ * each vertex relative to the semi-major axis. Placing the shape rotates and
+ * scales these values, so that a template serves all the ellipses with the
+ * same axes ratio and number of segments, or all the arcs with the same angle
+ * and number of segments.
+ * Instances are immutable and may be shared between threads.
+ * @author DAM
+ */
+public class SegmentationTemplate
+{
+  private int _nbPoints;
+  private double[] _rAngles;
+  private double[] _cosAngles;
+  private double[] _sinAngles;
+  // Ellipse only: distance of each vertex, relative to the semi-major axis
+  private double[] _factors;
+
+  private SegmentationTemplate(int nbPoints, boolean ellipse)
+  {
+    _nbPoints=nbPoints;
+    _rAngles=new double[nbPoints];
+    _cosAngles=new double[nbPoints];
+    _sinAngles=new double[nbPoints];
+    _factors=ellipse?new double[nbPoints]:null;
+  }
+
+  /**
+   * Build a template for an ellipse segmentation.
+   * The first vertex is on the semi-major axis.
+   * @param axesRatio Ratio of the semi-minor axis length to the semi-major
+   * axis length.
+   * @param nbSegments Number of segments/computed points.
+   * @return A new template.
+   */
+  public static SegmentationTemplate buildEllipseTemplate(double axesRatio, int nbSegments)
+  {
+    SegmentationTemplate ret=new SegmentationTemplate(nbSegments,true);
+    double step=Constants.PIx2/nbSegments;
+    double squareRatio=axesRatio*axesRatio;
+    for(int i=0;i<nbSegments;i++)
+    {
+      double rAngle=i*step;
+      ret.setAngle(i,rAngle);
+      double cosa=ret._cosAngles[i];
+      double sina=ret._sinAngles[i];
+      ret._factors[i]=1/Math.sqrt((cosa*cosa)+(sina*sina/squareRatio));
+    }
+    return ret;
+  }
+
+  /**
+   * Build a template for an arc segmentation.
+   * @param angle Angle of arc (degrees).
+   * @param nbSegments Number of segments (computed points minus one).
+   * @return A new template.
+   */
+  public static SegmentationTemplate buildArcTemplate(double angle, int nbSegments)
+  {
+    SegmentationTemplate ret=new SegmentationTemplate(nbSegments+1,false);
+    double step=angle/nbSegments;
+    for(int i=0;i<=nbSegments;i++)
+    {
+      ret.setAngle(i,Conversions.degreesToRadians(i*step));
+    }
+    return ret;
+  }
+
+  private void setAngle(int index, double rAngle)
+  {
+    _rAngles[index]=rAngle;
+    _cosAngles[index]=Math.cos(rAngle);
+    _sinAngles[index]=Math.sin(rAngle);
+  }
+
+  /**
+   * Indicates if this template is an ellipse template or an arc template.
+   * @return <code>true</code> for an ellipse, <code>false</code> for an arc.
+   */
+  public boolean isEllipse()
+  {
+    return _factors!=null;
+  }
+
+  /**
+   * Get the number of points produced by this template.
+   * @return a number of points.
+   */
+  public int getNumberOfPoints()
+  {
+    return _nbPoints;
+  }
+
+  /**
+   * Place this template around a center.
+   * Points are computed straight into the storage of the given polygon.
+   * @param center Center to use.
+   * @param heading Heading of ellipse, or heading of arc start (degrees from North).
+   * @param length Length of semi-major axis, or radius of arc (meters).
+   * @param polygon Polygon to add points to.
+   */
+  void place(Geo2DPoint center, double heading, double length, GeoPolygon polygon)
+  {
+    double rLat1=Conversions.degreesToRadians(center.getLatitude());
+    double sinLat1=Math.sin(rLat1);
+    double cosLat1=Math.cos(rLat1);
+    double rLong1=Conversions.degreesToRadians(center.getLongitude());
+    double rBaseHeading=Conversions.degreesToRadians(heading);
+    double cosBase=Math.cos(rBaseHeading);
+    double sinBase=Math.sin(rBaseHeading);
+    int start=polygon.getNumberOfPoints();
+    polygon.reserve(start+_nbPoints);
+    double[] latitudes=polygon.getLatitudesStorage();
+    double[] longitudes=polygon.getLongitudesStorage();
+    double rTheta=Tools.metersToEarthSurfaceRadians(length);
+    double cosTheta=Math.cos(rTheta);
+    double sinTheta=Math.sin(rTheta);
+    for(int i=0;i<_nbPoints;i++)
+    {
+      // Rotate the vertex heading: cos(a+b)=cos(a)cos(b)-sin(a)sin(b)
+      double rHeading=Tools.normalizeHeading(rBaseHeading+_rAngles[i]);
+      double cosHeading=cosBase*_cosAngles[i]-sinBase*_sinAngles[i];
+      if (_factors!=null)
+      {
+        double rVertexTheta=rTheta*_factors[i];
+        cosTheta=Math.cos(rVertexTheta);
+        sinTheta=Math.sin(rVertexTheta);
+      }
+      Tools.orthodromicExtension(rLat1,sinLat1,cosLat1,rLong1,rHeading,cosHeading,cosTheta,sinTheta,latitudes,longitudes,start+i);
+    }
+    polygon.addStoredPoints(_nbPoints);
+  }
+}
@@ -0,0 +1,132 @@
+package delta.carto.geometry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache for segmentation templates.
+ * <p>
+ * Ellipse templates are keyed by (axes ratio, number of segments): heading
+ * and semi-major axis length are applied when the template is placed.
+ * Arc templates are keyed by (angle, number of segments): start heading and
+ * radius are applied when the template is placed.
+ * When the cache is full, the least recently used template is evicted.
+ * <p>
+ * A cache is owned by its caller, and is meant for shapes that share their
+ * axes ratios or angles. This class is not thread-safe: use a cache per
+ * thread.
+ * @author DAM
+ */
+public class SegmentationTemplateCache
+{
+  private LinkedHashMap<TemplateKey,SegmentationTemplate> _templates;
+  private int _maxSize;
+  // Reused for lookups
+  private TemplateKey _lookupKey;
+
+  /**
+   * Constructor.
+   * @param maxSize Maximum number of cached templates.
+   */
+  public SegmentationTemplateCache(int maxSize)
+  {
+    if (maxSize<=0)
+    {
+      throw new IllegalArgumentException("Bad cache size: "+maxSize);
+    }
+    _maxSize=maxSize;
+    _templates=new LinkedHashMap<TemplateKey,SegmentationTemplate>(16,0.75f,true)
+    {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<TemplateKey,SegmentationTemplate> eldest)
+      {
+        return size()>_maxSize;
+      }
+    };
+    _lookupKey=new TemplateKey();
+  }
+
+  /**
+   * Get an ellipse template.
+   * @param axesRatio Ratio of the semi-minor axis length to the semi-major
+   * axis length.
+   * @param nbSegments Number of segments/computed points.
+   * @return A template.
+   */
+  public SegmentationTemplate getEllipseTemplate(double axesRatio, int nbSegments)
+  {
+    SegmentationTemplate ret=_templates.get(_lookupKey.set(true,axesRatio,nbSegments));
+    if (ret==null)
+    {
+      ret=SegmentationTemplate.buildEllipseTemplate(axesRatio,nbSegments);
+      _templates.put(new TemplateKey().set(true,axesRatio,nbSegments),ret);
+    }
+    return ret;
+  }
+
+  /**
+   * Get an arc template.
+   * @param angle Angle of arc (degrees).
+   * @param nbSegments Number of segments.
+   * @return A template.
+   */
+  public SegmentationTemplate getArcTemplate(double angle, int nbSegments)
+  {
+    SegmentationTemplate ret=_templates.get(_lookupKey.set(false,angle,nbSegments));
+    if (ret==null)
+    {
+      ret=SegmentationTemplate.buildArcTemplate(angle,nbSegments);
+      _templates.put(new TemplateKey().set(false,angle,nbSegments),ret);
+    }
+    return ret;
+  }
+
+  /**
+   * Get the number of cached templates.
+   * @return the number of cached templates.
+   */
+  public int size()
+  {
+    return _templates.size();
+  }
+
+  /**
+   * Remove all cached templates.
+   */
+  public void clear()
+  {
+    _templates.clear();
+  }
+
+  private static final class TemplateKey
+  {
+    private boolean _ellipse;
+    // Ellipses: axes ratio, arcs: angle
+    private double _value;
+    private int _nbSegments;
+
+    TemplateKey set(boolean ellipse, double value, int nbSegments)
+    {
+      _ellipse=ellipse;
+      _value=value;
+      _nbSegments=nbSegments;
+      return this;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (!(o instanceof TemplateKey)) return false;
+      TemplateKey k=(TemplateKey)o;
+      if (k._ellipse!=_ellipse) return false;
+      if (k._nbSegments!=_nbSegments) return false;
+      return (Double.compare(k._value,_value)==0);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return (_ellipse?1:0)+31*_nbSegments+Double.hashCode(_value);
+    }
+  }
+}
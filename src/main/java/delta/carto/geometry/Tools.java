@@ -65,26 +65,83 @@ public abstract class Tools
    */
   public static GeoPolygon orthodromicEllipseSegmentation(Geo2DPoint center, double semiMajorAxisLength, double semiMinorAxisLength, double heading, int nbSegments)
   {
-    GeoPolygon ret;
+    return orthodromicEllipseSegmentation(center, semiMajorAxisLength, semiMinorAxisLength, heading, nbSegments, null);
+  }
+
+  /**
+   * Computes an orthodromic segmentation of an ellipse, into a reusable polygon.
+   * Points are computed straight into the storage of the polygon.
+   * @param center Center of ellipse.
+   * @param semiMajorAxisLength Length semi-major axis (meters).
+   * @param semiMinorAxisLength Length semi-minor axis (meters).
+   * @param heading Heading of ellipse (degrees from North).
+   * @param nbSegments Number of segments/computed points.
+   * @param polygon Polygon to fill (its previous points are removed), or
+   * <code>null</code> to build a new one.
+   * @return The computed polygon.
+   */
+  public static GeoPolygon orthodromicEllipseSegmentation(Geo2DPoint center, double semiMajorAxisLength, double semiMinorAxisLength, double heading, int nbSegments,
+      GeoPolygon polygon)
+  {
+    return orthodromicEllipseSegmentation(center, semiMajorAxisLength, semiMinorAxisLength, heading, nbSegments, polygon, null);
+  }
+
+  /**
+   * Computes an orthodromic segmentation of an ellipse, into a reusable polygon,
+   * optionally using a cache of segmentation templates.
+   * <p>
+   * Templates are keyed by the axes ratio and the number of segments, and are
+   * rotated to the ellipse heading and scaled to its semi-major axis. With a
+   * template, the first point is on the semi-major axis, in the direction of
+   * the ellipse heading. Without template, the first point is North of the
+   * center.
+   * @param center Center of ellipse.
+   * @param semiMajorAxisLength Length semi-major axis (meters).
+   * @param semiMinorAxisLength Length semi-minor axis (meters).
+   * @param heading Heading of ellipse (degrees from North).
+   * @param nbSegments Number of segments/computed points.
+   * @param polygon Polygon to fill (its previous points are removed), or
+   * <code>null</code> to build a new one.
+   * @param templates Cache of templates to use, or <code>null</code> to
+   * compute all points directly.
+   * @return The computed polygon.
+   */
+  public static GeoPolygon orthodromicEllipseSegmentation(Geo2DPoint center, double semiMajorAxisLength, double semiMinorAxisLength, double heading, int nbSegments,
+      GeoPolygon polygon, SegmentationTemplateCache templates)
+  {
+    GeoPolygon ret=polygon;
 
     if(semiMajorAxisLength==0)
     {
-      ret=new GeoPolygon(1);
+      ret=prepareOutput(ret,1);
       ret.addPoint(center);
     }
     else
     {
       if(semiMinorAxisLength==0)
       {
-        ret=new GeoPolygon(2);
+        ret=prepareOutput(ret,2);
         ret.addPoint(orthodromicExtension(center, semiMajorAxisLength, heading));
         heading+=180.0;
         ret.addPoint(orthodromicExtension(center, semiMajorAxisLength, heading));
       }
+      else if(templates!=null)
+      {
+        ret=prepareOutput(ret,nbSegments);
+        SegmentationTemplate template=templates.getEllipseTemplate(semiMinorAxisLength/semiMajorAxisLength, nbSegments);
+        template.place(center, heading, semiMajorAxisLength, ret);
+      }
       else
       {
-        ret=new GeoPolygon(nbSegments);
+        ret=prepareOutput(ret,nbSegments);
         // Normal case
+        double rLat1=Conversions.degreesToRadians(center.getLatitude());
+        double sinLat1=Math.sin(rLat1);
+        double cosLat1=Math.cos(rLat1);
+        double rLong1=Conversions.degreesToRadians(center.getLongitude());
+        ret.reserve(nbSegments);
+        double[] latitudes=ret.getLatitudesStorage();
+        double[] longitudes=ret.getLongitudesStorage();
         double step=Constants.PIx2/nbSegments;
         double rHeading=0.0;
         double rBaseHeading=Conversions.degreesToRadians(heading);
@@ -97,9 +154,13 @@ public abstract class Tools
           double cosa2=cosa*cosa;
           double sina2=sina*sina;
           double length=1/Math.sqrt((cosa2/squareSemiMajorAxis)+(sina2/squareSemiMinorAxis));
-          ret.addPoint(orthodromicExtension(center, length, Conversions.radiansToDegrees(rHeading)));
+          double rTheta=metersToEarthSurfaceRadians(length);
+          double rVertexHeading=normalizeHeading(rHeading);
+          orthodromicExtension(rLat1, sinLat1, cosLat1, rLong1, rVertexHeading, Math.cos(rVertexHeading), Math.cos(rTheta), Math.sin(rTheta),
+              latitudes, longitudes, i);
           rHeading+=step;
         }
+        ret.addStoredPoints(nbSegments);
       }
     }
     return ret;
@@ -115,28 +176,96 @@ public abstract class Tools
    * @return The computed polygon.
    */
   public static GeoPolygon orthodromicArcSegmentation(Geo2DPoint center, double radius, double startHeading, double angle, int nbSegments)
+  {
+    return orthodromicArcSegmentation(center, radius, startHeading, angle, nbSegments, null, null);
+  }
+
+  /**
+   * Computes an orthodromic segmentation of an arc, into a reusable polygon.
+   * Points are computed straight into the storage of the polygon.
+   * @param center Center of arc.
+   * @param radius Radius of arc (meters).
+   * @param startHeading Heading of arc start (degrees from North).
+   * @param angle Angle of arc (degrees).
+   * @param nbSegments Number of segments/computed points.
+   * @param polygon Polygon to fill (its previous points are removed), or
+   * <code>null</code> to build a new one.
+   * @return The computed polygon.
+   */
+  public static GeoPolygon orthodromicArcSegmentation(Geo2DPoint center, double radius, double startHeading, double angle, int nbSegments,
+      GeoPolygon polygon)
+  {
+    return orthodromicArcSegmentation(center, radius, startHeading, angle, nbSegments, polygon, null);
+  }
+
+  /**
+   * Computes an orthodromic segmentation of an arc, into a reusable polygon,
+   * optionally using a cache of segmentation templates.
+   * Templates are keyed by the angle and the number of segments, and are
+   * rotated to the start heading.
+   * @param center Center of arc.
+   * @param radius Radius of arc (meters).
+   * @param startHeading Heading of arc start (degrees from North).
+   * @param angle Angle of arc (degrees).
+   * @param nbSegments Number of segments/computed points.
+   * @param polygon Polygon to fill (its previous points are removed), or
+   * <code>null</code> to build a new one.
+   * @param templates Cache of templates to use, or <code>null</code> to
+   * compute all points directly.
+   * @return The computed polygon.
+   */
+  public static GeoPolygon orthodromicArcSegmentation(Geo2DPoint center, double radius, double startHeading, double angle, int nbSegments,
+      GeoPolygon polygon, SegmentationTemplateCache templates)
   {
     GeoPolygon ret;
 
     if(radius<=0.0)
     {
-      ret=new GeoPolygon(1);
+      ret=prepareOutput(polygon,1);
       ret.addPoint(center);
     }
+    else if(templates!=null)
+    {
+      ret=prepareOutput(polygon,nbSegments+1);
+      SegmentationTemplate template=templates.getArcTemplate(angle, nbSegments);
+      template.place(center, startHeading, radius, ret);
+    }
     else
     {
-      ret=new GeoPolygon(nbSegments+1);
+      ret=prepareOutput(polygon,nbSegments+1);
+      double rLat1=Conversions.degreesToRadians(center.getLatitude());
+      double sinLat1=Math.sin(rLat1);
+      double cosLat1=Math.cos(rLat1);
+      double rLong1=Conversions.degreesToRadians(center.getLongitude());
+      double rTheta=metersToEarthSurfaceRadians(radius);
+      double cosTheta=Math.cos(rTheta);
+      double sinTheta=Math.sin(rTheta);
+      ret.reserve(nbSegments+1);
+      double[] latitudes=ret.getLatitudesStorage();
+      double[] longitudes=ret.getLongitudesStorage();
       double step=angle/nbSegments;
       double currentHeading=startHeading;
       for(int i=0;i<=nbSegments;i++)
       {
-        ret.addPoint(orthodromicExtension(center, radius, currentHeading));
+        double rHeading=normalizeHeading(Conversions.degreesToRadians(currentHeading));
+        orthodromicExtension(rLat1, sinLat1, cosLat1, rLong1, rHeading, Math.cos(rHeading), cosTheta, sinTheta, latitudes, longitudes, i);
         currentHeading+=step;
       }
+      ret.addStoredPoints(nbSegments+1);
     }
     return ret;
   }
 
+  private static GeoPolygon prepareOutput(GeoPolygon polygon, int size)
+  {
+    if (polygon==null)
+    {
+      return new GeoPolygon(size);
+    }
+    polygon.clear();
+    return polygon;
+  }
+
   /**
    * Computes the point located at a given distance from a given point, following
    * a given heading.
@@ -155,20 +284,130 @@ public abstract class Tools
     // Convert everything to radians
     double rLat1=Conversions.degreesToRadians(startPoint.getLatitude());
     double rLong1=Conversions.degreesToRadians(startPoint.getLongitude());
-    double rHeading=Conversions.degreesToRadians(heading);
-    double rTheta=length*METERS_TO_EARTH_SURFACE_RADIANS_FACTOR;
+    double rHeading=normalizeHeading(Conversions.degreesToRadians(heading));
+    double rTheta=metersToEarthSurfaceRadians(length);
 
-    // Bring heading back to [0,2PI]
-    while(rHeading>Constants.PIx2)
+    double sinLat1=Math.sin(rLat1);
+    double cosLat1=Math.cos(rLat1);
+    double cosTheta=Math.cos(rTheta);
+    double rLat2=Math.asin(sinLat1*cosTheta+cosLat1*Math.sin(rTheta)*Math.cos(rHeading));
+    double long2=extensionLongitude(rLat1, sinLat1, cosLat1, rLong1, rHeading, cosTheta, rLat2);
+    return new Geo2DPoint(Conversions.radiansToDegrees(rLat2), long2);
+  }
+
+  /**
+   * Computes the points located at given distances from given points, following
+   * given headings.
+   * Input and output arrays are parallel arrays: the computed point for
+   * input index <code>offset+i</code> is written at index <code>outOffset+i</code>.
+   * No object is allocated by this method. Output arrays may be the same as
+   * input coordinate arrays, provided that <code>outOffset</code> is <code>offset</code>.
+   * @param latitudes Latitudes of start points (degrees).
+   * @param longitudes Longitudes of start points (degrees).
+   * @param lengths Distances to use (meters).
+   * @param headings Headings to follow (degrees).
+   * @param offset Index of the first input value to use.
+   * @param length Number of points to compute.
+   * @param outLatitudes Storage for computed latitudes (degrees).
+   * @param outLongitudes Storage for computed longitudes (degrees).
+   * @param outOffset Index of the first output value to write.
+   */
+  public static void orthodromicExtension(double[] latitudes, double[] longitudes, double[] lengths, double[] headings, int offset, int length,
+      double[] outLatitudes, double[] outLongitudes, int outOffset)
+  {
+    if((offset<0)||(length<0)||(outOffset<0))
     {
-      rHeading-=Constants.PIx2;
+      throw new IllegalArgumentException("Bad range: offset="+offset+", length="+length+", outOffset="+outOffset);
     }
-    while(rHeading<0)
+    int end=offset+length;
+    if((end>latitudes.length)||(end>longitudes.length)||(end>lengths.length)||(end>headings.length))
     {
-      rHeading+=Constants.PIx2;
+      throw new IllegalArgumentException("Input arrays too small for range ["+offset+","+end+"[");
+    }
+    if((outOffset+length>outLatitudes.length)||(outOffset+length>outLongitudes.length))
+    {
+      throw new IllegalArgumentException("Output arrays too small for "+length+" points at "+outOffset);
+    }
+    for(int i=offset;i<end;i++)
+    {
+      int outIndex=outOffset+(i-offset);
+      double distance=lengths[i];
+      if(distance<=0.0)
+      {
+        outLatitudes[outIndex]=latitudes[i];
+        outLongitudes[outIndex]=longitudes[i];
+      }
+      else
+      {
+        double rLat1=Conversions.degreesToRadians(latitudes[i]);
+        orthodromicExtension(rLat1, Math.sin(rLat1), Math.cos(rLat1), longitudes[i], distance, headings[i], outLatitudes, outLongitudes, outIndex);
+      }
     }
+  }
 
-    double rLat2=Math.asin(Math.sin(rLat1)*Math.cos(rTheta)+Math.cos(rLat1)*Math.sin(rTheta)*Math.cos(rHeading));
+  /**
+   * Computes the point located at a given distance from a given point, following
+   * a given heading. Core computation shared by the single and batch forms.
+   * @param rLat1 Latitude of the start point (radians).
+   * @param sinLat1 Sine of <code>rLat1</code>.
+   * @param cosLat1 Cosine of <code>rLat1</code>.
+   * @param long1 Longitude of the start point (degrees).
+   * @param length Distance to use (meters, strictly positive).
+   * @param heading Heading to follow (degrees).
+   * @param outLatitudes Storage for computed latitude (degrees).
+   * @param outLongitudes Storage for computed longitude (degrees).
+   * @param outIndex Index to write to.
+   */
+  private static void orthodromicExtension(double rLat1, double sinLat1, double cosLat1, double long1, double length, double heading,
+      double[] outLatitudes, double[] outLongitudes, int outIndex)
+  {
+    // Convert everything to radians
+    double rLong1=Conversions.degreesToRadians(long1);
+    double rHeading=normalizeHeading(Conversions.degreesToRadians(heading));
+    double rTheta=metersToEarthSurfaceRadians(length);
+    orthodromicExtension(rLat1, sinLat1, cosLat1, rLong1, rHeading, Math.cos(rHeading), Math.cos(rTheta), Math.sin(rTheta),
+        outLatitudes, outLongitudes, outIndex);
+  }
+
+  /**
+   * Computes the point located at a given angular distance from a given point,
+   * following a given heading. All trigonometric values are given.
+   * @param rLat1 Latitude of the start point (radians).
+   * @param sinLat1 Sine of <code>rLat1</code>.
+   * @param cosLat1 Cosine of <code>rLat1</code>.
+   * @param rLong1 Longitude of the start point (radians).
+   * @param rHeading Heading to follow (radians, in [0,2PI]).
+   * @param cosHeading Cosine of <code>rHeading</code>.
+   * @param cosTheta Cosine of the angular distance.
+   * @param sinTheta Sine of the angular distance.
+   * @param outLatitudes Storage for computed latitude (degrees).
+   * @param outLongitudes Storage for computed longitude (degrees).
+   * @param outIndex Index to write to.
+   */
+  static void orthodromicExtension(double rLat1, double sinLat1, double cosLat1, double rLong1,
+      double rHeading, double cosHeading, double cosTheta, double sinTheta,
+      double[] outLatitudes, double[] outLongitudes, int outIndex)
+  {
+    double rLat2=Math.asin(sinLat1*cosTheta+cosLat1*sinTheta*cosHeading);
+    outLatitudes[outIndex]=Conversions.radiansToDegrees(rLat2);
+    outLongitudes[outIndex]=extensionLongitude(rLat1, sinLat1, cosLat1, rLong1, rHeading, cosTheta, rLat2);
+  }
+
+  /**
+   * Computes the longitude of the point located at a given angular distance
+   * from a given point, following a given heading, once its latitude is known.
+   * @param rLat1 Latitude of the start point (radians).
+   * @param sinLat1 Sine of <code>rLat1</code>.
+   * @param cosLat1 Cosine of <code>rLat1</code>.
+   * @param rLong1 Longitude of the start point (radians).
+   * @param rHeading Heading to follow (radians, in [0,2PI]).
+   * @param cosTheta Cosine of the angular distance.
+   * @param rLat2 Latitude of the computed point (radians).
+   * @return the longitude of the computed point (degrees, in [-180,180]).
+   */
+  private static double extensionLongitude(double rLat1, double sinLat1, double cosLat1, double rLong1,
+      double rHeading, double cosTheta, double rLat2)
+  {
     double rLong2;
 
     // Dealing with special cases
@@ -187,7 +426,7 @@ public abstract class Tools
       // Normal case
       else
       {
-        double dcos=(Math.cos(rTheta)-Math.sin(rLat1)*Math.sin(rLat2))/(Math.cos(rLat1)*Math.cos(rLat2));
+        double dcos=(cosTheta-sinLat1*Math.sin(rLat2))/(cosLat1*Math.cos(rLat2));
 
         if((rHeading>=0)&&(rHeading<=Math.PI))
         {
@@ -221,7 +460,6 @@ public abstract class Tools
       }
     }
 
-    double lat2=Conversions.radiansToDegrees(rLat2);
     double long2=Conversions.radiansToDegrees(rLong2);
     while(long2>180)
     {
@@ -231,8 +469,35 @@ public abstract class Tools
     {
       long2+=360;
     }
+    return long2;
+  }
+
+  /**
+   * Bring a heading back to [0,2PI].
+   * @param rHeading Heading (radians).
+   * @return the normalized heading (radians).
+   */
+  static double normalizeHeading(double rHeading)
+  {
+    while(rHeading>Constants.PIx2)
+    {
+      rHeading-=Constants.PIx2;
+    }
+    while(rHeading<0)
+    {
+      rHeading+=Constants.PIx2;
+    }
+    return rHeading;
+  }
 
-    return new Geo2DPoint(lat2, long2);
+  /**
+   * Convert a distance on the earth surface to an angle.
+   * @param meters Distance (meters).
+   * @return An angle (radians).
+   */
+  static double metersToEarthSurfaceRadians(double meters)
+  {
+    return meters*METERS_TO_EARTH_SURFACE_RADIANS_FACTOR;
   }
 
   /**
@@ -247,7 +512,53 @@ public abstract class Tools
     double rLat2=Conversions.degreesToRadians(endPoint.getLatitude());
     double dLong=Conversions.degreesToRadians(endPoint.getLongitude()-startPoint.getLongitude());
 
-    double divide=Math.tan(rLat2)*Math.cos(rLat1)-Math.sin(rLat1)*Math.cos(dLong);
+    double sinLat1=Math.sin(rLat1);
+    double cosLat1=Math.cos(rLat1);
+    double cosDLong=Math.cos(dLong);
+    double heading=orthodromicHeading(rLat1, sinLat1, cosLat1, rLat2, Math.tan(rLat2), dLong, cosDLong);
+    double distance=orthodromicDistance(sinLat1, cosLat1, Math.sin(rLat2), Math.cos(rLat2), cosDLong);
+    return new HeadingDistance(heading, distance);
+  }
+
+  /**
+   * Computes heading and distance between two points, using precomputed
+   * trigonometric values for both latitudes.
+   * @param rLat1 Latitude of the start point (radians).
+   * @param sinLat1 Sine of <code>rLat1</code>.
+   * @param cosLat1 Cosine of <code>rLat1</code>.
+   * @param rLat2 Latitude of the end point (radians).
+   * @param sinLat2 Sine of <code>rLat2</code>.
+   * @param cosLat2 Cosine of <code>rLat2</code>.
+   * @param tanLat2 Tangent of <code>rLat2</code>.
+   * @param dLong Longitude difference from start to end (radians).
+   * @param headings Storage for the computed heading (degrees).
+   * @param distances Storage for the computed distance (meters).
+   * @param outIndex Index to write to.
+   */
+  static void orthodromicHeadingDistance(double rLat1, double sinLat1, double cosLat1,
+      double rLat2, double sinLat2, double cosLat2, double tanLat2, double dLong,
+      double[] headings, double[] distances, int outIndex)
+  {
+    double cosDLong=Math.cos(dLong);
+    headings[outIndex]=orthodromicHeading(rLat1, sinLat1, cosLat1, rLat2, tanLat2, dLong, cosDLong);
+    distances[outIndex]=orthodromicDistance(sinLat1, cosLat1, sinLat2, cosLat2, cosDLong);
+  }
+
+  /**
+   * Computes the heading from a point to another one.
+   * @param rLat1 Latitude of the start point (radians).
+   * @param sinLat1 Sine of <code>rLat1</code>.
+   * @param cosLat1 Cosine of <code>rLat1</code>.
+   * @param rLat2 Latitude of the end point (radians).
+   * @param tanLat2 Tangent of <code>rLat2</code>.
+   * @param dLong Longitude difference from start to end (radians).
+   * @param cosDLong Cosine of <code>dLong</code>.
+   * @return the heading (degrees).
+   */
+  private static double orthodromicHeading(double rLat1, double sinLat1, double cosLat1,
+      double rLat2, double tanLat2, double dLong, double cosDLong)
+  {
+    double divide=tanLat2*cosLat1-sinLat1*cosDLong;
 
     double rv;
     if(divide!=0)
@@ -273,9 +584,22 @@ public abstract class Tools
       }
     }
 
-    double heading=Conversions.radiansToDegrees(rv);
+    return Conversions.radiansToDegrees(rv);
+  }
+
+  /**
+   * Computes the orthodromic distance between two points.
+   * @param sinLat1 Sine of the latitude of the start point.
+   * @param cosLat1 Cosine of the latitude of the start point.
+   * @param sinLat2 Sine of the latitude of the end point.
+   * @param cosLat2 Cosine of the latitude of the end point.
+   * @param cosDLong Cosine of the longitude difference.
+   * @return the distance (meters).
+   */
+  private static double orthodromicDistance(double sinLat1, double cosLat1, double sinLat2, double cosLat2, double cosDLong)
+  {
     double distance;
-    double dcos=Math.sin(rLat1)*Math.sin(rLat2)+Math.cos(rLat1)*Math.cos(rLat2)*Math.cos(dLong);
+    double dcos=sinLat1*sinLat2+cosLat1*cosLat2*cosDLong;
     if(dcos>=0)
     {
       distance=Math.acos(Math.min(dcos, 1));
@@ -285,9 +609,7 @@ public abstract class Tools
       distance=Math.acos(Math.max(dcos, -1));
     }
 
-    distance*=EARTH_SURFACE_RADIANS_TO_METERS_FACTOR;
-
-    return new HeadingDistance(heading, distance);
+    return distance*EARTH_SURFACE_RADIANS_TO_METERS_FACTOR;
   }
 
   /**
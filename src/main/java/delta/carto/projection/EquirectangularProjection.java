@@ -0,0 +1,117 @@
+package delta.carto.projection;
+
+/**
+ * Implements the equirectangular projection, on a sphere.
+ * Projected values are in the unit of the sphere radius.
+ * @author DAM
+ */
+public final class EquirectangularProjection implements Projection
+{
+  private static final double DEGREES_TO_RADIANS=Math.PI/180;
+
+  private final double _radius;
+  private final double _standardParallel;
+  private final double _centralMeridian;
+  // Precomputed values
+  private final double _xScale;
+  private final double _yScale;
+
+  /**
+   * Constructor.
+   * @param radius Radius of the sphere.
+   * @param standardParallel Standard parallel (degrees), where the scale is true.
+   * @param centralMeridian Longitude of the central meridian (degrees).
+   */
+  public EquirectangularProjection(double radius, double standardParallel, double centralMeridian)
+  {
+    if (!(radius>0)||!(Math.abs(standardParallel)<90))
+    {
+      throw new IllegalArgumentException("Bad parameters: radius="+radius+", standard parallel="+standardParallel);
+    }
+    _radius=radius;
+    _standardParallel=standardParallel;
+    _centralMeridian=centralMeridian;
+    _yScale=radius*DEGREES_TO_RADIANS;
+    _xScale=_yScale*Math.cos(standardParallel*DEGREES_TO_RADIANS);
+  }
+
+  @Override
+  public void transform(double[] x, double[] y, int offset, int length)
+  {
+    Projections.checkRange(x,y,offset,length);
+    double xScale=_xScale;
+    double yScale=_yScale;
+    double centralMeridian=_centralMeridian;
+    int end=offset+length;
+    for(int i=offset;i<end;i++)
+    {
+      x[i]=(x[i]-centralMeridian)*xScale;
+      y[i]=y[i]*yScale;
+    }
+  }
+
+  @Override
+  public void inverseTransform(double[] x, double[] y, int offset, int length)
+  {
+    Projections.checkRange(x,y,offset,length);
+    double xScale=_xScale;
+    double yScale=_yScale;
+    double centralMeridian=_centralMeridian;
+    int end=offset+length;
+    for(int i=offset;i<end;i++)
+    {
+      x[i]=x[i]/xScale+centralMeridian;
+      y[i]=y[i]/yScale;
+    }
+  }
+
+  /**
+   * Get the radius of the sphere.
+   * @return a radius.
+   */
+  public double getRadius()
+  {
+    return _radius;
+  }
+
+  /**
+   * Get the standard parallel.
+   * @return a latitude (degrees).
+   */
+  public double getStandardParallel()
+  {
+    return _standardParallel;
+  }
+
+  /**
+   * Get the longitude of the central meridian.
+   * @return a longitude (degrees).
+   */
+  public double getCentralMeridian()
+  {
+    return _centralMeridian;
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    if (this==o) return true;
+    if (!(o instanceof EquirectangularProjection)) return false;
+    EquirectangularProjection p=(EquirectangularProjection)o;
+    return (Double.compare(_radius,p._radius)==0)
+        &&(Double.compare(_standardParallel,p._standardParallel)==0)
+        &&(Double.compare(_centralMeridian,p._centralMeridian)==0);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Projections.hashCode(0,_radius,_standardParallel,_centralMeridian);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Equirectangular: R="+_radius+", lat1="+_standardParallel+", long0="+_centralMeridian;
+  }
+}
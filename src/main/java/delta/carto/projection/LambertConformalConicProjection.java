@@ -0,0 +1,254 @@
+package delta.carto.projection;
+
+import delta.carto.geodesy.Ellipsoid;
+
+/**
+ * Implements the ellipsoidal Lambert Conformal Conic projection, with one or
+ * two standard parallels.
+ * <p>
+ * Cone constants are computed once, in the constructor.
+ * Projected values are in meters. Longitudes are taken relative to the
+ * central meridian, in [-180,180[, and inverse longitudes are in [-180,180[.
+ * @author DAM
+ */
+public final class LambertConformalConicProjection implements Projection
+{
+  private static final double DEGREES_TO_RADIANS=Math.PI/180;
+  private static final double RADIANS_TO_DEGREES=180/Math.PI;
+  private static final double TWO_PI=2*Math.PI;
+  private static final int MAX_ITERATIONS=15;
+  private static final double LATITUDE_TOLERANCE=1e-12;
+
+  private final Ellipsoid _ellipsoid;
+  private final double _standardParallel1;
+  private final double _standardParallel2;
+  private final double _latitudeOfOrigin;
+  private final double _centralMeridian;
+  private final double _falseEasting;
+  private final double _falseNorthing;
+  // Precomputed values
+  private final double _centralMeridianRadians;
+  private final double _eccentricity;
+  private final double _n;
+  private final double _aF;
+  private final double _rho0;
+
+  /**
+   * Constructor.
+   * @param ellipsoid Ellipsoid.
+   * @param standardParallel1 First standard parallel (degrees).
+   * @param standardParallel2 Second standard parallel (degrees), may be equal
+   * to the first one.
+   * @param latitudeOfOrigin Latitude of origin (degrees).
+   * @param centralMeridian Longitude of the central meridian (degrees).
+   * @param falseEasting False easting (meters).
+   * @param falseNorthing False northing (meters).
+   */
+  public LambertConformalConicProjection(Ellipsoid ellipsoid, double standardParallel1, double standardParallel2,
+      double latitudeOfOrigin, double centralMeridian, double falseEasting, double falseNorthing)
+  {
+    if ((standardParallel1+standardParallel2==0)||(Math.abs(standardParallel1)>=90)||(Math.abs(standardParallel2)>=90))
+    {
+      throw new IllegalArgumentException("Bad standard parallels: "+standardParallel1+", "+standardParallel2);
+    }
+    _ellipsoid=ellipsoid;
+    _standardParallel1=standardParallel1;
+    _standardParallel2=standardParallel2;
+    _latitudeOfOrigin=latitudeOfOrigin;
+    _centralMeridian=centralMeridian;
+    _falseEasting=falseEasting;
+    _falseNorthing=falseNorthing;
+    _centralMeridianRadians=centralMeridian*DEGREES_TO_RADIANS;
+    _eccentricity=Math.sqrt(ellipsoid.getEccentricitySquared());
+    double phi1=standardParallel1*DEGREES_TO_RADIANS;
+    double phi2=standardParallel2*DEGREES_TO_RADIANS;
+    double m1=m(phi1);
+    double t1=t(phi1);
+    if (standardParallel1==standardParallel2)
+    {
+      _n=Math.sin(phi1);
+    }
+    else
+    {
+      _n=(Math.log(m1)-Math.log(m(phi2)))/(Math.log(t1)-Math.log(t(phi2)));
+    }
+    _aF=ellipsoid.getSemiMajorAxis()*m1/(_n*Math.pow(t1,_n));
+    _rho0=rho(latitudeOfOrigin*DEGREES_TO_RADIANS);
+  }
+
+  private double m(double latitude)
+  {
+    double esin=_eccentricity*Math.sin(latitude);
+    return Math.cos(latitude)/Math.sqrt(1-esin*esin);
+  }
+
+  private double t(double latitude)
+  {
+    double e=_eccentricity;
+    double esin=e*Math.sin(latitude);
+    return Math.tan(Math.PI/4-latitude/2)/Math.pow((1-esin)/(1+esin),e/2);
+  }
+
+  private double rho(double latitude)
+  {
+    // Poles of the cone
+    if (Math.abs(latitude)>=Math.PI/2)
+    {
+      return (latitude*_n>0)?0:Double.POSITIVE_INFINITY;
+    }
+    return _aF*Math.pow(t(latitude),_n);
+  }
+
+  /**
+   * Bring an angle back to [-PI,PI[.
+   * @param angle Angle (radians).
+   * @return the wrapped angle (radians).
+   */
+  private static double wrap(double angle)
+  {
+    if ((angle>=-Math.PI)&&(angle<Math.PI))
+    {
+      return angle;
+    }
+    return angle-TWO_PI*Math.floor((angle+Math.PI)/TWO_PI);
+  }
+
+  @Override
+  public void transform(double[] x, double[] y, int offset, int length)
+  {
+    Projections.checkRange(x,y,offset,length);
+    double n=_n;
+    double rho0=_rho0;
+    int end=offset+length;
+    for(int i=offset;i<end;i++)
+    {
+      double rho=rho(y[i]*DEGREES_TO_RADIANS);
+      // Same meridian, same result: wrap the longitude difference before scaling it
+      double theta=n*wrap(x[i]*DEGREES_TO_RADIANS-_centralMeridianRadians);
+      x[i]=_falseEasting+rho*Math.sin(theta);
+      y[i]=_falseNorthing+rho0-rho*Math.cos(theta);
+    }
+  }
+
+  @Override
+  public void inverseTransform(double[] x, double[] y, int offset, int length)
+  {
+    Projections.checkRange(x,y,offset,length);
+    double n=_n;
+    double sign=Math.signum(n);
+    double e=_eccentricity;
+    double inverseN=1/n;
+    int end=offset+length;
+    for(int i=offset;i<end;i++)
+    {
+      double dx=x[i]-_falseEasting;
+      double dy=_rho0-(y[i]-_falseNorthing);
+      double rho=sign*Math.sqrt(dx*dx+dy*dy);
+      double theta=Math.atan2(sign*dx,sign*dy);
+      double t=Math.pow(rho/_aF,inverseN);
+      double latitude=Math.PI/2-2*Math.atan(t);
+      for(int iteration=0;iteration<MAX_ITERATIONS;iteration++)
+      {
+        double esin=e*Math.sin(latitude);
+        double next=Math.PI/2-2*Math.atan(t*Math.pow((1-esin)/(1+esin),e/2));
+        boolean done=Math.abs(next-latitude)<LATITUDE_TOLERANCE;
+        latitude=next;
+        if (done) break;
+      }
+      x[i]=wrap(theta*inverseN+_centralMeridianRadians)*RADIANS_TO_DEGREES;
+      y[i]=latitude*RADIANS_TO_DEGREES;
+    }
+  }
+
+  /**
+   * Get the ellipsoid.
+   * @return the ellipsoid.
+   */
+  public Ellipsoid getEllipsoid()
+  {
+    return _ellipsoid;
+  }
+
+  /**
+   * Get the first standard parallel.
+   * @return a latitude (degrees).
+   */
+  public double getStandardParallel1()
+  {
+    return _standardParallel1;
+  }
+
+  /**
+   * Get the second standard parallel.
+   * @return a latitude (degrees).
+   */
+  public double getStandardParallel2()
+  {
+    return _standardParallel2;
+  }
+
+  /**
+   * Get the latitude of origin.
+   * @return a latitude (degrees).
+   */
+  public double getLatitudeOfOrigin()
+  {
+    return _latitudeOfOrigin;
+  }
+
+  /**
+   * Get the longitude of the central meridian.
+   * @return a longitude (degrees).
+   */
+  public double getCentralMeridian()
+  {
+    return _centralMeridian;
+  }
+
+  /**
+   * Get the false easting.
+   * @return a false easting (meters).
+   */
+  public double getFalseEasting()
+  {
+    return _falseEasting;
+  }
+
+  /**
+   * Get the false northing.
+   * @return a false northing (meters).
+   */
+  public double getFalseNorthing()
+  {
+    return _falseNorthing;
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    if (this==o) return true;
+    if (!(o instanceof LambertConformalConicProjection)) return false;
+    LambertConformalConicProjection p=(LambertConformalConicProjection)o;
+    return Projections.sameEllipsoid(_ellipsoid,p._ellipsoid)
+        &&(Double.compare(_standardParallel1,p._standardParallel1)==0)
+        &&(Double.compare(_standardParallel2,p._standardParallel2)==0)
+        &&(Double.compare(_latitudeOfOrigin,p._latitudeOfOrigin)==0)
+        &&(Double.compare(_centralMeridian,p._centralMeridian)==0)
+        &&(Double.compare(_falseEasting,p._falseEasting)==0)
+        &&(Double.compare(_falseNorthing,p._falseNorthing)==0);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Projections.hashCode(Projections.hashCode(_ellipsoid),_standardParallel1,_standardParallel2,
+        _latitudeOfOrigin,_centralMeridian,_falseEasting,_falseNorthing);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Lambert Conformal Conic: "+_ellipsoid+", lat1="+_standardParallel1+", lat2="+_standardParallel2
+        +", lat0="+_latitudeOfOrigin+", long0="+_centralMeridian+", E0="+_falseEasting+", N0="+_falseNorthing;
+  }
+}
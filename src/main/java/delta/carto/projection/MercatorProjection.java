@@ -1,17 +1,31 @@
 package delta.carto.projection;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import delta.carto.geometry.GeoRectangle;
+
 /**
  * Implements the Mercator projection.
  * @author DAM
  */
-public class MercatorProjection
+public class MercatorProjection implements Projection
 {
   private static final double PI_DIV_360=Math.PI/360;
   private static final double PI_DIV_4=Math.PI/4;
   private static final double MAX_ANGLE=(Math.PI/2)-0.017453292;
   private static final double MIN_ANGLE=0.017453292;
+  // Latitude bounds (radians) that match the angle bounds
+  private static final double MAX_LATITUDE=(MAX_ANGLE-PI_DIV_4)*2;
+  private static final double MIN_LATITUDE=(MIN_ANGLE-PI_DIV_4)*2;
+  private static final double DEGREES_TO_RADIANS=Math.PI/180;
+  private static final double RADIANS_TO_DEGREES=180/Math.PI;
+  // Bounds of projected y values, for a unit factor
+  private static final double MAX_Y=Math.log(Math.tan(MAX_ANGLE));
+  private static final double MIN_Y=Math.log(Math.tan(MIN_ANGLE));
+  private static final int PARALLEL_THRESHOLD=16384;
 
-  private double _factor;
+  private final double _factor;
 
   /**
    * Default constructor.
@@ -58,8 +72,25 @@ public class MercatorProjection
     {
       throw new IllegalArgumentException("Mismatch of x and y length: "+x.length+"!="+y.length);
     }
-    int n=x.length;
-    for(int i=0;i<n;i++)
+    transform(x,y,0,x.length);
+  }
+
+  /**
+   * Transform a range of latitude/longitude points.
+   * @param x Longitudes.
+   * @param y Latitudes.
+   * @param offset Index of the first point to transform.
+   * @param length Number of points to transform.
+   */
+  @Override
+  public void transform(double[] x, double[] y, int offset, int length)
+  {
+    if ((offset<0)||(length<0)||(offset+length>x.length)||(offset+length>y.length))
+    {
+      throw new IllegalArgumentException("Bad range: offset="+offset+", length="+length);
+    }
+    int end=offset+length;
+    for(int i=offset;i<end;i++)
     {
       x[i]=x[i]*_factor;
       // y between -90 and 90 degrees
@@ -82,4 +113,153 @@ public class MercatorProjection
       y[i]=_factor*Math.log(Math.tan(angle));
     }
   }
+
+  /**
+   * High-throughput transform of a range of latitude/longitude points.
+   * <p>
+   * Uses <code>y=factor*atanh(sin(latitude))</code>, that needs a single
+   * transcendental function call less than {@link #transform(double[], double[], int, int)},
+   * with the same latitude clamping. Results differ from the ones of this
+   * method by less than <code>1e-13*factor</code>. Large ranges are split on
+   * the given pool.
+   * @param x Longitudes.
+   * @param y Latitudes.
+   * @param offset Index of the first point to transform.
+   * @param length Number of points to transform.
+   * @param pool Pool to use, or <code>null</code> to use the calling thread only.
+   */
+  public void transform(double[] x, double[] y, int offset, int length, ForkJoinPool pool)
+  {
+    if ((offset<0)||(length<0)||(offset+length>x.length)||(offset+length>y.length))
+    {
+      throw new IllegalArgumentException("Bad range: offset="+offset+", length="+length);
+    }
+    if ((pool==null)||(length<=PARALLEL_THRESHOLD))
+    {
+      fastTransform(x,y,offset,offset+length);
+      return;
+    }
+    pool.invoke(new TransformTask(x,y,offset,offset+length));
+  }
+
+  /**
+   * Get the longitude of a projected x value.
+   * @param x Projected value.
+   * @return a longitude (degrees).
+   */
+  public double inverseX(double x)
+  {
+    return x/_factor;
+  }
+
+  /**
+   * Get the latitude of a projected y value. Values are clamped to the
+   * range of projected latitudes.
+   * @param y Projected value.
+   * @return a latitude (degrees).
+   */
+  public double inverseY(double y)
+  {
+    double value=Math.max(MIN_Y,Math.min(MAX_Y,y/_factor));
+    return (2*Math.atan(Math.exp(value))-(Math.PI/2))*RADIANS_TO_DEGREES;
+  }
+
+  /**
+   * Inverse transform of a range of projected points.
+   * @param x Projected x values, replaced by longitudes.
+   * @param y Projected y values, replaced by latitudes.
+   * @param offset Index of the first point to transform.
+   * @param length Number of points to transform.
+   */
+  @Override
+  public void inverseTransform(double[] x, double[] y, int offset, int length)
+  {
+    if ((offset<0)||(length<0)||(offset+length>x.length)||(offset+length>y.length))
+    {
+      throw new IllegalArgumentException("Bad range: offset="+offset+", length="+length);
+    }
+    double factor=_factor;
+    int end=offset+length;
+    for(int i=offset;i<end;i++)
+    {
+      x[i]=x[i]/factor;
+      double value=Math.max(MIN_Y,Math.min(MAX_Y,y[i]/factor));
+      y[i]=(2*Math.atan(Math.exp(value))-(Math.PI/2))*RADIANS_TO_DEGREES;
+    }
+  }
+
+  /**
+   * Get the geographic rectangle of a projected rectangle.
+   * The projection preserves the ordering of coordinates, so the corners
+   * of the projected rectangle give the geographic bounds.
+   * @param x1 X value of a corner.
+   * @param y1 Y value of a corner.
+   * @param x2 X value of the opposite corner.
+   * @param y2 Y value of the opposite corner.
+   * @return a new rectangle, using the default datum.
+   */
+  public GeoRectangle inverseTransform(double x1, double y1, double x2, double y2)
+  {
+    return new GeoRectangle(inverseY(y1),inverseX(x1),inverseY(y2),inverseX(x2));
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    if (this==o) return true;
+    if (!(o instanceof MercatorProjection)) return false;
+    return Double.compare(_factor,((MercatorProjection)o)._factor)==0;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Projections.hashCode(0,_factor);
+  }
+
+  private void fastTransform(double[] x, double[] y, int from, int to)
+  {
+    double factor=_factor;
+    double halfFactor=_factor*0.5;
+    for(int i=from;i<to;i++)
+    {
+      x[i]=x[i]*factor;
+      double latitude=y[i]*DEGREES_TO_RADIANS;
+      latitude=Math.max(MIN_LATITUDE,Math.min(MAX_LATITUDE,latitude));
+      double sin=Math.sin(latitude);
+      y[i]=halfFactor*Math.log((1+sin)/(1-sin));
+    }
+  }
+
+  private class TransformTask extends RecursiveAction
+  {
+    private static final long serialVersionUID=1L;
+
+    private final double[] _x;
+    private final double[] _y;
+    private final int _from;
+    private final int _to;
+
+    TransformTask(double[] x, double[] y, int from, int to)
+    {
+      _x=x;
+      _y=y;
+      _from=from;
+      _to=to;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (_to-_from>PARALLEL_THRESHOLD)
+      {
+        int middle=(_from+_to)>>>1;
+        invokeAll(new TransformTask(_x,_y,_from,middle),new TransformTask(_x,_y,middle,_to));
+      }
+      else
+      {
+        fastTransform(_x,_y,_from,_to);
+      }
+    }
+  }
 }
@@ -0,0 +1,227 @@
+package delta.carto.projection;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import delta.carto.geometry.GeoPolygon;
+
+/**
+ * Cache of Mercator coordinates of polygons.
+ * <p>
+ * Mercator coordinates are linear in the projection factor, so this cache
+ * stores normalized coordinates (factor 1) once per polygon, and serves any
+ * zoom (factor) and pan (offset) with a single multiply-add pass, without
+ * computing logarithms and tangents again. Results are the ones of
+ * {@link MercatorProjection#transform(double[], double[], int, int)} with the
+ * same factor, plus the offset.
+ * <p>
+ * Polygons are keyed by identity. The least recently used polygons are
+ * evicted when the cached coordinates exceed a memory budget. Modified
+ * polygons are detected with their modification count, and projected again.
+ * This class is thread-safe.
+ * @author DAM
+ */
+public class ProjectedGeometryCache
+{
+  // Estimated overhead of an entry (map entry, key, arrays headers)
+  private static final long ENTRY_OVERHEAD=112;
+
+  private final MercatorProjection _projection;
+  private final long _maxBytes;
+  private final LinkedHashMap<PolygonKey,Entry> _entries;
+  private long _bytes;
+  private long _hits;
+  private long _misses;
+
+  /**
+   * Constructor.
+   * @param maxBytes Memory budget for cached coordinates (bytes).
+   */
+  public ProjectedGeometryCache(long maxBytes)
+  {
+    if (maxBytes<0)
+    {
+      throw new IllegalArgumentException("Bad memory budget: "+maxBytes);
+    }
+    _projection=new MercatorProjection(1);
+    _maxBytes=maxBytes;
+    _entries=new LinkedHashMap<PolygonKey,Entry>(16,0.75f,true);
+  }
+
+  /**
+   * Compute the projected coordinates of a polygon:
+   * <code>x=factor*mercatorX+offsetX</code>, <code>y=factor*mercatorY+offsetY</code>.
+   * @param polygon Polygon to project.
+   * @param factor Projection factor (zoom).
+   * @param offsetX Offset of x values (pan).
+   * @param offsetY Offset of y values (pan).
+   * @param x Storage for x values.
+   * @param y Storage for y values.
+   * @param offset Index of the first point in the storage arrays.
+   * @return the number of points of the polygon.
+   */
+  public int project(GeoPolygon polygon, double factor, double offsetX, double offsetY, double[] x, double[] y, int offset)
+  {
+    Entry entry=getEntry(polygon);
+    int n=entry._nbPoints;
+    if ((offset<0)||(offset+n>x.length)||(offset+n>y.length))
+    {
+      throw new IllegalArgumentException("Bad range: offset="+offset+", length="+n);
+    }
+    double[] normalizedX=entry._x;
+    double[] normalizedY=entry._y;
+    for(int i=0;i<n;i++)
+    {
+      x[offset+i]=normalizedX[i]*factor+offsetX;
+      y[offset+i]=normalizedY[i]*factor+offsetY;
+    }
+    return n;
+  }
+
+  /**
+   * Remove a polygon from this cache.
+   * @param polygon Polygon to remove.
+   */
+  public synchronized void invalidate(GeoPolygon polygon)
+  {
+    Entry entry=_entries.remove(new PolygonKey(polygon));
+    if (entry!=null)
+    {
+      _bytes-=entry._bytes;
+    }
+  }
+
+  /**
+   * Remove all polygons from this cache.
+   */
+  public synchronized void clear()
+  {
+    _entries.clear();
+    _bytes=0;
+  }
+
+  /**
+   * Get the number of cached polygons.
+   * @return a number of polygons.
+   */
+  public synchronized int size()
+  {
+    return _entries.size();
+  }
+
+  /**
+   * Get the estimated memory used by cached coordinates.
+   * @return a number of bytes.
+   */
+  public synchronized long getBytes()
+  {
+    return _bytes;
+  }
+
+  /**
+   * Get the number of projections served from cached coordinates.
+   * @return a number of cache hits.
+   */
+  public synchronized long getHits()
+  {
+    return _hits;
+  }
+
+  /**
+   * Get the number of projections that needed new coordinates.
+   * @return a number of cache misses.
+   */
+  public synchronized long getMisses()
+  {
+    return _misses;
+  }
+
+  private Entry getEntry(GeoPolygon polygon)
+  {
+    PolygonKey key=new PolygonKey(polygon);
+    synchronized(this)
+    {
+      Entry entry=_entries.get(key);
+      if ((entry!=null)&&(entry._modificationCount==polygon.getModificationCount()))
+      {
+        _hits++;
+        return entry;
+      }
+      _misses++;
+    }
+    // Transcendental math is done out of the lock
+    Entry entry=new Entry(polygon,_projection);
+    synchronized(this)
+    {
+      Entry previous=_entries.put(key,entry);
+      if (previous!=null)
+      {
+        _bytes-=previous._bytes;
+      }
+      _bytes+=entry._bytes;
+      evict();
+    }
+    return entry;
+  }
+
+  private void evict()
+  {
+    Iterator<Map.Entry<PolygonKey,Entry>> it=_entries.entrySet().iterator();
+    while ((_bytes>_maxBytes)&&(it.hasNext()))
+    {
+      Entry entry=it.next().getValue();
+      it.remove();
+      _bytes-=entry._bytes;
+    }
+  }
+
+  /**
+   * Identity key for polygons.
+   */
+  private static final class PolygonKey
+  {
+    private final GeoPolygon _polygon;
+
+    PolygonKey(GeoPolygon polygon)
+    {
+      _polygon=polygon;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      return (o instanceof PolygonKey)&&(((PolygonKey)o)._polygon==_polygon);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return System.identityHashCode(_polygon);
+    }
+  }
+
+  /**
+   * Normalized coordinates of a polygon.
+   */
+  private static final class Entry
+  {
+    private final int _modificationCount;
+    private final int _nbPoints;
+    private final double[] _x;
+    private final double[] _y;
+    private final long _bytes;
+
+    Entry(GeoPolygon polygon, MercatorProjection projection)
+    {
+      _modificationCount=polygon.getModificationCount();
+      int n=polygon.getNumberOfPoints();
+      _nbPoints=n;
+      _x=new double[n];
+      _y=new double[n];
+      polygon.getPoints(0,_y,_x,0,n);
+      projection.transform(_x,_y,0,n);
+      _bytes=ENTRY_OVERHEAD+16L*n;
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package delta.carto.projection;
+
+/**
+ * Interface of map projections.
+ * <p>
+ * Points are given as two arrays, and transformed in place: x values are
+ * longitudes and y values are latitudes (degrees) before a forward transform,
+ * and projected values after it. Implementations are immutable, so they can be
+ * shared across threads.
+ * @author DAM
+ */
+public interface Projection
+{
+  /**
+   * Transform a range of latitude/longitude points.
+   * @param x Longitudes, replaced by projected x values.
+   * @param y Latitudes, replaced by projected y values.
+   * @param offset Index of the first point to transform.
+   * @param length Number of points to transform.
+   */
+  void transform(double[] x, double[] y, int offset, int length);
+
+  /**
+   * Inverse transform of a range of projected points.
+   * @param x Projected x values, replaced by longitudes.
+   * @param y Projected y values, replaced by latitudes.
+   * @param offset Index of the first point to transform.
+   * @param length Number of points to transform.
+   */
+  void inverseTransform(double[] x, double[] y, int offset, int length);
+}
@@ -0,0 +1,86 @@
+package delta.carto.projection;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import delta.carto.geodesy.Ellipsoid;
+
+/**
+ * Shared projection instances.
+ * <p>
+ * Projections are immutable and compare by parameter values, so equal
+ * projections can be shared: this avoids computing their constants again.
+ * This class is thread-safe.
+ * @author DAM
+ */
+public final class Projections
+{
+  private static final ConcurrentHashMap<Projection,Projection> _cache=new ConcurrentHashMap<Projection,Projection>();
+
+  private Projections()
+  {
+    // Nothing
+  }
+
+  /**
+   * Get the shared instance of a projection.
+   * @param projection Projection to use.
+   * @return the shared projection that is equal to the given one.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends Projection> T getSharedInstance(T projection)
+  {
+    Projection previous=_cache.putIfAbsent(projection,projection);
+    return (previous!=null)?(T)previous:projection;
+  }
+
+  /**
+   * Get the shared UTM projection for a zone.
+   * @param ellipsoid Ellipsoid.
+   * @param zone Zone number (1 to 60).
+   * @param north <code>true</code> for the northern hemisphere,
+   * <code>false</code> for the southern one.
+   * @return a shared projection.
+   */
+  public static TransverseMercatorProjection getUTM(Ellipsoid ellipsoid, int zone, boolean north)
+  {
+    return getSharedInstance(TransverseMercatorProjection.buildUTM(ellipsoid,zone,north));
+  }
+
+  /**
+   * Remove all shared instances.
+   */
+  public static void clear()
+  {
+    _cache.clear();
+  }
+
+  static void checkRange(double[] x, double[] y, int offset, int length)
+  {
+    if ((offset<0)||(length<0)||(offset+length>x.length)||(offset+length>y.length))
+    {
+      throw new IllegalArgumentException("Bad range: offset="+offset+", length="+length);
+    }
+  }
+
+  static boolean sameEllipsoid(Ellipsoid e1, Ellipsoid e2)
+  {
+    return (Double.compare(e1.getSemiMajorAxis(),e2.getSemiMajorAxis())==0)
+        &&(Double.compare(e1.getInverseFlattening(),e2.getInverseFlattening())==0);
+  }
+
+  static int hashCode(Ellipsoid ellipsoid)
+  {
+    return hashCode(0,ellipsoid.getSemiMajorAxis(),ellipsoid.getInverseFlattening());
+  }
+
+  static int hashCode(int seed, double... values)
+  {
+    int ret=seed;
+    for(double value : values)
+    {
+      long bits=Double.doubleToLongBits(value);
+      ret=31*ret+(int)(bits^(bits>>>32));
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,280 @@
+package delta.carto.projection;
+
+import delta.carto.geodesy.Ellipsoid;
+
+/**
+ * Implements the ellipsoidal Transverse Mercator projection, using Kruger
+ * series to the fourth order in the third flattening (accuracy is better than
+ * a millimeter within 4000 km of the central meridian).
+ * <p>
+ * Series coefficients are computed once, in the constructor.
+ * Projected values are in meters.
+ * @author DAM
+ */
+public final class TransverseMercatorProjection implements Projection
+{
+  /**
+   * Scale factor on the central meridian for UTM projections.
+   */
+  public static final double UTM_SCALE_FACTOR=0.9996;
+  /**
+   * False easting of UTM projections.
+   */
+  public static final double UTM_FALSE_EASTING=500000;
+  /**
+   * False northing of UTM projections in the southern hemisphere.
+   */
+  public static final double UTM_SOUTH_FALSE_NORTHING=10000000;
+
+  private static final double DEGREES_TO_RADIANS=Math.PI/180;
+  private static final double RADIANS_TO_DEGREES=180/Math.PI;
+
+  private final Ellipsoid _ellipsoid;
+  private final double _latitudeOfOrigin;
+  private final double _centralMeridian;
+  private final double _scaleFactor;
+  private final double _falseEasting;
+  private final double _falseNorthing;
+  // Precomputed values
+  private final double _centralMeridianRadians;
+  private final double _eccentricity;
+  private final double _radius;
+  private final double _originNorthing;
+  private final double _alpha1, _alpha2, _alpha3, _alpha4;
+  private final double _beta1, _beta2, _beta3, _beta4;
+  private final double _delta1, _delta2, _delta3, _delta4;
+
+  /**
+   * Constructor.
+   * @param ellipsoid Ellipsoid.
+   * @param latitudeOfOrigin Latitude of origin (degrees).
+   * @param centralMeridian Longitude of the central meridian (degrees).
+   * @param scaleFactor Scale factor on the central meridian.
+   * @param falseEasting False easting (meters).
+   * @param falseNorthing False northing (meters).
+   */
+  public TransverseMercatorProjection(Ellipsoid ellipsoid, double latitudeOfOrigin, double centralMeridian,
+      double scaleFactor, double falseEasting, double falseNorthing)
+  {
+    if (!(scaleFactor>0))
+    {
+      throw new IllegalArgumentException("Bad scale factor: "+scaleFactor);
+    }
+    _ellipsoid=ellipsoid;
+    _latitudeOfOrigin=latitudeOfOrigin;
+    _centralMeridian=centralMeridian;
+    _scaleFactor=scaleFactor;
+    _falseEasting=falseEasting;
+    _falseNorthing=falseNorthing;
+    _centralMeridianRadians=centralMeridian*DEGREES_TO_RADIANS;
+    double f=ellipsoid.getFlattening();
+    double n=f/(2-f);
+    double n2=n*n;
+    double n3=n2*n;
+    double n4=n3*n;
+    _eccentricity=Math.sqrt(ellipsoid.getEccentricitySquared());
+    // Rectifying radius, scaled
+    _radius=scaleFactor*ellipsoid.getSemiMajorAxis()/(1+n)*(1+n2/4+n4/64);
+    _alpha1=n/2-2*n2/3+5*n3/16+41*n4/180;
+    _alpha2=13*n2/48-3*n3/5+557*n4/1440;
+    _alpha3=61*n3/240-103*n4/140;
+    _alpha4=49561*n4/161280;
+    _beta1=n/2-2*n2/3+37*n3/96-n4/360;
+    _beta2=n2/48+n3/15-437*n4/1440;
+    _beta3=17*n3/480-37*n4/840;
+    _beta4=4397*n4/161280;
+    _delta1=2*n-2*n2/3-2*n3+116*n4/45;
+    _delta2=7*n2/3-8*n3/5-227*n4/45;
+    _delta3=56*n3/15-136*n4/35;
+    _delta4=4279*n4/630;
+    // Northing of the latitude of origin on the central meridian
+    double chi=conformalLatitude(latitudeOfOrigin*DEGREES_TO_RADIANS);
+    _originNorthing=_radius*(chi+_alpha1*Math.sin(2*chi)+_alpha2*Math.sin(4*chi)+_alpha3*Math.sin(6*chi)+_alpha4*Math.sin(8*chi));
+  }
+
+  /**
+   * Build a UTM projection.
+   * @param ellipsoid Ellipsoid.
+   * @param zone Zone number (1 to 60).
+   * @param north <code>true</code> for the northern hemisphere,
+   * <code>false</code> for the southern one.
+   * @return a new projection.
+   */
+  public static TransverseMercatorProjection buildUTM(Ellipsoid ellipsoid, int zone, boolean north)
+  {
+    if ((zone<1)||(zone>60))
+    {
+      throw new IllegalArgumentException("Bad UTM zone: "+zone);
+    }
+    double centralMeridian=zone*6-183;
+    double falseNorthing=north?0:UTM_SOUTH_FALSE_NORTHING;
+    return new TransverseMercatorProjection(ellipsoid,0,centralMeridian,UTM_SCALE_FACTOR,UTM_FALSE_EASTING,falseNorthing);
+  }
+
+  /**
+   * Get the UTM zone of a longitude.
+   * @param longitude Longitude (degrees).
+   * @return a zone number (1 to 60).
+   */
+  public static int getUTMZone(double longitude)
+  {
+    int zone=(int)Math.floor((longitude+180)/6)%60;
+    return ((zone<0)?zone+60:zone)+1;
+  }
+
+  private double conformalLatitude(double latitude)
+  {
+    double e=_eccentricity;
+    double sin=Math.sin(latitude);
+    double t=Math.sinh(atanh(sin)-e*atanh(e*sin));
+    return Math.atan(t);
+  }
+
+  private static double atanh(double value)
+  {
+    return 0.5*Math.log((1+value)/(1-value));
+  }
+
+  @Override
+  public void transform(double[] x, double[] y, int offset, int length)
+  {
+    Projections.checkRange(x,y,offset,length);
+    double e=_eccentricity;
+    double radius=_radius;
+    double a1=_alpha1, a2=_alpha2, a3=_alpha3, a4=_alpha4;
+    int end=offset+length;
+    for(int i=offset;i<end;i++)
+    {
+      double latitude=y[i]*DEGREES_TO_RADIANS;
+      double dLongitude=x[i]*DEGREES_TO_RADIANS-_centralMeridianRadians;
+      double sin=Math.sin(latitude);
+      double t=Math.sinh(atanh(sin)-e*atanh(e*sin));
+      double cosDLongitude=Math.cos(dLongitude);
+      double xiP=Math.atan2(t,cosDLongitude);
+      double etaP=atanh(Math.sin(dLongitude)/Math.sqrt(1+t*t));
+      double xi=xiP
+          +a1*Math.sin(2*xiP)*Math.cosh(2*etaP)
+          +a2*Math.sin(4*xiP)*Math.cosh(4*etaP)
+          +a3*Math.sin(6*xiP)*Math.cosh(6*etaP)
+          +a4*Math.sin(8*xiP)*Math.cosh(8*etaP);
+      double eta=etaP
+          +a1*Math.cos(2*xiP)*Math.sinh(2*etaP)
+          +a2*Math.cos(4*xiP)*Math.sinh(4*etaP)
+          +a3*Math.cos(6*xiP)*Math.sinh(6*etaP)
+          +a4*Math.cos(8*xiP)*Math.sinh(8*etaP);
+      x[i]=_falseEasting+radius*eta;
+      y[i]=_falseNorthing+radius*xi-_originNorthing;
+    }
+  }
+
+  @Override
+  public void inverseTransform(double[] x, double[] y, int offset, int length)
+  {
+    Projections.checkRange(x,y,offset,length);
+    double radius=_radius;
+    double b1=_beta1, b2=_beta2, b3=_beta3, b4=_beta4;
+    double d1=_delta1, d2=_delta2, d3=_delta3, d4=_delta4;
+    int end=offset+length;
+    for(int i=offset;i<end;i++)
+    {
+      double xi=(y[i]-_falseNorthing+_originNorthing)/radius;
+      double eta=(x[i]-_falseEasting)/radius;
+      double xiP=xi
+          -b1*Math.sin(2*xi)*Math.cosh(2*eta)
+          -b2*Math.sin(4*xi)*Math.cosh(4*eta)
+          -b3*Math.sin(6*xi)*Math.cosh(6*eta)
+          -b4*Math.sin(8*xi)*Math.cosh(8*eta);
+      double etaP=eta
+          -b1*Math.cos(2*xi)*Math.sinh(2*eta)
+          -b2*Math.cos(4*xi)*Math.sinh(4*eta)
+          -b3*Math.cos(6*xi)*Math.sinh(6*eta)
+          -b4*Math.cos(8*xi)*Math.sinh(8*eta);
+      double chi=Math.asin(Math.sin(xiP)/Math.cosh(etaP));
+      double latitude=chi+d1*Math.sin(2*chi)+d2*Math.sin(4*chi)+d3*Math.sin(6*chi)+d4*Math.sin(8*chi);
+      double longitude=_centralMeridianRadians+Math.atan2(Math.sinh(etaP),Math.cos(xiP));
+      x[i]=longitude*RADIANS_TO_DEGREES;
+      y[i]=latitude*RADIANS_TO_DEGREES;
+    }
+  }
+
+  /**
+   * Get the ellipsoid.
+   * @return the ellipsoid.
+   */
+  public Ellipsoid getEllipsoid()
+  {
+    return _ellipsoid;
+  }
+
+  /**
+   * Get the latitude of origin.
+   * @return a latitude (degrees).
+   */
+  public double getLatitudeOfOrigin()
+  {
+    return _latitudeOfOrigin;
+  }
+
+  /**
+   * Get the longitude of the central meridian.
+   * @return a longitude (degrees).
+   */
+  public double getCentralMeridian()
+  {
+    return _centralMeridian;
+  }
+
+  /**
+   * Get the scale factor on the central meridian.
+   * @return a scale factor.
+   */
+  public double getScaleFactor()
+  {
+    return _scaleFactor;
+  }
+
+  /**
+   * Get the false easting.
+   * @return a false easting (meters).
+   */
+  public double getFalseEasting()
+  {
+    return _falseEasting;
+  }
+
+  /**
+   * Get the false northing.
+   * @return a false northing (meters).
+   */
+  public double getFalseNorthing()
+  {
+    return _falseNorthing;
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    if (this==o) return true;
+    if (!(o instanceof TransverseMercatorProjection)) return false;
+    TransverseMercatorProjection p=(TransverseMercatorProjection)o;
+    return Projections.sameEllipsoid(_ellipsoid,p._ellipsoid)
+        &&(Double.compare(_latitudeOfOrigin,p._latitudeOfOrigin)==0)
+        &&(Double.compare(_centralMeridian,p._centralMeridian)==0)
+        &&(Double.compare(_scaleFactor,p._scaleFactor)==0)
+        &&(Double.compare(_falseEasting,p._falseEasting)==0)
+        &&(Double.compare(_falseNorthing,p._falseNorthing)==0);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Projections.hashCode(Projections.hashCode(_ellipsoid),_latitudeOfOrigin,_centralMeridian,_scaleFactor,_falseEasting,_falseNorthing);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Transverse Mercator: "+_ellipsoid+", lat0="+_latitudeOfOrigin+", long0="+_centralMeridian
+        +", k0="+_scaleFactor+", E0="+_falseEasting+", N0="+_falseNorthing;
+  }
+}
@@ -0,0 +1,55 @@
+package delta.carto.tiles;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes tiles to a directory tree: <code>root/z/x/y.extension</code>.
+ * @author DAM
+ */
+public class DirectoryTileSink implements TileSink
+{
+  private final File _root;
+
+  /**
+   * Constructor.
+   * @param root Root directory.
+   */
+  public DirectoryTileSink(File root)
+  {
+    _root=root;
+  }
+
+  /**
+   * Get the file of a tile.
+   * @param tile Tile coordinates.
+   * @param format Payload format.
+   * @return a file.
+   */
+  public File getFile(TileCoordinates tile, TileFormat format)
+  {
+    File dir=new File(new File(_root,String.valueOf(tile.getZoom())),String.valueOf(tile.getX()));
+    return new File(dir,tile.getY()+"."+format.getExtension());
+  }
+
+  @Override
+  public void write(TileCoordinates tile, TileFormat format, byte[] payload) throws IOException
+  {
+    File file=getFile(tile,format);
+    File dir=file.getParentFile();
+    if ((!dir.mkdirs())&&(!dir.isDirectory()))
+    {
+      throw new IOException("Cannot create directory: "+dir);
+    }
+    FileOutputStream out=new FileOutputStream(file);
+    try
+    {
+      out.write(payload);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package delta.carto.tiles;
+
+import java.util.Arrays;
+
+/**
+ * Clips polygons against an axis-aligned rectangle (Sutherland-Hodgman).
+ * Working arrays are reused, so a clipper is not thread-safe.
+ * @author DAM
+ */
+class PolygonClipper
+{
+  private double[] _x;
+  private double[] _y;
+  private double[] _tmpX;
+  private double[] _tmpY;
+  private int _nbPoints;
+
+  PolygonClipper()
+  {
+    _x=new double[64];
+    _y=new double[64];
+    _tmpX=new double[64];
+    _tmpY=new double[64];
+  }
+
+  /**
+   * Clip a polygon.
+   * @param x X values.
+   * @param y Y values.
+   * @param nbPoints Number of points.
+   * @param minX Minimum X value of the clipping rectangle.
+   * @param minY Minimum Y value of the clipping rectangle.
+   * @param maxX Maximum X value of the clipping rectangle.
+   * @param maxY Maximum Y value of the clipping rectangle.
+   * @return the number of points of the clipped polygon.
+   */
+  int clip(double[] x, double[] y, int nbPoints, double minX, double minY, double maxX, double maxY)
+  {
+    ensureCapacity(2*nbPoints+8);
+    System.arraycopy(x,0,_x,0,nbPoints);
+    System.arraycopy(y,0,_y,0,nbPoints);
+    _nbPoints=nbPoints;
+    clipEdge(0,minX,true);
+    clipEdge(0,maxX,false);
+    clipEdge(1,minY,true);
+    clipEdge(1,maxY,false);
+    return _nbPoints;
+  }
+
+  double[] getX()
+  {
+    return _x;
+  }
+
+  double[] getY()
+  {
+    return _y;
+  }
+
+  private void ensureCapacity(int size)
+  {
+    if (_x.length<size)
+    {
+      _x=Arrays.copyOf(_x,size);
+      _y=Arrays.copyOf(_y,size);
+      _tmpX=new double[size];
+      _tmpY=new double[size];
+    }
+  }
+
+  /**
+   * Clip against a single boundary.
+   * @param axis 0 for X, 1 for Y.
+   * @param limit Boundary value.
+   * @param keepAbove <code>true</code> to keep values above the limit.
+   */
+  private void clipEdge(int axis, double limit, boolean keepAbove)
+  {
+    int n=_nbPoints;
+    if (n==0)
+    {
+      return;
+    }
+    ensureCapacity(2*n+8);
+    double[] x=_x;
+    double[] y=_y;
+    double[] outX=_tmpX;
+    double[] outY=_tmpY;
+    int nbOut=0;
+    double previousX=x[n-1];
+    double previousY=y[n-1];
+    double previousValue=(axis==0)?previousX:previousY;
+    boolean previousInside=keepAbove?(previousValue>=limit):(previousValue<=limit);
+    for(int i=0;i<n;i++)
+    {
+      double currentX=x[i];
+      double currentY=y[i];
+      double currentValue=(axis==0)?currentX:currentY;
+      boolean currentInside=keepAbove?(currentValue>=limit):(currentValue<=limit);
+      if (currentInside!=previousInside)
+      {
+        double ratio=(limit-previousValue)/(currentValue-previousValue);
+        outX[nbOut]=(axis==0)?limit:previousX+ratio*(currentX-previousX);
+        outY[nbOut]=(axis==1)?limit:previousY+ratio*(currentY-previousY);
+        nbOut++;
+      }
+      if (currentInside)
+      {
+        outX[nbOut]=currentX;
+        outY[nbOut]=currentY;
+        nbOut++;
+      }
+      previousX=currentX;
+      previousY=currentY;
+      previousValue=currentValue;
+      previousInside=currentInside;
+    }
+    _tmpX=x;
+    _tmpY=y;
+    _x=outX;
+    _y=outY;
+    _nbPoints=nbOut;
+  }
+}
@@ -0,0 +1,129 @@
+package delta.carto.tiles;
+
+import delta.carto.geometry.GeoRectangle;
+import delta.carto.projection.MercatorProjection;
+
+/**
+ * Coordinates of a tile in a Web Mercator tile pyramid.
+ * <p>
+ * At zoom level <code>z</code>, the world is split into
+ * 2<sup>z</sup>x2<sup>z</sup> tiles. Tile x indexes grow eastwards from the
+ * antimeridian, tile y indexes grow southwards from the north edge.
+ * @author DAM
+ */
+public final class TileCoordinates
+{
+  /**
+   * Maximum zoom level.
+   */
+  public static final int MAX_ZOOM=30;
+
+  private static final MercatorProjection UNIT_PROJECTION=new MercatorProjection(1);
+
+  private final int _zoom;
+  private final int _x;
+  private final int _y;
+
+  /**
+   * Constructor.
+   * @param zoom Zoom level.
+   * @param x Column index.
+   * @param y Row index.
+   */
+  public TileCoordinates(int zoom, int x, int y)
+  {
+    if ((zoom<0)||(zoom>MAX_ZOOM))
+    {
+      throw new IllegalArgumentException("Bad zoom level: "+zoom);
+    }
+    int nbTiles=1<<zoom;
+    if ((x<0)||(x>=nbTiles)||(y<0)||(y>=nbTiles))
+    {
+      throw new IllegalArgumentException("Bad tile: "+zoom+"/"+x+"/"+y);
+    }
+    _zoom=zoom;
+    _x=x;
+    _y=y;
+  }
+
+  /**
+   * Get the zoom level.
+   * @return the zoom level.
+   */
+  public int getZoom()
+  {
+    return _zoom;
+  }
+
+  /**
+   * Get the column index.
+   * @return the column index.
+   */
+  public int getX()
+  {
+    return _x;
+  }
+
+  /**
+   * Get the row index.
+   * @return the row index.
+   */
+  public int getY()
+  {
+    return _y;
+  }
+
+  /**
+   * Get the geographic extent of this tile.
+   * @return a new rectangle, using the default datum.
+   */
+  public GeoRectangle getBounds()
+  {
+    double nbTiles=1L<<_zoom;
+    double minLongitude=_x/nbTiles*360-180;
+    double maxLongitude=(_x+1)/nbTiles*360-180;
+    double maxLatitude=UNIT_PROJECTION.inverseY((0.5-_y/nbTiles)*2*Math.PI);
+    double minLatitude=UNIT_PROJECTION.inverseY((0.5-(_y+1)/nbTiles)*2*Math.PI);
+    return new GeoRectangle(minLatitude,minLongitude,maxLatitude,maxLongitude);
+  }
+
+  /**
+   * Compute normalized Web Mercator coordinates. Both coordinates are in the
+   * [0,1] range for latitudes between about -85.05 and 85.05 degrees.
+   * @param longitudes Longitudes, replaced by normalized x values (0 on the antimeridian, growing eastwards).
+   * @param latitudes Latitudes, replaced by normalized y values (0 on the north edge, growing southwards).
+   * @param offset Index of the first point to transform.
+   * @param length Number of points to transform.
+   */
+  public static void toNormalized(double[] longitudes, double[] latitudes, int offset, int length)
+  {
+    UNIT_PROJECTION.transform(longitudes,latitudes,offset,length);
+    int end=offset+length;
+    for(int i=offset;i<end;i++)
+    {
+      longitudes[i]=(longitudes[i]+180)/360;
+      latitudes[i]=0.5-latitudes[i]/(2*Math.PI);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    if (this==o) return true;
+    if (!(o instanceof TileCoordinates)) return false;
+    TileCoordinates t=(TileCoordinates)o;
+    return (_zoom==t._zoom)&&(_x==t._x)&&(_y==t._y);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return (_zoom*31+_x)*31+_y;
+  }
+
+  @Override
+  public String toString()
+  {
+    return _zoom+"/"+_x+"/"+_y;
+  }
+}
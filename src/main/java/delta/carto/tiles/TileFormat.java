@@ -0,0 +1,33 @@
+package delta.carto.tiles;
+
+/**
+ * Formats of tile payloads.
+ * @author DAM
+ */
+public enum TileFormat
+{
+  /**
+   * Raster tiles: PNG images, polygons filled with the even-odd rule.
+   */
+  PNG("png"),
+  /**
+   * Vector tiles: polygons in tile coordinates (see {@link VectorTileEncoder}).
+   */
+  VECTOR("bin");
+
+  private final String _extension;
+
+  private TileFormat(String extension)
+  {
+    _extension=extension;
+  }
+
+  /**
+   * Get the file extension for this format.
+   * @return a file extension, without dot.
+   */
+  public String getExtension()
+  {
+    return _extension;
+  }
+}
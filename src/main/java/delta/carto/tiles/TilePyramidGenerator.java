@@ -0,0 +1,688 @@
+package delta.carto.tiles;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+import delta.carto.geometry.GeoPolygon;
+import delta.carto.geometry.GeoPolygonSimplifier;
+
+/**
+ * Generates a Web Mercator tile pyramid from polygons.
+ * <p>
+ * Polygons are projected once with the Mercator projection. For each zoom
+ * level, they are scaled to pixels and simplified in pixel space, so that the
+ * tolerance is the same at all latitudes. Tiles are then found by a
+ * depth-first descent of the tiles quadtree: polygons are clipped to a tile,
+ * then the clipped parts are handed to its four children. Tiles that no
+ * polygon reaches are never visited, and tiles fully covered by a polygon
+ * are filled without further clipping. Tiles are rendered on a bounded pool
+ * of worker threads and written to a sink as soon as they are ready. Empty
+ * tiles are not written.
+ * @author DAM
+ */
+public class TilePyramidGenerator
+{
+  // Depth of the tiles quadtree under which subtrees are descended in parallel
+  private static final int FORK_DEPTH=4;
+
+  private int _minZoom;
+  private int _maxZoom;
+  private TileFormat _format;
+  private int _tileSize;
+  private int _bufferSize;
+  private double _simplificationTolerance;
+  private int _nbThreads;
+  private Color _fillColor;
+
+  /**
+   * Constructor.
+   * @param minZoom Minimum zoom level.
+   * @param maxZoom Maximum zoom level.
+   * @param format Format of tiles.
+   */
+  public TilePyramidGenerator(int minZoom, int maxZoom, TileFormat format)
+  {
+    if ((minZoom<0)||(maxZoom<minZoom)||(maxZoom>TileCoordinates.MAX_ZOOM))
+    {
+      throw new IllegalArgumentException("Bad zoom levels: "+minZoom+" to "+maxZoom);
+    }
+    _minZoom=minZoom;
+    _maxZoom=maxZoom;
+    _format=format;
+    _tileSize=256;
+    _bufferSize=4;
+    _simplificationTolerance=0.5;
+    _nbThreads=Runtime.getRuntime().availableProcessors();
+    _fillColor=new Color(0x40,0x80,0xC0);
+  }
+
+  /**
+   * Set the size of tiles.
+   * @param tileSize Size of tiles sides (pixels).
+   */
+  public void setTileSize(int tileSize)
+  {
+    if (tileSize<1)
+    {
+      throw new IllegalArgumentException("Bad tile size: "+tileSize);
+    }
+    _tileSize=tileSize;
+  }
+
+  /**
+   * Get the size of tiles.
+   * @return the size of tiles sides (pixels).
+   */
+  public int getTileSize()
+  {
+    return _tileSize;
+  }
+
+  /**
+   * Set the size of the buffer around tiles, used to clip polygons.
+   * @param bufferSize Size of buffer (pixels).
+   */
+  public void setBufferSize(int bufferSize)
+  {
+    if (bufferSize<0)
+    {
+      throw new IllegalArgumentException("Bad buffer size: "+bufferSize);
+    }
+    _bufferSize=bufferSize;
+  }
+
+  /**
+   * Set the simplification tolerance.
+   * @param tolerance Tolerance (pixels), 0 to disable simplification.
+   */
+  public void setSimplificationTolerance(double tolerance)
+  {
+    if (!(tolerance>=0))
+    {
+      throw new IllegalArgumentException("Bad tolerance: "+tolerance);
+    }
+    _simplificationTolerance=tolerance;
+  }
+
+  /**
+   * Set the number of worker threads.
+   * @param nbThreads Number of worker threads.
+   */
+  public void setNumberOfThreads(int nbThreads)
+  {
+    if (nbThreads<1)
+    {
+      throw new IllegalArgumentException("Bad number of threads: "+nbThreads);
+    }
+    _nbThreads=nbThreads;
+  }
+
+  /**
+   * Set the color used to fill polygons in raster tiles.
+   * @param fillColor Color to use.
+   */
+  public void setFillColor(Color fillColor)
+  {
+    _fillColor=fillColor;
+  }
+
+  /**
+   * Generate tiles.
+   * @param polygons Polygons to render.
+   * @param sink Sink for tiles.
+   * @return generation statistics.
+   * @throws IOException if a tile cannot be rendered or written.
+   */
+  public TilePyramidStatistics generate(List<GeoPolygon> polygons, TileSink sink) throws IOException
+  {
+    TilePyramidStatistics statistics=new TilePyramidStatistics();
+    statistics.start();
+    ThreadPoolExecutor executor=new ThreadPoolExecutor(_nbThreads,_nbThreads,0,TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(2*_nbThreads),new ThreadPoolExecutor.CallerRunsPolicy());
+    ForkJoinPool pool=new ForkJoinPool(_nbThreads);
+    TileTracker tracker=new TileTracker();
+    try
+    {
+      // Normalized Web Mercator coordinates, computed once for all zoom levels
+      List<NormalizedPolygon> normalized=new ArrayList<NormalizedPolygon>(polygons.size());
+      for(GeoPolygon polygon : polygons)
+      {
+        if (polygon.getNumberOfPoints()>=3)
+        {
+          normalized.add(new NormalizedPolygon(polygon));
+        }
+      }
+      for(int zoom=_minZoom;(zoom<=_maxZoom)&&(!tracker.hasFailed());zoom++)
+      {
+        generateZoomLevel(normalized,zoom,sink,statistics,executor,pool,tracker);
+      }
+      tracker.await();
+    }
+    finally
+    {
+      executor.shutdownNow();
+      pool.shutdownNow();
+    }
+    statistics.stop();
+    return statistics;
+  }
+
+  private void generateZoomLevel(List<NormalizedPolygon> polygons, int zoom, TileSink sink, TilePyramidStatistics statistics,
+      ThreadPoolExecutor executor, ForkJoinPool pool, TileTracker tracker) throws IOException
+  {
+    // Scale to pixels, and simplify in pixel space
+    double worldSize=(double)_tileSize*(1L<<zoom);
+    GeoPolygonSimplifier simplifier=null;
+    if (_simplificationTolerance>0)
+    {
+      simplifier=new GeoPolygonSimplifier(GeoPolygonSimplifier.Algorithm.DOUGLAS_PEUCKER,_simplificationTolerance);
+    }
+    Part[] parts=new Part[polygons.size()];
+    pool.invoke(new PrepareTask(polygons,parts,worldSize,simplifier,0,parts.length));
+    List<Part> root=new ArrayList<Part>(parts.length);
+    for(Part part : parts)
+    {
+      if (part!=null)
+      {
+        root.add(part);
+      }
+    }
+    Descent descent=new Descent(zoom,sink,statistics,executor,tracker);
+    pool.invoke(new DescentTask(descent,0,0,0,root));
+  }
+
+  /**
+   * Polygon in normalized Web Mercator coordinates (see
+   * {@link TileCoordinates#toNormalized(double[], double[], int, int)}).
+   */
+  private static class NormalizedPolygon
+  {
+    private final double[] _x;
+    private final double[] _y;
+    private final int _nbPoints;
+
+    NormalizedPolygon(GeoPolygon polygon)
+    {
+      int n=polygon.getNumberOfPoints();
+      _nbPoints=n;
+      _x=new double[n];
+      _y=new double[n];
+      polygon.getPoints(0,_y,_x,0,n);
+      TileCoordinates.toNormalized(_x,_y,0,n);
+    }
+  }
+
+  /**
+   * Part of a polygon, in pixels of a zoom level, clipped to the buffered
+   * bounds of a tile or of one of its ancestors.
+   */
+  private static class Part
+  {
+    /**
+     * Part that covers the whole buffered bounds of its tile.
+     */
+    private static final Part FULL=new Part(null,null,0);
+
+    private final double[] _x;
+    private final double[] _y;
+    private final int _nbPoints;
+    private double _minX;
+    private double _maxX;
+    private double _minY;
+    private double _maxY;
+
+    Part(double[] x, double[] y, int nbPoints)
+    {
+      _x=x;
+      _y=y;
+      _nbPoints=nbPoints;
+      _minX=Double.POSITIVE_INFINITY;
+      _maxX=Double.NEGATIVE_INFINITY;
+      _minY=Double.POSITIVE_INFINITY;
+      _maxY=Double.NEGATIVE_INFINITY;
+      for(int i=0;i<nbPoints;i++)
+      {
+        _minX=Math.min(_minX,x[i]);
+        _maxX=Math.max(_maxX,x[i]);
+        _minY=Math.min(_minY,y[i]);
+        _maxY=Math.max(_maxY,y[i]);
+      }
+    }
+
+    /**
+     * Clip this part to a rectangle.
+     * @return the clipped part, {@link #FULL} if it covers the rectangle,
+     * or <code>null</code> if it does not reach it.
+     */
+    Part clip(double minX, double minY, double maxX, double maxY, PolygonClipper clipper)
+    {
+      if (this==FULL)
+      {
+        return FULL;
+      }
+      if ((_maxX<minX)||(_minX>maxX)||(_maxY<minY)||(_minY>maxY))
+      {
+        return null;
+      }
+      if ((_minX>=minX)&&(_maxX<=maxX)&&(_minY>=minY)&&(_maxY<=maxY))
+      {
+        return this;
+      }
+      int n=clipper.clip(_x,_y,_nbPoints,minX,minY,maxX,maxY);
+      if (n<3)
+      {
+        return null;
+      }
+      double[] x=clipper.getX();
+      double[] y=clipper.getY();
+      // The clipped ring lies in the rectangle: same area means full coverage
+      double area=0;
+      for(int i=0,j=n-1;i<n;j=i++)
+      {
+        area+=(x[j]-x[i])*(y[j]+y[i]);
+      }
+      double rectangleArea=(maxX-minX)*(maxY-minY);
+      if (Math.abs(area)*0.5>=rectangleArea*(1-1e-9))
+      {
+        return FULL;
+      }
+      return new Part(Arrays.copyOf(x,n),Arrays.copyOf(y,n),n);
+    }
+  }
+
+  /**
+   * Fork/join task that scales and simplifies a range of polygons.
+   */
+  private static class PrepareTask extends RecursiveAction
+  {
+    private static final long serialVersionUID=1L;
+    private static final int THRESHOLD=16;
+
+    private final List<NormalizedPolygon> _polygons;
+    private final Part[] _parts;
+    private final double _worldSize;
+    private final GeoPolygonSimplifier _simplifier;
+    private final int _from;
+    private final int _to;
+
+    PrepareTask(List<NormalizedPolygon> polygons, Part[] parts, double worldSize, GeoPolygonSimplifier simplifier, int from, int to)
+    {
+      _polygons=polygons;
+      _parts=parts;
+      _worldSize=worldSize;
+      _simplifier=simplifier;
+      _from=from;
+      _to=to;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (_to-_from>THRESHOLD)
+      {
+        int middle=(_from+_to)>>>1;
+        invokeAll(new PrepareTask(_polygons,_parts,_worldSize,_simplifier,_from,middle),
+            new PrepareTask(_polygons,_parts,_worldSize,_simplifier,middle,_to));
+        return;
+      }
+      for(int i=_from;i<_to;i++)
+      {
+        NormalizedPolygon polygon=_polygons.get(i);
+        int n=polygon._nbPoints;
+        double[] x=new double[n];
+        double[] y=new double[n];
+        for(int j=0;j<n;j++)
+        {
+          x[j]=polygon._x[j]*_worldSize;
+          y[j]=polygon._y[j]*_worldSize;
+        }
+        if (_simplifier!=null)
+        {
+          n=_simplifier.simplify(x,y,n);
+        }
+        _parts[i]=(n>=3)?new Part(x,y,n):null;
+      }
+    }
+  }
+
+  /**
+   * Depth-first descent of the tiles quadtree, for a zoom level.
+   * Parts are clipped to each tile, then handed to its four children, so that
+   * only the tiles reached by polygons are visited. Subtrees of the first
+   * levels are descended in parallel. Tiles of the zoom level are rendered as
+   * soon as they are reached.
+   */
+  private class Descent
+  {
+    private final int _zoom;
+    private final TileSink _sink;
+    private final TilePyramidStatistics _statistics;
+    private final ThreadPoolExecutor _executor;
+    private final TileTracker _tracker;
+    private final ThreadLocal<PolygonClipper> _clippers=new ThreadLocal<PolygonClipper>()
+    {
+      @Override
+      protected PolygonClipper initialValue()
+      {
+        return new PolygonClipper();
+      }
+    };
+
+    Descent(int zoom, TileSink sink, TilePyramidStatistics statistics, ThreadPoolExecutor executor, TileTracker tracker)
+    {
+      _zoom=zoom;
+      _sink=sink;
+      _statistics=statistics;
+      _executor=executor;
+      _tracker=tracker;
+    }
+
+    void visit(int depth, int tileX, int tileY, List<Part> parts)
+    {
+      if (_tracker.hasFailed())
+      {
+        return;
+      }
+      // Tile bounds, with the buffer of the rendered tiles
+      double size=(double)_tileSize*(1L<<(_zoom-depth));
+      double minX=tileX*size-_bufferSize;
+      double minY=tileY*size-_bufferSize;
+      double maxX=(tileX+1)*size+_bufferSize;
+      double maxY=(tileY+1)*size+_bufferSize;
+      PolygonClipper clipper=_clippers.get();
+      List<Part> clipped=new ArrayList<Part>(parts.size());
+      for(Part part : parts)
+      {
+        Part clippedPart=part.clip(minX,minY,maxX,maxY,clipper);
+        if (clippedPart!=null)
+        {
+          clipped.add(clippedPart);
+        }
+      }
+      if (clipped.isEmpty())
+      {
+        return;
+      }
+      if (depth==_zoom)
+      {
+        TileCoordinates tile=new TileCoordinates(_zoom,tileX,tileY);
+        _tracker.register();
+        _executor.execute(new TileTask(tile,clipped,_sink,_statistics,_tracker));
+        return;
+      }
+      if (depth<FORK_DEPTH)
+      {
+        RecursiveAction[] children=new RecursiveAction[4];
+        for(int i=0;i<4;i++)
+        {
+          children[i]=new DescentTask(this,depth+1,2*tileX+(i&1),2*tileY+(i>>1),clipped);
+        }
+        ForkJoinTask.invokeAll(children);
+        return;
+      }
+      for(int i=0;i<4;i++)
+      {
+        visit(depth+1,2*tileX+(i&1),2*tileY+(i>>1),clipped);
+      }
+    }
+  }
+
+  /**
+   * Fork/join task that descends a subtree of the tiles quadtree.
+   */
+  private static class DescentTask extends RecursiveAction
+  {
+    private static final long serialVersionUID=1L;
+
+    private final Descent _descent;
+    private final int _depth;
+    private final int _tileX;
+    private final int _tileY;
+    private final List<Part> _parts;
+
+    DescentTask(Descent descent, int depth, int tileX, int tileY, List<Part> parts)
+    {
+      _descent=descent;
+      _depth=depth;
+      _tileX=tileX;
+      _tileY=tileY;
+      _parts=parts;
+    }
+
+    @Override
+    protected void compute()
+    {
+      _descent.visit(_depth,_tileX,_tileY,_parts);
+    }
+  }
+
+  /**
+   * Tracks pending tile tasks, and the first failure.
+   */
+  private static class TileTracker
+  {
+    private final Phaser _phaser=new Phaser(1);
+    private final AtomicReference<Throwable> _failure=new AtomicReference<Throwable>();
+
+    void register()
+    {
+      _phaser.register();
+    }
+
+    void done(Throwable failure)
+    {
+      if (failure!=null)
+      {
+        _failure.compareAndSet(null,failure);
+      }
+      _phaser.arriveAndDeregister();
+    }
+
+    boolean hasFailed()
+    {
+      return _failure.get()!=null;
+    }
+
+    /**
+     * Wait for all pending tasks.
+     * @throws IOException if a task failed, or if the wait was interrupted.
+     */
+    void await() throws IOException
+    {
+      try
+      {
+        _phaser.awaitAdvanceInterruptibly(_phaser.arrive());
+      }
+      catch(InterruptedException ie)
+      {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted tiles generation",ie);
+      }
+      Throwable failure=_failure.get();
+      if (failure instanceof IOException)
+      {
+        throw (IOException)failure;
+      }
+      if (failure!=null)
+      {
+        throw new IOException("Tile rendering failed",failure);
+      }
+    }
+  }
+
+  /**
+   * Per-thread rendering resources.
+   */
+  private static class Workspace
+  {
+    private final VectorTileEncoder _encoder=new VectorTileEncoder();
+    private final ByteArrayOutputStream _out=new ByteArrayOutputStream();
+    private double[] _x=new double[64];
+    private double[] _y=new double[64];
+    private BufferedImage _image;
+  }
+
+  private final ThreadLocal<Workspace> _workspaces=new ThreadLocal<Workspace>()
+  {
+    @Override
+    protected Workspace initialValue()
+    {
+      return new Workspace();
+    }
+  };
+
+  private class TileTask implements Runnable
+  {
+    private final TileCoordinates _tile;
+    private final List<Part> _parts;
+    private final TileSink _sink;
+    private final TilePyramidStatistics _statistics;
+    private final TileTracker _tracker;
+
+    TileTask(TileCoordinates tile, List<Part> parts, TileSink sink, TilePyramidStatistics statistics, TileTracker tracker)
+    {
+      _tile=tile;
+      _parts=parts;
+      _sink=sink;
+      _statistics=statistics;
+      _tracker=tracker;
+    }
+
+    @Override
+    public void run()
+    {
+      Throwable failure=null;
+      try
+      {
+        render();
+      }
+      catch(Throwable t)
+      {
+        failure=t;
+      }
+      _tracker.done(failure);
+    }
+
+    private void render() throws IOException
+    {
+      Workspace workspace=_workspaces.get();
+      int tileSize=_tileSize;
+      boolean raster=(_format==TileFormat.PNG);
+      List<Path2D> paths=raster?new ArrayList<Path2D>(_parts.size()):null;
+      VectorTileEncoder encoder=workspace._encoder;
+      encoder.reset();
+      double scale=raster?1:((double)VectorTileEncoder.EXTENT)/tileSize;
+      double originX=(double)_tile.getX()*tileSize;
+      double originY=(double)_tile.getY()*tileSize;
+      for(Part part : _parts)
+      {
+        int n;
+        if (part==Part.FULL)
+        {
+          n=4;
+        }
+        else
+        {
+          n=part._nbPoints;
+        }
+        if (workspace._x.length<n)
+        {
+          workspace._x=new double[n];
+          workspace._y=new double[n];
+        }
+        double[] x=workspace._x;
+        double[] y=workspace._y;
+        if (part==Part.FULL)
+        {
+          double min=-_bufferSize*scale;
+          double max=(tileSize+_bufferSize)*scale;
+          x[0]=min;
+          y[0]=min;
+          x[1]=max;
+          y[1]=min;
+          x[2]=max;
+          y[2]=max;
+          x[3]=min;
+          y[3]=max;
+        }
+        else
+        {
+          for(int i=0;i<n;i++)
+          {
+            x[i]=(part._x[i]-originX)*scale;
+            y[i]=(part._y[i]-originY)*scale;
+          }
+        }
+        if (raster)
+        {
+          // One path per part: overlapping parts must not cancel each other
+          Path2D.Double path=new Path2D.Double(Path2D.WIND_EVEN_ODD,n+1);
+          path.moveTo(x[0],y[0]);
+          for(int i=1;i<n;i++)
+          {
+            path.lineTo(x[i],y[i]);
+          }
+          path.closePath();
+          paths.add(path);
+        }
+        else
+        {
+          encoder.addPolygon(x,y,n);
+        }
+      }
+      byte[] payload=raster?renderImage(workspace,paths):encoder.toByteArray();
+      _sink.write(_tile,_format,payload);
+      _statistics.tileWritten(_parts.size(),payload.length);
+    }
+  }
+
+  private byte[] renderImage(Workspace workspace, List<Path2D> paths) throws IOException
+  {
+    BufferedImage image=workspace._image;
+    if ((image==null)||(image.getWidth()!=_tileSize))
+    {
+      image=new BufferedImage(_tileSize,_tileSize,BufferedImage.TYPE_INT_ARGB);
+      workspace._image=image;
+    }
+    Graphics2D g=image.createGraphics();
+    try
+    {
+      g.setComposite(AlphaComposite.Clear);
+      g.fillRect(0,0,_tileSize,_tileSize);
+      g.setComposite(AlphaComposite.SrcOver);
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_ON);
+      g.setColor(_fillColor);
+      for(Path2D path : paths)
+      {
+        g.fill(path);
+      }
+    }
+    finally
+    {
+      g.dispose();
+    }
+    ByteArrayOutputStream out=workspace._out;
+    out.reset();
+    ImageIO.write(image,"png",out);
+    return out.toByteArray();
+  }
+}
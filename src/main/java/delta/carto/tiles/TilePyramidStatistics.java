@@ -0,0 +1,107 @@
+package delta.carto.tiles;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput statistics of a tile pyramid generation.
+ * Counters are updated concurrently by worker threads.
+ * @author DAM
+ */
+public class TilePyramidStatistics
+{
+  private final AtomicLong _nbTiles;
+  private final AtomicLong _nbBytes;
+  private final AtomicLong _nbPolygons;
+  private long _startTime;
+  private long _elapsedTime;
+
+  /**
+   * Constructor.
+   */
+  public TilePyramidStatistics()
+  {
+    _nbTiles=new AtomicLong();
+    _nbBytes=new AtomicLong();
+    _nbPolygons=new AtomicLong();
+  }
+
+  void start()
+  {
+    _startTime=System.nanoTime();
+  }
+
+  void stop()
+  {
+    _elapsedTime=System.nanoTime()-_startTime;
+  }
+
+  void tileWritten(int nbPolygons, int nbBytes)
+  {
+    _nbTiles.incrementAndGet();
+    _nbPolygons.addAndGet(nbPolygons);
+    _nbBytes.addAndGet(nbBytes);
+  }
+
+  /**
+   * Get the number of written tiles.
+   * @return a number of tiles.
+   */
+  public long getNumberOfTiles()
+  {
+    return _nbTiles.get();
+  }
+
+  /**
+   * Get the total size of written payloads.
+   * @return a number of bytes.
+   */
+  public long getNumberOfBytes()
+  {
+    return _nbBytes.get();
+  }
+
+  /**
+   * Get the total number of polygons in written tiles.
+   * @return a number of clipped polygons.
+   */
+  public long getNumberOfPolygons()
+  {
+    return _nbPolygons.get();
+  }
+
+  /**
+   * Get the elapsed time of the generation.
+   * @return a duration in nanoseconds.
+   */
+  public long getElapsedTime()
+  {
+    return _elapsedTime;
+  }
+
+  /**
+   * Get the throughput of the generation.
+   * @return a number of tiles per second.
+   */
+  public double getTilesPerSecond()
+  {
+    return (_elapsedTime>0)?getNumberOfTiles()*1e9/_elapsedTime:0;
+  }
+
+  /**
+   * Get the mean payload size.
+   * @return a number of bytes per tile.
+   */
+  public double getBytesPerTile()
+  {
+    long nbTiles=getNumberOfTiles();
+    return (nbTiles>0)?((double)getNumberOfBytes())/nbTiles:0;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getNumberOfTiles()+" tiles, "+getNumberOfBytes()+" bytes, "+getNumberOfPolygons()+" polygons in "
+        +(_elapsedTime/1000000)+"ms ("+String.format("%.1f",Double.valueOf(getTilesPerSecond()))+" tiles/s, "
+        +String.format("%.1f",Double.valueOf(getBytesPerTile()))+" bytes/tile)";
+  }
+}
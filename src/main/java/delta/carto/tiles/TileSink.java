@@ -0,0 +1,20 @@
+package delta.carto.tiles;
+
+import java.io.IOException;
+
+/**
+ * Interface of objects that receive rendered tiles.
+ * Implementations must be thread-safe: tiles are written by worker threads.
+ * @author DAM
+ */
+public interface TileSink
+{
+  /**
+   * Write a tile.
+   * @param tile Tile coordinates.
+   * @param format Payload format.
+   * @param payload Tile payload.
+   * @throws IOException if the tile cannot be written.
+   */
+  void write(TileCoordinates tile, TileFormat format, byte[] payload) throws IOException;
+}
@@ -0,0 +1,157 @@
+package delta.carto.tiles;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encoder for vector tile payloads.
+ * <p>
+ * Coordinates are rounded to a grid of {@link #EXTENT}x{@link #EXTENT} units
+ * per tile (clipped polygons may exceed the tile by a small buffer). The
+ * payload is: number of polygons, then for each polygon its number of points
+ * followed by x/y differences with the previous point (the first point is
+ * relative to the origin). All values are variable length integers, zig-zag
+ * encoded for differences.
+ * <p>
+ * An encoder is not thread-safe, but may be reused for many tiles.
+ * @author DAM
+ */
+public class VectorTileEncoder
+{
+  /**
+   * Number of units per tile side.
+   */
+  public static final int EXTENT=4096;
+
+  private final ByteArrayOutputStream _out;
+  private int _nbPolygons;
+  private final ByteArrayOutputStream _polygons;
+
+  /**
+   * Constructor.
+   */
+  public VectorTileEncoder()
+  {
+    _out=new ByteArrayOutputStream();
+    _polygons=new ByteArrayOutputStream();
+  }
+
+  /**
+   * Start a new tile.
+   */
+  public void reset()
+  {
+    _nbPolygons=0;
+    _polygons.reset();
+  }
+
+  /**
+   * Add a polygon.
+   * @param x X values, in tile units (0 to {@link #EXTENT} inside the tile).
+   * @param y Y values, in tile units (0 to {@link #EXTENT} inside the tile).
+   * @param nbPoints Number of points.
+   */
+  public void addPolygon(double[] x, double[] y, int nbPoints)
+  {
+    writeVarLong(_polygons,nbPoints);
+    long previousX=0;
+    long previousY=0;
+    for(int i=0;i<nbPoints;i++)
+    {
+      long currentX=Math.round(x[i]);
+      long currentY=Math.round(y[i]);
+      writeVarLong(_polygons,zigZag(currentX-previousX));
+      writeVarLong(_polygons,zigZag(currentY-previousY));
+      previousX=currentX;
+      previousY=currentY;
+    }
+    _nbPolygons++;
+  }
+
+  /**
+   * Get the number of polygons in the current tile.
+   * @return a number of polygons.
+   */
+  public int getNumberOfPolygons()
+  {
+    return _nbPolygons;
+  }
+
+  /**
+   * Get the payload of the current tile.
+   * @return a new byte array.
+   */
+  public byte[] toByteArray()
+  {
+    _out.reset();
+    writeVarLong(_out,_nbPolygons);
+    byte[] polygons=_polygons.toByteArray();
+    _out.write(polygons,0,polygons.length);
+    return _out.toByteArray();
+  }
+
+  /**
+   * Decode a payload.
+   * @param payload Payload to decode.
+   * @return the polygons, as interleaved x/y values in tile units.
+   */
+  public static List<long[]> decode(byte[] payload)
+  {
+    int[] position={0};
+    int nbPolygons=(int)readVarLong(payload,position);
+    List<long[]> ret=new ArrayList<long[]>(nbPolygons);
+    for(int i=0;i<nbPolygons;i++)
+    {
+      int nbPoints=(int)readVarLong(payload,position);
+      long[] points=new long[2*nbPoints];
+      long x=0;
+      long y=0;
+      for(int j=0;j<nbPoints;j++)
+      {
+        x+=unZigZag(readVarLong(payload,position));
+        y+=unZigZag(readVarLong(payload,position));
+        points[2*j]=x;
+        points[2*j+1]=y;
+      }
+      ret.add(points);
+    }
+    return ret;
+  }
+
+  private static long zigZag(long value)
+  {
+    return (value<<1)^(value>>63);
+  }
+
+  private static long unZigZag(long value)
+  {
+    return (value>>>1)^-(value&1);
+  }
+
+  private static void writeVarLong(ByteArrayOutputStream out, long value)
+  {
+    while ((value&~0x7FL)!=0)
+    {
+      out.write((int)((value&0x7F)|0x80));
+      value>>>=7;
+    }
+    out.write((int)value);
+  }
+
+  private static long readVarLong(byte[] data, int[] position)
+  {
+    long ret=0;
+    int shift=0;
+    while (true)
+    {
+      byte b=data[position[0]++];
+      ret|=(long)(b&0x7F)<<shift;
+      if ((b&0x80)==0)
+      {
+        return ret;
+      }
+      shift+=7;
+    }
+  }
+}
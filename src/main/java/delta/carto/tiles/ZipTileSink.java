@@ -0,0 +1,43 @@
+package delta.carto.tiles;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes tiles to a ZIP archive, with entries named <code>z/x/y.extension</code>.
+ * Payloads are stored without compression, since PNG images are already compressed.
+ * @author DAM
+ */
+public class ZipTileSink implements TileSink, Closeable
+{
+  private final ZipOutputStream _out;
+
+  /**
+   * Constructor.
+   * @param file Archive file (replaced if it exists).
+   * @throws IOException if the file cannot be opened.
+   */
+  public ZipTileSink(File file) throws IOException
+  {
+    _out=new ZipOutputStream(new FileOutputStream(file));
+    _out.setLevel(0);
+  }
+
+  @Override
+  public synchronized void write(TileCoordinates tile, TileFormat format, byte[] payload) throws IOException
+  {
+    _out.putNextEntry(new ZipEntry(tile+"."+format.getExtension()));
+    _out.write(payload);
+    _out.closeEntry();
+  }
+
+  @Override
+  public synchronized void close() throws IOException
+  {
+    _out.close();
+  }
+}
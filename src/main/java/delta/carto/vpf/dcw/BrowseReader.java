@@ -2,6 +2,10 @@ package delta.carto.vpf.dcw;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 
@@ -15,14 +19,16 @@ public class BrowseReader
 
   private static final byte DELIMITER=(byte)';';
   private static final byte DELIMITER2=(byte)'=';
-  private static final byte DELIMITER3=(byte)',';
+  private static final byte DELIMITER3=(byte)':';
+
+  private VpfHeaderTokenizer _tokenizer;
 
   /**
    * Constructor.
    */
   public BrowseReader()
   {
-    // Nothing to do !
+    _tokenizer=new VpfHeaderTokenizer();
   }
 
   /**
@@ -54,46 +60,114 @@ public class BrowseReader
 
   /**
    * Read the header.
-   * @param dis Input stream to read from.
+   * @param dis Input stream to read from. It is positioned on the first record on return.
+   * @return The table schema, or <code>null</code> if an error occurred.
+   * @see VpfTableReader
    */
-  public void readHeader(DataInputStream dis)
+  public VpfTableSchema readHeader(DataInputStream dis)
   {
     try
     {
       int headerSize=dis.readInt();
-      System.out.println("headerSize=["+headerSize+"]");
-      dis.readByte(); // Skip ';'
-      String tableDescription=readStringUntilDelimiter(dis, DELIMITER);
-      System.out.println("tableDescription=["+tableDescription+"]");
-      String docFilename=readStringUntilDelimiter(dis, DELIMITER);
-      System.out.println("docFilename=["+docFilename+"]");
-
+      byte first=dis.readByte();
+      ByteOrder order=VpfHeaderParser.getByteOrder(first);
+      if (order!=null)
+      {
+        dis.readByte(); // Skip ';'
+      }
+      else
+      {
+        order=ByteOrder.LITTLE_ENDIAN;
+      }
+      if (order==ByteOrder.LITTLE_ENDIAN)
+      {
+        headerSize=Integer.reverseBytes(headerSize);
+      }
+      String tableDescription=readStringUntilDelimiter(dis, DELIMITER).trim();
+      String narrativeTable=readStringUntilDelimiter(dis, DELIMITER).trim();
+      if ((narrativeTable.length()==0)||("-".equals(narrativeTable)))
+      {
+        narrativeTable=null;
+      }
+      List<VpfColumnDefinition> columns=new ArrayList<VpfColumnDefinition>();
       while(true)
       {
         String fieldName=readStringUntilDelimiter(dis, DELIMITER2);
-        System.out.println("fieldName=["+fieldName+"]");
-        String fieldType=readStringUntilDelimiter(dis, DELIMITER3).trim();
-        System.out.println("fieldType=["+fieldType+"]");
-        String number=readStringUntilDelimiter(dis, DELIMITER3).trim();
-        System.out.println("number=["+number+"]");
-        String keyType=readStringUntilDelimiter(dis, DELIMITER3).trim();
-        System.out.println("keyType=["+keyType+"]");
-        String fieldDescription=readStringUntilDelimiter(dis, DELIMITER3).trim();
-        System.out.println("fieldDescription=["+fieldDescription+"]");
-        String valueDescriptionTable=readStringUntilDelimiter(dis, DELIMITER3).trim();
-        System.out.println("valueDescriptionTable=["+valueDescriptionTable+"]");
-        String thematicIndex=readStringUntilDelimiter(dis, DELIMITER3).trim();
-        System.out.println("thematicIndex=["+thematicIndex+"]");
-        dis.readByte(); // Skip a byte
+        String fields=readStringUntilDelimiter(dis, DELIMITER3);
+        VpfColumnDefinition column=VpfColumnDefinition.build(fieldName,fields.split(",",-1));
+        if (LOGGER.isDebugEnabled())
+        {
+          LOGGER.debug("Column: "+column);
+        }
+        columns.add(column);
         dis.mark(1);
         if(dis.readByte()==DELIMITER) break;
         dis.reset();
       }
+      VpfTableSchema schema=new VpfTableSchema(tableDescription,narrativeTable,order,headerSize,columns);
+      if (LOGGER.isDebugEnabled())
+      {
+        LOGGER.debug("Table: "+schema+", header size="+headerSize);
+      }
+      return schema;
     }
     catch(IOException ioe)
     {
       LOGGER.error("",ioe);
     }
+    catch(IllegalArgumentException iae)
+    {
+      LOGGER.error("",iae);
+    }
+    return null;
+  }
+
+  /**
+   * Read the header from a buffer.
+   * Delimiters are scanned in bulk and strings are built only for the
+   * schema fields (see {@link VpfHeaderTokenizer}).
+   * @param buffer Buffer to read from. On return, it is positioned on the
+   * first record if the header is valid, unchanged otherwise. Its byte order
+   * is not modified.
+   * @return The table schema, or <code>null</code> if an error occurred.
+   */
+  public VpfTableSchema readHeader(ByteBuffer buffer)
+  {
+    int position=buffer.position();
+    if (buffer.remaining()<5)
+    {
+      LOGGER.error("Truncated header");
+      return null;
+    }
+    ByteOrder order=VpfHeaderParser.getByteOrder(buffer.get(position+4));
+    if (order==null)
+    {
+      order=ByteOrder.LITTLE_ENDIAN;
+    }
+    int headerSize=buffer.duplicate().order(order).getInt(position);
+    if ((headerSize<1)||(headerSize>buffer.remaining()-4))
+    {
+      LOGGER.error("Bad header size: "+headerSize);
+      return null;
+    }
+    ByteBuffer header=buffer.duplicate();
+    header.position(position+4);
+    header.limit(position+4+headerSize);
+    try
+    {
+      VpfTableSchema schema=VpfHeaderParser.parse(header,order,_tokenizer);
+      if (LOGGER.isDebugEnabled())
+      {
+        LOGGER.debug("Table: "+schema+", header size="+headerSize);
+      }
+      buffer.position(position+4+headerSize);
+      return schema;
+    }
+    catch(IllegalArgumentException iae)
+    {
+      LOGGER.error("",iae);
+    }
+    return null;
   }
 
   /*
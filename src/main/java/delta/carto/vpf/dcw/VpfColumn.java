@@ -0,0 +1,225 @@
+package delta.carto.vpf.dcw;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Values of a column of a VPF table.
+ * <p>
+ * Values of all records are stored as elements of a single primitive array
+ * (see {@link VpfFieldType}): the values of a record are contiguous, and
+ * records are stored in table order. Records are indexed from 0, whereas
+ * VPF row identifiers start at 1.
+ * @author DAM
+ */
+public abstract class VpfColumn
+{
+  private static final int INITIAL_CAPACITY=16;
+
+  private final VpfColumnDefinition _definition;
+  private final int _elementsPerValue;
+  private final int _elementsPerRecord;
+  private int _nbRecords;
+  // Index of the first element of each record, plus the end index (variable length columns only)
+  private int[] _starts;
+  /**
+   * Number of stored elements.
+   */
+  protected int _size;
+
+  /**
+   * Constructor.
+   * @param definition Column definition.
+   */
+  protected VpfColumn(VpfColumnDefinition definition)
+  {
+    _definition=definition;
+    _elementsPerValue=definition.getType().getElementsPerValue();
+    if (definition.isVariableLength())
+    {
+      _elementsPerRecord=-1;
+      _starts=new int[INITIAL_CAPACITY+1];
+    }
+    else
+    {
+      _elementsPerRecord=definition.getCount()*_elementsPerValue;
+      _starts=null;
+    }
+    _nbRecords=0;
+    _size=0;
+  }
+
+  /**
+   * Build a column for a column definition.
+   * @param definition Column definition.
+   * @return A new empty column.
+   */
+  public static VpfColumn build(VpfColumnDefinition definition)
+  {
+    switch (definition.getType())
+    {
+      case SHORT:
+      case INTEGER:
+        return new VpfIntColumn(definition);
+      case FLOAT:
+      case FLOAT_2D_COORDINATES:
+      case FLOAT_3D_COORDINATES:
+        return new VpfFloatColumn(definition);
+      case DOUBLE:
+      case DOUBLE_2D_COORDINATES:
+      case DOUBLE_3D_COORDINATES:
+        return new VpfDoubleColumn(definition);
+      case TRIPLET_ID:
+        return new VpfTripletColumn(definition);
+      default:
+        return new VpfTextColumn(definition);
+    }
+  }
+
+  /**
+   * Get the column definition.
+   * @return a column definition.
+   */
+  public VpfColumnDefinition getDefinition()
+  {
+    return _definition;
+  }
+
+  /**
+   * Get the number of records.
+   * @return a number of records.
+   */
+  public int getNumberOfRecords()
+  {
+    return _nbRecords;
+  }
+
+  /**
+   * Get the number of values of a record.
+   * @param record Index of the record, starting at 0.
+   * @return a number of values.
+   */
+  public int getNumberOfValues(int record)
+  {
+    if (_elementsPerValue==0)
+    {
+      return 0;
+    }
+    if (_starts==null)
+    {
+      return _definition.getCount();
+    }
+    return (_starts[record+1]-_starts[record])/_elementsPerValue;
+  }
+
+  /**
+   * Get the index of the first element of a record in the storage array.
+   * @param record Index of the record, starting at 0.
+   * @return an index in the storage array.
+   */
+  public int getStart(int record)
+  {
+    if (_starts==null)
+    {
+      return record*_elementsPerRecord;
+    }
+    return _starts[record];
+  }
+
+  /**
+   * Get the number of stored elements.
+   * @return a number of elements.
+   */
+  public int getNumberOfElements()
+  {
+    return _size;
+  }
+
+  /**
+   * Read the values of a record.
+   * @param input Input to read from.
+   * @throws IOException if an I/O error occurs.
+   */
+  void readRecord(VpfInput input) throws IOException
+  {
+    int nbElements=_elementsPerRecord;
+    if (_starts!=null)
+    {
+      int count=input.readInt();
+      if (count<0)
+      {
+        throw new IOException("Bad count for column "+_definition.getName()+": "+count);
+      }
+      nbElements=count*_elementsPerValue;
+    }
+    ensureCapacity(_size+nbElements);
+    readElements(input,_size,nbElements);
+    _size+=nbElements;
+    if (_starts!=null)
+    {
+      if (_nbRecords+2>_starts.length)
+      {
+        _starts=Arrays.copyOf(_starts,2*_starts.length);
+      }
+      _starts[_nbRecords+1]=_size;
+    }
+    _nbRecords++;
+  }
+
+  /**
+   * Get the number of elements of each record.
+   * @return a number of elements, or <code>-1</code> for variable length columns.
+   */
+  int getElementsPerRecord()
+  {
+    return _elementsPerRecord;
+  }
+
+  /**
+   * Account for fixed length records whose elements were stored directly.
+   * @param nbRecords Number of added records.
+   * @param nbElements Number of added elements.
+   */
+  void addRecords(int nbRecords, int nbElements)
+  {
+    _size+=nbElements;
+    _nbRecords+=nbRecords;
+  }
+
+  /**
+   * Compute the new capacity of a storage array.
+   * @param capacity Current capacity.
+   * @param minCapacity Needed capacity.
+   * @return A new capacity.
+   */
+  protected static int grow(int capacity, int minCapacity)
+  {
+    return Math.max(minCapacity,Math.max(INITIAL_CAPACITY,capacity+(capacity>>1)));
+  }
+
+  /**
+   * Ensure that the storage array can hold some elements.
+   * @param capacity Number of elements.
+   */
+  protected abstract void ensureCapacity(int capacity);
+
+  /**
+   * Read elements.
+   * @param input Input to read from.
+   * @param index Index of the first element in the storage array.
+   * @param nbElements Number of elements to read.
+   * @throws IOException if an I/O error occurs.
+   */
+  protected abstract void readElements(VpfInput input, int index, int nbElements) throws IOException;
+
+  /**
+   * Release unused storage.
+   */
+  void trim()
+  {
+    if (_starts!=null)
+    {
+      _starts=Arrays.copyOf(_starts,_nbRecords+1);
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package delta.carto.vpf.dcw;
+
+/**
+ * Definition of a column of a VPF table, as declared in the table header:
+ * <code>name=type,count,key,description,vdt,thematic index,narrative:</code>.
+ * Optional fields declared as <code>-</code> are <code>null</code>.
+ * @author DAM
+ */
+public class VpfColumnDefinition
+{
+  /**
+   * Count value for variable length columns (<code>*</code> in headers).
+   */
+  public static final int VARIABLE_COUNT=-1;
+
+  private final String _name;
+  private final VpfFieldType _type;
+  private final int _count;
+  private final VpfKeyType _keyType;
+  private final String _description;
+  private final String _valueDescriptionTable;
+  private final String _thematicIndex;
+  private final String _narrativeTable;
+
+  /**
+   * Constructor.
+   * @param name Column name.
+   * @param type Field type.
+   * @param count Number of values in each record, or {@link #VARIABLE_COUNT}.
+   * @param keyType Key type.
+   * @param description Column description.
+   * @param valueDescriptionTable Name of the value description table, or <code>null</code>.
+   * @param thematicIndex Name of the thematic index, or <code>null</code>.
+   * @param narrativeTable Name of the narrative table, or <code>null</code>.
+   */
+  public VpfColumnDefinition(String name, VpfFieldType type, int count, VpfKeyType keyType,
+      String description, String valueDescriptionTable, String thematicIndex, String narrativeTable)
+  {
+    if ((count<1)&&(count!=VARIABLE_COUNT))
+    {
+      throw new IllegalArgumentException("Bad count: "+count);
+    }
+    _name=name;
+    _type=type;
+    _count=count;
+    _keyType=keyType;
+    _description=description;
+    _valueDescriptionTable=valueDescriptionTable;
+    _thematicIndex=thematicIndex;
+    _narrativeTable=narrativeTable;
+  }
+
+  /**
+   * Build a column definition from header fields.
+   * @param name Column name.
+   * @param fields Type, count, key type, then optional description,
+   * value description table, thematic index and narrative table.
+   * @return A column definition.
+   * @throws IllegalArgumentException if a field is invalid.
+   */
+  public static VpfColumnDefinition build(String name, String[] fields)
+  {
+    if (fields.length<3)
+    {
+      throw new IllegalArgumentException("Bad definition of column "+name);
+    }
+    String type=fields[0].trim();
+    String count=fields[1].trim();
+    String key=fields[2].trim();
+    if ((type.length()!=1)||(key.length()!=1))
+    {
+      throw new IllegalArgumentException("Bad definition of column "+name);
+    }
+    int nb;
+    if ("*".equals(count))
+    {
+      nb=VARIABLE_COUNT;
+    }
+    else
+    {
+      try
+      {
+        nb=Integer.parseInt(count);
+      }
+      catch(NumberFormatException nfe)
+      {
+        throw new IllegalArgumentException("Bad count for column "+name+": "+count);
+      }
+    }
+    return new VpfColumnDefinition(name.trim(),VpfFieldType.fromCode(Character.toUpperCase(type.charAt(0))),nb,
+        VpfKeyType.fromCode(Character.toUpperCase(key.charAt(0))),
+        getOptionalField(fields,3),getOptionalField(fields,4),getOptionalField(fields,5),getOptionalField(fields,6));
+  }
+
+  private static String getOptionalField(String[] fields, int index)
+  {
+    if (index>=fields.length)
+    {
+      return null;
+    }
+    String value=fields[index].trim();
+    if ((value.length()==0)||("-".equals(value)))
+    {
+      return null;
+    }
+    return value;
+  }
+
+  /**
+   * Get the column name.
+   * @return a column name.
+   */
+  public String getName()
+  {
+    return _name;
+  }
+
+  /**
+   * Get the field type.
+   * @return a field type.
+   */
+  public VpfFieldType getType()
+  {
+    return _type;
+  }
+
+  /**
+   * Get the number of values in each record.
+   * @return a number of values, or {@link #VARIABLE_COUNT}.
+   */
+  public int getCount()
+  {
+    return _count;
+  }
+
+  /**
+   * Indicates if the number of values varies from one record to another.
+   * @return <code>true</code> if it does, <code>false</code> otherwise.
+   */
+  public boolean isVariableLength()
+  {
+    return _count==VARIABLE_COUNT;
+  }
+
+  /**
+   * Get the size of this column in each record.
+   * @return a size in bytes, or <code>-1</code> if it is variable.
+   */
+  public int getSize()
+  {
+    int valueSize=_type.getValueSize();
+    if ((_count==VARIABLE_COUNT)||(valueSize<0))
+    {
+      return -1;
+    }
+    return _count*valueSize;
+  }
+
+  /**
+   * Get the key type.
+   * @return a key type.
+   */
+  public VpfKeyType getKeyType()
+  {
+    return _keyType;
+  }
+
+  /**
+   * Get the column description.
+   * @return a description, or <code>null</code>.
+   */
+  public String getDescription()
+  {
+    return _description;
+  }
+
+  /**
+   * Get the name of the value description table.
+   * @return a table name, or <code>null</code>.
+   */
+  public String getValueDescriptionTable()
+  {
+    return _valueDescriptionTable;
+  }
+
+  /**
+   * Get the name of the thematic index.
+   * @return an index name, or <code>null</code>.
+   */
+  public String getThematicIndex()
+  {
+    return _thematicIndex;
+  }
+
+  /**
+   * Get the name of the narrative table.
+   * @return a table name, or <code>null</code>.
+   */
+  public String getNarrativeTable()
+  {
+    return _narrativeTable;
+  }
+
+  @Override
+  public String toString()
+  {
+    return _name+"="+_type.getCode()+","+((_count==VARIABLE_COUNT)?"*":String.valueOf(_count))+","+_keyType.getCode();
+  }
+}
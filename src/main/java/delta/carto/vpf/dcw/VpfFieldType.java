@@ -0,0 +1,131 @@
+package delta.carto.vpf.dcw;
+
+/**
+ * Types of VPF table fields.
+ * <p>
+ * Values of a field are stored as elements of a primitive type: bytes for
+ * texts and dates, integers, floats or doubles for numbers and coordinates
+ * (one element per coordinate), integers for triplet identifiers (three
+ * elements per value).
+ * @author DAM
+ */
+public enum VpfFieldType
+{
+  /**
+   * Text (ASCII characters).
+   */
+  TEXT('T',1,1),
+  /**
+   * Text (ISO 8859-1 characters).
+   */
+  LATIN1_TEXT('L',1,1),
+  /**
+   * Date (20 characters).
+   */
+  DATE('D',1,20),
+  /**
+   * Short integer (2 bytes).
+   */
+  SHORT('S',2,1),
+  /**
+   * Integer (4 bytes).
+   */
+  INTEGER('I',4,1),
+  /**
+   * Float (4 bytes).
+   */
+  FLOAT('F',4,1),
+  /**
+   * Double (8 bytes).
+   */
+  DOUBLE('R',8,1),
+  /**
+   * 2D coordinates (floats).
+   */
+  FLOAT_2D_COORDINATES('C',4,2),
+  /**
+   * 3D coordinates (floats).
+   */
+  FLOAT_3D_COORDINATES('Z',4,3),
+  /**
+   * 2D coordinates (doubles).
+   */
+  DOUBLE_2D_COORDINATES('B',8,2),
+  /**
+   * 3D coordinates (doubles).
+   */
+  DOUBLE_3D_COORDINATES('Y',8,3),
+  /**
+   * Triplet identifier (row, tile and external identifiers, variable size).
+   */
+  TRIPLET_ID('K',-1,3),
+  /**
+   * Null field (no data).
+   */
+  NULL('X',0,0);
+
+  private final char _code;
+  private final int _elementSize;
+  private final int _elementsPerValue;
+
+  private VpfFieldType(char code, int elementSize, int elementsPerValue)
+  {
+    _code=code;
+    _elementSize=elementSize;
+    _elementsPerValue=elementsPerValue;
+  }
+
+  /**
+   * Get the code of this type in table headers.
+   * @return a type code.
+   */
+  public char getCode()
+  {
+    return _code;
+  }
+
+  /**
+   * Get the size of an element in a table.
+   * @return a size in bytes, or <code>-1</code> if it is variable.
+   */
+  public int getElementSize()
+  {
+    return _elementSize;
+  }
+
+  /**
+   * Get the number of elements of a value.
+   * @return a number of elements.
+   */
+  public int getElementsPerValue()
+  {
+    return _elementsPerValue;
+  }
+
+  /**
+   * Get the size of a value in a table.
+   * @return a size in bytes, or <code>-1</code> if it is variable.
+   */
+  public int getValueSize()
+  {
+    return (_elementSize>=0)?_elementSize*_elementsPerValue:-1;
+  }
+
+  /**
+   * Get a field type from its code.
+   * @param code Code to use.
+   * @return A field type.
+   * @throws IllegalArgumentException if the code is not supported.
+   */
+  public static VpfFieldType fromCode(char code)
+  {
+    for(VpfFieldType type : values())
+    {
+      if (type._code==code)
+      {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported field type: "+code);
+  }
+}
@@ -0,0 +1,49 @@
+package delta.carto.vpf.dcw;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Column whose elements have a fixed size in bytes.
+ * Such columns can be extracted from a block of buffered fixed length
+ * records at once. Triplet identifiers have a variable size, so they are not
+ * fixed size columns (and never belong to fixed length records).
+ * @author DAM
+ */
+public abstract class VpfFixedSizeColumn extends VpfColumn
+{
+  /**
+   * Constructor.
+   * @param definition Column definition.
+   */
+  protected VpfFixedSizeColumn(VpfColumnDefinition definition)
+  {
+    super(definition);
+  }
+
+  /**
+   * Read the values of buffered fixed length records.
+   * @param block Buffer that contains the records.
+   * @param position Position of the column in the first record.
+   * @param recordSize Size of records.
+   * @param nbRecords Number of records.
+   */
+  void readRecords(ByteBuffer block, int position, int recordSize, int nbRecords)
+  {
+    int elementsPerRecord=getElementsPerRecord();
+    int nbElements=nbRecords*elementsPerRecord;
+    ensureCapacity(_size+nbElements);
+    readElements(block,position,recordSize,nbRecords,elementsPerRecord);
+    addRecords(nbRecords,nbElements);
+  }
+
+  /**
+   * Read elements of buffered fixed length records.
+   * Elements are stored from index {@link #_size}.
+   * @param block Buffer that contains the records.
+   * @param position Position of the column in the first record.
+   * @param recordSize Size of records.
+   * @param nbRecords Number of records.
+   * @param elementsPerRecord Number of elements in each record.
+   */
+  protected abstract void readElements(ByteBuffer block, int position, int recordSize, int nbRecords, int elementsPerRecord);
+}
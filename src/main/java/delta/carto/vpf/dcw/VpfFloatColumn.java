@@ -0,0 +1,105 @@
+package delta.carto.vpf.dcw;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Column of floats (float fields, or float coordinates).
+ * Coordinates of a point are stored as consecutive elements (x, y, then z).
+ * @author DAM
+ */
+public class VpfFloatColumn extends VpfFixedSizeColumn
+{
+  private final int _dimension;
+  private float[] _values;
+
+  /**
+   * Constructor.
+   * @param definition Column definition.
+   */
+  public VpfFloatColumn(VpfColumnDefinition definition)
+  {
+    super(definition);
+    _dimension=definition.getType().getElementsPerValue();
+    _values=new float[0];
+  }
+
+  /**
+   * Get the number of elements of a value.
+   * @return 1 for floats, 2 or 3 for coordinates.
+   */
+  public int getDimension()
+  {
+    return _dimension;
+  }
+
+  /**
+   * Get the first element of a record.
+   * @param record Index of the record, starting at 0.
+   * @return a value.
+   */
+  public float getFloat(int record)
+  {
+    return _values[getStart(record)];
+  }
+
+  /**
+   * Get an element of a value of a record.
+   * @param record Index of the record, starting at 0.
+   * @param index Index of the value in the record.
+   * @param element Index of the element in the value (0 for x, 1 for y, 2 for z).
+   * @return a value.
+   */
+  public float getFloat(int record, int index, int element)
+  {
+    return _values[getStart(record)+index*_dimension+element];
+  }
+
+  /**
+   * Get the storage array for values.
+   * Only the first {@link #getNumberOfElements()} elements are meaningful.
+   * @return the storage array.
+   */
+  public float[] getValuesStorage()
+  {
+    return _values;
+  }
+
+  @Override
+  protected void ensureCapacity(int capacity)
+  {
+    if (capacity>_values.length)
+    {
+      _values=Arrays.copyOf(_values,grow(_values.length,capacity));
+    }
+  }
+
+  @Override
+  protected void readElements(VpfInput input, int index, int nbElements) throws IOException
+  {
+    input.readFloats(_values,index,nbElements);
+  }
+
+  @Override
+  protected void readElements(ByteBuffer block, int position, int recordSize, int nbRecords, int elementsPerRecord)
+  {
+    float[] values=_values;
+    int index=_size;
+    for(int i=0;i<nbRecords;i++)
+    {
+      int recordPosition=position+i*recordSize;
+      for(int j=0;j<elementsPerRecord;j++)
+      {
+        values[index++]=block.getFloat(recordPosition+4*j);
+      }
+    }
+  }
+
+  @Override
+  void trim()
+  {
+    super.trim();
+    _values=Arrays.copyOf(_values,_size);
+  }
+}
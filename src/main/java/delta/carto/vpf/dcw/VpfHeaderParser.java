@@ -0,0 +1,133 @@
+package delta.carto.vpf.dcw;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser for VPF table headers.
+ * Header text: optional byte order flag, <code>;</code>, table description,
+ * <code>;</code>, narrative table, <code>;</code>, then column definitions
+ * ended by <code>:</code>, then <code>;</code>.
+ * @author DAM
+ */
+final class VpfHeaderParser
+{
+  private static final byte DELIMITER=(byte)';';
+  private static final byte NAME_DELIMITER=(byte)'=';
+  private static final byte FIELD_DELIMITER=(byte)',';
+  private static final byte COLUMN_DELIMITER=(byte)':';
+
+  private VpfHeaderParser()
+  {
+    // Nothing to do !
+  }
+
+  /**
+   * Get the byte order declared by a byte order flag.
+   * @param flag First byte of the header text.
+   * @return A byte order, or <code>null</code> if the byte is not a byte order flag.
+   */
+  static ByteOrder getByteOrder(byte flag)
+  {
+    if ((flag=='L')||(flag=='l'))
+    {
+      return ByteOrder.LITTLE_ENDIAN;
+    }
+    if ((flag=='M')||(flag=='m'))
+    {
+      return ByteOrder.BIG_ENDIAN;
+    }
+    return null;
+  }
+
+  /**
+   * Parse a header.
+   * @param header Header text (after the header length field), from the
+   * position to the limit of the buffer. The buffer is not modified.
+   * @param order Byte order of the table.
+   * @param tokenizer Tokenizer to use.
+   * @return A table schema.
+   * @throws IllegalArgumentException if the header is invalid.
+   */
+  static VpfTableSchema parse(ByteBuffer header, ByteOrder order, VpfHeaderTokenizer tokenizer)
+  {
+    tokenizer.reset(header);
+    if ((tokenizer.hasRemaining())&&(getByteOrder((byte)tokenizer.peek())!=null))
+    {
+      tokenizer.skip(1);
+    }
+    if (tokenizer.peek()!=DELIMITER)
+    {
+      throw new IllegalArgumentException("Bad header start");
+    }
+    tokenizer.skip(1);
+    next(tokenizer,DELIMITER);
+    String description=tokenizer.getTokenString();
+    next(tokenizer,DELIMITER);
+    String narrativeTable=getOptionalString(tokenizer);
+    List<VpfColumnDefinition> columns=new ArrayList<VpfColumnDefinition>();
+    while ((tokenizer.hasRemaining())&&(tokenizer.peek()!=DELIMITER))
+    {
+      columns.add(parseColumn(tokenizer));
+    }
+    return new VpfTableSchema(description,narrativeTable,order,header.remaining(),columns);
+  }
+
+  private static VpfColumnDefinition parseColumn(VpfHeaderTokenizer tokenizer)
+  {
+    next(tokenizer,NAME_DELIMITER);
+    String name=tokenizer.getTokenString();
+    next(tokenizer,FIELD_DELIMITER);
+    VpfFieldType type=VpfFieldType.fromCode(getCode(tokenizer,name));
+    next(tokenizer,FIELD_DELIMITER);
+    int count=tokenizer.tokenIs('*')?VpfColumnDefinition.VARIABLE_COUNT:tokenizer.getTokenInt();
+    next(tokenizer,FIELD_DELIMITER);
+    VpfKeyType keyType=VpfKeyType.fromCode(getCode(tokenizer,name));
+    // Optional fields: description, value description table, thematic index, narrative table
+    String[] optionalFields=new String[4];
+    int index=0;
+    boolean end=false;
+    while (!end)
+    {
+      if (!tokenizer.nextToken(FIELD_DELIMITER,COLUMN_DELIMITER))
+      {
+        throw new IllegalArgumentException("Missing end of column "+name);
+      }
+      end=(tokenizer.getDelimiter()==COLUMN_DELIMITER);
+      if (index<optionalFields.length)
+      {
+        optionalFields[index++]=getOptionalString(tokenizer);
+      }
+    }
+    return new VpfColumnDefinition(name,type,count,keyType,
+        optionalFields[0],optionalFields[1],optionalFields[2],optionalFields[3]);
+  }
+
+  private static void next(VpfHeaderTokenizer tokenizer, byte delimiter)
+  {
+    if (!tokenizer.nextToken(delimiter))
+    {
+      throw new IllegalArgumentException("Missing delimiter: "+(char)delimiter);
+    }
+  }
+
+  private static char getCode(VpfHeaderTokenizer tokenizer, String name)
+  {
+    if (tokenizer.getTokenLength()!=1)
+    {
+      throw new IllegalArgumentException("Bad definition of column "+name);
+    }
+    return Character.toUpperCase((char)(tokenizer.getTokenByte(0)&0xFF));
+  }
+
+  private static String getOptionalString(VpfHeaderTokenizer tokenizer)
+  {
+    if ((tokenizer.getTokenLength()==0)||(tokenizer.tokenIs('-')))
+    {
+      return null;
+    }
+    return tokenizer.getTokenString();
+  }
+}
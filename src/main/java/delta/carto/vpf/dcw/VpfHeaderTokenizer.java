@@ -0,0 +1,270 @@
+package delta.carto.vpf.dcw;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tokenizer for VPF table headers and text fields.
+ * <p>
+ * Tokens are slices of a byte buffer, ended by a delimiter byte. Delimiters
+ * are searched 8 bytes at a time, and tokens are described by an offset and
+ * a length in the buffer: no object is allocated while scanning. Leading and
+ * trailing blanks of tokens are ignored. Strings are built only when
+ * requested, with {@link #getTokenString()}.
+ * @author DAM
+ */
+public final class VpfHeaderTokenizer
+{
+  private static final long ONES=0x0101010101010101L;
+  private static final long HIGHS=0x8080808080808080L;
+
+  // Little endian view of the scanned buffer: first byte in the lowest bits of words
+  private ByteBuffer _buffer;
+  private int _position;
+  private int _limit;
+  private int _tokenStart;
+  private int _tokenEnd;
+  private byte _delimiter;
+
+  /**
+   * Constructor.
+   */
+  public VpfHeaderTokenizer()
+  {
+    reset(ByteBuffer.allocate(0));
+  }
+
+  /**
+   * Start scanning a buffer.
+   * Bytes from the position to the limit of the buffer are scanned. The
+   * position, limit and byte order of the buffer are not modified.
+   * @param buffer Buffer to scan.
+   */
+  public void reset(ByteBuffer buffer)
+  {
+    _buffer=buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    _position=buffer.position();
+    _limit=buffer.limit();
+    _tokenStart=_position;
+    _tokenEnd=_position;
+    _delimiter=0;
+  }
+
+  /**
+   * Get the scanning position.
+   * @return the index of the next byte to scan in the buffer.
+   */
+  public int getPosition()
+  {
+    return _position;
+  }
+
+  /**
+   * Indicates if there are bytes left to scan.
+   * @return <code>true</code> if there are, <code>false</code> otherwise.
+   */
+  public boolean hasRemaining()
+  {
+    return _position<_limit;
+  }
+
+  /**
+   * Get the next byte to scan, without consuming it.
+   * @return A byte, or <code>-1</code> if there are no bytes left.
+   */
+  public int peek()
+  {
+    return (_position<_limit)?(_buffer.get(_position)&0xFF):-1;
+  }
+
+  /**
+   * Skip bytes.
+   * @param count Number of bytes to skip.
+   */
+  public void skip(int count)
+  {
+    if ((count<0)||(count>_limit-_position))
+    {
+      throw new IllegalArgumentException("Bad count: "+count);
+    }
+    _position+=count;
+  }
+
+  /**
+   * Scan the next token.
+   * @param delimiter Delimiter that ends the token.
+   * @return <code>true</code> if a token was found, <code>false</code> if the
+   * delimiter was not found (nothing is consumed).
+   */
+  public boolean nextToken(byte delimiter)
+  {
+    return nextToken(delimiter,delimiter);
+  }
+
+  /**
+   * Scan the next token, ended by any of two delimiters.
+   * @param delimiter Delimiter that ends the token.
+   * @param alternate Alternate delimiter.
+   * @return <code>true</code> if a token was found, <code>false</code> if no
+   * delimiter was found (nothing is consumed).
+   * @see #getDelimiter()
+   */
+  public boolean nextToken(byte delimiter, byte alternate)
+  {
+    int index=indexOf(delimiter,alternate);
+    if (index<0)
+    {
+      return false;
+    }
+    ByteBuffer buffer=_buffer;
+    _delimiter=buffer.get(index);
+    int start=_position;
+    int end=index;
+    while ((start<end)&&((buffer.get(start)&0xFF)<=' '))
+    {
+      start++;
+    }
+    while ((end>start)&&((buffer.get(end-1)&0xFF)<=' '))
+    {
+      end--;
+    }
+    _tokenStart=start;
+    _tokenEnd=end;
+    _position=index+1;
+    return true;
+  }
+
+  private int indexOf(byte delimiter, byte alternate)
+  {
+    ByteBuffer buffer=_buffer;
+    long pattern=(delimiter&0xFFL)*ONES;
+    long alternatePattern=(alternate&0xFFL)*ONES;
+    int index=_position;
+    int end=_limit-8;
+    for(;index<=end;index+=8)
+    {
+      long word=buffer.getLong(index);
+      long matches=zeroBytes(word^pattern)|zeroBytes(word^alternatePattern);
+      if (matches!=0)
+      {
+        return index+(Long.numberOfTrailingZeros(matches)>>>3);
+      }
+    }
+    for(;index<_limit;index++)
+    {
+      byte b=buffer.get(index);
+      if ((b==delimiter)||(b==alternate))
+      {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Find zero bytes in a word.
+   * The high bit of the lowest zero byte is set. Upper bytes may give false
+   * positives, after a zero byte only.
+   * @param word Word to use.
+   * @return A mask with high bits of zero bytes set.
+   */
+  private static long zeroBytes(long word)
+  {
+    return (word-ONES)&~word&HIGHS;
+  }
+
+  /**
+   * Get the delimiter that ended the last token.
+   * @return a delimiter.
+   */
+  public byte getDelimiter()
+  {
+    return _delimiter;
+  }
+
+  /**
+   * Get the index of the first byte of the last token in the buffer.
+   * @return an index in the buffer.
+   */
+  public int getTokenOffset()
+  {
+    return _tokenStart;
+  }
+
+  /**
+   * Get the length of the last token.
+   * @return a number of bytes.
+   */
+  public int getTokenLength()
+  {
+    return _tokenEnd-_tokenStart;
+  }
+
+  /**
+   * Get a byte of the last token.
+   * @param index Index of the byte in the token.
+   * @return a byte.
+   */
+  public byte getTokenByte(int index)
+  {
+    return _buffer.get(_tokenStart+index);
+  }
+
+  /**
+   * Indicates if the last token is made of a single given character.
+   * @param c Character to test.
+   * @return <code>true</code> if it is, <code>false</code> otherwise.
+   */
+  public boolean tokenIs(char c)
+  {
+    return (_tokenEnd-_tokenStart==1)&&(_buffer.get(_tokenStart)==(byte)c);
+  }
+
+  /**
+   * Get the last token as a positive decimal integer.
+   * @return an integer.
+   * @throws IllegalArgumentException if the token is not a positive integer.
+   */
+  public int getTokenInt()
+  {
+    if (_tokenEnd==_tokenStart)
+    {
+      throw new IllegalArgumentException("Empty number");
+    }
+    long value=0;
+    for(int i=_tokenStart;i<_tokenEnd;i++)
+    {
+      int digit=_buffer.get(i)-'0';
+      if ((digit<0)||(digit>9)||(value>Integer.MAX_VALUE/10))
+      {
+        throw new IllegalArgumentException("Bad number: "+getTokenString());
+      }
+      value=value*10+digit;
+    }
+    if (value>Integer.MAX_VALUE)
+    {
+      throw new IllegalArgumentException("Bad number: "+getTokenString());
+    }
+    return (int)value;
+  }
+
+  /**
+   * Get the last token as a string.
+   * @return A new string (ISO 8859-1 characters).
+   */
+  public String getTokenString()
+  {
+    int length=_tokenEnd-_tokenStart;
+    if (_buffer.hasArray())
+    {
+      return new String(_buffer.array(),_buffer.arrayOffset()+_tokenStart,length,StandardCharsets.ISO_8859_1);
+    }
+    byte[] bytes=new byte[length];
+    for(int i=0;i<length;i++)
+    {
+      bytes[i]=_buffer.get(_tokenStart+i);
+    }
+    return new String(bytes,StandardCharsets.ISO_8859_1);
+  }
+}
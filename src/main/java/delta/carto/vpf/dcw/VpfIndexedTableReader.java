@@ -0,0 +1,250 @@
+package delta.carto.vpf.dcw;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Random access reader for VPF tables with variable length records.
+ * <p>
+ * Records are located with the variable length index of the table
+ * ({@link VpfVariableLengthIndex}), so that any record is read without
+ * scanning the previous ones. Records of a sorted list of identifiers are
+ * fetched with as few reads as possible: records that are close to each
+ * other in the table file are read as a single block.
+ * This class is not thread-safe.
+ * @author DAM
+ */
+public class VpfIndexedTableReader implements Closeable
+{
+  /**
+   * Maximum number of unused bytes read between two records of a block.
+   */
+  public static final int MAX_GAP=4096;
+  /**
+   * Maximum size of a block of records (bytes). Larger records are read alone.
+   */
+  public static final int MAX_BLOCK_SIZE=1<<20;
+
+  private RandomAccessFile _file;
+  private FileChannel _channel;
+  private VpfTableSchema _schema;
+  private VpfVariableLengthIndex _index;
+  private ByteBuffer _buffer;
+  private long _nbBlockReads;
+
+  /**
+   * Constructor.
+   * @param table Table file.
+   * @param index Variable length index file of the table.
+   * @throws IOException if a file cannot be read, or is invalid.
+   */
+  public VpfIndexedTableReader(File table, File index) throws IOException
+  {
+    _file=new RandomAccessFile(table,"r");
+    try
+    {
+      _channel=_file.getChannel();
+      _schema=VpfTableReader.readSchema(new VpfInput(_channel));
+      _index=VpfVariableLengthIndex.open(index,_schema.getByteOrder());
+    }
+    catch(IOException ioe)
+    {
+      _file.close();
+      throw ioe;
+    }
+    _buffer=ByteBuffer.allocate(VpfInput.BUFFER_SIZE);
+    _nbBlockReads=0;
+  }
+
+  /**
+   * Get the table schema.
+   * @return a schema.
+   */
+  public VpfTableSchema getSchema()
+  {
+    return _schema;
+  }
+
+  /**
+   * Get the index of the table.
+   * @return an index.
+   */
+  public VpfVariableLengthIndex getIndex()
+  {
+    return _index;
+  }
+
+  /**
+   * Get the number of records of the table.
+   * @return a number of records.
+   */
+  public int getNumberOfRecords()
+  {
+    return _index.getNumberOfRecords();
+  }
+
+  /**
+   * Get the number of blocks read so far.
+   * @return a number of reads.
+   */
+  public long getNumberOfBlockReads()
+  {
+    return _nbBlockReads;
+  }
+
+  /**
+   * Read a record.
+   * @param id Record identifier, starting at 1.
+   * @return A table that contains this record only.
+   * @throws IOException if an I/O error occurs, or the record is invalid.
+   * @throws IllegalArgumentException if there is no such record.
+   */
+  public VpfTable read(int id) throws IOException
+  {
+    return read(new int[] {id},0,1);
+  }
+
+  /**
+   * Read records.
+   * @param ids Record identifiers (starting at 1), in ascending order.
+   * @param offset Index of the first identifier to use.
+   * @param length Number of identifiers to use.
+   * @return A table that contains these records, in the same order.
+   * @throws IOException if an I/O error occurs, or a record is invalid.
+   * @throws IllegalArgumentException if an identifier is invalid, or if
+   * identifiers are not sorted.
+   */
+  public VpfTable read(int[] ids, int offset, int length) throws IOException
+  {
+    if ((offset<0)||(length<0)||(offset+length>ids.length))
+    {
+      throw new IllegalArgumentException("Bad range: offset="+offset+", length="+length);
+    }
+    for(int i=offset+1;i<offset+length;i++)
+    {
+      if (ids[i]<ids[i-1])
+      {
+        throw new IllegalArgumentException("Identifiers are not sorted: "+ids[i-1]+" > "+ids[i]);
+      }
+    }
+    VpfRecordDecoder decoder=new VpfRecordDecoder(_schema);
+    Block block=new Block();
+    int end=offset+length;
+    int i=offset;
+    while (i<end)
+    {
+      int blockEnd=block.build(ids,i,end);
+      ByteBuffer buffer=readBlock(block._start,block._size);
+      VpfInput input=new VpfInput(buffer);
+      input.setOrder(_schema.getByteOrder());
+      for(int j=i;j<blockEnd;j++)
+      {
+        int id=ids[j];
+        int position=(int)(_index.getOffset(id)-block._start);
+        int recordEnd=position+_index.getSize(id);
+        buffer.limit(recordEnd);
+        buffer.position(position);
+        decoder.decode(input);
+        if (buffer.position()!=recordEnd)
+        {
+          throw new IOException("Bad size for record "+id);
+        }
+      }
+      i=blockEnd;
+    }
+    return decoder.buildTable();
+  }
+
+  private ByteBuffer readBlock(long start, int size) throws IOException
+  {
+    if (_buffer.capacity()<size)
+    {
+      _buffer=ByteBuffer.allocate(size);
+    }
+    ByteBuffer buffer=_buffer;
+    buffer.clear();
+    buffer.limit(size);
+    while (buffer.hasRemaining())
+    {
+      if (_channel.read(buffer,start+buffer.position())<0)
+      {
+        throw new EOFException("Record beyond the end of table");
+      }
+    }
+    buffer.flip();
+    _nbBlockReads++;
+    return buffer;
+  }
+
+  /**
+   * Close the table file.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void close() throws IOException
+  {
+    if (_file!=null)
+    {
+      _file.close();
+      _file=null;
+      _channel=null;
+    }
+  }
+
+  /**
+   * Block of records read at once.
+   */
+  private class Block
+  {
+    private long _start;
+    private int _size;
+
+    /**
+     * Gather records in a block.
+     * @param ids Record identifiers.
+     * @param from Index of the first record of the block.
+     * @param to Index of the last record to consider, plus 1.
+     * @return the index of the last record of the block, plus 1.
+     * @throws IOException if a record is invalid.
+     */
+    private int build(int[] ids, int from, int to) throws IOException
+    {
+      long start=_index.getOffset(ids[from]);
+      long end=start+getSize(ids[from]);
+      int i=from+1;
+      while (i<to)
+      {
+        long recordStart=_index.getOffset(ids[i]);
+        long recordEnd=recordStart+getSize(ids[i]);
+        if ((recordStart<start)||(recordStart-end>MAX_GAP))
+        {
+          break;
+        }
+        long newEnd=Math.max(end,recordEnd);
+        if (newEnd-start>MAX_BLOCK_SIZE)
+        {
+          break;
+        }
+        end=newEnd;
+        i++;
+      }
+      _start=start;
+      _size=(int)(end-start);
+      return i;
+    }
+
+    private int getSize(int id) throws IOException
+    {
+      int size=_index.getSize(id);
+      if ((size<0)||(size>Integer.MAX_VALUE-8))
+      {
+        throw new IOException("Bad size for record "+id+": "+size);
+      }
+      return size;
+    }
+  }
+}
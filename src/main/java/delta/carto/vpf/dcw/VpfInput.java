@@ -0,0 +1,314 @@
+package delta.carto.vpf.dcw;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Buffered input for VPF tables.
+ * Numbers are decoded with the byte order of the table, one at a time or
+ * in bulk, through views of the buffer (see {@link ByteBuffer#asIntBuffer()}).
+ * @author DAM
+ */
+final class VpfInput
+{
+  static final int BUFFER_SIZE=1<<16;
+  // Under this number of values, a view buffer costs more than it saves
+  private static final int BULK_THRESHOLD=8;
+
+  private final ReadableByteChannel _channel;
+  private final ByteBuffer _buffer;
+  private boolean _eof;
+
+  /**
+   * Constructor.
+   * @param channel Channel to read from.
+   */
+  VpfInput(ReadableByteChannel channel)
+  {
+    _channel=channel;
+    _buffer=ByteBuffer.allocate(BUFFER_SIZE);
+    _buffer.limit(0);
+    _eof=false;
+  }
+
+  /**
+   * Constructor for data already in memory.
+   * @param buffer Buffer to read from, between its position and its limit.
+   * It is used directly, and its byte order is set by {@link #setOrder(ByteOrder)}.
+   */
+  VpfInput(ByteBuffer buffer)
+  {
+    _channel=null;
+    _buffer=buffer;
+    _eof=true;
+  }
+
+  /**
+   * Set the byte order of numbers.
+   * @param order Byte order to use.
+   */
+  void setOrder(ByteOrder order)
+  {
+    _buffer.order(order);
+  }
+
+  /**
+   * Indicates if there are bytes left to read.
+   * @return <code>true</code> if there are, <code>false</code> at the end of data.
+   * @throws IOException if an I/O error occurs.
+   */
+  boolean hasRemaining() throws IOException
+  {
+    if (!_buffer.hasRemaining())
+    {
+      fill(1);
+    }
+    return _buffer.hasRemaining();
+  }
+
+  /**
+   * Ensure that some bytes are buffered.
+   * @param size Number of bytes, at most the buffer size.
+   * @throws IOException if an I/O error occurs, or the end of data is reached.
+   */
+  void ensure(int size) throws IOException
+  {
+    if (_buffer.remaining()<size)
+    {
+      fill(size);
+      if (_buffer.remaining()<size)
+      {
+        throw new EOFException();
+      }
+    }
+  }
+
+  private void fill(int size) throws IOException
+  {
+    if (_channel==null)
+    {
+      return;
+    }
+    _buffer.compact();
+    while ((_buffer.position()<size)&&(_buffer.hasRemaining())&&(!_eof))
+    {
+      if (_channel.read(_buffer)<0)
+      {
+        _eof=true;
+      }
+    }
+    _buffer.flip();
+  }
+
+  /**
+   * Get the value of a buffered byte, without consuming it.
+   * @param index Index of the byte, relative to the current position.
+   * @return A byte.
+   * @throws IOException if an I/O error occurs, or the end of data is reached.
+   */
+  byte peekByte(int index) throws IOException
+  {
+    ensure(index+1);
+    return _buffer.get(_buffer.position()+index);
+  }
+
+  byte readByte() throws IOException
+  {
+    ensure(1);
+    return _buffer.get();
+  }
+
+  short readShort() throws IOException
+  {
+    ensure(2);
+    return _buffer.getShort();
+  }
+
+  int readInt() throws IOException
+  {
+    ensure(4);
+    return _buffer.getInt();
+  }
+
+  float readFloat() throws IOException
+  {
+    ensure(4);
+    return _buffer.getFloat();
+  }
+
+  double readDouble() throws IOException
+  {
+    ensure(8);
+    return _buffer.getDouble();
+  }
+
+  /**
+   * Read short integers.
+   * @param storage Storage for read values.
+   * @param offset Index of the first value in storage.
+   * @param length Number of values to read.
+   * @throws IOException if an I/O error occurs, or the end of data is reached.
+   */
+  void readShorts(int[] storage, int offset, int length) throws IOException
+  {
+    ByteBuffer buffer=_buffer;
+    while (length>0)
+    {
+      ensure(2);
+      int count=Math.min(length,buffer.remaining()>>1);
+      int position=buffer.position();
+      for(int i=0;i<count;i++)
+      {
+        storage[offset+i]=buffer.getShort(position+(i<<1));
+      }
+      buffer.position(position+(count<<1));
+      offset+=count;
+      length-=count;
+    }
+  }
+
+  /**
+   * Read integers.
+   * @param storage Storage for read values.
+   * @param offset Index of the first value in storage.
+   * @param length Number of values to read.
+   * @throws IOException if an I/O error occurs, or the end of data is reached.
+   */
+  void readInts(int[] storage, int offset, int length) throws IOException
+  {
+    if (length<BULK_THRESHOLD)
+    {
+      for(int i=0;i<length;i++)
+      {
+        storage[offset+i]=readInt();
+      }
+      return;
+    }
+    while (length>0)
+    {
+      ensure(4);
+      int count=Math.min(length,_buffer.remaining()>>2);
+      _buffer.asIntBuffer().get(storage,offset,count);
+      _buffer.position(_buffer.position()+(count<<2));
+      offset+=count;
+      length-=count;
+    }
+  }
+
+  /**
+   * Read floats.
+   * @param storage Storage for read values.
+   * @param offset Index of the first value in storage.
+   * @param length Number of values to read.
+   * @throws IOException if an I/O error occurs, or the end of data is reached.
+   */
+  void readFloats(float[] storage, int offset, int length) throws IOException
+  {
+    if (length<BULK_THRESHOLD)
+    {
+      for(int i=0;i<length;i++)
+      {
+        storage[offset+i]=readFloat();
+      }
+      return;
+    }
+    while (length>0)
+    {
+      ensure(4);
+      int count=Math.min(length,_buffer.remaining()>>2);
+      _buffer.asFloatBuffer().get(storage,offset,count);
+      _buffer.position(_buffer.position()+(count<<2));
+      offset+=count;
+      length-=count;
+    }
+  }
+
+  /**
+   * Read doubles.
+   * @param storage Storage for read values.
+   * @param offset Index of the first value in storage.
+   * @param length Number of values to read.
+   * @throws IOException if an I/O error occurs, or the end of data is reached.
+   */
+  void readDoubles(double[] storage, int offset, int length) throws IOException
+  {
+    if (length<BULK_THRESHOLD)
+    {
+      for(int i=0;i<length;i++)
+      {
+        storage[offset+i]=readDouble();
+      }
+      return;
+    }
+    while (length>0)
+    {
+      ensure(8);
+      int count=Math.min(length,_buffer.remaining()>>3);
+      _buffer.asDoubleBuffer().get(storage,offset,count);
+      _buffer.position(_buffer.position()+(count<<3));
+      offset+=count;
+      length-=count;
+    }
+  }
+
+  /**
+   * Buffer as many whole fixed length records as possible.
+   * @param recordSize Size of records, at most the buffer size.
+   * @return the number of buffered records, starting at the buffer position, or 0 at the end of data.
+   * @throws IOException if an I/O error occurs, or the data ends with a truncated record.
+   */
+  int bufferRecords(int recordSize) throws IOException
+  {
+    if (_buffer.remaining()<recordSize)
+    {
+      fill(_buffer.capacity());
+    }
+    int remaining=_buffer.remaining();
+    if ((remaining>0)&&(remaining<recordSize))
+    {
+      throw new EOFException("Truncated record");
+    }
+    return remaining/recordSize;
+  }
+
+  /**
+   * Get the buffer.
+   * Buffered bytes are between its position and its limit.
+   * @return the buffer.
+   */
+  ByteBuffer getBuffer()
+  {
+    return _buffer;
+  }
+
+  /**
+   * Skip buffered bytes.
+   * @param count Number of bytes to skip, at most the number of buffered bytes.
+   */
+  void skip(int count)
+  {
+    _buffer.position(_buffer.position()+count);
+  }
+
+  /**
+   * Read bytes.
+   * @param storage Storage for read bytes.
+   * @param offset Index of the first byte in storage.
+   * @param length Number of bytes to read.
+   * @throws IOException if an I/O error occurs, or the end of data is reached.
+   */
+  void readBytes(byte[] storage, int offset, int length) throws IOException
+  {
+    while (length>0)
+    {
+      ensure(1);
+      int count=Math.min(length,_buffer.remaining());
+      _buffer.get(storage,offset,count);
+      offset+=count;
+      length-=count;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package delta.carto.vpf.dcw;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Column of integers (short or integer fields).
+ * @author DAM
+ */
+public class VpfIntColumn extends VpfFixedSizeColumn
+{
+  private final boolean _short;
+  private int[] _values;
+
+  /**
+   * Constructor.
+   * @param definition Column definition.
+   */
+  public VpfIntColumn(VpfColumnDefinition definition)
+  {
+    super(definition);
+    _short=(definition.getType()==VpfFieldType.SHORT);
+    _values=new int[0];
+  }
+
+  /**
+   * Get the first value of a record.
+   * @param record Index of the record, starting at 0.
+   * @return a value.
+   */
+  public int getInt(int record)
+  {
+    return _values[getStart(record)];
+  }
+
+  /**
+   * Get a value of a record.
+   * @param record Index of the record, starting at 0.
+   * @param index Index of the value in the record.
+   * @return a value.
+   */
+  public int getInt(int record, int index)
+  {
+    return _values[getStart(record)+index];
+  }
+
+  /**
+   * Get the storage array for values.
+   * Only the first {@link #getNumberOfElements()} elements are meaningful.
+   * @return the storage array.
+   */
+  public int[] getValuesStorage()
+  {
+    return _values;
+  }
+
+  @Override
+  protected void ensureCapacity(int capacity)
+  {
+    if (capacity>_values.length)
+    {
+      _values=Arrays.copyOf(_values,grow(_values.length,capacity));
+    }
+  }
+
+  @Override
+  protected void readElements(VpfInput input, int index, int nbElements) throws IOException
+  {
+    if (_short)
+    {
+      input.readShorts(_values,index,nbElements);
+    }
+    else
+    {
+      input.readInts(_values,index,nbElements);
+    }
+  }
+
+  @Override
+  protected void readElements(ByteBuffer block, int position, int recordSize, int nbRecords, int elementsPerRecord)
+  {
+    int[] values=_values;
+    int index=_size;
+    for(int i=0;i<nbRecords;i++)
+    {
+      int recordPosition=position+i*recordSize;
+      if (_short)
+      {
+        for(int j=0;j<elementsPerRecord;j++)
+        {
+          values[index++]=block.getShort(recordPosition+2*j);
+        }
+      }
+      else
+      {
+        for(int j=0;j<elementsPerRecord;j++)
+        {
+          values[index++]=block.getInt(recordPosition+4*j);
+        }
+      }
+    }
+  }
+
+  @Override
+  void trim()
+  {
+    super.trim();
+    _values=Arrays.copyOf(_values,_size);
+  }
+}
@@ -0,0 +1,55 @@
+package delta.carto.vpf.dcw;
+
+/**
+ * Key types of VPF table columns.
+ * @author DAM
+ */
+public enum VpfKeyType
+{
+  /**
+   * Primary key.
+   */
+  PRIMARY('P'),
+  /**
+   * Unique key.
+   */
+  UNIQUE('U'),
+  /**
+   * Non-unique key.
+   */
+  NON_UNIQUE('N');
+
+  private final char _code;
+
+  private VpfKeyType(char code)
+  {
+    _code=code;
+  }
+
+  /**
+   * Get the code of this key type in table headers.
+   * @return a key type code.
+   */
+  public char getCode()
+  {
+    return _code;
+  }
+
+  /**
+   * Get a key type from its code.
+   * @param code Code to use.
+   * @return A key type.
+   * @throws IllegalArgumentException if the code is not supported.
+   */
+  public static VpfKeyType fromCode(char code)
+  {
+    for(VpfKeyType type : values())
+    {
+      if (type._code==code)
+      {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported key type: "+code);
+  }
+}
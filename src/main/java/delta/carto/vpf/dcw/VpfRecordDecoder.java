@@ -0,0 +1,143 @@
+package delta.carto.vpf.dcw;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decoder for the records of a VPF table.
+ * It is built once from the table schema, then decodes each record straight
+ * into the column buffers. Records of fixed length tables (such as END or
+ * EBR tables) are decoded by blocks: each column is extracted from all the
+ * buffered records at once.
+ * @author DAM
+ */
+public class VpfRecordDecoder
+{
+  private final VpfTableSchema _schema;
+  private final VpfColumn[] _columns;
+  // Columns and their position in records (fixed length tables only)
+  private final VpfFixedSizeColumn[] _fixedSizeColumns;
+  private final int[] _positions;
+  private int _nbRecords;
+
+  /**
+   * Constructor.
+   * @param schema Table schema.
+   */
+  public VpfRecordDecoder(VpfTableSchema schema)
+  {
+    _schema=schema;
+    int nbColumns=schema.getNumberOfColumns();
+    _columns=new VpfColumn[nbColumns];
+    for(int i=0;i<nbColumns;i++)
+    {
+      _columns[i]=VpfColumn.build(schema.getColumn(i));
+    }
+    if (schema.isFixedLength())
+    {
+      // Fixed length records only have fixed size columns
+      _fixedSizeColumns=new VpfFixedSizeColumn[nbColumns];
+      _positions=new int[nbColumns];
+      int position=0;
+      for(int i=0;i<nbColumns;i++)
+      {
+        _fixedSizeColumns[i]=(VpfFixedSizeColumn)_columns[i];
+        _positions[i]=position;
+        position+=schema.getColumn(i).getSize();
+      }
+    }
+    else
+    {
+      _fixedSizeColumns=null;
+      _positions=null;
+    }
+    _nbRecords=0;
+  }
+
+  /**
+   * Decode a record.
+   * @param input Input to read from.
+   * @throws IOException if an I/O error occurs.
+   */
+  void decode(VpfInput input) throws IOException
+  {
+    int recordSize=_schema.getRecordSize();
+    if ((recordSize>0)&&(recordSize<=VpfInput.BUFFER_SIZE))
+    {
+      // Fail early on truncated records, and buffer the whole record at once
+      input.ensure(recordSize);
+    }
+    for(VpfColumn column : _columns)
+    {
+      column.readRecord(input);
+    }
+    _nbRecords++;
+  }
+
+  /**
+   * Decode all the remaining records.
+   * @param input Input to read from.
+   * @throws IOException if an I/O error occurs.
+   */
+  void decodeAll(VpfInput input) throws IOException
+  {
+    int recordSize=_schema.getRecordSize();
+    if (recordSize==0)
+    {
+      // Null fields only: no data
+      return;
+    }
+    if ((recordSize>0)&&(recordSize<=VpfInput.BUFFER_SIZE))
+    {
+      decodeFixedLengthRecords(input,recordSize);
+      return;
+    }
+    while (input.hasRemaining())
+    {
+      decode(input);
+    }
+  }
+
+  private void decodeFixedLengthRecords(VpfInput input, int recordSize) throws IOException
+  {
+    while (true)
+    {
+      int nbRecords=input.bufferRecords(recordSize);
+      if (nbRecords==0)
+      {
+        break;
+      }
+      ByteBuffer block=input.getBuffer();
+      int position=block.position();
+      for(int i=0;i<_fixedSizeColumns.length;i++)
+      {
+        _fixedSizeColumns[i].readRecords(block,position+_positions[i],recordSize,nbRecords);
+      }
+      input.skip(nbRecords*recordSize);
+      _nbRecords+=nbRecords;
+    }
+  }
+
+  /**
+   * Get the number of decoded records.
+   * @return a number of records.
+   */
+  public int getNumberOfRecords()
+  {
+    return _nbRecords;
+  }
+
+  /**
+   * Build a table with the decoded records.
+   * This decoder must not be used anymore.
+   * @return A new table.
+   */
+  public VpfTable buildTable()
+  {
+    for(VpfColumn column : _columns)
+    {
+      column.trim();
+    }
+    return new VpfTable(_schema,_columns.clone(),_nbRecords);
+  }
+}
@@ -0,0 +1,134 @@
+package delta.carto.vpf.dcw;
+
+/**
+ * Contents of a VPF table, stored by column.
+ * @author DAM
+ */
+public class VpfTable
+{
+  private final VpfTableSchema _schema;
+  private final VpfColumn[] _columns;
+  private final int _nbRecords;
+
+  /**
+   * Constructor.
+   * @param schema Table schema.
+   * @param columns Columns, in schema order.
+   * @param nbRecords Number of records.
+   */
+  VpfTable(VpfTableSchema schema, VpfColumn[] columns, int nbRecords)
+  {
+    _schema=schema;
+    _columns=columns;
+    _nbRecords=nbRecords;
+  }
+
+  /**
+   * Get the table schema.
+   * @return a schema.
+   */
+  public VpfTableSchema getSchema()
+  {
+    return _schema;
+  }
+
+  /**
+   * Get the number of records.
+   * @return a number of records.
+   */
+  public int getNumberOfRecords()
+  {
+    return _nbRecords;
+  }
+
+  /**
+   * Get a column.
+   * @param index Index of the column, starting at 0.
+   * @return A column.
+   */
+  public VpfColumn getColumn(int index)
+  {
+    return _columns[index];
+  }
+
+  /**
+   * Get a column.
+   * @param name Column name (case insensitive).
+   * @return A column.
+   * @throws IllegalArgumentException if there is no such column.
+   */
+  public VpfColumn getColumn(String name)
+  {
+    int index=_schema.getColumnIndex(name);
+    if (index<0)
+    {
+      throw new IllegalArgumentException("No column "+name);
+    }
+    return _columns[index];
+  }
+
+  /**
+   * Get a column of integers.
+   * @param name Column name (case insensitive).
+   * @return A column.
+   * @throws IllegalArgumentException if there is no such column.
+   */
+  public VpfIntColumn getIntColumn(String name)
+  {
+    return getColumn(name,VpfIntColumn.class);
+  }
+
+  /**
+   * Get a column of floats.
+   * @param name Column name (case insensitive).
+   * @return A column.
+   * @throws IllegalArgumentException if there is no such column.
+   */
+  public VpfFloatColumn getFloatColumn(String name)
+  {
+    return getColumn(name,VpfFloatColumn.class);
+  }
+
+  /**
+   * Get a column of doubles.
+   * @param name Column name (case insensitive).
+   * @return A column.
+   * @throws IllegalArgumentException if there is no such column.
+   */
+  public VpfDoubleColumn getDoubleColumn(String name)
+  {
+    return getColumn(name,VpfDoubleColumn.class);
+  }
+
+  /**
+   * Get a column of texts.
+   * @param name Column name (case insensitive).
+   * @return A column.
+   * @throws IllegalArgumentException if there is no such column.
+   */
+  public VpfTextColumn getTextColumn(String name)
+  {
+    return getColumn(name,VpfTextColumn.class);
+  }
+
+  /**
+   * Get a column of triplet identifiers.
+   * @param name Column name (case insensitive).
+   * @return A column.
+   * @throws IllegalArgumentException if there is no such column.
+   */
+  public VpfTripletColumn getTripletColumn(String name)
+  {
+    return getColumn(name,VpfTripletColumn.class);
+  }
+
+  private <T extends VpfColumn> T getColumn(String name, Class<T> type)
+  {
+    VpfColumn column=getColumn(name);
+    if (!type.isInstance(column))
+    {
+      throw new IllegalArgumentException("Column "+name+" has type "+column.getDefinition().getType());
+    }
+    return type.cast(column);
+  }
+}
@@ -0,0 +1,110 @@
+package delta.carto.vpf.dcw;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+
+/**
+ * Reader for VPF tables.
+ * <p>
+ * The header is parsed into a {@link VpfTableSchema}, then records are
+ * decoded by a {@link VpfRecordDecoder} straight into primitive column
+ * buffers. Numbers are read with the byte order declared in the header
+ * (least significant byte first when it is not declared).
+ * @author DAM
+ */
+public class VpfTableReader
+{
+  // Sanity limit for header lengths
+  private static final int MAX_HEADER_LENGTH=1<<24;
+
+  /**
+   * Constructor.
+   */
+  public VpfTableReader()
+  {
+    // Nothing to do !
+  }
+
+  /**
+   * Read a table file.
+   * @param file File to read.
+   * @return The read table.
+   * @throws IOException if an I/O error occurs, or the table is invalid.
+   */
+  public VpfTable read(File file) throws IOException
+  {
+    FileInputStream fis=new FileInputStream(file);
+    try
+    {
+      return read(fis);
+    }
+    finally
+    {
+      fis.close();
+    }
+  }
+
+  /**
+   * Read a table, up to the end of a stream.
+   * The stream is not closed.
+   * @param in Stream to read from.
+   * @return The read table.
+   * @throws IOException if an I/O error occurs, or the table is invalid.
+   */
+  public VpfTable read(InputStream in) throws IOException
+  {
+    VpfInput input=new VpfInput(Channels.newChannel(in));
+    VpfTableSchema schema=readSchema(input);
+    VpfRecordDecoder decoder=new VpfRecordDecoder(schema);
+    decoder.decodeAll(input);
+    return decoder.buildTable();
+  }
+
+  /**
+   * Read the header of a table.
+   * @param input Input to read from. It is positioned on the first record on return.
+   * @return The table schema.
+   * @throws IOException if an I/O error occurs, or the header is invalid.
+   */
+  static VpfTableSchema readSchema(VpfInput input) throws IOException
+  {
+    ByteOrder order=getByteOrder(input.peekByte(4));
+    input.setOrder(order);
+    int headerLength=input.readInt();
+    checkHeaderLength(headerLength);
+    byte[] header=new byte[headerLength];
+    input.readBytes(header,0,headerLength);
+    return parse(header,order);
+  }
+
+  private static ByteOrder getByteOrder(byte flag)
+  {
+    ByteOrder order=VpfHeaderParser.getByteOrder(flag);
+    return (order!=null)?order:ByteOrder.LITTLE_ENDIAN;
+  }
+
+  private static void checkHeaderLength(int headerLength) throws IOException
+  {
+    if ((headerLength<1)||(headerLength>MAX_HEADER_LENGTH))
+    {
+      throw new IOException("Bad header length: "+headerLength);
+    }
+  }
+
+  private static VpfTableSchema parse(byte[] header, ByteOrder order) throws IOException
+  {
+    try
+    {
+      return VpfHeaderParser.parse(ByteBuffer.wrap(header),order,new VpfHeaderTokenizer());
+    }
+    catch(IllegalArgumentException iae)
+    {
+      throw new IOException("Bad header: "+iae.getMessage(),iae);
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package delta.carto.vpf.dcw;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Schema of a VPF table, as declared in the table header.
+ * @author DAM
+ */
+public class VpfTableSchema
+{
+  private final String _description;
+  private final String _narrativeTable;
+  private final ByteOrder _byteOrder;
+  private final int _headerLength;
+  private final List<VpfColumnDefinition> _columns;
+  private final Map<String,Integer> _indexes;
+  private final int _recordSize;
+
+  /**
+   * Constructor.
+   * @param description Table description.
+   * @param narrativeTable Name of the narrative table, or <code>null</code>.
+   * @param byteOrder Byte order of the table.
+   * @param headerLength Length of the header, not including the leading length field (bytes).
+   * @param columns Column definitions.
+   */
+  public VpfTableSchema(String description, String narrativeTable, ByteOrder byteOrder, int headerLength,
+      List<VpfColumnDefinition> columns)
+  {
+    _description=description;
+    _narrativeTable=narrativeTable;
+    _byteOrder=byteOrder;
+    _headerLength=headerLength;
+    _columns=Collections.unmodifiableList(new ArrayList<VpfColumnDefinition>(columns));
+    _indexes=new HashMap<String,Integer>();
+    int recordSize=0;
+    for(int i=0;i<_columns.size();i++)
+    {
+      VpfColumnDefinition column=_columns.get(i);
+      _indexes.put(column.getName().toLowerCase(Locale.ROOT),Integer.valueOf(i));
+      int size=column.getSize();
+      recordSize=((recordSize<0)||(size<0))?-1:recordSize+size;
+    }
+    _recordSize=recordSize;
+  }
+
+  /**
+   * Get the table description.
+   * @return a description.
+   */
+  public String getDescription()
+  {
+    return _description;
+  }
+
+  /**
+   * Get the name of the narrative table.
+   * @return a table name, or <code>null</code>.
+   */
+  public String getNarrativeTable()
+  {
+    return _narrativeTable;
+  }
+
+  /**
+   * Get the byte order of numbers in this table.
+   * @return a byte order.
+   */
+  public ByteOrder getByteOrder()
+  {
+    return _byteOrder;
+  }
+
+  /**
+   * Get the length of the header.
+   * Records start right after it.
+   * @return a length in bytes, not including the leading 4 bytes length field.
+   */
+  public int getHeaderLength()
+  {
+    return _headerLength;
+  }
+
+  /**
+   * Get the number of columns.
+   * @return a number of columns.
+   */
+  public int getNumberOfColumns()
+  {
+    return _columns.size();
+  }
+
+  /**
+   * Get a column definition.
+   * @param index Index of the column, starting at 0.
+   * @return A column definition.
+   */
+  public VpfColumnDefinition getColumn(int index)
+  {
+    return _columns.get(index);
+  }
+
+  /**
+   * Get the column definitions.
+   * @return an unmodifiable list of column definitions.
+   */
+  public List<VpfColumnDefinition> getColumns()
+  {
+    return _columns;
+  }
+
+  /**
+   * Get the index of a column.
+   * @param name Column name (case insensitive).
+   * @return An index, or <code>-1</code> if there is no such column.
+   */
+  public int getColumnIndex(String name)
+  {
+    Integer index=_indexes.get(name.toLowerCase(Locale.ROOT));
+    return (index!=null)?index.intValue():-1;
+  }
+
+  /**
+   * Get the size of records.
+   * @return a size in bytes, or <code>-1</code> if records have a variable size.
+   */
+  public int getRecordSize()
+  {
+    return _recordSize;
+  }
+
+  /**
+   * Indicates if all records have the same size.
+   * @return <code>true</code> if they do, <code>false</code> otherwise.
+   */
+  public boolean isFixedLength()
+  {
+    return _recordSize>=0;
+  }
+
+  @Override
+  public String toString()
+  {
+    return _description+" "+_columns;
+  }
+}
@@ -0,0 +1,101 @@
+package delta.carto.vpf.dcw;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Column of texts (text, date or null fields).
+ * Characters are stored as bytes: strings are built only when requested.
+ * @author DAM
+ */
+public class VpfTextColumn extends VpfFixedSizeColumn
+{
+  private byte[] _values;
+
+  /**
+   * Constructor.
+   * @param definition Column definition.
+   */
+  public VpfTextColumn(VpfColumnDefinition definition)
+  {
+    super(definition);
+    _values=new byte[0];
+  }
+
+  /**
+   * Get the text of a record.
+   * @param record Index of the record, starting at 0.
+   * @return A string, without leading and trailing blanks.
+   */
+  public String getString(int record)
+  {
+    int start=getStart(record);
+    int end=getStart(record+1);
+    while ((start<end)&&((_values[start]&0xFF)<=' '))
+    {
+      start++;
+    }
+    while ((end>start)&&((_values[end-1]&0xFF)<=' '))
+    {
+      end--;
+    }
+    return new String(_values,start,end-start,StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Get the storage array for characters.
+   * Only the first {@link #getNumberOfElements()} elements are meaningful.
+   * @return the storage array.
+   */
+  public byte[] getValuesStorage()
+  {
+    return _values;
+  }
+
+  @Override
+  protected void ensureCapacity(int capacity)
+  {
+    if (capacity>_values.length)
+    {
+      _values=Arrays.copyOf(_values,grow(_values.length,capacity));
+    }
+  }
+
+  @Override
+  protected void readElements(VpfInput input, int index, int nbElements) throws IOException
+  {
+    input.readBytes(_values,index,nbElements);
+  }
+
+  @Override
+  protected void readElements(ByteBuffer block, int position, int recordSize, int nbRecords, int elementsPerRecord)
+  {
+    byte[] values=_values;
+    int index=_size;
+    for(int i=0;i<nbRecords;i++)
+    {
+      int recordPosition=position+i*recordSize;
+      if (block.hasArray())
+      {
+        System.arraycopy(block.array(),block.arrayOffset()+recordPosition,values,index,elementsPerRecord);
+      }
+      else
+      {
+        for(int j=0;j<elementsPerRecord;j++)
+        {
+          values[index+j]=block.get(recordPosition+j);
+        }
+      }
+      index+=elementsPerRecord;
+    }
+  }
+
+  @Override
+  void trim()
+  {
+    super.trim();
+    _values=Arrays.copyOf(_values,_size);
+  }
+}
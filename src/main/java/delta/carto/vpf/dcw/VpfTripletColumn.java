@@ -0,0 +1,106 @@
+package delta.carto.vpf.dcw;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Column of triplet identifiers.
+ * Each value is made of a row identifier, a tile identifier and an external
+ * identifier. Missing identifiers are 0 (VPF identifiers start at 1).
+ * @author DAM
+ */
+public class VpfTripletColumn extends VpfColumn
+{
+  private int[] _values;
+
+  /**
+   * Constructor.
+   * @param definition Column definition.
+   */
+  public VpfTripletColumn(VpfColumnDefinition definition)
+  {
+    super(definition);
+    _values=new int[0];
+  }
+
+  /**
+   * Get the row identifier of the first value of a record.
+   * @param record Index of the record, starting at 0.
+   * @return an identifier, or 0 if it is missing.
+   */
+  public int getId(int record)
+  {
+    return _values[getStart(record)];
+  }
+
+  /**
+   * Get the tile identifier of the first value of a record.
+   * @param record Index of the record, starting at 0.
+   * @return an identifier, or 0 if it is missing.
+   */
+  public int getTileId(int record)
+  {
+    return _values[getStart(record)+1];
+  }
+
+  /**
+   * Get the external identifier of the first value of a record.
+   * @param record Index of the record, starting at 0.
+   * @return an identifier, or 0 if it is missing.
+   */
+  public int getExternalId(int record)
+  {
+    return _values[getStart(record)+2];
+  }
+
+  /**
+   * Get the storage array for identifiers.
+   * Only the first {@link #getNumberOfElements()} elements are meaningful.
+   * @return the storage array.
+   */
+  public int[] getValuesStorage()
+  {
+    return _values;
+  }
+
+  @Override
+  protected void ensureCapacity(int capacity)
+  {
+    if (capacity>_values.length)
+    {
+      _values=Arrays.copyOf(_values,grow(_values.length,capacity));
+    }
+  }
+
+  @Override
+  protected void readElements(VpfInput input, int index, int nbElements) throws IOException
+  {
+    int[] values=_values;
+    for(int i=0;i<nbElements;i+=3)
+    {
+      // Type byte: 2 bits for the size of each identifier (row, tile, external)
+      int type=input.readByte()&0xFF;
+      values[index+i]=readId(input,(type>>6)&3);
+      values[index+i+1]=readId(input,(type>>4)&3);
+      values[index+i+2]=readId(input,(type>>2)&3);
+    }
+  }
+
+  private static int readId(VpfInput input, int sizeCode) throws IOException
+  {
+    switch (sizeCode)
+    {
+      case 1: return input.readByte()&0xFF;
+      case 2: return input.readShort()&0xFFFF;
+      case 3: return input.readInt();
+      default: return 0;
+    }
+  }
+
+  @Override
+  void trim()
+  {
+    super.trim();
+    _values=Arrays.copyOf(_values,_size);
+  }
+}
@@ -0,0 +1,122 @@
+package delta.carto.vpf.dcw;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Variable length index of a VPF table (<code>.x</code> files, for instance
+ * <code>edx</code> for an <code>edg</code> table).
+ * <p>
+ * The index starts with the number of records and the length of the table
+ * header, then gives the offset (from the start of the table file) and the
+ * size of each record, as 4 bytes integers in the byte order of the table.
+ * The file is memory-mapped: the location of any record is found in
+ * constant time, without reading the index. The mapping is released when
+ * this index is garbage collected.
+ * @author DAM
+ */
+public class VpfVariableLengthIndex
+{
+  private static final int ENTRY_SIZE=8;
+
+  private final ByteBuffer _entries;
+  private final int _nbRecords;
+  private final int _tableHeaderLength;
+
+  /**
+   * Constructor.
+   * @param entries Index contents.
+   * @throws IOException if the index is invalid.
+   */
+  VpfVariableLengthIndex(ByteBuffer entries) throws IOException
+  {
+    if (entries.capacity()<ENTRY_SIZE)
+    {
+      throw new IOException("Truncated index");
+    }
+    _entries=entries;
+    _nbRecords=entries.getInt(0);
+    _tableHeaderLength=entries.getInt(4);
+    if ((_nbRecords<0)||(_nbRecords>(entries.capacity()-ENTRY_SIZE)/ENTRY_SIZE))
+    {
+      throw new IOException("Bad number of records: "+_nbRecords);
+    }
+  }
+
+  /**
+   * Open an index file.
+   * @param file Index file.
+   * @param order Byte order of the indexed table (see {@link VpfTableSchema#getByteOrder()}).
+   * @return An index.
+   * @throws IOException if the file cannot be read, or is not a valid index.
+   */
+  public static VpfVariableLengthIndex open(File file, ByteOrder order) throws IOException
+  {
+    RandomAccessFile raf=new RandomAccessFile(file,"r");
+    try
+    {
+      // The mapping remains valid once the file is closed
+      FileChannel channel=raf.getChannel();
+      ByteBuffer entries=channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size()).order(order);
+      return new VpfVariableLengthIndex(entries);
+    }
+    finally
+    {
+      raf.close();
+    }
+  }
+
+  /**
+   * Get the number of indexed records.
+   * @return a number of records.
+   */
+  public int getNumberOfRecords()
+  {
+    return _nbRecords;
+  }
+
+  /**
+   * Get the length of the table header, as declared in the index.
+   * @return a length in bytes.
+   */
+  public int getTableHeaderLength()
+  {
+    return _tableHeaderLength;
+  }
+
+  /**
+   * Get the offset of a record.
+   * @param id Record identifier, starting at 1.
+   * @return an offset from the start of the table file (bytes).
+   * @throws IllegalArgumentException if there is no such record.
+   */
+  public long getOffset(int id)
+  {
+    checkId(id);
+    return _entries.getInt(id*ENTRY_SIZE)&0xFFFFFFFFL;
+  }
+
+  /**
+   * Get the size of a record.
+   * @param id Record identifier, starting at 1.
+   * @return a size in bytes.
+   * @throws IllegalArgumentException if there is no such record.
+   */
+  public int getSize(int id)
+  {
+    checkId(id);
+    return _entries.getInt(id*ENTRY_SIZE+4);
+  }
+
+  private void checkId(int id)
+  {
+    if ((id<1)||(id>_nbRecords))
+    {
+      throw new IllegalArgumentException("Bad record identifier: "+id);
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package delta.carto.geodesy;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for datum transformations.
+ * @author DAM
+ */
+public class TestDatumTransformation extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestDatumTransformation()
+  {
+    super("Datum transformations test");
+  }
+
+  /**
+   * Compare Molodensky and Helmert methods, and check round trips.
+   */
+  public void testNAD27ToWGS84()
+  {
+    GeodeticDatumRegister register=GeodeticDatumRegister.getInstance();
+    GeodeticDatum nad27=register.getGeodeticDatumByName("NAD27");
+    GeodeticDatum wgs84=register.getDefaultGeodeticDatum();
+    DatumTransformation molodensky=DatumTransformation.getTransformation(nad27,wgs84,DatumTransformation.Method.MOLODENSKY);
+    DatumTransformation helmert=DatumTransformation.getTransformation(nad27,wgs84,DatumTransformation.Method.HELMERT);
+    Assert.assertSame(molodensky,DatumTransformation.getTransformation(nad27,wgs84,DatumTransformation.Method.MOLODENSKY));
+    DatumTransformation back=DatumTransformation.getTransformation(wgs84,nad27,DatumTransformation.Method.HELMERT);
+
+    Random random=new Random(11);
+    int n=1000;
+    double[] lats=new double[n];
+    double[] longs=new double[n];
+    double[] heights=new double[n];
+    for(int i=0;i<n;i++)
+    {
+      lats[i]=25+random.nextDouble()*25;
+      longs[i]=-125+random.nextDouble()*55;
+      heights[i]=random.nextDouble()*3000;
+    }
+    double[] mLats=new double[n];
+    double[] mLongs=new double[n];
+    double[] mHeights=new double[n];
+    molodensky.transform(lats,longs,heights,0,n,mLats,mLongs,mHeights);
+    double[] hLats=new double[n];
+    double[] hLongs=new double[n];
+    double[] hHeights=new double[n];
+    helmert.transform(lats,longs,heights,0,n,hLats,hLongs,hHeights);
+    double[] rLats=new double[n];
+    double[] rLongs=new double[n];
+    double[] rHeights=new double[n];
+    back.transform(hLats,hLongs,hHeights,0,n,rLats,rLongs,rHeights);
+    for(int i=0;i<n;i++)
+    {
+      // Datum shift is up to about a hundred meters
+      double shift=Math.hypot((hLats[i]-lats[i])*111000,(hLongs[i]-longs[i])*111000*Math.cos(Math.toRadians(lats[i])));
+      Assert.assertTrue(shift>0.1);
+      Assert.assertTrue(shift<200);
+      // Molodensky is within about 1 meter of the exact transformation
+      Assert.assertEquals(hLats[i],mLats[i],2e-5);
+      Assert.assertEquals(hLongs[i],mLongs[i],2e-5);
+      Assert.assertEquals(hHeights[i],mHeights[i],2);
+      // Round trip
+      Assert.assertEquals(lats[i],rLats[i],1e-9);
+      Assert.assertEquals(longs[i],rLongs[i],1e-9);
+      Assert.assertEquals(heights[i],rHeights[i],1e-3);
+    }
+    // Single positions give the same results as batches
+    double[] result=new double[3];
+    for(int i=0;i<n;i++)
+    {
+      helmert.transform(lats[i],longs[i],heights[i],result);
+      Assert.assertEquals(hLats[i],result[0],0);
+      Assert.assertEquals(hLongs[i],result[1],0);
+      Assert.assertEquals(hHeights[i],result[2],0);
+      molodensky.transform(lats[i],longs[i],heights[i],result);
+      Assert.assertEquals(mLats[i],result[0],0);
+      Assert.assertEquals(mLongs[i],result[1],0);
+      Assert.assertEquals(mHeights[i],result[2],0);
+    }
+  }
+
+  /**
+   * Check a published reference: the NAD27 origin (Meades Ranch, Kansas),
+   * 39 13 26.686N 98 32 30.506W, is 39 13 26.71220N 98 32 31.74540W in
+   * NAD83 (NGS datasheet), which agrees with WGS84 within about a meter.
+   * Mean conterminous United States parameters are accurate to about 5
+   * meters.
+   */
+  public void testMeadesRanch()
+  {
+    GeodeticDatumRegister register=GeodeticDatumRegister.getInstance();
+    GeodeticDatum nad27=register.getGeodeticDatumByName("NAD27");
+    GeodeticDatum wgs84=register.getDefaultGeodeticDatum();
+    double lat=39+13/60.0+26.686/3600;
+    double lon=-(98+32/60.0+30.506/3600);
+    double expectedLat=39+13/60.0+26.71220/3600;
+    double expectedLon=-(98+32/60.0+31.74540/3600);
+    double[] result=new double[3];
+    for(DatumTransformation.Method method : DatumTransformation.Method.values())
+    {
+      DatumTransformation transformation=DatumTransformation.getTransformation(nad27,wgs84,method);
+      transformation.transform(lat,lon,0,result);
+      double dNorth=(result[0]-expectedLat)*111000;
+      double dEast=(result[1]-expectedLon)*111000*Math.cos(Math.toRadians(lat));
+      Assert.assertTrue(method+": "+dNorth+"/"+dEast,Math.hypot(dNorth,dEast)<5);
+    }
+  }
+
+  /**
+   * Compare parallel and sequential batches.
+   */
+  public void testParallelBatch()
+  {
+    GeodeticDatumRegister register=GeodeticDatumRegister.getInstance();
+    GeodeticDatum nad27=register.getGeodeticDatumByName("NAD27");
+    DatumTransformation transformation=DatumTransformation.getTransformation(nad27,register.getDefaultGeodeticDatum(),DatumTransformation.Method.MOLODENSKY);
+    int n=100000;
+    double[] lats=new double[n];
+    double[] longs=new double[n];
+    for(int i=0;i<n;i++)
+    {
+      lats[i]=30+(i%1000)*0.01;
+      longs[i]=-100+(i/1000)*0.01;
+    }
+    double[] sLats=new double[n];
+    double[] sLongs=new double[n];
+    transformation.transform(lats,longs,null,0,n,sLats,sLongs,null);
+    transformation.transform(lats,longs,null,0,n,lats,longs,null,ForkJoinPool.commonPool());
+    for(int i=0;i<n;i++)
+    {
+      Assert.assertEquals(sLats[i],lats[i],0);
+      Assert.assertEquals(sLongs[i],longs[i],0);
+    }
+  }
+
+  /**
+   * Test datums with unknown parameters.
+   */
+  public void testUnknownParameters()
+  {
+    GeodeticDatumRegister register=GeodeticDatumRegister.getInstance();
+    GeodeticDatum unknown=register.registerGeodeticDatum("UNKNOWN");
+    try
+    {
+      DatumTransformation.getTransformation(unknown,register.getDefaultGeodeticDatum(),DatumTransformation.Method.HELMERT);
+      Assert.fail();
+    }
+    catch(IllegalArgumentException iae)
+    {
+      // Expected
+    }
+  }
+}
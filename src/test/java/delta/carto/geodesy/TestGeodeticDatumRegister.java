@@ -0,0 +1,90 @@
+package delta.carto.geodesy;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for the geodetic datums register.
+ * @author DAM
+ */
+public class TestGeodeticDatumRegister extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestGeodeticDatumRegister()
+  {
+    super("Geodetic datums register test");
+  }
+
+  /**
+   * Test lookups and ordinals.
+   */
+  public void testOrdinals()
+  {
+    GeodeticDatumRegister register=GeodeticDatumRegister.getInstance();
+    GeodeticDatum wgs84=register.getDefaultGeodeticDatum();
+    Assert.assertSame(wgs84,register.getGeodeticDatumByName(GeodeticDatumRegister.DEFAULT_DATUM_ID));
+    Assert.assertNotNull(register.getGeodeticDatumByName("NAD27"));
+    int nb=register.getNumberOfGeodeticDatums();
+    for(int i=0;i<nb;i++)
+    {
+      GeodeticDatum datum=register.getGeodeticDatum(i);
+      Assert.assertEquals(i,datum.getOrdinal());
+      Assert.assertSame(datum,register.getGeodeticDatumByName(datum.getId()));
+    }
+    Assert.assertNull(register.getGeodeticDatum(nb));
+    Assert.assertNull(register.getGeodeticDatum(-1));
+  }
+
+  /**
+   * Test concurrent registrations.
+   * @throws Exception if a registration fails.
+   */
+  public void testConcurrentRegistration() throws Exception
+  {
+    final GeodeticDatumRegister register=GeodeticDatumRegister.getInstance();
+    int nbBefore=register.getNumberOfGeodeticDatums();
+    ExecutorService executor=Executors.newFixedThreadPool(8);
+    try
+    {
+      List<Future<GeodeticDatum[]>> results=new ArrayList<Future<GeodeticDatum[]>>();
+      for(int t=0;t<8;t++)
+      {
+        results.add(executor.submit(new Callable<GeodeticDatum[]>()
+        {
+          public GeodeticDatum[] call()
+          {
+            GeodeticDatum[] ret=new GeodeticDatum[20];
+            for(int i=0;i<ret.length;i++)
+            {
+              ret[i]=register.registerGeodeticDatum("TEST"+i);
+            }
+            return ret;
+          }
+        }));
+      }
+      GeodeticDatum[] first=results.get(0).get();
+      for(Future<GeodeticDatum[]> result : results)
+      {
+        GeodeticDatum[] datums=result.get();
+        for(int i=0;i<datums.length;i++)
+        {
+          Assert.assertSame(first[i],datums[i]);
+        }
+      }
+      Assert.assertEquals(nbBefore+20,register.getNumberOfGeodeticDatums());
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+}
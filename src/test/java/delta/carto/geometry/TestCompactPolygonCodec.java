@@ -0,0 +1,117 @@
+package delta.carto.geometry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import delta.carto.geodesy.GeodeticDatum;
+import delta.carto.geodesy.GeodeticDatumRegister;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for the compact polygon encoding.
+ * @author DAM
+ */
+public class TestCompactPolygonCodec extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestCompactPolygonCodec()
+  {
+    super("Compact polygon encoding test");
+  }
+
+  /**
+   * Round-trip of several polygons.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testRoundTrip() throws IOException
+  {
+    GeodeticDatum nad27=GeodeticDatumRegister.getInstance().getGeodeticDatumByName("NAD27");
+    Random random=new Random(7);
+    GeoPolygon[] polygons=new GeoPolygon[5];
+    for(int k=0;k<polygons.length;k++)
+    {
+      int n=(k==3)?0:1000*(k+1);
+      polygons[k]=new GeoPolygon(n, (k%2==0)?nad27:GeodeticDatumRegister.getInstance().getDefaultGeodeticDatum());
+      double lat=random.nextDouble()*170-85;
+      double lon=random.nextDouble()*360-180;
+      for(int i=0;i<n;i++)
+      {
+        lat=Math.max(-90, Math.min(90, lat+random.nextGaussian()*0.01));
+        lon=Math.max(-180, Math.min(180, lon+random.nextGaussian()*0.01));
+        polygons[k].addPoint(lat, lon);
+      }
+    }
+    double precision=1e-7;
+    ByteArrayOutputStream bos=new ByteArrayOutputStream();
+    CompactPolygonWriter writer=new CompactPolygonWriter(bos, precision);
+    for(GeoPolygon polygon : polygons)
+    {
+      writer.write(polygon);
+    }
+    writer.close();
+    // 14000 points: less than 5 bytes per point, instead of 16
+    Assert.assertEquals(64651, bos.size());
+
+    CompactPolygonReader reader=new CompactPolygonReader(new ByteArrayInputStream(bos.toByteArray()));
+    GeoPolygon read=new GeoPolygon();
+    for(GeoPolygon polygon : polygons)
+    {
+      Assert.assertTrue(reader.read(read));
+      Assert.assertSame(polygon.getDatum(), read.getDatum());
+      Assert.assertEquals(polygon.getNumberOfPoints(), read.getNumberOfPoints());
+      for(int i=0;i<polygon.getNumberOfPoints();i++)
+      {
+        Assert.assertEquals(polygon.getLatitude(i), read.getLatitude(i), precision/2+1e-12);
+        Assert.assertEquals(polygon.getLongitude(i), read.getLongitude(i), precision/2+1e-12);
+      }
+    }
+    Assert.assertFalse(reader.read(read));
+    Assert.assertNull(reader.read());
+    reader.close();
+  }
+
+  /**
+   * Test rejection of non finite coordinates.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testNonFiniteCoordinates() throws IOException
+  {
+    double[][] badPoints={{Double.NaN, 0}, {0, Double.POSITIVE_INFINITY}, {Double.NEGATIVE_INFINITY, 0}};
+    for(double[] badPoint : badPoints)
+    {
+      GeoPolygon polygon=new GeoPolygon();
+      polygon.addPoint(45, 2);
+      polygon.addPoint(badPoint[0], badPoint[1]);
+      ByteArrayOutputStream bos=new ByteArrayOutputStream();
+      CompactPolygonWriter writer=new CompactPolygonWriter(bos, 1e-7);
+      try
+      {
+        writer.write(polygon);
+        Assert.fail();
+      }
+      catch(IllegalArgumentException iae)
+      {
+        // Expected
+      }
+      writer.close();
+      Assert.assertEquals(0, bos.size());
+    }
+  }
+
+  /**
+   * Test zig-zag encoding of extreme values.
+   */
+  public void testZigZag()
+  {
+    long[] values={0, 1, -1, 63, -64, Long.MAX_VALUE, Long.MIN_VALUE};
+    for(long value : values)
+    {
+      Assert.assertEquals(value, CompactPolygonReader.unZigZag(CompactPolygonWriter.zigZag(value)));
+    }
+  }
+}
@@ -0,0 +1,247 @@
+package delta.carto.geometry;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for cell keys.
+ * @author DAM
+ */
+public class TestGeoCellCoder extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestGeoCellCoder()
+  {
+    super("Cell keys test");
+  }
+
+  /**
+   * Test encoding and decoding.
+   */
+  public void testEncodeDecode()
+  {
+    Random random=new Random(5);
+    GeoCellCoder coder=new GeoCellCoder(20);
+    GeoCellCoder parentCoder=new GeoCellCoder(19);
+    for(int i=0;i<10000;i++)
+    {
+      double lat=-90+random.nextDouble()*180;
+      double lon=-180+random.nextDouble()*360;
+      long key=coder.encode(lat,lon);
+      GeoRectangle cell=coder.decode(key);
+      Assert.assertTrue(cell.containsPoint(lat,lon));
+      Assert.assertEquals(parentCoder.encode(lat,lon),GeoCellCoder.getParent(key));
+    }
+    GeoCellCoder maxCoder=new GeoCellCoder(GeoCellCoder.MAX_BITS);
+    long key=maxCoder.encode(90,180);
+    Assert.assertEquals((1L<<31)-1,maxCoder.getRow(key));
+    Assert.assertEquals((1L<<31)-1,maxCoder.getColumn(key));
+    Assert.assertEquals(0,maxCoder.encode(-90,-180));
+    double[][] badPositions={{Double.NaN,0},{0,Double.NaN}};
+    for(double[] badPosition : badPositions)
+    {
+      try
+      {
+        coder.encode(badPosition[0],badPosition[1]);
+        Assert.fail();
+      }
+      catch(IllegalArgumentException iae)
+      {
+        // Expected
+      }
+    }
+  }
+
+  /**
+   * Test neighbors.
+   */
+  public void testNeighbors()
+  {
+    GeoCellCoder coder=new GeoCellCoder(4);
+    long[] neighbors=new long[8];
+    Assert.assertEquals(8,coder.getNeighbors(coder.encode(10,10),neighbors));
+    // Pole row
+    Assert.assertEquals(5,coder.getNeighbors(coder.encode(89,10),neighbors));
+    // Antimeridian
+    long key=coder.encode(10,179);
+    Assert.assertEquals(8,coder.getNeighbors(key,neighbors));
+    long east=coder.encode(10,-179);
+    boolean found=false;
+    for(long neighbor : neighbors) found|=(neighbor==east);
+    Assert.assertTrue(found);
+    // Coarsest precision: 2x2 cells
+    Assert.assertEquals(3,new GeoCellCoder(1).getNeighbors(0,neighbors));
+  }
+
+  /**
+   * Test covers.
+   */
+  public void testCover()
+  {
+    GeoCellCoder coder=new GeoCellCoder(8);
+    GeoRectangle rectangle=new GeoRectangle(10,20,15.3,27.1);
+    long[] cells=coder.cover(rectangle);
+    int nb=0;
+    for(long row=0;row<256;row++)
+    {
+      for(long column=0;column<256;column++)
+      {
+        long key=(spread(column)<<1)|spread(row);
+        GeoRectangle cell=coder.decode(key);
+        if (cell.intersects(rectangle))
+        {
+          Assert.assertTrue(Arrays.binarySearch(cells,key)>=0);
+          nb++;
+        }
+      }
+    }
+    Assert.assertEquals(nb,cells.length);
+
+    GeoPolygon triangle=new GeoPolygon();
+    triangle.addPoint(0,0);
+    triangle.addPoint(20,10);
+    triangle.addPoint(0,20);
+    long[] polygonCells=coder.cover(triangle);
+    long[] boxCells=coder.cover(triangle.getBoundingBox());
+    Assert.assertTrue(polygonCells.length<boxCells.length);
+    for(long key : polygonCells)
+    {
+      Assert.assertTrue(Arrays.binarySearch(boxCells,key)>=0);
+    }
+    Random random=new Random(3);
+    PreparedGeoPolygon prepared=new PreparedGeoPolygon(triangle);
+    for(int i=0;i<10000;i++)
+    {
+      double lat=random.nextDouble()*20;
+      double lon=random.nextDouble()*20;
+      if (prepared.contains(lat,lon))
+      {
+        Assert.assertTrue(Arrays.binarySearch(polygonCells,coder.encode(lat,lon))>=0);
+      }
+    }
+  }
+
+  /**
+   * Compare polygon covers with brute force on rings whose vertices are
+   * quantized to half cells, so that many cell centers lie on edges.
+   */
+  public void testCoverQuantizedPolygons()
+  {
+    GeoCellCoder coder=new GeoCellCoder(8);
+    double halfHeight=coder.getCellHeight()/2;
+    double halfWidth=coder.getCellWidth()/2;
+    Random random=new Random(11);
+    for(int k=0;k<20;k++)
+    {
+      int n=20+random.nextInt(200);
+      GeoPolygon polygon=new GeoPolygon(n);
+      for(int i=0;i<n;i++)
+      {
+        double angle=2*Math.PI*i/n;
+        double radius=3+random.nextDouble()*10;
+        double lat=Math.round((10+radius*Math.sin(angle))/halfHeight)*halfHeight;
+        double lon=Math.round((20+radius*Math.cos(angle))/halfWidth)*halfWidth;
+        polygon.addPoint(lat,lon);
+      }
+      long[] cells=coder.cover(polygon);
+      GeoRectangle box=polygon.getBoundingBox();
+      long[] boxCells=coder.cover(box);
+      int nb=0;
+      for(long key : boxCells)
+      {
+        GeoRectangle cell=coder.decode(key);
+        double centerLat=(cell.getMinLatitude()+cell.getMaxLatitude())/2;
+        double centerLong=(cell.getMinLongitude()+cell.getMaxLongitude())/2;
+        boolean expected=rayCast(polygon,centerLat,centerLong)||crossesEdge(polygon,cell);
+        Assert.assertEquals("Cell "+cell,expected,Arrays.binarySearch(cells,key)>=0);
+        if (expected) nb++;
+      }
+      Assert.assertEquals(nb,cells.length);
+    }
+  }
+
+  private static boolean rayCast(GeoPolygon polygon, double lat, double lon)
+  {
+    boolean inside=false;
+    int n=polygon.getNumberOfPoints();
+    for(int i=0,j=n-1;i<n;j=i++)
+    {
+      double yi=polygon.getLatitude(i);
+      double yj=polygon.getLatitude(j);
+      if ((yi>lat)!=(yj>lat))
+      {
+        double xi=polygon.getLongitude(i);
+        double xj=polygon.getLongitude(j);
+        double x=xj+(lat-yj)*(xi-xj)/(yi-yj);
+        if (x>lon)
+        {
+          inside=!inside;
+        }
+      }
+    }
+    return inside;
+  }
+
+  /**
+   * Indicates if an edge of a polygon has a point in a cell, using the cell
+   * bounds of encoding: minimum borders included, maximum borders excluded
+   * (Liang-Barsky clipping).
+   */
+  private static boolean crossesEdge(GeoPolygon polygon, GeoRectangle cell)
+  {
+    int n=polygon.getNumberOfPoints();
+    for(int i=0,j=n-1;i<n;j=i++)
+    {
+      double x0=polygon.getLongitude(j);
+      double y0=polygon.getLatitude(j);
+      double dx=polygon.getLongitude(i)-x0;
+      double dy=polygon.getLatitude(i)-y0;
+      double[] p={-dx,dx,-dy,dy};
+      double[] q={x0-cell.getMinLongitude(),cell.getMaxLongitude()-x0,y0-cell.getMinLatitude(),cell.getMaxLatitude()-y0};
+      double t0=0;
+      double t1=1;
+      boolean strict0=false;
+      boolean strict1=false;
+      boolean crosses=true;
+      for(int k=0;(k<4)&&crosses;k++)
+      {
+        // Constraints 1 and 3 are the excluded maximum borders
+        boolean strict=(k%2==1);
+        if (p[k]==0)
+        {
+          crosses=strict?(q[k]>0):(q[k]>=0);
+        }
+        else
+        {
+          double t=q[k]/p[k];
+          if (p[k]<0)
+          {
+            if ((t>t0)||((t==t0)&&strict)) { t0=t; strict0=strict; }
+          }
+          else
+          {
+            if ((t<t1)||((t==t1)&&strict)) { t1=t; strict1=strict; }
+          }
+          crosses=(t0<t1)||((t0==t1)&&!strict0&&!strict1);
+        }
+      }
+      if (crosses) return true;
+    }
+    return false;
+  }
+
+  private static long spread(long value)
+  {
+    long ret=0;
+    for(int i=0;i<32;i++)
+    {
+      ret|=((value>>i)&1L)<<(2*i);
+    }
+    return ret;
+  }
+}
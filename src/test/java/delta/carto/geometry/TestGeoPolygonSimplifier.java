@@ -0,0 +1,166 @@
+package delta.carto.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import delta.carto.projection.MercatorProjection;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for polygon simplification.
+ * @author DAM
+ */
+public class TestGeoPolygonSimplifier extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestGeoPolygonSimplifier()
+  {
+    super("Polygon simplification test");
+  }
+
+  private static GeoPolygon buildCircle(int n, double noise)
+  {
+    GeoPolygon polygon=new GeoPolygon(n);
+    for(int i=0;i<n;i++)
+    {
+      double angle=2*Math.PI*i/n;
+      double r=1+((i%2==0)?noise:-noise);
+      polygon.addPoint(45+r*Math.sin(angle), 2+r*Math.cos(angle));
+    }
+    return polygon;
+  }
+
+  /**
+   * Test Douglas-Peucker.
+   */
+  public void testDouglasPeucker()
+  {
+    GeoPolygon circle=buildCircle(1000000, 1e-6);
+    GeoPolygonSimplifier simplifier=new GeoPolygonSimplifier(GeoPolygonSimplifier.Algorithm.DOUGLAS_PEUCKER, 1000);
+    GeoPolygon simplified=simplifier.simplify(circle, null);
+    int n=simplified.getNumberOfPoints();
+    Assert.assertTrue(n>10);
+    Assert.assertTrue(n<200);
+    Assert.assertEquals(circle.getLatitude(0), simplified.getLatitude(0), 0);
+    Assert.assertEquals(circle.getLongitude(999999), simplified.getLongitude(n-1), 0);
+    // Zero tolerance keeps the noisy points
+    GeoPolygon small=buildCircle(100, 1e-3);
+    GeoPolygonSimplifier exact=new GeoPolygonSimplifier(GeoPolygonSimplifier.Algorithm.DOUGLAS_PEUCKER, 0);
+    Assert.assertEquals(small, exact.simplify(small, null));
+    // In place, projected units
+    GeoPolygonSimplifier projected=new GeoPolygonSimplifier(GeoPolygonSimplifier.Algorithm.DOUGLAS_PEUCKER, 10, new MercatorProjection(1000));
+    projected.simplify(small, small);
+    Assert.assertTrue(small.getNumberOfPoints()<100);
+    Assert.assertTrue(small.getNumberOfPoints()>=3);
+    // Planar ring: points close to the square sides are removed (the last point is always kept)
+    double[] x={0, 50, 100, 100.4, 100, 50, 0, -0.4};
+    double[] y={0, 0.3, 0, 50, 100, 100, 100, 50};
+    GeoPolygonSimplifier planar=new GeoPolygonSimplifier(GeoPolygonSimplifier.Algorithm.DOUGLAS_PEUCKER, 0.5);
+    Assert.assertEquals(5, planar.simplify(x, y, 8));
+    Assert.assertEquals(100, x[1], 0);
+    Assert.assertEquals(0, y[1], 0);
+    Assert.assertEquals(100, y[2], 0);
+    Assert.assertEquals(0, x[3], 0);
+    Assert.assertEquals(-0.4, x[4], 0);
+  }
+
+  /**
+   * Test Douglas-Peucker on a ring spanning many latitudes: each removed point
+   * must be within tolerance of the simplified ring.
+   */
+  public void testDouglasPeuckerLatitudes()
+  {
+    // Zigzags of about 1100m at the equator and 400m at 70 degrees
+    int n=4000;
+    GeoPolygon ring=new GeoPolygon(2*n);
+    for(int i=0;i<n;i++)
+    {
+      ring.addPoint(70.0*i/n, (i%2)*0.0105);
+    }
+    for(int i=n;i>0;i--)
+    {
+      ring.addPoint(70.0*i/n, 10+(i%2)*0.0105);
+    }
+    double tolerance=1000;
+    GeoPolygonSimplifier simplifier=new GeoPolygonSimplifier(GeoPolygonSimplifier.Algorithm.DOUGLAS_PEUCKER, tolerance);
+    GeoPolygon simplified=simplifier.simplify(ring, null);
+    int nbKept=simplified.getNumberOfPoints();
+    Assert.assertTrue(nbKept<2*n);
+    for(int i=0;i<ring.getNumberOfPoints();i++)
+    {
+      double latitude=ring.getLatitude(i);
+      double longitude=ring.getLongitude(i);
+      double min=Double.MAX_VALUE;
+      for(int j=0;j<nbKept-1;j++)
+      {
+        double d=localDistance(latitude, longitude, simplified.getLatitude(j), simplified.getLongitude(j),
+            simplified.getLatitude(j+1), simplified.getLongitude(j+1));
+        min=Math.min(min,d);
+      }
+      Assert.assertTrue("Point "+i+" at "+min+"m", min<=tolerance*1.01);
+    }
+  }
+
+  /**
+   * Distance (meters) between a point and a segment, in an equirectangular
+   * approximation around the point.
+   */
+  private static double localDistance(double latitude, double longitude, double lat1, double long1, double lat2, double long2)
+  {
+    double metersPerDegree=1852.0*60.0;
+    double xFactor=metersPerDegree*Math.cos(Math.toRadians(latitude));
+    double ax=(long1-longitude)*xFactor;
+    double ay=(lat1-latitude)*metersPerDegree;
+    double dx=(long2-long1)*xFactor;
+    double dy=(lat2-lat1)*metersPerDegree;
+    double length2=dx*dx+dy*dy;
+    double t=0;
+    if (length2>0)
+    {
+      t=Math.max(0,Math.min(1,-(ax*dx+ay*dy)/length2));
+    }
+    double ex=ax+t*dx;
+    double ey=ay+t*dy;
+    return Math.sqrt(ex*ex+ey*ey);
+  }
+
+  /**
+   * Test Visvalingam-Whyatt.
+   */
+  public void testVisvalingam()
+  {
+    GeoPolygon circle=buildCircle(100000, 1e-6);
+    GeoPolygonSimplifier simplifier=new GeoPolygonSimplifier(GeoPolygonSimplifier.Algorithm.VISVALINGAM, 1000);
+    GeoPolygon simplified=simplifier.simplify(circle, new GeoPolygon());
+    int n=simplified.getNumberOfPoints();
+    Assert.assertTrue(n>=3);
+    Assert.assertTrue(n<2000);
+    GeoPolygonSimplifier none=new GeoPolygonSimplifier(GeoPolygonSimplifier.Algorithm.VISVALINGAM, 0);
+    Assert.assertEquals(circle, none.simplify(circle, null));
+  }
+
+  /**
+   * Test batch simplification.
+   */
+  public void testBatch()
+  {
+    List<GeoPolygon> polygons=new ArrayList<GeoPolygon>();
+    for(int i=0;i<50;i++)
+    {
+      polygons.add(buildCircle(1000+i, 1e-5));
+    }
+    GeoPolygonSimplifier simplifier=new GeoPolygonSimplifier(GeoPolygonSimplifier.Algorithm.DOUGLAS_PEUCKER, 500);
+    ForkJoinPool pool=new ForkJoinPool(4);
+    List<GeoPolygon> results=simplifier.simplify(polygons, pool);
+    pool.shutdown();
+    Assert.assertEquals(50, results.size());
+    for(int i=0;i<50;i++)
+    {
+      Assert.assertEquals(simplifier.simplify(polygons.get(i), null), results.get(i));
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package delta.carto.geometry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for the R-tree.
+ * @author DAM
+ */
+public class TestGeoRTree extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestGeoRTree()
+  {
+    super("R-tree test");
+  }
+
+  private static List<GeoRectangle> buildExtents(int nb)
+  {
+    Random random=new Random(1234);
+    List<GeoRectangle> ret=new ArrayList<GeoRectangle>();
+    for(int i=0;i<nb;i++)
+    {
+      double lat=-80+random.nextDouble()*160;
+      double lon=-170+random.nextDouble()*340;
+      ret.add(new GeoRectangle(lat,lon,lat+random.nextDouble()*5,lon+random.nextDouble()*5));
+    }
+    return ret;
+  }
+
+  private static List<Integer> buildItems(int nb)
+  {
+    List<Integer> ret=new ArrayList<Integer>();
+    for(int i=0;i<nb;i++)
+    {
+      ret.add(Integer.valueOf(i));
+    }
+    return ret;
+  }
+
+  /**
+   * Compare window and point queries with a linear scan.
+   */
+  public void testQueries()
+  {
+    int nb=5000;
+    List<GeoRectangle> extents=buildExtents(nb);
+    GeoRTree<Integer> tree=new GeoRTree<Integer>(extents,buildItems(nb),8);
+    Assert.assertEquals(nb,tree.size());
+    Assert.assertTrue(tree.getHeight()>1);
+    Random random=new Random(42);
+    for(int q=0;q<200;q++)
+    {
+      double lat=-90+random.nextDouble()*180;
+      double lon=-180+random.nextDouble()*360;
+      GeoRectangle window=new GeoRectangle(lat,lon,lat+random.nextDouble()*20,lon+random.nextDouble()*20);
+      Set<Integer> expected=new HashSet<Integer>();
+      Set<Integer> expectedAtPoint=new HashSet<Integer>();
+      for(int i=0;i<nb;i++)
+      {
+        if (extents.get(i).intersects(window)) expected.add(Integer.valueOf(i));
+        if (extents.get(i).containsPoint(lat,lon)) expectedAtPoint.add(Integer.valueOf(i));
+      }
+      List<Integer> found=new ArrayList<Integer>();
+      tree.query(window,found);
+      Assert.assertEquals(expected.size(),found.size());
+      Assert.assertEquals(expected,new HashSet<Integer>(found));
+      found.clear();
+      tree.queryPoint(lat,lon,found);
+      Assert.assertEquals(expectedAtPoint,new HashSet<Integer>(found));
+    }
+  }
+
+  /**
+   * Compare k-nearest queries with a sorted linear scan.
+   */
+  public void testNearest()
+  {
+    int nb=2000;
+    final List<GeoRectangle> extents=buildExtents(nb);
+    GeoRTree<Integer> tree=new GeoRTree<Integer>(extents,buildItems(nb),GeoRTree.DEFAULT_NODE_CAPACITY);
+    Random random=new Random(7);
+    for(int q=0;q<50;q++)
+    {
+      double lat=-60+random.nextDouble()*120;
+      double lon=-180+random.nextDouble()*360;
+      List<Integer> nearest=tree.nearest(lat,lon,10);
+      Assert.assertEquals(10,nearest.size());
+      List<Double> distances=new ArrayList<Double>();
+      for(int i=0;i<nb;i++)
+      {
+        distances.add(Double.valueOf(distance(extents.get(i),lat,lon)));
+      }
+      List<Double> sorted=new ArrayList<Double>(distances);
+      Collections.sort(sorted);
+      for(int i=0;i<nearest.size();i++)
+      {
+        Assert.assertEquals(sorted.get(i).doubleValue(),distances.get(nearest.get(i).intValue()).doubleValue(),1e-12);
+      }
+    }
+  }
+
+  private static double distance(GeoRectangle r, double lat, double lon)
+  {
+    double dy=Math.max(0,Math.max(r.getMinLatitude()-lat,lat-r.getMaxLatitude()));
+    double dx=Math.max(0,Math.max(r.getMinLongitude()-lon,lon-r.getMaxLongitude()));
+    dx*=Math.cos(Math.toRadians(lat));
+    return dx*dx+dy*dy;
+  }
+
+  /**
+   * Test trees of polygons and empty trees.
+   */
+  public void testPolygonsAndEmptyTree()
+  {
+    List<GeoPolygon> polygons=new ArrayList<GeoPolygon>();
+    for(int i=0;i<100;i++)
+    {
+      GeoPolygon polygon=new GeoPolygon();
+      polygon.addPoint(i,0);
+      polygon.addPoint(i+0.5,1);
+      polygon.addPoint(i,1);
+      polygons.add(polygon);
+    }
+    polygons.add(new GeoPolygon());
+    GeoRTree<GeoPolygon> tree=GeoRTree.buildFromPolygons(polygons);
+    Assert.assertEquals(100,tree.size());
+    List<GeoPolygon> found=new ArrayList<GeoPolygon>();
+    tree.queryPoint(10.25,0.5,found);
+    Assert.assertEquals(1,found.size());
+    Assert.assertSame(polygons.get(10),found.get(0));
+
+    GeoRTree<GeoPolygon> empty=GeoRTree.buildFromPolygons(new ArrayList<GeoPolygon>());
+    Assert.assertEquals(0,empty.size());
+    found.clear();
+    empty.queryPoint(0,0,found);
+    Assert.assertTrue(found.isEmpty());
+    Assert.assertTrue(empty.nearest(0,0,3).isEmpty());
+  }
+}
@@ -6,6 +6,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
+import delta.carto.geodesy.DatumTransformation;
 import delta.carto.geodesy.GeodeticDatum;
 import delta.carto.geodesy.GeodeticDatumRegister;
 import junit.framework.Assert;
@@ -76,6 +77,249 @@ public class TestGeoShapes extends TestCase
     }
   }
 
+  /**
+   * Test the batch orthodromic extension against the single point version.
+   */
+  public void testBatchOrthodromicExtension()
+  {
+    double[] lats={12, 90, -90, 45, 0, 60, -33, 10};
+    double[] longs={13, 0, 10, 179.5, -179.9, 5, 151, 20};
+    double[] lengths={100000, 5000, 5000, 200000, 300000, 1000, 0, -3};
+    double[] headings={30, 270, 45, 90, 270, 0, 12, 720};
+    int n=lats.length;
+    double[] outLats=new double[n+1];
+    double[] outLongs=new double[n+1];
+    Tools.orthodromicExtension(lats, longs, lengths, headings, 0, n, outLats, outLongs, 1);
+    for(int i=0;i<n;i++)
+    {
+      Geo2DPoint p=Tools.orthodromicExtension(new Geo2DPoint(lats[i], longs[i]), lengths[i], headings[i]);
+      Assert.assertEquals(p.getLatitude(), outLats[i+1], 0.0);
+      Assert.assertEquals(p.getLongitude(), outLongs[i+1], 0.0);
+    }
+  }
+
+  /**
+   * Test the direct and template based segmentations against a point by point computation.
+   */
+  public void testSegmentationTemplates()
+  {
+    int nbPoints=36;
+    GeoPolygon reusable=new GeoPolygon();
+    SegmentationTemplateCache templates=new SegmentationTemplateCache(10);
+    for(int k=0;k<3;k++)
+    {
+      Geo2DPoint center=new Geo2DPoint(12+k*20, 13-k*50);
+      double a=100000+k*1000;
+      double b=30000;
+      GeoPolygon ellipse=Tools.orthodromicEllipseSegmentation(center, a, b, 45, nbPoints, reusable);
+      Assert.assertSame(reusable, ellipse);
+      Assert.assertEquals(nbPoints, ellipse.getNumberOfPoints());
+      double step=2*Math.PI/nbPoints;
+      double rHeading=0.0;
+      double rBaseHeading=Math.toRadians(45);
+      for(int i=0;i<nbPoints;i++)
+      {
+        double cosa=Math.cos(rHeading-rBaseHeading);
+        double sina=Math.sin(rHeading-rBaseHeading);
+        double length=1/Math.sqrt((cosa*cosa/(a*a))+(sina*sina/(b*b)));
+        Geo2DPoint p=Tools.orthodromicExtension(center, length, Math.toDegrees(rHeading));
+        Assert.assertEquals(p.getLatitude(), ellipse.getLatitude(i), 1e-9);
+        Assert.assertEquals(p.getLongitude(), ellipse.getLongitude(i), 1e-9);
+        rHeading+=step;
+      }
+      // Templates: the first point is on the semi-major axis
+      double heading=45+k*10;
+      ellipse=Tools.orthodromicEllipseSegmentation(center, a, a*0.3, heading, nbPoints, reusable, templates);
+      Assert.assertEquals(nbPoints, ellipse.getNumberOfPoints());
+      for(int i=0;i<nbPoints;i++)
+      {
+        double rAngle=i*step;
+        double cosa=Math.cos(rAngle);
+        double sina=Math.sin(rAngle);
+        double length=1/Math.sqrt((cosa*cosa/(a*a))+(sina*sina/(a*a*0.09)));
+        Geo2DPoint p=Tools.orthodromicExtension(center, length, heading+Math.toDegrees(rAngle));
+        Assert.assertEquals(p.getLatitude(), ellipse.getLatitude(i), 1e-9);
+        Assert.assertEquals(p.getLongitude(), ellipse.getLongitude(i), 1e-9);
+      }
+      GeoPolygon arc=Tools.orthodromicArcSegmentation(center, a, 30, 90, nbPoints-1, reusable);
+      Assert.assertEquals(nbPoints, arc.getNumberOfPoints());
+      checkArc(center, a, 30, arc);
+      arc=Tools.orthodromicArcSegmentation(center, a, 30+k*100, 90, nbPoints-1, reusable, templates);
+      Assert.assertEquals(nbPoints, arc.getNumberOfPoints());
+      checkArc(center, a, 30+k*100, arc);
+    }
+    // Same axes ratio and angle for all shapes: one template each
+    Assert.assertEquals(2, templates.size());
+    // Bounded cache: the least recently used template is evicted
+    SegmentationTemplateCache cache=new SegmentationTemplateCache(2);
+    SegmentationTemplate first=cache.getEllipseTemplate(0.5, nbPoints);
+    SegmentationTemplate second=cache.getArcTemplate(90, nbPoints);
+    Assert.assertSame(first, cache.getEllipseTemplate(0.5, nbPoints));
+    Assert.assertNotSame(first, cache.getEllipseTemplate(0.6, nbPoints));
+    Assert.assertEquals(2, cache.size());
+    Assert.assertSame(first, cache.getEllipseTemplate(0.5, nbPoints));
+    Assert.assertNotSame(second, cache.getArcTemplate(90, nbPoints));
+  }
+
+  private static void checkArc(Geo2DPoint center, double radius, double startHeading, GeoPolygon arc)
+  {
+    int nbPoints=arc.getNumberOfPoints();
+    for(int i=0;i<nbPoints;i++)
+    {
+      Geo2DPoint p=Tools.orthodromicExtension(center, radius, startHeading+i*(90.0/(nbPoints-1)));
+      Assert.assertEquals(p.getLatitude(), arc.getLatitude(i), 1e-9);
+      Assert.assertEquals(p.getLongitude(), arc.getLongitude(i), 1e-9);
+    }
+  }
+
+  /**
+   * Test bounding boxes and rectangle predicates.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testBoundingBox() throws IOException
+  {
+    GeoPolygon polygon=new GeoPolygon();
+    Assert.assertNull(polygon.getBoundingBox());
+    polygon.addPoint(4, 5);
+    Assert.assertEquals(new GeoRectangle(4, 5, 4, 5), polygon.getBoundingBox());
+    polygon.addPoint(2, 3);
+    polygon.addPoint(3, 8);
+    Assert.assertEquals(new GeoRectangle(2, 3, 4, 8), polygon.getBoundingBox());
+    // Shrink
+    polygon.setPoint(3, 4, 2);
+    Assert.assertEquals(new GeoRectangle(2, 3, 4, 5), polygon.getBoundingBox());
+    // Extend
+    polygon.setPoint(-1, 4, 2);
+    Assert.assertEquals(new GeoRectangle(-1, 3, 4, 5), polygon.getBoundingBox());
+    // Returned boxes are copies
+    polygon.boundsIntersect(new GeoRectangle(0, 0, 1, 1));
+    GeoRectangle box=polygon.getBoundingBox();
+    Assert.assertNotSame(box, polygon.getBoundingBox());
+    ByteArrayOutputStream os=new ByteArrayOutputStream();
+    new GeoRectangle(50, 50, 60, 60).write(new DataOutputStream(os));
+    box.read(new DataInputStream(new ByteArrayInputStream(os.toByteArray())));
+    Assert.assertEquals(new GeoRectangle(-1, 3, 4, 5), polygon.getBoundingBox());
+    Assert.assertFalse(polygon.boundsIntersect(new GeoRectangle(50, 50, 60, 60)));
+
+    GeoRectangle r=new GeoRectangle(0, 0, 10, 10);
+    Assert.assertTrue(r.containsPoint(10, 0));
+    Assert.assertFalse(r.containsPoint(10.1, 0));
+    Assert.assertTrue(r.containsPoint(new Geo2DPoint(5, 5)));
+    Assert.assertTrue(r.contains(new GeoRectangle(1, 1, 10, 10)));
+    Assert.assertFalse(r.contains(new GeoRectangle(1, 1, 11, 10)));
+    Assert.assertTrue(r.intersects(new GeoRectangle(10, 10, 20, 20)));
+    Assert.assertFalse(r.intersects(new GeoRectangle(10.5, 0, 20, 20)));
+    Assert.assertTrue(polygon.boundsIntersect(r));
+    Assert.assertFalse(polygon.boundsIntersect(new GeoRectangle(5, 6, 7, 8)));
+  }
+
+  /**
+   * Test bulk append and storage management.
+   */
+  public void testBulkAppend()
+  {
+    GeoPolygon polygon=new GeoPolygon(0);
+    polygon.addPoint(1, 2);
+    Assert.assertEquals(1, polygon.getNumberOfPoints());
+    int n=100000;
+    double[] lats=new double[n];
+    double[] longs=new double[n];
+    for(int i=0;i<n;i++)
+    {
+      lats[i]=(i%180)-90;
+      longs[i]=(i%360)-180;
+    }
+    polygon.addPoints(lats, longs, 10, n-10);
+    Assert.assertEquals(n-9, polygon.getNumberOfPoints());
+    Assert.assertEquals(1, polygon.getLatitude(0), 0);
+    Assert.assertEquals(lats[10], polygon.getLatitude(1), 0);
+    Assert.assertEquals(longs[n-1], polygon.getLongitude(n-10), 0);
+    Assert.assertEquals(new GeoRectangle(-90, -180, 89, 179), polygon.getBoundingBox());
+    polygon.addPoints(polygon);
+    Assert.assertEquals(2*(n-9), polygon.getNumberOfPoints());
+    Assert.assertEquals(1, polygon.getLatitude(n-9), 0);
+    polygon.trimToSize();
+    Assert.assertEquals(polygon.getNumberOfPoints(), polygon.getCapacity());
+    polygon.reserve(polygon.getNumberOfPoints()+5);
+    Assert.assertTrue(polygon.getCapacity()>=polygon.getNumberOfPoints()+5);
+    Assert.assertEquals(1, polygon.getLatitude(0), 0);
+  }
+
+  /**
+   * Test vertex visitors, cursors and range copies.
+   */
+  public void testVertexAccess()
+  {
+    final GeoPolygon polygon=new GeoPolygon();
+    for(int i=0;i<50;i++)
+    {
+      polygon.addPoint(i*0.5, i*2);
+    }
+    final int[] nbVisited={0};
+    GeoPolygonVertexVisitor visitor=new GeoPolygonVertexVisitor()
+    {
+      public void accept(int index, double latitude, double longitude)
+      {
+        Assert.assertEquals(polygon.getLatitude(index), latitude, 0);
+        Assert.assertEquals(polygon.getLongitude(index), longitude, 0);
+        nbVisited[0]++;
+      }
+    };
+    polygon.visitPoints(visitor);
+    Assert.assertEquals(50, nbVisited[0]);
+
+    GeoPolygonCursor cursor=new GeoPolygonCursor();
+    for(int pass=0;pass<2;pass++)
+    {
+      cursor.reset(polygon);
+      int index=0;
+      while (cursor.next())
+      {
+        Assert.assertEquals(index, cursor.getIndex());
+        Assert.assertEquals(index*0.5, cursor.getLatitude(), 0);
+        Assert.assertEquals(index*2, cursor.getLongitude(), 0);
+        index++;
+      }
+      Assert.assertEquals(50, index);
+      Assert.assertFalse(cursor.next());
+    }
+
+    double[] lats=new double[12];
+    double[] longs=new double[12];
+    polygon.getPoints(40, lats, longs, 2, 10);
+    Assert.assertEquals(20, lats[2], 0);
+    Assert.assertEquals(98, longs[11], 0);
+    // Bad ranges: same exception for all the range based methods
+    try
+    {
+      polygon.getPoints(45, lats, longs, 0, 10);
+      Assert.fail();
+    }
+    catch(IllegalArgumentException iae)
+    {
+      // Expected
+    }
+    try
+    {
+      polygon.visitPoints(visitor, 40, 51);
+      Assert.fail();
+    }
+    catch(IllegalArgumentException iae)
+    {
+      // Expected
+    }
+    try
+    {
+      polygon.addPoints(lats, longs, 5, 10);
+      Assert.fail();
+    }
+    catch(IllegalArgumentException iae)
+    {
+      // Expected
+    }
+    Assert.assertEquals(50, polygon.getNumberOfPoints());
+  }
+
   /**
    * Test geographic shapes I/O.
    */
@@ -116,6 +360,7 @@ public class TestGeoShapes extends TestCase
 	    GeoPolygon geoPolygon2=new GeoPolygon();
 	    geoPolygon2.read(dis);
 	    Assert.assertEquals(geoPolygon,geoPolygon2);
+	    Assert.assertEquals(geoPolygon.getBoundingBox(),geoPolygon2.getBoundingBox());
 	    GeoRectangle rect2=new GeoRectangle();
 	    rect2.read(dis);
 	    Assert.assertEquals(rect,rect2);
@@ -125,4 +370,78 @@ public class TestGeoShapes extends TestCase
   		Assert.assertTrue(false);
   	}
   }
+
+  /**
+   * Test I/O of mixed shapes with a datums dictionary.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testIOWithDatumsDictionary() throws IOException
+  {
+    GeodeticDatum nad27=GeodeticDatumRegister.getInstance().getGeodeticDatumByName("NAD27");
+    Geo2DPoint point=new Geo2DPoint(1, 2);
+    Geo3DPoint point3D=new Geo3DPoint(3, 4, 5, nad27);
+    GeoRectangle rect=new GeoRectangle(2, 3, 4, 5, nad27);
+    GeoPolygon polygon=new GeoPolygon();
+    polygon.addPoint(4, 5);
+    polygon.addPoint(2, 3);
+
+    ByteArrayOutputStream os=new ByteArrayOutputStream();
+    DataOutputStream dos=new DataOutputStream(os);
+    GeoDatumStreamContext writeContext=new GeoDatumStreamContext();
+    for(int i=0;i<100;i++)
+    {
+      point.write(dos, writeContext);
+      point3D.write(dos, writeContext);
+      rect.write(dos, writeContext);
+      polygon.write(dos, writeContext);
+    }
+    // Legacy format in the same stream
+    point3D.write(dos);
+    dos.flush();
+    Assert.assertEquals(2, writeContext.getNumberOfDatums());
+
+    DataInputStream dis=new DataInputStream(new ByteArrayInputStream(os.toByteArray()));
+    GeoDatumStreamContext readContext=new GeoDatumStreamContext();
+    for(int i=0;i<100;i++)
+    {
+      Geo2DPoint point2=new Geo2DPoint();
+      point2.read(dis, readContext);
+      Assert.assertEquals(point, point2);
+      Geo3DPoint point3D2=new Geo3DPoint();
+      point3D2.read(dis, readContext);
+      Assert.assertEquals(point3D, point3D2);
+      Assert.assertSame(nad27, point3D2.getDatum());
+      GeoRectangle rect2=new GeoRectangle();
+      rect2.read(dis, readContext);
+      Assert.assertEquals(rect, rect2);
+      GeoPolygon polygon2=new GeoPolygon();
+      polygon2.read(dis, readContext);
+      Assert.assertEquals(polygon, polygon2);
+    }
+    Geo3DPoint legacy=new Geo3DPoint();
+    legacy.read(dis);
+    Assert.assertEquals(point3D, legacy);
+    Assert.assertEquals(-1, dis.read());
+  }
+
+  /**
+   * Test datum transformation of polygons.
+   */
+  public void testTransformDatum()
+  {
+    GeodeticDatumRegister register=GeodeticDatumRegister.getInstance();
+    GeodeticDatum nad27=register.getGeodeticDatumByName("NAD27");
+    GeoPolygon polygon=new GeoPolygon(3, nad27);
+    polygon.addPoint(30, -90);
+    polygon.addPoint(31, -89);
+    polygon.addPoint(30, -88);
+    DatumTransformation transformation=DatumTransformation.getTransformation(nad27, register.getDefaultGeodeticDatum(), DatumTransformation.Method.HELMERT);
+    double[] expected=new double[3];
+    transformation.transform(31, -89, 0, expected);
+    polygon.transformDatum(transformation);
+    Assert.assertSame(register.getDefaultGeodeticDatum(), polygon.getDatum());
+    Assert.assertEquals(expected[0], polygon.getLatitude(1), 0);
+    Assert.assertEquals(expected[1], polygon.getLongitude(1), 0);
+    Assert.assertEquals(expected[0], polygon.getBoundingBox().getMaxLatitude(), 0);
+  }
 }
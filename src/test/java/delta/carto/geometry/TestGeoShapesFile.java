@@ -0,0 +1,93 @@
+package delta.carto.geometry;
+
+import java.io.File;
+import java.io.IOException;
+
+import delta.carto.geodesy.GeodeticDatum;
+import delta.carto.geodesy.GeodeticDatumRegister;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for binary geographic shapes files.
+ * @author DAM
+ */
+public class TestGeoShapesFile extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestGeoShapesFile()
+  {
+    super("Geographic shapes files test");
+  }
+
+  /**
+   * Write shapes, then read them through a mapped file.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testWriteRead() throws IOException
+  {
+    GeodeticDatum datum=GeodeticDatumRegister.getInstance().getGeodeticDatumByName("NAD27");
+    File file=File.createTempFile("shapes",".bin");
+    try
+    {
+      GeoPolygon big=new GeoPolygon(200000);
+      for(int i=0;i<200000;i++)
+      {
+        big.addPoint(i*0.0001, -i*0.0002);
+      }
+      GeoPolygon small=new GeoPolygon(3, datum);
+      small.addPoint(1, 2);
+      small.addPoint(3, 4);
+      small.addPoint(5, 6);
+      GeoRectangle rect=new GeoRectangle(2, 3, 4, 5);
+
+      GeoShapesFileWriter writer=new GeoShapesFileWriter(file);
+      writer.write(small);
+      writer.write(rect);
+      writer.write(big);
+      writer.write(new GeoPolygon());
+      writer.close();
+      Assert.assertEquals(4, writer.getNumberOfShapes());
+
+      MappedGeoShapesFile reader=new MappedGeoShapesFile(file);
+      Assert.assertEquals(4, reader.getNumberOfShapes());
+      Assert.assertTrue(reader.isPolygon(0));
+      Assert.assertFalse(reader.isPolygon(1));
+      GeoPolygonView view=reader.getPolygon(0);
+      Assert.assertSame(datum, view.getDatum());
+      Assert.assertEquals(small, view.toGeoPolygon());
+      Assert.assertEquals(rect, reader.getRectangle(1));
+      GeoPolygonView bigView=reader.getPolygon(2);
+      Assert.assertEquals(200000, bigView.getNumberOfPoints());
+      Assert.assertEquals(big.getLatitude(12345), bigView.getLatitude(12345), 0);
+      Assert.assertEquals(big.getLongitude(199999), bigView.getLongitude(199999), 0);
+      Assert.assertEquals(big, bigView.toGeoPolygon());
+      try
+      {
+        bigView.getLatitude(200000);
+        Assert.fail();
+      }
+      catch(IllegalArgumentException iae)
+      {
+        // Expected
+      }
+      try
+      {
+        view.getLongitude(view.getNumberOfPoints());
+        Assert.fail();
+      }
+      catch(IllegalArgumentException iae)
+      {
+        // Expected
+      }
+      Assert.assertEquals(0, reader.getPolygon(3).getNumberOfPoints());
+      reader.close();
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+}
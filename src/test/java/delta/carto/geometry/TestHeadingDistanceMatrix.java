@@ -0,0 +1,71 @@
+package delta.carto.geometry;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for the heading/distance matrix.
+ * @author DAM
+ */
+public class TestHeadingDistanceMatrix extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestHeadingDistanceMatrix()
+  {
+    super("Heading/distance matrix test");
+  }
+
+  /**
+   * Test the matrix against single computations, with and without streaming.
+   */
+  public void testMatrix()
+  {
+    double[] lats1={12, 45, -30, 0, 89};
+    double[] longs1={13, 2, 151, -179, 0};
+    double[] lats2={12, 50, -33, 0, 10, -89, 60};
+    double[] longs2={14, 3, 150, 179, 20, 45, -100};
+    HeadingDistanceMatrix matrix=new HeadingDistanceMatrix(lats1, longs1, lats2, longs2);
+    matrix.setTileSize(2);
+    int n2=lats2.length;
+    final double[] headings=new double[lats1.length*n2];
+    final double[] distances=new double[lats1.length*n2];
+    ForkJoinPool pool=new ForkJoinPool(2);
+    matrix.compute(headings, distances, pool);
+    for(int i=0;i<lats1.length;i++)
+    {
+      for(int j=0;j<n2;j++)
+      {
+        HeadingDistance hd=Tools.orthodromicHeadingDistance(new Geo2DPoint(lats1[i], longs1[i]), new Geo2DPoint(lats2[j], longs2[j]));
+        Assert.assertEquals(hd.getHeading(), headings[i*n2+j], 0.0);
+        Assert.assertEquals(hd.getDistance(), distances[i*n2+j], 0.0);
+      }
+    }
+
+    final AtomicInteger count=new AtomicInteger();
+    final int nbColumns=n2;
+    HeadingDistanceTileSink sink=new HeadingDistanceTileSink()
+    {
+      public void handleTile(int firstRow, int firstColumn, int nbRows, int nbCols, double[] h, double[] d)
+      {
+        for(int i=0;i<nbRows;i++)
+        {
+          for(int j=0;j<nbCols;j++)
+          {
+            int index=(firstRow+i)*nbColumns+firstColumn+j;
+            Assert.assertEquals(headings[index], h[i*nbCols+j], 0.0);
+            Assert.assertEquals(distances[index], d[i*nbCols+j], 0.0);
+            count.incrementAndGet();
+          }
+        }
+      }
+    };
+    matrix.stream(sink, pool);
+    Assert.assertEquals(headings.length, count.get());
+    pool.shutdown();
+  }
+}
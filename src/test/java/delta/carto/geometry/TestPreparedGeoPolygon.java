@@ -0,0 +1,128 @@
+package delta.carto.geometry;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for prepared polygons.
+ * @author DAM
+ */
+public class TestPreparedGeoPolygon extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestPreparedGeoPolygon()
+  {
+    super("Prepared polygon test");
+  }
+
+  private static boolean rayCast(GeoPolygon polygon, double lat, double lon)
+  {
+    boolean inside=false;
+    int n=polygon.getNumberOfPoints();
+    for(int i=0,j=n-1;i<n;j=i++)
+    {
+      double yi=polygon.getLatitude(i);
+      double yj=polygon.getLatitude(j);
+      if ((yi>lat)!=(yj>lat))
+      {
+        double xi=polygon.getLongitude(i);
+        double xj=polygon.getLongitude(j);
+        double x=xj+(lat-yj)*(xi-xj)/(yi-yj);
+        if (x>lon)
+        {
+          inside=!inside;
+        }
+      }
+    }
+    return inside;
+  }
+
+  /**
+   * Compare prepared queries with plain ray casting on a star shaped polygon.
+   */
+  public void testStarPolygon()
+  {
+    Random random=new Random(42);
+    int n=2000;
+    GeoPolygon polygon=new GeoPolygon(n);
+    for(int i=0;i<n;i++)
+    {
+      double angle=2*Math.PI*i/n;
+      double radius=5+random.nextDouble()*10;
+      polygon.addPoint(45+radius*Math.sin(angle), 2+radius*Math.cos(angle));
+    }
+    PreparedGeoPolygon prepared=new PreparedGeoPolygon(polygon);
+    for(int i=0;i<100000;i++)
+    {
+      double lat=45+(random.nextDouble()*2-1)*16;
+      double lon=2+(random.nextDouble()*2-1)*16;
+      Assert.assertEquals("("+lat+","+lon+")", rayCast(polygon, lat, lon), prepared.contains(lat, lon));
+    }
+    Assert.assertTrue(prepared.contains(new Geo2DPoint(45, 2)));
+    Assert.assertFalse(prepared.contains(0, 0));
+  }
+
+  /**
+   * Compare prepared queries with plain ray casting on polygons with
+   * vertices quantized to 0.25 degree (as in DCW), where cell centers often
+   * lie on edges.
+   */
+  public void testQuantizedPolygons()
+  {
+    Random random=new Random(7);
+    for(int k=0;k<30;k++)
+    {
+      int n=20+random.nextInt(300);
+      GeoPolygon polygon=new GeoPolygon(n);
+      for(int i=0;i<n;i++)
+      {
+        double angle=2*Math.PI*i/n;
+        double radius=2+random.nextDouble()*8;
+        polygon.addPoint(quantize(10+radius*Math.sin(angle)), quantize(20+radius*Math.cos(angle)));
+      }
+      PreparedGeoPolygon prepared=new PreparedGeoPolygon(polygon);
+      for(int i=0;i<20000;i++)
+      {
+        double lat=10+(random.nextDouble()*2-1)*11;
+        double lon=20+(random.nextDouble()*2-1)*11;
+        Assert.assertEquals("("+lat+","+lon+")", rayCast(polygon, lat, lon), prepared.contains(lat, lon));
+      }
+    }
+  }
+
+  private static double quantize(double value)
+  {
+    return Math.round(value*4)/4.0;
+  }
+
+  /**
+   * Test an axis aligned polygon, with queries on vertices and edges lines.
+   */
+  public void testRectilinearPolygon()
+  {
+    GeoPolygon polygon=new GeoPolygon();
+    polygon.addPoint(0, 0);
+    polygon.addPoint(0, 10);
+    polygon.addPoint(10, 10);
+    polygon.addPoint(10, 5);
+    polygon.addPoint(5, 5);
+    polygon.addPoint(5, 0);
+    PreparedGeoPolygon prepared=new PreparedGeoPolygon(polygon);
+    for(int lat=-1;lat<=11;lat++)
+    {
+      for(int lon=-1;lon<=11;lon++)
+      {
+        for(double d=0;d<1;d+=0.25)
+        {
+          Assert.assertEquals(rayCast(polygon, lat+d, lon+d), prepared.contains(lat+d, lon+d));
+          Assert.assertEquals(rayCast(polygon, lat, lon+d), prepared.contains(lat, lon+d));
+        }
+      }
+    }
+    Assert.assertFalse(new PreparedGeoPolygon(new GeoPolygon()).contains(0, 0));
+  }
+}
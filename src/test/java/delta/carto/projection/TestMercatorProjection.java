@@ -1,5 +1,10 @@
 package delta.carto.projection;
 
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import delta.carto.geometry.GeoRectangle;
+import junit.framework.Assert;
 import junit.framework.TestCase;
 
 /**
@@ -55,4 +60,85 @@ public class TestMercatorProjection extends TestCase
       }
     }
   }
+
+  /**
+   * Compare the high-throughput transform with the reference one.
+   */
+  public void testFastTransform()
+  {
+    MercatorProjection p=new MercatorProjection(1000);
+    int n=200000;
+    double[] x=new double[n];
+    double[] y=new double[n];
+    Random random=new Random(17);
+    for(int i=0;i<n;i++)
+    {
+      x[i]=random.nextDouble()*360-180;
+      y[i]=(i<2000)?(i*0.1-100):(random.nextDouble()*200-100);
+    }
+    double[] x2=x.clone();
+    double[] y2=y.clone();
+    p.transform(x2, y2, 0, n);
+    double[] x3=x.clone();
+    double[] y3=y.clone();
+    p.transform(x3, y3, 0, n, ForkJoinPool.commonPool());
+    double[] x4=x.clone();
+    double[] y4=y.clone();
+    p.transform(x4, y4, 10, n-20, null);
+    for(int i=0;i<n;i++)
+    {
+      Assert.assertEquals(x2[i], x3[i], 0);
+      Assert.assertEquals(y2[i], y3[i], 1e-13*p.getFactor());
+      if ((i>=10)&&(i<n-10))
+      {
+        Assert.assertEquals(y3[i], y4[i], 0);
+      }
+      else
+      {
+        Assert.assertEquals(y[i], y4[i], 0);
+      }
+    }
+  }
+
+  /**
+   * Test inverse transforms.
+   */
+  public void testInverseTransform()
+  {
+    MercatorProjection p=new MercatorProjection(1000);
+    int n=1000;
+    double[] longitudes=new double[n];
+    double[] latitudes=new double[n];
+    for(int i=0;i<n;i++)
+    {
+      longitudes[i]=-180+i*0.36;
+      latitudes[i]=-95+i*0.19;
+    }
+    double[] x=longitudes.clone();
+    double[] y=latitudes.clone();
+    p.transform(x, y, 0, n);
+    double[] x2=x.clone();
+    double[] y2=y.clone();
+    p.inverseTransform(x2, y2, 0, n);
+    for(int i=0;i<n;i++)
+    {
+      double expectedLatitude=Math.max(-88, Math.min(88, latitudes[i]));
+      Assert.assertEquals(longitudes[i], x2[i], 1e-9);
+      Assert.assertEquals(expectedLatitude, y2[i], 1e-6);
+      Assert.assertEquals(x2[i], p.inverseX(x[i]), 0);
+      Assert.assertEquals(y2[i], p.inverseY(y[i]), 0);
+    }
+    // Out of range projected values are clamped
+    Assert.assertEquals(88, p.inverseY(1e9), 1e-6);
+    Assert.assertEquals(-88, p.inverseY(-1e9), 1e-6);
+
+    double[] cornersX={-10, 20};
+    double[] cornersY={30, 50};
+    p.transform(cornersX, cornersY);
+    GeoRectangle rectangle=p.inverseTransform(cornersX[1], cornersY[1], cornersX[0], cornersY[0]);
+    Assert.assertEquals(30, rectangle.getMinLatitude(), 1e-9);
+    Assert.assertEquals(50, rectangle.getMaxLatitude(), 1e-9);
+    Assert.assertEquals(-10, rectangle.getMinLongitude(), 1e-9);
+    Assert.assertEquals(20, rectangle.getMaxLongitude(), 1e-9);
+  }
 }
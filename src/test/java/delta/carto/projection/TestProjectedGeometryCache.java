@@ -0,0 +1,107 @@
+package delta.carto.projection;
+
+import delta.carto.geometry.GeoPolygon;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for the projected geometry cache.
+ * @author DAM
+ */
+public class TestProjectedGeometryCache extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestProjectedGeometryCache()
+  {
+    super("Projected geometry cache test");
+  }
+
+  private static GeoPolygon buildPolygon(int nbPoints, double shift)
+  {
+    GeoPolygon polygon=new GeoPolygon();
+    for(int i=0;i<nbPoints;i++)
+    {
+      polygon.addPoint(-80+i*160.0/nbPoints, shift+i*0.01);
+    }
+    return polygon;
+  }
+
+  /**
+   * Compare cached projections with the Mercator projection.
+   */
+  public void testProjection()
+  {
+    ProjectedGeometryCache cache=new ProjectedGeometryCache(1<<20);
+    GeoPolygon polygon=buildPolygon(1000, 10);
+    double[] x=new double[1005];
+    double[] y=new double[1005];
+    for(double factor : new double[] {1, 1000, 12345.678})
+    {
+      Assert.assertEquals(1000, cache.project(polygon, factor, 3, -7, x, y, 5));
+      MercatorProjection projection=new MercatorProjection(factor);
+      double[] expectedX=new double[1000];
+      double[] expectedY=new double[1000];
+      polygon.getPoints(0, expectedY, expectedX, 0, 1000);
+      projection.transform(expectedX, expectedY, 0, 1000);
+      for(int i=0;i<1000;i++)
+      {
+        Assert.assertEquals(expectedX[i]+3, x[i+5], 0);
+        Assert.assertEquals(expectedY[i]-7, y[i+5], 0);
+      }
+    }
+    Assert.assertEquals(1, cache.getMisses());
+    Assert.assertEquals(2, cache.getHits());
+    // Points added: coordinates are computed again
+    polygon.addPoint(0, 0);
+    Assert.assertEquals(1001, cache.project(polygon, 1, 0, 0, x, y, 0));
+    Assert.assertEquals(2, cache.getMisses());
+    // Point moved, same number of points: coordinates are computed again
+    polygon.setPoint(10, 20, 0);
+    Assert.assertEquals(1001, cache.project(polygon, 1, 0, 0, x, y, 0));
+    Assert.assertEquals(3, cache.getMisses());
+    double[] expectedX={20};
+    double[] expectedY={10};
+    new MercatorProjection(1).transform(expectedX, expectedY, 0, 1);
+    Assert.assertEquals(expectedX[0], x[0], 0);
+    Assert.assertEquals(expectedY[0], y[0], 0);
+    cache.invalidate(polygon);
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(0, cache.getBytes());
+  }
+
+  /**
+   * Test LRU eviction.
+   */
+  public void testEviction()
+  {
+    // Room for about 3 polygons of 100 points
+    ProjectedGeometryCache cache=new ProjectedGeometryCache(3*(16*100+112));
+    GeoPolygon[] polygons=new GeoPolygon[4];
+    double[] x=new double[100];
+    double[] y=new double[100];
+    for(int i=0;i<polygons.length;i++)
+    {
+      polygons[i]=buildPolygon(100, i);
+    }
+    cache.project(polygons[0], 1, 0, 0, x, y, 0);
+    cache.project(polygons[1], 1, 0, 0, x, y, 0);
+    cache.project(polygons[2], 1, 0, 0, x, y, 0);
+    // Use polygon 0, so that polygon 1 is the least recently used one
+    cache.project(polygons[0], 1, 0, 0, x, y, 0);
+    cache.project(polygons[3], 1, 0, 0, x, y, 0);
+    Assert.assertEquals(3, cache.size());
+    Assert.assertTrue(cache.getBytes()<=3*(16*100+112));
+    long misses=cache.getMisses();
+    cache.project(polygons[0], 1, 0, 0, x, y, 0);
+    Assert.assertEquals(misses, cache.getMisses());
+    cache.project(polygons[1], 1, 0, 0, x, y, 0);
+    Assert.assertEquals(misses+1, cache.getMisses());
+    // Equal polygons are different entries
+    cache.clear();
+    cache.project(buildPolygon(100, 0), 1, 0, 0, x, y, 0);
+    cache.project(buildPolygon(100, 0), 1, 0, 0, x, y, 0);
+    Assert.assertEquals(2, cache.size());
+  }
+}
@@ -0,0 +1,132 @@
+package delta.carto.projection;
+
+import java.util.Random;
+
+import delta.carto.geodesy.Ellipsoid;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for projections.
+ * @author DAM
+ */
+public class TestProjections extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestProjections()
+  {
+    super("Projections test");
+  }
+
+  private static void checkPoint(Projection projection, double latitude, double longitude, double expectedX, double expectedY, double tolerance)
+  {
+    double[] x={longitude};
+    double[] y={latitude};
+    projection.transform(x, y, 0, 1);
+    Assert.assertEquals(expectedX, x[0], tolerance);
+    Assert.assertEquals(expectedY, y[0], tolerance);
+  }
+
+  private static void checkRoundTrip(Projection projection, double minLatitude, double maxLatitude, double minLongitude, double maxLongitude)
+  {
+    Random random=new Random(13);
+    int n=10000;
+    double[] longitudes=new double[n];
+    double[] latitudes=new double[n];
+    for(int i=0;i<n;i++)
+    {
+      longitudes[i]=minLongitude+random.nextDouble()*(maxLongitude-minLongitude);
+      latitudes[i]=minLatitude+random.nextDouble()*(maxLatitude-minLatitude);
+    }
+    double[] x=longitudes.clone();
+    double[] y=latitudes.clone();
+    projection.transform(x, y, 0, n);
+    projection.inverseTransform(x, y, 0, n);
+    for(int i=0;i<n;i++)
+    {
+      Assert.assertEquals(longitudes[i], x[i], 1e-9);
+      Assert.assertEquals(latitudes[i], y[i], 1e-9);
+    }
+  }
+
+  /**
+   * Test the UTM projection.
+   */
+  public void testUTM()
+  {
+    TransverseMercatorProjection utm31=TransverseMercatorProjection.buildUTM(Ellipsoid.WGS84, 31, true);
+    Assert.assertEquals(3, utm31.getCentralMeridian(), 0);
+    Assert.assertEquals(31, TransverseMercatorProjection.getUTMZone(2.2945));
+    Assert.assertEquals(1, TransverseMercatorProjection.getUTMZone(-180));
+    Assert.assertEquals(60, TransverseMercatorProjection.getUTMZone(179.9));
+    checkPoint(utm31, 0, 3, 500000, 0, 1e-6);
+    // Eiffel tower
+    checkPoint(utm31, 48.8582, 2.2945, 448252, 5411933, 1);
+    // Southern hemisphere
+    TransverseMercatorProjection utm23s=TransverseMercatorProjection.buildUTM(Ellipsoid.WGS84, 23, false);
+    checkPoint(utm23s, 0, -45, 500000, 10000000, 1e-6);
+    checkRoundTrip(utm31, -80, 84, -3, 9);
+    checkRoundTrip(utm23s, -80, 0, -51, -39);
+    // Non-zero latitude of origin: origin is projected to the false origin
+    TransverseMercatorProjection tm=new TransverseMercatorProjection(Ellipsoid.WGS84, 49, -2, 0.9996012717, 400000, -100000);
+    checkPoint(tm, 49, -2, 400000, -100000, 1e-6);
+  }
+
+  /**
+   * Test the Lambert Conformal Conic projection, with the EPSG guidance note example.
+   */
+  public void testLambertConformalConic()
+  {
+    double feetToMeters=1200.0/3937;
+    LambertConformalConicProjection lcc=new LambertConformalConicProjection(Ellipsoid.CLARKE_1866,
+        28+23.0/60, 30+17.0/60, 27+50.0/60, -99, 2000000*feetToMeters, 0);
+    checkPoint(lcc, 28.5, -96, 2963503.91*feetToMeters, 254759.80*feetToMeters, 0.01);
+    checkRoundTrip(lcc, 20, 40, -110, -88);
+    LambertConformalConicProjection tangent=new LambertConformalConicProjection(Ellipsoid.WGS84, 46.5, 46.5, 46.5, 3, 700000, 6600000);
+    checkPoint(tangent, 46.5, 3, 700000, 6600000, 1e-6);
+    checkRoundTrip(tangent, 40, 52, -5, 10);
+    // Zone next to the antimeridian
+    LambertConformalConicProjection pacific=new LambertConformalConicProjection(Ellipsoid.WGS84, 40, 60, 50, 170, 0, 0);
+    double[] x={-175, 185, 155};
+    double[] y={55, 55, 55};
+    pacific.transform(x, y, 0, 3);
+    Assert.assertEquals(x[0], x[1], 1e-6);
+    Assert.assertEquals(y[0], y[1], 1e-6);
+    // 15 degrees East or West of the central meridian: symmetric
+    Assert.assertEquals(-x[2], x[0], 1e-6);
+    Assert.assertEquals(y[2], y[0], 1e-6);
+    pacific.inverseTransform(x, y, 0, 1);
+    Assert.assertEquals(-175, x[0], 1e-9);
+    Assert.assertEquals(55, y[0], 1e-9);
+    checkRoundTrip(pacific, 45, 60, 160, 180);
+    checkRoundTrip(pacific, 45, 60, -180, -160);
+  }
+
+  /**
+   * Test the equirectangular projection.
+   */
+  public void testEquirectangular()
+  {
+    EquirectangularProjection projection=new EquirectangularProjection(6371000, 60, 10);
+    checkPoint(projection, 0, 10, 0, 0, 1e-9);
+    checkPoint(projection, 1, 11, 6371000*Math.PI/180*0.5, 6371000*Math.PI/180, 1e-6);
+    checkRoundTrip(projection, -90, 90, -180, 180);
+  }
+
+  /**
+   * Test shared instances.
+   */
+  public void testSharedInstances()
+  {
+    TransverseMercatorProjection utm=Projections.getUTM(Ellipsoid.WGS84, 31, true);
+    Assert.assertSame(utm, Projections.getUTM(Ellipsoid.WGS84, 31, true));
+    Assert.assertNotSame(utm, Projections.getUTM(Ellipsoid.WGS84, 32, true));
+    Assert.assertEquals(utm, TransverseMercatorProjection.buildUTM(new Ellipsoid("copy", 6378137.0, 298.257223563), 31, true));
+    MercatorProjection mercator=Projections.getSharedInstance(new MercatorProjection(1000));
+    Assert.assertSame(mercator, Projections.getSharedInstance(new MercatorProjection(1000)));
+    LambertConformalConicProjection lcc=new LambertConformalConicProjection(Ellipsoid.WGS84, 44, 49, 46.5, 3, 700000, 6600000);
+    Assert.assertSame(Projections.getSharedInstance(lcc), Projections.getSharedInstance(new LambertConformalConicProjection(Ellipsoid.WGS84, 44, 49, 46.5, 3, 700000, 6600000)));
+  }
+}
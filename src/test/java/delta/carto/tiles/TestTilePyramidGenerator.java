@@ -0,0 +1,246 @@
+package delta.carto.tiles;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import delta.carto.geometry.GeoPolygon;
+import delta.carto.geometry.GeoRectangle;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for the tile pyramid generator.
+ * @author DAM
+ */
+public class TestTilePyramidGenerator extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestTilePyramidGenerator()
+  {
+    super("Tile pyramid generator test");
+  }
+
+  private static class MemoryTileSink implements TileSink
+  {
+    private final Map<TileCoordinates,byte[]> _tiles=new ConcurrentHashMap<TileCoordinates,byte[]>();
+
+    public void write(TileCoordinates tile, TileFormat format, byte[] payload)
+    {
+      Assert.assertNull(_tiles.put(tile,payload));
+    }
+  }
+
+  private static List<GeoPolygon> buildPolygons()
+  {
+    List<GeoPolygon> polygons=new ArrayList<GeoPolygon>();
+    // A square around (10,10), and a big star-shaped polygon
+    GeoPolygon square=new GeoPolygon();
+    square.addPoint(5, 5);
+    square.addPoint(15, 5);
+    square.addPoint(15, 15);
+    square.addPoint(5, 15);
+    polygons.add(square);
+    GeoPolygon star=new GeoPolygon();
+    for(int i=0;i<360;i++)
+    {
+      double radius=(i%2==0)?40:20;
+      double angle=Math.toRadians(i);
+      star.addPoint(-20+radius*Math.sin(angle), -100+radius*Math.cos(angle));
+    }
+    polygons.add(star);
+    return polygons;
+  }
+
+  /**
+   * Test tile coordinates.
+   */
+  public void testTileCoordinates()
+  {
+    GeoRectangle bounds=new TileCoordinates(1, 1, 0).getBounds();
+    Assert.assertEquals(0, bounds.getMinLongitude(), 1e-9);
+    Assert.assertEquals(180, bounds.getMaxLongitude(), 1e-9);
+    Assert.assertEquals(0, bounds.getMinLatitude(), 1e-9);
+    double[] x={-180, 180, 0};
+    double[] y={0, 0, 85.0511287798};
+    TileCoordinates.toNormalized(x, y, 0, 3);
+    Assert.assertEquals(0, x[0], 1e-12);
+    Assert.assertEquals(1, x[1], 1e-12);
+    Assert.assertEquals(0.5, y[0], 1e-12);
+    Assert.assertEquals(0, y[2], 1e-9);
+  }
+
+  /**
+   * Test vector tiles.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testVectorTiles() throws IOException
+  {
+    TilePyramidGenerator generator=new TilePyramidGenerator(0, 4, TileFormat.VECTOR);
+    generator.setNumberOfThreads(3);
+    MemoryTileSink sink=new MemoryTileSink();
+    TilePyramidStatistics statistics=generator.generate(buildPolygons(), sink);
+    Assert.assertEquals(sink._tiles.size(), statistics.getNumberOfTiles());
+    Assert.assertTrue(statistics.getBytesPerTile()>0);
+    byte[] root=sink._tiles.get(new TileCoordinates(0, 0, 0));
+    List<long[]> polygons=VectorTileEncoder.decode(root);
+    Assert.assertEquals(2, polygons.size());
+    // Square: 4 corners, x of (5,5) corner is ((5+180)/360)*4096
+    long[] square=polygons.get(0).length==8?polygons.get(0):polygons.get(1);
+    Assert.assertEquals(8, square.length);
+    Assert.assertEquals(Math.round((185.0/360)*4096), square[0]);
+    // Square at zoom 4: tile x=8, y=7
+    Assert.assertNotNull(sink._tiles.get(new TileCoordinates(4, 8, 7)));
+    // Nothing near the poles
+    Assert.assertNull(sink._tiles.get(new TileCoordinates(4, 8, 0)));
+    // All coordinates stay within the buffered tile
+    for(byte[] payload : sink._tiles.values())
+    {
+      for(long[] polygon : VectorTileEncoder.decode(payload))
+      {
+        for(long value : polygon)
+        {
+          Assert.assertTrue((value>=-64)&&(value<=4096+64));
+        }
+      }
+    }
+  }
+
+  /**
+   * Test the tiles quadtree descent: fully covered tiles, and tiles at a high zoom level.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testQuadtreeDescent() throws IOException
+  {
+    List<GeoPolygon> polygons=new ArrayList<GeoPolygon>();
+    GeoPolygon big=new GeoPolygon();
+    big.addPoint(-60, -150);
+    big.addPoint(-60, 150);
+    big.addPoint(60, 150);
+    big.addPoint(60, -150);
+    polygons.add(big);
+    TilePyramidGenerator generator=new TilePyramidGenerator(3, 3, TileFormat.VECTOR);
+    MemoryTileSink sink=new MemoryTileSink();
+    generator.generate(polygons, sink);
+    // Tile 3/4/3 is inside the polygon: filled with its buffered bounds
+    List<long[]> fill=VectorTileEncoder.decode(sink._tiles.get(new TileCoordinates(3, 4, 3)));
+    Assert.assertEquals(1, fill.size());
+    Assert.assertEquals(8, fill.get(0).length);
+    for(long value : fill.get(0))
+    {
+      Assert.assertTrue((value==-64)||(value==4096+64));
+    }
+    // Nothing near the poles
+    Assert.assertNull(sink._tiles.get(new TileCoordinates(3, 4, 0)));
+
+    // Small polygon at a high zoom level: only the few tiles it reaches
+    polygons.clear();
+    GeoPolygon small=new GeoPolygon();
+    small.addPoint(10, 10);
+    small.addPoint(10, 10.03);
+    small.addPoint(10.03, 10.03);
+    small.addPoint(10.03, 10);
+    polygons.add(small);
+    generator=new TilePyramidGenerator(14, 14, TileFormat.VECTOR);
+    sink=new MemoryTileSink();
+    TilePyramidStatistics statistics=generator.generate(polygons, sink);
+    Assert.assertTrue(statistics.getNumberOfTiles()>=2);
+    Assert.assertTrue(statistics.getNumberOfTiles()<=9);
+    double[] x={10, 10.03};
+    double[] y={10.03, 10};
+    TileCoordinates.toNormalized(x, y, 0, 2);
+    for(TileCoordinates tile : sink._tiles.keySet())
+    {
+      Assert.assertTrue((tile.getX()>=(int)(x[0]*16384))&&(tile.getX()<=(int)(x[1]*16384)));
+      Assert.assertTrue((tile.getY()>=(int)(y[0]*16384))&&(tile.getY()<=(int)(y[1]*16384)));
+    }
+  }
+
+  /**
+   * Test raster tiles of overlapping polygons: they must not cancel each other.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testOverlappingPolygons() throws IOException
+  {
+    List<GeoPolygon> polygons=new ArrayList<GeoPolygon>();
+    polygons.add(buildRectangle(-60, -150, 60, 150));
+    polygons.add(buildRectangle(-50, -100, 50, 100));
+    polygons.add(buildRectangle(30, 5, 35, 10));
+    TilePyramidGenerator generator=new TilePyramidGenerator(3, 3, TileFormat.PNG);
+    MemoryTileSink sink=new MemoryTileSink();
+    generator.generate(polygons, sink);
+    // Tile 3/4/3 is covered by the three polygons
+    BufferedImage image=ImageIO.read(new ByteArrayInputStream(sink._tiles.get(new TileCoordinates(3, 4, 3))));
+    Assert.assertTrue((image.getRGB(128, 128)>>>24)>0);
+    double[] x={7.5};
+    double[] y={32.5};
+    TileCoordinates.toNormalized(x, y, 0, 1);
+    Assert.assertTrue((image.getRGB((int)((x[0]*8-4)*256), (int)((y[0]*8-3)*256))>>>24)>0);
+  }
+
+  private static GeoPolygon buildRectangle(double minLat, double minLon, double maxLat, double maxLon)
+  {
+    GeoPolygon rectangle=new GeoPolygon();
+    rectangle.addPoint(minLat, minLon);
+    rectangle.addPoint(minLat, maxLon);
+    rectangle.addPoint(maxLat, maxLon);
+    rectangle.addPoint(maxLat, minLon);
+    return rectangle;
+  }
+
+  /**
+   * Test raster tiles, written to a directory.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testRasterTiles() throws IOException
+  {
+    File root=File.createTempFile("tiles", "");
+    Assert.assertTrue(root.delete());
+    try
+    {
+      TilePyramidGenerator generator=new TilePyramidGenerator(2, 3, TileFormat.PNG);
+      DirectoryTileSink sink=new DirectoryTileSink(root);
+      TilePyramidStatistics statistics=generator.generate(buildPolygons(), sink);
+      Assert.assertTrue(statistics.getNumberOfTiles()>0);
+      TileCoordinates tile=new TileCoordinates(3, 4, 3);
+      File file=sink.getFile(tile, TileFormat.PNG);
+      Assert.assertTrue(file.isFile());
+      BufferedImage image=ImageIO.read(file);
+      Assert.assertEquals(256, image.getWidth());
+      // Center of the square: (10,10) is in tile 3/4/3
+      double[] x={10};
+      double[] y={10};
+      TileCoordinates.toNormalized(x, y, 0, 1);
+      int px=(int)((x[0]*8-4)*256);
+      int py=(int)((y[0]*8-3)*256);
+      Assert.assertTrue((image.getRGB(px, py)>>>24)>0);
+      Assert.assertEquals(0, image.getRGB(250, 5)>>>24);
+    }
+    finally
+    {
+      delete(root);
+    }
+  }
+
+  private static void delete(File file)
+  {
+    File[] children=file.listFiles();
+    if (children!=null)
+    {
+      for(File child : children)
+      {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
@@ -1,9 +1,6 @@
 package delta.carto.vpf.dcw;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 
 import org.apache.log4j.Logger;
@@ -62,18 +59,12 @@ public class MainTestBrowseReader
   {
     try
     {
-      FileInputStream fis=new FileInputStream(path);
-      BufferedInputStream bis=new BufferedInputStream(fis);
-      DataInputStream dis=new DataInputStream(bis);
-      BrowseReader r=new BrowseReader();
-      r.readHeader(dis);
-      dis.close();
-      bis.close();
-      fis.close();
+      VpfTable table=new VpfTableReader().read(new File(path));
+      LOGGER.info(path+": "+table.getSchema()+", "+table.getNumberOfRecords()+" records");
     }
     catch(IOException e)
     {
-      LOGGER.error("",e);
+      LOGGER.error(path,e);
     }
   }
 
@@ -0,0 +1,134 @@
+package delta.carto.vpf.dcw;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for the VPF header tokenizer.
+ * @author DAM
+ */
+public class TestVpfHeaderTokenizer extends TestCase
+{
+  /**
+   * Constructor.
+   */
+  public TestVpfHeaderTokenizer()
+  {
+    super("VPF header tokenizer test");
+  }
+
+  /**
+   * Test delimiters at all positions of scanned words.
+   */
+  public void testDelimiterPositions()
+  {
+    VpfHeaderTokenizer tokenizer=new VpfHeaderTokenizer();
+    for(int length=0;length<40;length++)
+    {
+      byte[] bytes=new byte[length+20];
+      Arrays.fill(bytes,(byte)'a');
+      bytes[length]=(byte)';';
+      // Direct buffers, and buffers that do not start at 0
+      ByteBuffer direct=ByteBuffer.allocateDirect(bytes.length);
+      direct.put(bytes);
+      direct.flip();
+      ByteBuffer sliced=ByteBuffer.wrap(bytes,3,bytes.length-3).slice();
+      ByteBuffer[] buffers={ByteBuffer.wrap(bytes),direct,sliced};
+      for(ByteBuffer buffer : buffers)
+      {
+        int expected=(buffer==sliced)?length-3:length;
+        tokenizer.reset(buffer);
+        if (expected<0)
+        {
+          Assert.assertFalse(tokenizer.nextToken((byte)';'));
+          Assert.assertEquals(0,tokenizer.getPosition());
+          continue;
+        }
+        Assert.assertTrue(tokenizer.nextToken((byte)';'));
+        Assert.assertEquals(0,tokenizer.getTokenOffset());
+        Assert.assertEquals(expected,tokenizer.getTokenLength());
+        Assert.assertEquals(expected+1,tokenizer.getPosition());
+        Assert.assertFalse(tokenizer.nextToken((byte)';'));
+        Assert.assertEquals(0,buffer.position());
+      }
+    }
+  }
+
+  /**
+   * Test tokens values.
+   */
+  public void testTokens()
+  {
+    byte[] bytes="  ID = I , 12 ,* ,:Description, with commas:;".getBytes(StandardCharsets.US_ASCII);
+    VpfHeaderTokenizer tokenizer=new VpfHeaderTokenizer();
+    tokenizer.reset(ByteBuffer.wrap(bytes));
+    Assert.assertTrue(tokenizer.nextToken((byte)'='));
+    Assert.assertEquals("ID",tokenizer.getTokenString());
+    Assert.assertTrue(tokenizer.nextToken((byte)','));
+    Assert.assertTrue(tokenizer.tokenIs('I'));
+    Assert.assertTrue(tokenizer.nextToken((byte)','));
+    Assert.assertEquals(12,tokenizer.getTokenInt());
+    Assert.assertTrue(tokenizer.nextToken((byte)',',(byte)':'));
+    Assert.assertTrue(tokenizer.tokenIs('*'));
+    Assert.assertEquals(',',tokenizer.getDelimiter());
+    try
+    {
+      tokenizer.getTokenInt();
+      Assert.fail("Bad number accepted");
+    }
+    catch(IllegalArgumentException iae)
+    {
+      // Expected
+    }
+    Assert.assertTrue(tokenizer.nextToken((byte)',',(byte)':'));
+    Assert.assertEquals(0,tokenizer.getTokenLength());
+    Assert.assertEquals(':',tokenizer.getDelimiter());
+    Assert.assertTrue(tokenizer.nextToken((byte)':'));
+    Assert.assertEquals("Description, with commas",tokenizer.getTokenString());
+    Assert.assertEquals(';',tokenizer.peek());
+    tokenizer.skip(1);
+    Assert.assertFalse(tokenizer.hasRemaining());
+    Assert.assertEquals(-1,tokenizer.peek());
+  }
+
+  /**
+   * Test that buffer and stream header readers give the same schemas.
+   */
+  public void testHeaderReaders()
+  {
+    String columns="ID=I,1,P,Row Identifier,-,-,:"
+        +"FACE=K,1,N,Face,-,-,:"
+        +"NAME=T,*,N,Name,-,-,narrative.doc:"
+        +"COORDINATES=B,12,N,Coordinates,-,-:";
+    byte[] records={1,2,3};
+    BrowseReader reader=new BrowseReader();
+    for(ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN,ByteOrder.BIG_ENDIAN})
+    {
+      byte[] data=TestVpfTableReader.buildTable(order,true,columns,records);
+      ByteBuffer buffer=ByteBuffer.wrap(data);
+      VpfTableSchema schema=reader.readHeader(buffer);
+      Assert.assertEquals(data.length-records.length,buffer.position());
+      Assert.assertEquals(ByteOrder.BIG_ENDIAN,buffer.order());
+      Assert.assertEquals(order,schema.getByteOrder());
+      Assert.assertEquals(4,schema.getNumberOfColumns());
+      Assert.assertEquals("narrative.doc",schema.getColumn(2).getNarrativeTable());
+      Assert.assertEquals(12,schema.getColumn(3).getCount());
+      Assert.assertEquals(VpfFieldType.DOUBLE_2D_COORDINATES,schema.getColumn(3).getType());
+      VpfTableSchema streamSchema=reader.readHeader(new DataInputStream(new ByteArrayInputStream(data)));
+      Assert.assertEquals(streamSchema.toString(),schema.toString());
+      Assert.assertEquals(streamSchema.getHeaderLength(),schema.getHeaderLength());
+    }
+    // Invalid header: buffer unchanged
+    byte[] data=TestVpfTableReader.buildTable(ByteOrder.LITTLE_ENDIAN,true,"ID=I,1,P,Row Identifier",records);
+    ByteBuffer buffer=ByteBuffer.wrap(data);
+    Assert.assertNull(reader.readHeader(buffer));
+    Assert.assertEquals(0,buffer.position());
+  }
+}
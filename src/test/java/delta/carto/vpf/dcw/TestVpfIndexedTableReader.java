@@ -0,0 +1,195 @@
+package delta.carto.vpf.dcw;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for the random access to VPF tables.
+ * @author DAM
+ */
+public class TestVpfIndexedTableReader extends TestCase
+{
+  private static final int NB_RECORDS=3000;
+
+  /**
+   * Constructor.
+   */
+  public TestVpfIndexedTableReader()
+  {
+    super("VPF indexed table reader test");
+  }
+
+  /**
+   * Test random access, for all byte orders.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testRandomAccess() throws IOException
+  {
+    checkRandomAccess(ByteOrder.LITTLE_ENDIAN);
+    checkRandomAccess(ByteOrder.BIG_ENDIAN);
+  }
+
+  private void checkRandomAccess(ByteOrder order) throws IOException
+  {
+    File table=File.createTempFile("edg",".tmp");
+    File index=File.createTempFile("edx",".tmp");
+    try
+    {
+      writeTable(table,index,order,-1);
+      VpfIndexedTableReader reader=new VpfIndexedTableReader(table,index);
+      try
+      {
+        Assert.assertEquals(order,reader.getSchema().getByteOrder());
+        Assert.assertEquals(NB_RECORDS,reader.getNumberOfRecords());
+        Assert.assertEquals(reader.getSchema().getHeaderLength(),reader.getIndex().getTableHeaderLength());
+        // Single records
+        for(int id : new int[] {NB_RECORDS,1,1234})
+        {
+          VpfTable record=reader.read(id);
+          Assert.assertEquals(1,record.getNumberOfRecords());
+          checkRecord(record,0,id);
+        }
+        Assert.assertEquals(3,reader.getNumberOfBlockReads());
+        // Consecutive records: a single read
+        int[] ids=new int[500];
+        for(int i=0;i<ids.length;i++)
+        {
+          ids[i]=1000+i;
+        }
+        VpfTable records=reader.read(ids,0,ids.length);
+        Assert.assertEquals(4,reader.getNumberOfBlockReads());
+        for(int i=0;i<ids.length;i++)
+        {
+          checkRecord(records,i,ids[i]);
+        }
+        // Close records are read together, distant records are read apart
+        int[] sparse={2,5,9,9,40,2000,2001,2999};
+        records=reader.read(sparse,0,sparse.length);
+        Assert.assertEquals(7,reader.getNumberOfBlockReads());
+        for(int i=0;i<sparse.length;i++)
+        {
+          checkRecord(records,i,sparse[i]);
+        }
+        Assert.assertEquals(0,reader.read(sparse,3,0).getNumberOfRecords());
+        // Invalid requests
+        checkInvalidRequest(reader,new int[] {5,4});
+        checkInvalidRequest(reader,new int[] {0});
+        checkInvalidRequest(reader,new int[] {NB_RECORDS+1});
+      }
+      finally
+      {
+        reader.close();
+      }
+    }
+    finally
+    {
+      table.delete();
+      index.delete();
+    }
+  }
+
+  /**
+   * Test errors on inconsistent indexes.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testBadIndex() throws IOException
+  {
+    File table=File.createTempFile("edg",".tmp");
+    File index=File.createTempFile("edx",".tmp");
+    try
+    {
+      int badId=100;
+      writeTable(table,index,ByteOrder.LITTLE_ENDIAN,badId);
+      VpfIndexedTableReader reader=new VpfIndexedTableReader(table,index);
+      try
+      {
+        checkRecord(reader.read(badId-1),0,badId-1);
+        try
+        {
+          reader.read(badId);
+          Assert.fail("Bad record size not detected");
+        }
+        catch(IOException ioe)
+        {
+          // Expected
+        }
+      }
+      finally
+      {
+        reader.close();
+      }
+    }
+    finally
+    {
+      table.delete();
+      index.delete();
+    }
+  }
+
+  private void checkInvalidRequest(VpfIndexedTableReader reader, int[] ids) throws IOException
+  {
+    try
+    {
+      reader.read(ids,0,ids.length);
+      Assert.fail("Invalid request accepted");
+    }
+    catch(IllegalArgumentException iae)
+    {
+      // Expected
+    }
+  }
+
+  private void checkRecord(VpfTable table, int record, int id)
+  {
+    Assert.assertEquals(id,table.getIntColumn("ID").getInt(record));
+    Assert.assertEquals("Edge "+id,table.getTextColumn("NAME").getString(record));
+    Assert.assertEquals(1000+id,table.getTripletColumn("RIGHT_FACE").getTileId(record));
+    VpfFloatColumn coordinates=table.getFloatColumn("COORDINATES");
+    Assert.assertEquals(id%5,coordinates.getNumberOfValues(record));
+    for(int j=0;j<id%5;j++)
+    {
+      Assert.assertEquals(-id-j*0.5f,coordinates.getFloat(record,j,1),0);
+    }
+  }
+
+  private void writeTable(File table, File index, ByteOrder order, int badId) throws IOException
+  {
+    byte[] header=TestVpfTableReader.buildTable(order,true,TestVpfTableReader.EDGE_COLUMNS,new byte[0]);
+    ByteBuffer records=ByteBuffer.allocate(NB_RECORDS*200).order(order);
+    ByteBuffer entries=ByteBuffer.allocate(8+8*NB_RECORDS).order(order);
+    entries.putInt(NB_RECORDS);
+    entries.putInt(header.length-4);
+    for(int id=1;id<=NB_RECORDS;id++)
+    {
+      int start=records.position();
+      TestVpfTableReader.putEdgeRecord(records,id);
+      entries.putInt(header.length+start);
+      entries.putInt(records.position()-start+((id==badId)?1:0));
+    }
+    FileOutputStream fos=new FileOutputStream(table);
+    try
+    {
+      fos.write(header);
+      fos.write(records.array(),0,records.position());
+    }
+    finally
+    {
+      fos.close();
+    }
+    fos=new FileOutputStream(index);
+    try
+    {
+      fos.write(entries.array());
+    }
+    finally
+    {
+      fos.close();
+    }
+  }
+}
@@ -0,0 +1,355 @@
+package delta.carto.vpf.dcw;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * Unit test class for the VPF table reader.
+ * @author DAM
+ */
+public class TestVpfTableReader extends TestCase
+{
+  static final String EDGE_COLUMNS="ID=I,1,P,Row Identifier,-,-,:"
+      +"START_NODE=I,1,N,Start Node,-,-,:"
+      +"RIGHT_FACE=K,1,N,Right Face,-,-,:"
+      +"NAME=T,*,N,Name,-,-,:"
+      +"CODE=S,1,N,Code,char.vdt,-,:"
+      +"DATE=D,1,N,Date,-,-,:"
+      +"LENGTH=R,1,N,Length,-,-,:"
+      +"COORDINATES=C,*,N,Coordinates,-,-,:";
+
+  /**
+   * Constructor.
+   */
+  public TestVpfTableReader()
+  {
+    super("VPF table reader test");
+  }
+
+  /**
+   * Build a VPF table.
+   * @param order Byte order of the table.
+   * @param flag Indicates if the byte order is declared in the header.
+   * @param columns Column definitions.
+   * @param records Records data.
+   * @return the table bytes.
+   */
+  static byte[] buildTable(ByteOrder order, boolean flag, String columns, byte[] records)
+  {
+    String flagText=flag?((order==ByteOrder.LITTLE_ENDIAN)?"L":"M"):"";
+    byte[] header=(flagText+";Test table;-;"+columns+";").getBytes(StandardCharsets.US_ASCII);
+    ByteBuffer buffer=ByteBuffer.allocate(4+header.length+records.length).order(order);
+    buffer.putInt(header.length);
+    buffer.put(header);
+    buffer.put(records);
+    return buffer.array();
+  }
+
+  /**
+   * Build the records of an edge table.
+   * @param order Byte order of the table.
+   * @param nbRecords Number of records.
+   * @return the records bytes.
+   */
+  static byte[] buildEdgeRecords(ByteOrder order, int nbRecords)
+  {
+    ByteBuffer buffer=ByteBuffer.allocate(nbRecords*200+1000).order(order);
+    for(int i=0;i<nbRecords;i++)
+    {
+      putEdgeRecord(buffer,i+1);
+    }
+    return Arrays.copyOf(buffer.array(),buffer.position());
+  }
+
+  /**
+   * Write a record of an edge table.
+   * @param buffer Buffer to write to.
+   * @param id Record identifier.
+   */
+  static void putEdgeRecord(ByteBuffer buffer, int id)
+  {
+    buffer.putInt(id);
+    buffer.putInt(10*id);
+    // Triplet: row id on 1 byte, tile id on 2 bytes, no external id
+    buffer.put((byte)((1<<6)|(2<<4)));
+    buffer.put((byte)id);
+    buffer.putShort((short)(1000+id));
+    byte[] name=("Edge "+id).getBytes(StandardCharsets.US_ASCII);
+    buffer.putInt(name.length);
+    buffer.put(name);
+    buffer.putShort((short)(-id));
+    buffer.put(String.format("%-20s","19930101000000").getBytes(StandardCharsets.US_ASCII));
+    buffer.putDouble(id*0.5);
+    int nbPoints=id%5;
+    buffer.putInt(nbPoints);
+    for(int j=0;j<nbPoints;j++)
+    {
+      buffer.putFloat(id+j*0.25f);
+      buffer.putFloat(-id-j*0.5f);
+    }
+  }
+
+  /**
+   * Test the header parsing.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testSchema() throws IOException
+  {
+    byte[] data=buildTable(ByteOrder.BIG_ENDIAN,true,EDGE_COLUMNS,new byte[0]);
+    VpfTable table=new VpfTableReader().read(new ByteArrayInputStream(data));
+    VpfTableSchema schema=table.getSchema();
+    Assert.assertEquals("Test table",schema.getDescription());
+    Assert.assertNull(schema.getNarrativeTable());
+    Assert.assertEquals(ByteOrder.BIG_ENDIAN,schema.getByteOrder());
+    Assert.assertEquals(data.length-4,schema.getHeaderLength());
+    Assert.assertEquals(8,schema.getNumberOfColumns());
+    Assert.assertFalse(schema.isFixedLength());
+    Assert.assertEquals(0,table.getNumberOfRecords());
+
+    VpfColumnDefinition id=schema.getColumn(0);
+    Assert.assertEquals("ID",id.getName());
+    Assert.assertEquals(VpfFieldType.INTEGER,id.getType());
+    Assert.assertEquals(1,id.getCount());
+    Assert.assertEquals(VpfKeyType.PRIMARY,id.getKeyType());
+    Assert.assertEquals("Row Identifier",id.getDescription());
+    Assert.assertNull(id.getValueDescriptionTable());
+    VpfColumnDefinition code=schema.getColumn(schema.getColumnIndex("code"));
+    Assert.assertEquals("char.vdt",code.getValueDescriptionTable());
+    VpfColumnDefinition coordinates=schema.getColumn(7);
+    Assert.assertEquals(VpfFieldType.FLOAT_2D_COORDINATES,coordinates.getType());
+    Assert.assertTrue(coordinates.isVariableLength());
+    Assert.assertEquals(-1,schema.getColumnIndex("NONE"));
+
+    // Same schema from the stream header reader
+    DataInputStream dis=new DataInputStream(new ByteArrayInputStream(data));
+    VpfTableSchema streamSchema=new BrowseReader().readHeader(dis);
+    Assert.assertEquals(schema.toString(),streamSchema.toString());
+    Assert.assertEquals(schema.getHeaderLength(),streamSchema.getHeaderLength());
+    Assert.assertEquals(ByteOrder.BIG_ENDIAN,streamSchema.getByteOrder());
+    Assert.assertEquals(-1,dis.read());
+  }
+
+  /**
+   * Test the records decoding, for all byte orders.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testRecords() throws IOException
+  {
+    checkEdgeTable(ByteOrder.LITTLE_ENDIAN,true);
+    checkEdgeTable(ByteOrder.BIG_ENDIAN,true);
+    // Little endian by default
+    checkEdgeTable(ByteOrder.LITTLE_ENDIAN,false);
+  }
+
+  private void checkEdgeTable(ByteOrder order, boolean flag) throws IOException
+  {
+    int nbRecords=5000;
+    byte[] data=buildTable(order,flag,EDGE_COLUMNS,buildEdgeRecords(order,nbRecords));
+    VpfTable table=new VpfTableReader().read(new ByteArrayInputStream(data));
+    Assert.assertEquals(order,table.getSchema().getByteOrder());
+    Assert.assertEquals(nbRecords,table.getNumberOfRecords());
+    VpfIntColumn ids=table.getIntColumn("ID");
+    VpfIntColumn startNodes=table.getIntColumn("start_node");
+    VpfTripletColumn faces=table.getTripletColumn("RIGHT_FACE");
+    VpfTextColumn names=table.getTextColumn("NAME");
+    VpfIntColumn codes=table.getIntColumn("CODE");
+    VpfTextColumn dates=table.getTextColumn("DATE");
+    VpfDoubleColumn lengths=table.getDoubleColumn("LENGTH");
+    VpfFloatColumn coordinates=table.getFloatColumn("COORDINATES");
+    Assert.assertEquals(2,coordinates.getDimension());
+    int nbElements=0;
+    for(int i=0;i<nbRecords;i++)
+    {
+      int id=i+1;
+      Assert.assertEquals(id,ids.getInt(i));
+      Assert.assertEquals(10*id,startNodes.getInt(i));
+      Assert.assertEquals(id&0xFF,faces.getId(i));
+      Assert.assertEquals(1000+id,faces.getTileId(i));
+      Assert.assertEquals(0,faces.getExternalId(i));
+      Assert.assertEquals("Edge "+id,names.getString(i));
+      Assert.assertEquals(-id,codes.getInt(i));
+      Assert.assertEquals("19930101000000",dates.getString(i));
+      Assert.assertEquals(id*0.5,lengths.getDouble(i),0);
+      int nbPoints=id%5;
+      Assert.assertEquals(nbPoints,coordinates.getNumberOfValues(i));
+      for(int j=0;j<nbPoints;j++)
+      {
+        Assert.assertEquals(id+j*0.25f,coordinates.getFloat(i,j,0),0);
+        Assert.assertEquals(-id-j*0.5f,coordinates.getFloat(i,j,1),0);
+      }
+      nbElements+=2*nbPoints;
+    }
+    Assert.assertEquals(nbElements,coordinates.getNumberOfElements());
+    Assert.assertEquals(nbElements,coordinates.getValuesStorage().length);
+  }
+
+  /**
+   * Test the decoding of fixed length tables, by blocks.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testFixedLengthTables() throws IOException
+  {
+    String columns="ID=I,1,P,Row Identifier,-,-,:"
+        +"CODE=S,2,N,Codes,-,-,:"
+        +"LABEL=T,5,N,Label,-,-,:"
+        +"XMIN=F,1,N,Minimum x,-,-,:"
+        +"LENGTH=R,1,N,Length,-,-,:"
+        +"COORDINATE=C,1,N,Coordinate,-,-,:"
+        +"POINTS=Y,2,N,Points,-,-,:";
+    int recordSize=4+4+5+4+8+8+48;
+    // More records than the input buffer can hold
+    int nbRecords=20001;
+    for(ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN,ByteOrder.BIG_ENDIAN})
+    {
+      ByteBuffer buffer=ByteBuffer.allocate(nbRecords*recordSize).order(order);
+      for(int i=0;i<nbRecords;i++)
+      {
+        buffer.putInt(i+1);
+        buffer.putShort((short)i);
+        buffer.putShort((short)-i);
+        buffer.put(String.format("%5d",Integer.valueOf(i%100000)).getBytes(StandardCharsets.US_ASCII));
+        buffer.putFloat(i*0.5f);
+        buffer.putDouble(i*0.25);
+        buffer.putFloat(i);
+        buffer.putFloat(-i);
+        for(int j=0;j<6;j++)
+        {
+          buffer.putDouble(i+j);
+        }
+      }
+      byte[] data=buildTable(order,true,columns,buffer.array());
+      VpfTable table=new VpfTableReader().read(new ByteArrayInputStream(data));
+      Assert.assertEquals(recordSize,table.getSchema().getRecordSize());
+      Assert.assertEquals(nbRecords,table.getNumberOfRecords());
+      VpfIntColumn ids=table.getIntColumn("ID");
+      VpfIntColumn codes=table.getIntColumn("CODE");
+      VpfTextColumn labels=table.getTextColumn("LABEL");
+      VpfFloatColumn xMin=table.getFloatColumn("XMIN");
+      VpfDoubleColumn lengths=table.getDoubleColumn("LENGTH");
+      VpfFloatColumn coordinates=table.getFloatColumn("COORDINATE");
+      VpfDoubleColumn points=table.getDoubleColumn("POINTS");
+      for(int i=0;i<nbRecords;i++)
+      {
+        Assert.assertEquals(i+1,ids.getInt(i));
+        Assert.assertEquals(2,codes.getNumberOfValues(i));
+        Assert.assertEquals((short)i,codes.getInt(i,0));
+        Assert.assertEquals((short)-i,codes.getInt(i,1));
+        Assert.assertEquals(String.valueOf(i),labels.getString(i));
+        Assert.assertEquals(i*0.5f,xMin.getFloat(i),0);
+        Assert.assertEquals(i*0.25,lengths.getDouble(i),0);
+        Assert.assertEquals(i,coordinates.getFloat(i,0,0),0);
+        Assert.assertEquals(-i,coordinates.getFloat(i,0,1),0);
+        for(int j=0;j<6;j++)
+        {
+          Assert.assertEquals(i+j,points.getDouble(i,j/3,j%3),0);
+        }
+      }
+      Assert.assertEquals(2*nbRecords,coordinates.getValuesStorage().length);
+      // Truncated record
+      try
+      {
+        new VpfTableReader().read(new ByteArrayInputStream(Arrays.copyOf(data,data.length-1)));
+        Assert.fail("Truncated record accepted");
+      }
+      catch(IOException ioe)
+      {
+        // Expected
+      }
+    }
+  }
+
+  /**
+   * Test the bulk decoding of records larger than the input buffer.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void testLargeRecords() throws IOException
+  {
+    String columns="ID=I,1,P,Row Identifier,-,-,:"
+        +"COORDINATES=B,*,N,Coordinates,-,-,:"
+        +"VALUES=I,*,N,Values,-,-,:";
+    int nbPoints=10000;
+    for(ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN,ByteOrder.BIG_ENDIAN})
+    {
+      ByteBuffer buffer=ByteBuffer.allocate(2*(12+nbPoints*20)).order(order);
+      for(int i=0;i<2;i++)
+      {
+        buffer.putInt(i+1);
+        buffer.putInt(nbPoints);
+        for(int j=0;j<2*nbPoints;j++)
+        {
+          buffer.putDouble(j*0.5-i);
+        }
+        buffer.putInt(nbPoints);
+        for(int j=0;j<nbPoints;j++)
+        {
+          buffer.putInt(j*(i+1));
+        }
+      }
+      byte[] data=buildTable(order,order==ByteOrder.BIG_ENDIAN,columns,buffer.array());
+      VpfTable table=new VpfTableReader().read(new ByteArrayInputStream(data));
+      Assert.assertEquals(2,table.getNumberOfRecords());
+      VpfDoubleColumn coordinates=table.getDoubleColumn("COORDINATES");
+      VpfIntColumn values=table.getIntColumn("VALUES");
+      for(int i=0;i<2;i++)
+      {
+        Assert.assertEquals(nbPoints,coordinates.getNumberOfValues(i));
+        Assert.assertEquals(nbPoints,values.getNumberOfValues(i));
+        for(int j=0;j<nbPoints;j++)
+        {
+          Assert.assertEquals(2*j*0.5-i,coordinates.getDouble(i,j,0),0);
+          Assert.assertEquals((2*j+1)*0.5-i,coordinates.getDouble(i,j,1),0);
+          Assert.assertEquals(j*(i+1),values.getInt(i,j));
+        }
+      }
+    }
+  }
+
+  /**
+   * Test errors on invalid tables.
+   */
+  public void testErrors()
+  {
+    ByteOrder order=ByteOrder.LITTLE_ENDIAN;
+    // Truncated record
+    byte[] data=buildTable(order,true,EDGE_COLUMNS,buildEdgeRecords(order,10));
+    checkError(Arrays.copyOf(data,data.length-3));
+    // Unknown field type
+    checkError(buildTable(order,true,"ID=Q,1,P,Row Identifier,-,-,:",new byte[0]));
+    // Missing column end
+    checkError(buildTable(order,true,"ID=I,1,P,Row Identifier,-,-,",new byte[0]));
+    try
+    {
+      new VpfTableReader().read(new ByteArrayInputStream(data)).getIntColumn("NAME");
+      Assert.fail("Column type not checked");
+    }
+    catch(IllegalArgumentException iae)
+    {
+      // Expected
+    }
+    catch(IOException ioe)
+    {
+      Assert.fail(ioe.getMessage());
+    }
+  }
+
+  private void checkError(byte[] data)
+  {
+    try
+    {
+      new VpfTableReader().read(new ByteArrayInputStream(data));
+      Assert.fail("Invalid table accepted");
+    }
+    catch(IOException ioe)
+    {
+      // Expected
+    }
+  }
+}